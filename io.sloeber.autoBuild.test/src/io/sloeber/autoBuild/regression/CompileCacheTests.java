@@ -0,0 +1,151 @@
+package io.sloeber.autoBuild.regression;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.sloeber.autoBuild.internal.CompileCache;
+
+/**
+ * Check the key of the compile cache changes when the command, the source or
+ * the compiler changes, that a result is not used when a header changed and
+ * that the dependency file of a result is moved to the build folder it is
+ * restored in.
+ * The folders contain spaces as the paths of the arduino tools often do.
+ * Each test uses a source with the current time so results of previous runs
+ * are not found in the cache.
+ */
+@SuppressWarnings({ "nls", "static-method" })
+public class CompileCacheTests {
+	private Path myRoot;
+	private Path myCompiler;
+	private Path mySource;
+	private Path myHeader;
+
+	@BeforeEach
+	public void beforeEach() throws Exception {
+		myRoot = Files.createTempDirectory("compile cache");
+		myCompiler = myRoot.resolve("my compiler").resolve("gcc");
+		Files.createDirectories(myCompiler.getParent());
+		Files.writeString(myCompiler, "compiler 1", StandardCharsets.UTF_8);
+		mySource = myRoot.resolve("my source").resolve("source.cpp");
+		Files.createDirectories(mySource.getParent());
+		Files.writeString(mySource, "#include \"header.h\"\n//" + System.nanoTime(), StandardCharsets.UTF_8);
+		myHeader = mySource.resolveSibling("header.h");
+		Files.writeString(myHeader, "int header;", StandardCharsets.UTF_8);
+	}
+
+	@AfterEach
+	public void afterEach() throws Exception {
+		try (Stream<Path> paths = Files.walk(myRoot)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(curPath -> curPath.toFile().delete());
+		}
+	}
+
+	@Test
+	public void quotedCompilerWithSpaces() {
+		assertEquals(myCompiler, CompileCache.getCompiler(getRecipe(myRoot.resolve("build"))),
+				"The quoted compiler has not been found");
+		assertEquals(myCompiler, CompileCache.getCompiler("'" + myCompiler + "' -c"),
+				"The single quoted compiler has not been found");
+		assertNull(CompileCache.getCompiler(myCompiler + " -c"), "A path with spaces must be quoted");
+		assertNull(CompileCache.getCompiler("gcc -c source.cpp"), "A compiler without path has been found");
+		assertNull(CompileCache.getKey("\"" + myRoot.resolve("missing").resolve("gcc") + "\" -c",
+				List.of(mySource), myRoot), "A command with an unknown compiler can be cached");
+	}
+
+	@Test
+	public void keyChangesWithCommandSourceAndCompiler() throws Exception {
+		Path buildFolder = myRoot.resolve("build");
+		String recipe = getRecipe(buildFolder);
+		String key = CompileCache.getKey(recipe, List.of(mySource), buildFolder);
+		assertNotNull(key, "The command can not be cached");
+		assertEquals(key, CompileCache.getKey(recipe, List.of(mySource), buildFolder), "The key is not stable");
+
+		Path otherBuildFolder = myRoot.resolve("other build");
+		assertEquals(key, CompileCache.getKey(getRecipe(otherBuildFolder), List.of(mySource), otherBuildFolder),
+				"The key depends on the build folder");
+
+		assertNotEquals(key, CompileCache.getKey(recipe + " -DOTHER", List.of(mySource), buildFolder),
+				"Another command gives the same key");
+
+		Files.writeString(mySource, "changed source", StandardCharsets.UTF_8);
+		String changedSourceKey = CompileCache.getKey(recipe, List.of(mySource), buildFolder);
+		assertNotEquals(key, changedSourceKey, "Another source gives the same key");
+
+		Files.writeString(myCompiler, "compiler 2 with another size", StandardCharsets.UTF_8);
+		assertNotEquals(changedSourceKey, CompileCache.getKey(recipe, List.of(mySource), buildFolder),
+				"Another compiler gives the same key");
+	}
+
+	@Test
+	public void restoreInOtherBuildFolderAndHeaderChange() throws Exception {
+		Path buildFolder = myRoot.resolve("build one");
+		String depFileContent = createBuildOutput(buildFolder);
+		CompileCache.Statistics statistics = new CompileCache.Statistics();
+		CompileCache cache = getCache(buildFolder, statistics);
+		assertFalse(cache.restore(), "A new command has been restored");
+		cache.store();
+		assertEquals(1, statistics.getStores(), "The result has not been stored");
+
+		// the generated header must be there when the result is restored
+		Path otherBuildFolder = myRoot.resolve("build two");
+		Files.createDirectories(otherBuildFolder);
+		Files.copy(buildFolder.resolve("generated header.h"), otherBuildFolder.resolve("generated header.h"));
+		assertTrue(getCache(otherBuildFolder, statistics).restore(), "The result has not been restored");
+		assertEquals(1, statistics.getHits());
+		assertEquals("object", Files.readString(otherBuildFolder.resolve("source.o"), StandardCharsets.UTF_8),
+				"The target has not been restored");
+		assertEquals(depFileContent.replace(escape(buildFolder), escape(otherBuildFolder)),
+				Files.readString(otherBuildFolder.resolve("source.d"), StandardCharsets.UTF_8),
+				"The dependency file does not point to the build folder it is restored in");
+
+		Files.writeString(myHeader, "int changedHeader;", StandardCharsets.UTF_8);
+		assertFalse(getCache(otherBuildFolder, statistics).restore(),
+				"The result has been restored after a header change");
+		assertEquals(1, statistics.getHits());
+	}
+
+	/*
+	 * Create the target and dependency file like the compiler does and return
+	 * the content of the dependency file
+	 */
+	private String createBuildOutput(Path buildFolder) throws Exception {
+		Files.createDirectories(buildFolder);
+		Files.writeString(buildFolder.resolve("source.o"), "object", StandardCharsets.UTF_8);
+		Path generatedHeader = buildFolder.resolve("generated header.h");
+		Files.writeString(generatedHeader, "int generated;", StandardCharsets.UTF_8);
+		String depFileContent = escape(buildFolder.resolve("source.o")) + ": " + escape(mySource) + " \\\n "
+				+ escape(myHeader) + " " + escape(generatedHeader) + "\n\n" + escape(myHeader) + ":\n\n"
+				+ escape(generatedHeader) + ":\n";
+		Files.writeString(buildFolder.resolve("source.d"), depFileContent, StandardCharsets.UTF_8);
+		return depFileContent;
+	}
+
+	private CompileCache getCache(Path buildFolder, CompileCache.Statistics statistics) {
+		CompileCache ret = CompileCache.get(getRecipe(buildFolder), List.of(mySource),
+				List.of(buildFolder.resolve("source.o")), List.of(buildFolder.resolve("source.d")), buildFolder,
+				statistics);
+		assertNotNull(ret, "The command can not be cached");
+		return ret;
+	}
+
+	private String getRecipe(Path buildFolder) {
+		return "\"" + myCompiler + "\" -c -MMD -MP -MF\"" + buildFolder.resolve("source.d") + "\" \"" + mySource
+				+ "\" -o \"" + buildFolder.resolve("source.o") + "\"";
+	}
+
+	// the escaping of spaces done by the compiler in dependency files
+	private static String escape(Path file) {
+		return file.toString().replace(" ", "\\ ");
+	}
+}
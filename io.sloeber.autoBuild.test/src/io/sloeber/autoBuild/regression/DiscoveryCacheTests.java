@@ -0,0 +1,80 @@
+package io.sloeber.autoBuild.regression;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.eclipse.cdt.core.settings.model.ICLanguageSettingEntry;
+import org.eclipse.cdt.core.settings.model.util.CDataUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.sloeber.autoBuild.internal.AutoBuildDiscoveryCache;
+import io.sloeber.autoBuild.internal.AutoBuildDiscoveryCache.DiscoveryResult;
+
+/**
+ * Check the compiler of a discovery command is searched for in the path of the
+ * environment the command is run with and that failed discoveries are not
+ * persisted.
+ */
+@SuppressWarnings({ "nls", "static-method" })
+public class DiscoveryCacheTests {
+	private Path myRoot;
+	private Path myCompilerFolder;
+
+	@BeforeEach
+	public void beforeEach() throws Exception {
+		myRoot = Files.createTempDirectory("discovery cache");
+		myCompilerFolder = myRoot.resolve("tool chain");
+		Files.createDirectories(myCompilerFolder);
+		Files.writeString(myCompilerFolder.resolve("discoverytestgcc"), "compiler", StandardCharsets.UTF_8);
+	}
+
+	@AfterEach
+	public void afterEach() throws Exception {
+		try (Stream<Path> paths = Files.walk(myRoot)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(curPath -> curPath.toFile().delete());
+		}
+	}
+
+	@Test
+	public void compilerInTheBuildPath() throws Exception {
+		String command = "discoverytestgcc -E -P -v -dD";
+		long timeStamp = Files.getLastModifiedTime(myCompilerFolder.resolve("discoverytestgcc")).toMillis();
+		assertEquals(timeStamp,
+				AutoBuildDiscoveryCache.getCompilerTimeStamp(command, Map.of("PATH", myCompilerFolder.toString())),
+				"The compiler has not been found in the path of the build environment");
+		assertEquals(timeStamp,
+				AutoBuildDiscoveryCache.getCompilerTimeStamp(command, Map.of("Path", myCompilerFolder.toString())),
+				"The compiler has not been found in the windows path");
+		assertEquals(AutoBuildDiscoveryCache.NOT_EXISTING,
+				AutoBuildDiscoveryCache.getCompilerTimeStamp(command, Map.of("PATH", myRoot.toString())),
+				"The compiler has been found outside the path of the build environment");
+		assertEquals(AutoBuildDiscoveryCache.NOT_EXISTING, AutoBuildDiscoveryCache.getCompilerTimeStamp(command, null),
+				"The compiler has been found in the path of eclipse");
+	}
+
+	@Test
+	public void failedDiscoveriesAreNotPersisted() {
+		Path cacheFile = myRoot.resolve("discovery.cache");
+		List<ICLanguageSettingEntry> entries = List.of(CDataUtil.createCMacroEntry("DISCOVERED", "1", 0));
+		AutoBuildDiscoveryCache cache = new AutoBuildDiscoveryCache(cacheFile);
+		cache.put("found", new DiscoveryResult(1000, entries));
+		cache.put("compiler not found", new DiscoveryResult(AutoBuildDiscoveryCache.NOT_EXISTING, entries));
+		cache.put("nothing found", new DiscoveryResult(1000, List.of()));
+		assertNotNull(cache.get("compiler not found"), "A failed discovery is not kept in memory");
+
+		AutoBuildDiscoveryCache loaded = new AutoBuildDiscoveryCache(cacheFile);
+		assertNotNull(loaded.get("found"), "The discovery has not been persisted");
+		assertEquals(entries, loaded.get("found").getEntries());
+		assertNull(loaded.get("compiler not found"), "A discovery without compiler has been persisted");
+		assertNull(loaded.get("nothing found"), "A discovery without result has been persisted");
+	}
+}
@@ -0,0 +1,163 @@
+package io.sloeber.autoBuild.regression;
+
+import static io.sloeber.autoBuild.helpers.Defaults.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceDescription;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import io.sloeber.autoBuild.api.AutoBuildProject;
+import io.sloeber.autoBuild.api.IAutoBuildConfigurationDescription;
+import io.sloeber.autoBuild.api.IAutoBuildMakeRule;
+import io.sloeber.autoBuild.buildTools.api.IBuildTools;
+import io.sloeber.autoBuild.buildTools.api.IBuildToolsManager;
+import io.sloeber.autoBuild.extensionPoint.providers.AutoBuildMakeRules;
+import io.sloeber.autoBuild.helpers.Shared;
+import io.sloeber.autoBuild.schema.api.IOutputType;
+
+/**
+ * Generate the make rules for projects with 100, 1000 and 10000 source files
+ * and verify the rules, the target index and the time needed.
+ * Every source file must get exactly one rule, the number of other rules must
+ * not depend on the number of source files and every target must be found in
+ * the index.
+ * Ten times more files must take about ten times longer. When each new rule
+ * looks at all the rules generated before it takes a hundred times longer.
+ */
+@SuppressWarnings({ "nls", "static-method" })
+public class MakeRuleScaling {
+	// linear is 10, quadratic is 100; the rest is room for a busy test machine
+	private static final long MAX_TIME_RATIO = 30;
+	private static final int TIMED_RUNS = 3;
+	private final List<IProject> myProjects = new ArrayList<>();
+
+	@BeforeAll
+	public static void beforeAll() throws CoreException {
+		Shared.setDeleteProjects(false);
+		Shared.setCloseProjects(false);
+		// turn off auto building to make sure autobuild does not start a build behind
+		// our backs
+		final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		IWorkspaceDescription workspaceDesc = workspace.getDescription();
+		workspaceDesc.setAutoBuilding(false);
+		workspace.setDescription(workspaceDesc);
+	}
+
+	@AfterEach
+	public void afterEach() throws CoreException {
+		for (IProject curProject : myProjects) {
+			curProject.delete(true, true, new NullProgressMonitor());
+		}
+		myProjects.clear();
+	}
+
+	@Test
+	public void makeRulesScaleLinearly() throws Exception {
+		int[] numFiles = { 100, 1000, 10000 };
+		int[] otherRules = new int[numFiles.length];
+		long[] nanos = new long[numFiles.length];
+		for (int curSize = 0; curSize < numFiles.length; curSize++) {
+			IProject project = createProject(numFiles[curSize]);
+			otherRules[curSize] = checkMakeRules(project, numFiles[curSize]);
+			nanos[curSize] = timeMakeRules(project);
+		}
+		for (int curSize = 1; curSize < numFiles.length; curSize++) {
+			assertEquals(otherRules[0], otherRules[curSize],
+					"The number of rules that do not compile a source file depends on the number of files");
+			assertTrue(nanos[curSize] < nanos[curSize - 1] * MAX_TIME_RATIO,
+					"Generating the rules for " + numFiles[curSize] + " files took " + nanos[curSize]
+							+ " ns and for " + numFiles[curSize - 1] + " files " + nanos[curSize - 1] + " ns");
+		}
+	}
+
+	/*
+	 * The fastest of a few generations of the make rules so the warming up of
+	 * the JIT compiler and garbage collections do not count
+	 */
+	private static long timeMakeRules(IProject project) throws CoreException {
+		IAutoBuildConfigurationDescription autoData = IAutoBuildConfigurationDescription.getActiveConfig(project,
+				false);
+		long ret = Long.MAX_VALUE;
+		for (int curRun = 0; curRun < TIMED_RUNS; curRun++) {
+			long start = System.nanoTime();
+			new AutoBuildMakeRules(autoData);
+			ret = Math.min(ret, System.nanoTime() - start);
+		}
+		return ret;
+	}
+
+	/*
+	 * Check the make rules of a project with numFiles source files and return
+	 * the number of rules that do not compile a generated source file
+	 */
+	private static int checkMakeRules(IProject project, int numFiles) throws Exception {
+		IFolder generatedFolder = project.getFolder("generated");
+		IAutoBuildConfigurationDescription autoData = IAutoBuildConfigurationDescription.getActiveConfig(project,
+				false);
+		AutoBuildMakeRules makeRules = new AutoBuildMakeRules(autoData);
+
+		int sourceRules = 0;
+		Map<IOutputType, Set<IFile>> expectedTargets = new HashMap<>();
+		for (IAutoBuildMakeRule curRule : makeRules.getMakeRules()) {
+			for (IFile curPrerequisite : curRule.getPrerequisiteFiles()) {
+				if (generatedFolder.getFullPath().isPrefixOf(curPrerequisite.getFullPath())) {
+					sourceRules++;
+					break;
+				}
+			}
+			for (Entry<IOutputType, Set<IFile>> curEntry : curRule.getTargets().entrySet()) {
+				expectedTargets.computeIfAbsent(curEntry.getKey(), k -> new HashSet<>()).addAll(curEntry.getValue());
+				for (IFile curTarget : curEntry.getValue()) {
+					assertEquals(curRule, makeRules.findTarget(curEntry.getKey(), curTarget),
+							"The index does not find the rule of " + curTarget);
+				}
+			}
+		}
+		assertEquals(numFiles, sourceRules, "Not every source file has exactly one make rule");
+		assertEquals(expectedTargets, makeRules.getTargets(), "The targets do not match the targets of the rules");
+		return makeRules.size() - sourceRules;
+	}
+
+	private IProject createProject(int numFiles) throws Exception {
+		String projectName = "makeRuleScaling_" + numFiles + "_" + System.currentTimeMillis();
+		IBuildTools buildTools = IBuildToolsManager.getDefault().getAnyInstalledBuildTools(defaultProjectType);
+		IProject project = AutoBuildProject.createProject(projectName, defaultProjectType, defaultNatureID,
+				c_exeCodeProvider, buildTools, false, null);
+		myProjects.add(project);
+		// creating the files on disk and refreshing once is much faster than
+		// creating 10000 files in the workspace
+		IFolder generatedFolder = project.getFolder("generated");
+		Path generatedLocation = generatedFolder.getLocation().toPath();
+		// spread the files over folders like a real project
+		for (int curFile = 0; curFile < numFiles; curFile++) {
+			Path folder = generatedLocation.resolve("folder" + (curFile / 100));
+			Files.createDirectories(folder);
+			String content = "int function" + curFile + "(void){return " + curFile + ";}\n";
+			Files.writeString(folder.resolve("file" + curFile + ".c"), content, StandardCharsets.UTF_8);
+		}
+		generatedFolder.refreshLocal(IResource.DEPTH_INFINITE, new NullProgressMonitor());
+		return project;
+	}
+
+}
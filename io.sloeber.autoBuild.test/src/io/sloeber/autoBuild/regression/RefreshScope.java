@@ -0,0 +1,212 @@
+package io.sloeber.autoBuild.regression;
+
+import static io.sloeber.autoBuild.helpers.Defaults.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.eclipse.cdt.core.model.CoreModel;
+import org.eclipse.cdt.core.settings.model.ICProjectDescription;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceDescription;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import io.sloeber.autoBuild.api.AutoBuildProject;
+import io.sloeber.autoBuild.api.IAutoBuildConfigurationDescription;
+import io.sloeber.autoBuild.buildTools.api.IBuildTools;
+import io.sloeber.autoBuild.buildTools.api.IBuildToolsManager;
+import io.sloeber.autoBuild.extensionPoint.providers.CommonBuilder;
+import io.sloeber.autoBuild.helpers.Shared;
+
+/**
+ * Build a project with a big linked folder and check the files added to the
+ * linked folder outside of eclipse are seen by the build.
+ * Only the first build of the project refreshes the whole project. The next
+ * builds only refresh the folders that have files added or removed, the build
+ * folder and the targets unless the configuration asks to refresh the whole
+ * project. This is measured with the number of resources refreshed by the
+ * build.
+ */
+@SuppressWarnings({ "nls", "static-method" })
+public class RefreshScope {
+	// about the size of the libraries folder of a platform
+	private static final int LINKED_FILES = 5000;
+	private static final int NEW_FILES = 100;
+	// the modification time of a folder must be older than the refresh time
+	// margin of the builder to be seen as unchanged
+	private static final long WAIT_FOR_REFRESH_MARGIN = 3000;
+
+	private Path myLinkedLocation;
+	private IProject myProject;
+
+	@BeforeAll
+	public static void beforeAll() throws CoreException {
+		Shared.setDeleteProjects(false);
+		Shared.setCloseProjects(false);
+		// turn off auto building to make sure autobuild does not start a build behind
+		// our backs
+		final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		IWorkspaceDescription workspaceDesc = workspace.getDescription();
+		workspaceDesc.setAutoBuilding(false);
+		workspace.setDescription(workspaceDesc);
+	}
+
+	@AfterEach
+	public void afterEach() throws Exception {
+		if (myProject != null) {
+			myProject.delete(true, true, new NullProgressMonitor());
+			myProject = null;
+		}
+		if (myLinkedLocation != null) {
+			try (Stream<Path> paths = Files.walk(myLinkedLocation)) {
+				paths.sorted(Comparator.reverseOrder()).forEach(curPath -> curPath.toFile().delete());
+			}
+			myLinkedLocation = null;
+		}
+	}
+
+	@Test
+	public void buildSeesExternalChangesInLinkedFolders() throws Exception {
+		createProject("refreshScope_");
+		IFolder linkedFolder = myProject.getFolder("linked");
+		IFile changedFile = linkedFolder.getFile("file0/file0.txt");
+		IAutoBuildConfigurationDescription autoData = IAutoBuildConfigurationDescription.getActiveConfig(myProject,
+				false);
+		assertFalse(autoData.refreshWholeProject(), "The whole project is refreshed by default");
+
+		waitAndBuild();
+		assertTrue(CommonBuilder.getRefreshedResources(myProject) > LINKED_FILES,
+				"The first build did not refresh the whole project");
+
+		// without changes only the build output is refreshed
+		countAddedFiles(linkedFolder.getFullPath());
+		int unchangedRefresh = CommonBuilder.getRefreshedResources(myProject);
+		assertTrue(unchangedRefresh < LINKED_FILES / 10,
+				"A build without changes refreshed " + unchangedRefresh + " resources");
+
+		// change the linked folder outside of eclipse
+		addFiles(myLinkedLocation, "new", NEW_FILES);
+		Files.writeString(changedFile.getLocation().toPath(), "changed outside of eclipse", StandardCharsets.UTF_8);
+
+		int added = countAddedFiles(linkedFolder.getFullPath());
+		assertEquals(NEW_FILES, added, "The build did not see the files added to the linked folder");
+		int changedRefresh = CommonBuilder.getRefreshedResources(myProject);
+		assertTrue(changedRefresh < unchangedRefresh + 2 * NEW_FILES + LINKED_FILES / 100,
+				"Adding " + NEW_FILES + " files refreshed " + changedRefresh + " resources");
+		assertTrue(autoData.getBuildFolder().exists(), "The build folder has not been refreshed");
+		assertTrue(autoData.getBuildFolder().members().length > 0, "The build output has not been refreshed");
+	}
+
+	@Test
+	public void refreshWholeProjectOption() throws Exception {
+		createProject("refreshWholeProject_");
+		CoreModel coreModel = CoreModel.getDefault();
+		ICProjectDescription projectDescription = coreModel.getProjectDescription(myProject, true);
+		IAutoBuildConfigurationDescription writableAutoData = IAutoBuildConfigurationDescription
+				.getConfig(projectDescription.getActiveConfiguration());
+		writableAutoData.setRefreshWholeProject(true);
+		coreModel.setProjectDescription(myProject, projectDescription);
+
+		IAutoBuildConfigurationDescription autoData = IAutoBuildConfigurationDescription.getActiveConfig(myProject,
+				false);
+		assertTrue(autoData.refreshWholeProject(), "The refresh option has not been stored");
+
+		IFolder linkedFolder = myProject.getFolder("linked");
+		waitAndBuild();
+		addFiles(myLinkedLocation, "new", NEW_FILES);
+		int added = countAddedFiles(linkedFolder.getFullPath());
+		assertEquals(NEW_FILES, added, "The build did not see the files added to the linked folder");
+		assertTrue(CommonBuilder.getRefreshedResources(myProject) > LINKED_FILES + NEW_FILES,
+				"The whole project has not been refreshed");
+		assertTrue(autoData.getBuildFolder().members().length > 0, "The build output has not been refreshed");
+	}
+
+	/*
+	 * Wait until the folders created with the project are older than the
+	 * refresh time margin and do the first build of the project
+	 */
+	private void waitAndBuild() throws Exception {
+		Thread.sleep(WAIT_FOR_REFRESH_MARGIN);
+		myProject.build(IncrementalProjectBuilder.FULL_BUILD, AutoBuildProject.COMMON_BUILDER_ID, null,
+				new NullProgressMonitor());
+	}
+
+	/*
+	 * Build the project and count the files added to the workspace in the
+	 * folder
+	 */
+	private int countAddedFiles(IPath folder) throws CoreException {
+		AtomicInteger ret = new AtomicInteger();
+		IResourceChangeListener listener = new IResourceChangeListener() {
+			@Override
+			public void resourceChanged(IResourceChangeEvent event) {
+				IResourceDelta delta = event.getDelta().findMember(folder);
+				if (delta == null) {
+					return;
+				}
+				try {
+					delta.accept(curDelta -> {
+						if (curDelta.getKind() == IResourceDelta.ADDED
+								&& curDelta.getResource().getType() == IResource.FILE) {
+							ret.incrementAndGet();
+						}
+						return true;
+					});
+				} catch (CoreException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		IWorkspace workspace = ResourcesPlugin.getWorkspace();
+		workspace.addResourceChangeListener(listener, IResourceChangeEvent.POST_CHANGE);
+		try {
+			myProject.build(IncrementalProjectBuilder.FULL_BUILD, AutoBuildProject.COMMON_BUILDER_ID, null,
+					new NullProgressMonitor());
+		} finally {
+			workspace.removeResourceChangeListener(listener);
+		}
+		return ret.get();
+	}
+
+	private static void addFiles(Path folder, String prefix, int numFiles) throws Exception {
+		// spread the files over folders like the libraries of a platform
+		for (int curFile = 0; curFile < numFiles; curFile++) {
+			Path subFolder = folder.resolve(prefix + (curFile / 100));
+			Files.createDirectories(subFolder);
+			Files.writeString(subFolder.resolve(prefix + curFile + ".txt"), "file " + curFile,
+					StandardCharsets.UTF_8);
+		}
+	}
+
+	private void createProject(String namePrefix) throws Exception {
+		myLinkedLocation = Files.createTempDirectory("refreshScope");
+		addFiles(myLinkedLocation, "file", LINKED_FILES);
+		String projectName = namePrefix + System.currentTimeMillis();
+		IBuildTools buildTools = IBuildToolsManager.getDefault().getAnyInstalledBuildTools(defaultProjectType);
+		myProject = AutoBuildProject.createProject(projectName, defaultProjectType, defaultNatureID,
+				c_exeCodeProvider, buildTools, false, null);
+		IFolder linkedFolder = myProject.getFolder("linked");
+		linkedFolder.createLink(org.eclipse.core.runtime.Path.fromOSString(myLinkedLocation.toString()),
+				IResource.NONE, new NullProgressMonitor());
+	}
+
+}
@@ -40,6 +40,8 @@ public class Messages extends NLS {
     public static String BuilderSettingsTab_7;
     public static String BuilderSettingsTab_8;
     public static String BuildBehaviourTab_Header;
+    public static String BuildBehaviourTab_Refresh_whole_project;
+    public static String BuildBehaviourTab_Use_compile_cache;
     public static String BuilderSettingsTab_Configure_Build_Arguments_In_the_Behavior_tab;
     public static String BuildOptionSettingsUI_0;
     public static String BuildPropertyPage_error_Unknown_tree_element;
@@ -94,6 +94,8 @@ public class BuildBehaviourTab extends AbstractAutoBuildPropertyTab {
     private Button myUseCustomBuildArgumentsButton;
     private Text myBuildArgumentsText;
     private Button myStopOnErrorButton;
+    private Button myRefreshWholeProjectButton;
+    private Button myUseCompileCacheButton;
     private Button myUseParallelBuildButton;
 
     private Button myParalOpt_OptimalButton;
@@ -155,6 +157,34 @@ public class BuildBehaviourTab extends AbstractAutoBuildPropertyTab {
             }
         });
 
+        myRefreshWholeProjectButton = new Button(c1, SWT.CHECK);
+        myRefreshWholeProjectButton.setText(Messages.BuildBehaviourTab_Refresh_whole_project);
+        gd = new GridData(SWT.LEFT);
+        gd.horizontalSpan = 1;
+        gd.horizontalIndent = 15;
+        myRefreshWholeProjectButton.setLayoutData(gd);
+        myRefreshWholeProjectButton.setFont(font);
+        myRefreshWholeProjectButton.addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent event) {
+                myAutoConfDesc.setRefreshWholeProject(myRefreshWholeProjectButton.getSelection());
+            }
+        });
+
+        myUseCompileCacheButton = new Button(c1, SWT.CHECK);
+        myUseCompileCacheButton.setText(Messages.BuildBehaviourTab_Use_compile_cache);
+        gd = new GridData(SWT.LEFT);
+        gd.horizontalSpan = 1;
+        gd.horizontalIndent = 15;
+        myUseCompileCacheButton.setLayoutData(gd);
+        myUseCompileCacheButton.setFont(font);
+        myUseCompileCacheButton.addSelectionListener(new SelectionAdapter() {
+            @Override
+            public void widgetSelected(SelectionEvent event) {
+                myAutoConfDesc.setUseCompileCache(myUseCompileCacheButton.getSelection());
+            }
+        });
+
         Composite c2 = new Composite(grp_buildSettings, SWT.NONE);
         setupControl(c2, 1, GridData.FILL_BOTH);
         gl = new GridLayout(1, false);
@@ -352,6 +382,8 @@ public class BuildBehaviourTab extends AbstractAutoBuildPropertyTab {
         setTriSelection(myUseStandardBuildArgumentsButton, myAutoConfDesc.useStandardBuildArguments());
         setTriSelection(myUseCustomBuildArgumentsButton, !myAutoConfDesc.useStandardBuildArguments());
         setTriSelection(myStopOnErrorButton, myAutoConfDesc.stopOnFirstBuildError());
+        myRefreshWholeProjectButton.setSelection(myAutoConfDesc.refreshWholeProject());
+        myUseCompileCacheButton.setSelection(myAutoConfDesc.useCompileCache());
         myBuildArgumentsText.setText(myAutoConfDesc.getCustomBuildArguments());
 
         myAutoBuildCombo.myCheckBoxButton.setSelection(myAutoConfDesc.isAutoBuildEnabled());
@@ -368,6 +400,7 @@ public class BuildBehaviourTab extends AbstractAutoBuildPropertyTab {
         myUseStandardBuildArgumentsButton.setEnabled(runner.supportsCustomCommand());
         myUseCustomBuildArgumentsButton.setEnabled(runner.supportsCustomCommand());
         myStopOnErrorButton.setEnabled(runner.supportsStopOnError());
+        myUseCompileCacheButton.setEnabled(!runner.supportsMakeFiles());
 
     }
 
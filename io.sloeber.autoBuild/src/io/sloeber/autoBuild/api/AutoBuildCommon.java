@@ -7,12 +7,20 @@ import static java.nio.file.Files.isExecutable;
 import static java.util.regex.Pattern.quote;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
@@ -40,12 +48,36 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Path;
 
 import io.sloeber.autoBuild.core.Activator;
+import io.sloeber.autoBuild.integration.AutoBuildConfigurationDescription;
+import io.sloeber.autoBuild.internal.AutoBuildCache;
+import io.sloeber.autoBuild.internal.AutoBuildState;
 import io.sloeber.autoBuild.schema.api.IConfiguration;
 import io.sloeber.autoBuild.schema.api.ITool;
 
 public class AutoBuildCommon {
+    private static final String RESOLVE_CACHE_KEY = "resolve"; //$NON-NLS-1$
+    private static final String RESOLVE_RECURSIVE_CACHE_KEY = "resolveRecursive"; //$NON-NLS-1$
     static public String ECHO_BLANK_LINE = ECHO + WHITESPACE + SINGLE_QUOTE + WHITESPACE + SINGLE_QUOTE + NEWLINE;
 
+    // What save wrote to each file so unchanged files do not need to be read
+    private static final Map<IPath, SavedContent> mySavedContent = new ConcurrentHashMap<>();
+
+    private static class SavedContent {
+        final byte[] myHash;
+        final long myTimeStamp;
+        final long myLength;
+
+        SavedContent(byte[] hash, File file) {
+            myHash = hash;
+            myTimeStamp = file.lastModified();
+            myLength = file.length();
+        }
+
+        boolean isSameFile(File file) {
+            return myTimeStamp == file.lastModified() && myLength == file.length();
+        }
+    }
+
     /**
      * Answers the argument with all whitespaces replaced with an escape sequence.
      */
@@ -100,12 +132,20 @@ public class AutoBuildCommon {
         return macroName;
     }
 
+    /**
+     * Write the buffer to the file.
+     * When the file already has this content the file is not touched so make
+     * files that did not change do not cause resource deltas.
+     */
     public static void save(StringBuffer buffer, IFile file) throws CoreException {
 
         byte[] bytes = buffer.toString().getBytes();
+        byte[] hash = getHash(bytes);
+        if (file.exists() && hasContent(file, bytes, hash)) {
+            return;
+        }
         ByteArrayInputStream stream = new ByteArrayInputStream(bytes);
         if (file.exists()) {
-            //TOFIX JABA check wether content has changed
             file.setContents(stream, true, false, null);
         } else {
             IFolder fileFolder = file.getProject().getFolder(file.getParent().getProjectRelativePath());
@@ -113,6 +153,41 @@ public class AutoBuildCommon {
             file.create(stream, false, null);
         }
         file.setDerived(true, null);
+        IPath location = file.getLocation();
+        if (location != null) {
+            mySavedContent.put(file.getFullPath(), new SavedContent(hash, location.toFile()));
+        }
+    }
+
+    private static boolean hasContent(IFile file, byte[] bytes, byte[] hash) {
+        IPath location = file.getLocation();
+        if (location == null) {
+            return false;
+        }
+        File localFile = location.toFile();
+        SavedContent saved = mySavedContent.get(file.getFullPath());
+        if (saved != null && saved.isSameFile(localFile)) {
+            return MessageDigest.isEqual(saved.myHash, hash);
+        }
+        // Not written by save or changed since
+        try {
+            if (localFile.length() != bytes.length || !Arrays.equals(Files.readAllBytes(localFile.toPath()), bytes)) {
+                return false;
+            }
+        } catch (@SuppressWarnings("unused") IOException e) {
+            return false;
+        }
+        mySavedContent.put(file.getFullPath(), new SavedContent(hash, localFile));
+        return true;
+    }
+
+    private static byte[] getHash(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes); //$NON-NLS-1$
+        } catch (NoSuchAlgorithmException e) {
+            // every java implementation must support SHA-256
+            throw new IllegalStateException(e);
+        }
     }
 
     public static void createFolder(IFolder folder) throws CoreException {
@@ -410,6 +485,16 @@ public class AutoBuildCommon {
 
     static public String resolve(String unresolved, String nonexistentMacrosValue, String listDelimiter,
             IAutoBuildConfigurationDescription autoData) {
+        AutoBuildCache cache = getBuildCache(autoData);
+        if (cache == null || unresolved == null || nonexistentMacrosValue == null || listDelimiter == null) {
+            return resolveUncached(unresolved, nonexistentMacrosValue, listDelimiter, autoData);
+        }
+        return cache.get(List.of(RESOLVE_CACHE_KEY, unresolved, nonexistentMacrosValue, listDelimiter),
+                () -> resolveUncached(unresolved, nonexistentMacrosValue, listDelimiter, autoData));
+    }
+
+    private static String resolveUncached(String unresolved, String nonexistentMacrosValue, String listDelimiter,
+            IAutoBuildConfigurationDescription autoData) {
         DefaultVariableContextInfo contextInfo = new DefaultVariableContextInfo(
                 ICoreVariableContextInfo.CONTEXT_CONFIGURATION, autoData.getCdtConfigurationDescription());
         IVariableSubstitutor varSubs = new SupplierBasedCdtVariableSubstitutor(contextInfo, nonexistentMacrosValue,
@@ -435,6 +520,16 @@ public class AutoBuildCommon {
      */
     static public String resolveRecursive(String unresolved, String nonexistentMacrosValue, String listDelimiter,
             IAutoBuildConfigurationDescription autoData) {
+        AutoBuildCache cache = getBuildCache(autoData);
+        if (cache == null || unresolved == null || nonexistentMacrosValue == null || listDelimiter == null) {
+            return resolveRecursiveUncached(unresolved, nonexistentMacrosValue, listDelimiter, autoData);
+        }
+        return cache.get(List.of(RESOLVE_RECURSIVE_CACHE_KEY, unresolved, nonexistentMacrosValue, listDelimiter),
+                () -> resolveRecursiveUncached(unresolved, nonexistentMacrosValue, listDelimiter, autoData));
+    }
+
+    private static String resolveRecursiveUncached(String unresolved, String nonexistentMacrosValue,
+            String listDelimiter, IAutoBuildConfigurationDescription autoData) {
         int count = 0;
         String inString = unresolved;
         do {
@@ -449,6 +544,19 @@ public class AutoBuildCommon {
         return inString;
     }
 
+    /**
+     * Get the cache of the build that is running for this configuration
+     *
+     * @param autoData
+     * @return the cache or null if no build is running
+     */
+    public static AutoBuildCache getBuildCache(IAutoBuildConfigurationDescription autoData) {
+        if (autoData instanceof AutoBuildConfigurationDescription) {
+            return ((AutoBuildConfigurationDescription) autoData).getBuildCache();
+        }
+        return null;
+    }
+
     static public String getVariableValue(String varName, String defaultvalue, boolean resolve,
             IAutoBuildConfigurationDescription autoBuildConfData) {
         ICConfigurationDescription confDesc = autoBuildConfData.getCdtConfigurationDescription();
@@ -637,6 +745,58 @@ public class AutoBuildCommon {
         //}
     }
 
+    /**
+     * Tell the internal builder that the targets of the rules are up to date.
+     * The internal builder rebuilds a target when it does not know the recipes
+     * the target was build with. Use this when the targets have been put in the
+     * build folder by something else than the build itself.
+     *
+     * @param inAutoData the configuration the rules belong to
+     * @param rules      the rules with up to date targets
+     */
+    public static void setUpToDate(IAutoBuildConfigurationDescription inAutoData,
+            Collection<IAutoBuildMakeRule> rules) {
+        AutoBuildConfigurationDescription autoData = (AutoBuildConfigurationDescription) inAutoData;
+        IFolder buildFolder = autoData.getBuildFolder();
+        AutoBuildState buildState = AutoBuildState.load(buildFolder.getLocation().toPath());
+        for (IAutoBuildMakeRule curRule : rules) {
+            String signature = AutoBuildState.getSignature(curRule.getRecipes(buildFolder, autoData));
+            for (IFile curTarget : curRule.getTargetFiles()) {
+                buildState.setSignature(curTarget.getLocation().toPath(), signature);
+            }
+        }
+        try {
+            buildState.save();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Check whether the internal builder considers the targets of the rules up
+     * to date. That is the targets exist, have been build with the current
+     * recipes and are newer than their prerequisites and the headers listed in
+     * their dependency files.
+     * Targets build by make are never considered up to date as make does not
+     * record the recipes used.
+     *
+     * @param inAutoData the configuration the rules belong to
+     * @param rules      the rules to check
+     * @return true if none of the rules needs to be executed
+     */
+    public static boolean isUpToDate(IAutoBuildConfigurationDescription inAutoData,
+            Collection<IAutoBuildMakeRule> rules) {
+        AutoBuildConfigurationDescription autoData = (AutoBuildConfigurationDescription) inAutoData;
+        IFolder buildFolder = autoData.getBuildFolder();
+        AutoBuildState buildState = AutoBuildState.load(buildFolder.getLocation().toPath());
+        for (IAutoBuildMakeRule curRule : rules) {
+            if (curRule.needsExecuting(buildFolder, buildState, curRule.getRecipes(buildFolder, autoData))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
 
 	/**
 	 * copied from
@@ -101,6 +101,26 @@ public interface IAutoBuildConfigurationDescription {
 
     public void setStopOnFirstBuildError(boolean stopOnFirstBuildError);
 
+    /**
+     * Is the whole project refreshed after a build or only the build folder and
+     * the files created by the build.
+     *
+     * @return true if the whole project is refreshed after a build
+     */
+    public boolean refreshWholeProject();
+
+    public void setRefreshWholeProject(boolean refreshWholeProject);
+
+    /**
+     * Does the internal builder take compiled files from the workspace wide
+     * compile cache and store the compiled files in it.
+     *
+     * @return true if the compile cache is used
+     */
+    public boolean useCompileCache();
+
+    public void setUseCompileCache(boolean useCompileCache);
+
     /**
      * is the build supposed to be run with multiple threads or not.
      *
@@ -413,6 +433,14 @@ public interface IAutoBuildConfigurationDescription {
 	 */
 	public void forceCleanBeforeBuild();
 
+	/**
+	 * call this method if the recipes may have changed.
+	 * If the build runner used for the next build supports command signatures only
+	 * the targets with changed recipes will be rebuild. Otherwise a clean is done
+	 * before the build.
+	 */
+	public void forceRebuildOfChangedRecipes();
+
 	public String getDiscoveryCommand(String languageId);
 
 	public String[] getEnvironmentVariables();
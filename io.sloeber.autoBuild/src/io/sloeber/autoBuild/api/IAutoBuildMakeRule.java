@@ -8,6 +8,7 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 
 import io.sloeber.autoBuild.integration.AutoBuildConfigurationDescription;
+import io.sloeber.autoBuild.internal.AutoBuildState;
 import io.sloeber.autoBuild.schema.api.IInputType;
 import io.sloeber.autoBuild.schema.api.IOutputType;
 import io.sloeber.autoBuild.schema.api.ITool;
@@ -41,7 +42,18 @@ public interface IAutoBuildMakeRule {
 
 	String getAnnouncement();
 
-	boolean needsExecuting(IFolder buildfolder);
+	/**
+	 * Check whether the rule needs to be executed.
+	 * A rule needs to be executed when a target is missing, a target is older than
+	 * a prerequisite or a file in the dependency files or the recipes differ from
+	 * the recipes used to build the targets.
+	 *
+	 * @param buildfolder the build folder
+	 * @param buildState  the state of the previous builds
+	 * @param recipes     the resolved recipes as returned by getRecipes
+	 * @return true if the rule needs to be executed
+	 */
+	boolean needsExecuting(IFolder buildfolder, AutoBuildState buildState, String[] recipes);
 
 	boolean isTool(ITool tool);
 
@@ -76,4 +76,14 @@ public interface IBuildRunner {
 
     public  boolean supportsCleanBuild();
 
+    /**
+     * A build runner that supports command signatures remembers the recipes used
+     * to build each target and rebuilds a target when its recipes change.
+     * For these build runners a change in options does not require a clean
+     * before build.
+     *
+     * @return true if the build runner rebuilds targets whose recipes changed
+     */
+    public  boolean supportsCommandSignatures();
+
 }
@@ -147,6 +147,14 @@ public class Messages extends NLS {
 
 	public static String InternalBuildRunner_NoNeedToRun;
 
+	public static String InternalBuildRunner_UnscheduledRules;
+
+	public static String InternalBuildRunner_CacheStatistics;
+
+	public static String InternalBuildRunner_CompileCacheStatistics;
+
+	public static String InternalBuildRunner_FromCompileCache;
+
 	public static String ScannerDiscoveryMarkerLocationPreferences;
 
 	public static String ScannerDiscoveryMarkerLocationProperties;
@@ -19,6 +19,7 @@ import static io.sloeber.autoBuild.helpers.api.AutoBuildConstants.*;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -41,12 +42,15 @@ import org.eclipse.cdt.core.ProblemMarkerInfo;
 import org.eclipse.cdt.core.language.settings.providers.ICBuildOutputParser;
 import org.eclipse.cdt.core.language.settings.providers.ILanguageSettingsBroadcastingProvider;
 import org.eclipse.cdt.core.language.settings.providers.IWorkingDirectoryTracker;
+import org.eclipse.cdt.core.language.settings.providers.LanguageSettingsManager;
 import org.eclipse.cdt.core.language.settings.providers.LanguageSettingsStorage;
+import org.eclipse.cdt.core.model.CoreModel;
 import org.eclipse.cdt.core.model.ILanguage;
 import org.eclipse.cdt.core.model.LanguageManager;
 import org.eclipse.cdt.core.resources.IConsole;
 import org.eclipse.cdt.core.settings.model.ICConfigurationDescription;
 import org.eclipse.cdt.core.settings.model.ICLanguageSettingEntry;
+import org.eclipse.cdt.core.settings.model.ICProjectDescription;
 import org.eclipse.cdt.core.settings.model.ICSettingEntry;
 import org.eclipse.cdt.core.settings.model.util.CDataUtil;
 import org.eclipse.core.resources.IFolder;
@@ -67,6 +71,8 @@ import io.sloeber.autoBuild.api.AutoBuildCommon;
 import io.sloeber.autoBuild.api.IAutoBuildConfigurationDescription;
 import io.sloeber.autoBuild.core.Activator;
 import io.sloeber.autoBuild.core.Messages;
+import io.sloeber.autoBuild.internal.AutoBuildDiscoveryCache;
+import io.sloeber.autoBuild.internal.AutoBuildDiscoveryCache.DiscoveryResult;
 import io.sloeber.autoBuild.internal.AutoBuildRunnerHelper;
 import io.sloeber.autoBuild.schema.api.IOption;
 
@@ -84,8 +90,10 @@ public class AutoBuildLanguageSettingsProvider extends AbstractExecutableExtensi
 
 	private static final int MONITOR_SCALE = 100;
 	private static final int TICKS_OUTPUT_PARSING = 1 * MONITOR_SCALE;
+	private static final String DISCOVERY_CACHE_FILE = "discoveryCache"; //$NON-NLS-1$
+	private static final String[] DISCOVERY_LANGUAGES = { LANGUAGEID_C, LANGUAGEID_CPP, LANGUAGEID_ASSEMBLY };
 
-	private Map<String, List<ICLanguageSettingEntry>> myDiscoveryCache = new HashMap<>();
+	private static AutoBuildDiscoveryCache myDiscoveryCache = null;
 	private SDMarkerGenerator markerGenerator = new SDMarkerGenerator();
 	private boolean isConsoleEnabled = true;
 
@@ -254,17 +262,97 @@ public class AutoBuildLanguageSettingsProvider extends AbstractExecutableExtensi
 			return LanguageSettingsStorage.getPooledList(list);
 		}
 		discoveryCommand=discoveryCommand.trim();
-		 List<ICLanguageSettingEntry> cachedList=myDiscoveryCache.get(discoveryCommand);
-		if ( cachedList== null ) {
-			myDiscoveryCache.put(discoveryCommand, runForLanguage(languageId, discoveryCommand, autoConf,
-					autoConf.getProject(), new NullProgressMonitor()));
-		}
-		if (myDiscoveryCache.get(discoveryCommand) != null) {
-			list.addAll(myDiscoveryCache.get(discoveryCommand));
+		AutoBuildDiscoveryCache discoveryCache = getDiscoveryCache();
+		DiscoveryResult discoveryResult = discoveryCache.get(discoveryCommand);
+		if (discoveryResult == null) {
+			// The other languages will be needed soon so run them in parallel
+			for (String curLanguageId : DISCOVERY_LANGUAGES) {
+				if (!curLanguageId.equals(languageId)) {
+					scheduleDiscovery(curLanguageId, autoConf, false);
+				}
+			}
+			// Run on this thread as the caller may hold locks needed by the discovery
+			discoveryResult = runDiscovery(languageId, discoveryCommand, autoConf);
+		} else if (AutoBuildDiscoveryCache.isOutdated(discoveryCommand, discoveryResult, autoConf)) {
+			// The previous result is used until the new result is known
+			scheduleDiscovery(languageId, autoConf, true);
 		}
+		list.addAll(discoveryResult.getEntries());
 		return LanguageSettingsStorage.getPooledList(list);
 	}
 
+	private static synchronized AutoBuildDiscoveryCache getDiscoveryCache() {
+		if (myDiscoveryCache == null) {
+			Path cacheFile = null;
+			Activator activator = Activator.getInstance();
+			if (activator != null) {
+				cacheFile = activator.getStateLocation().append(DISCOVERY_CACHE_FILE).toPath();
+			}
+			myDiscoveryCache = new AutoBuildDiscoveryCache(cacheFile);
+		}
+		return myDiscoveryCache;
+	}
+
+	/**
+	 * Run the discovery command and store the result in the discovery cache
+	 *
+	 * @return the result of the discovery
+	 */
+	private DiscoveryResult runDiscovery(String languageId, String discoveryCommand,
+			IAutoBuildConfigurationDescription autoConf) {
+		long compilerTimeStamp = AutoBuildDiscoveryCache.getCompilerTimeStamp(discoveryCommand,
+				autoConf.getEnvironmentVariableMap());
+		DiscoveryResult ret = new DiscoveryResult(compilerTimeStamp, runForLanguage(languageId, discoveryCommand,
+				autoConf, autoConf.getProject(), new NullProgressMonitor()));
+		getDiscoveryCache().put(discoveryCommand, ret);
+		return ret;
+	}
+
+	/**
+	 * Run the discovery for a language in the background.
+	 * When the result differs from the previously known result CDT is notified
+	 * the language settings changed.
+	 * Nothing is done when the discovery for the command is already running.
+	 *
+	 * @param refresh when false the discovery is only run when there is no known
+	 *                result
+	 */
+	private void scheduleDiscovery(String languageId, IAutoBuildConfigurationDescription autoConf, boolean refresh) {
+		String command = autoConf.getDiscoveryCommand(languageId);
+		if (command == null || command.isBlank()) {
+			return;
+		}
+		String discoveryCommand = command.trim();
+		AutoBuildDiscoveryCache discoveryCache = getDiscoveryCache();
+		if (!refresh && discoveryCache.get(discoveryCommand) != null) {
+			return;
+		}
+		if (!discoveryCache.startDiscovery(discoveryCommand)) {
+			return;
+		}
+		Job discoveryJob = new Job(MessageFormat.format(Messages.RunningScannerDiscovery, getName())) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				try {
+					DiscoveryResult oldResult = discoveryCache.get(discoveryCommand);
+					DiscoveryResult newResult = runDiscovery(languageId, discoveryCommand, autoConf);
+					if (oldResult != null && !oldResult.getEntries().equals(newResult.getEntries())) {
+						ICProjectDescription projectDescription = CoreModel.getDefault()
+								.getProjectDescription(autoConf.getProject(), false);
+						if (projectDescription != null) {
+							LanguageSettingsManager.serializeLanguageSettingsInBackground(projectDescription);
+						}
+					}
+				} finally {
+					discoveryCache.endDiscovery(discoveryCommand);
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		discoveryJob.setSystem(true);
+		discoveryJob.schedule();
+	}
+
 	@Override
 	public LanguageSettingsStorage copyStorage() {
 		class PretendStorage extends LanguageSettingsStorage {
@@ -3,15 +3,10 @@ package io.sloeber.autoBuild.extensionPoint.providers;
 import static io.sloeber.autoBuild.api.AutoBuildCommon.*;
 import static io.sloeber.autoBuild.helpers.api.AutoBuildConstants.*;
 
-import java.io.BufferedReader;
-import java.io.File;
 import java.nio.file.Path;
-import java.io.FileReader;
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -38,12 +33,16 @@ import io.sloeber.autoBuild.api.AutoBuildBuilderExtension;
 import io.sloeber.autoBuild.api.IAutoBuildMakeRule;
 import io.sloeber.autoBuild.core.Activator;
 import io.sloeber.autoBuild.integration.AutoBuildConfigurationDescription;
+import io.sloeber.autoBuild.internal.AutoBuildCache;
+import io.sloeber.autoBuild.internal.AutoBuildState;
 import io.sloeber.autoBuild.schema.api.IInputType;
 import io.sloeber.autoBuild.schema.api.IOption;
 import io.sloeber.autoBuild.schema.api.IOutputType;
 import io.sloeber.autoBuild.schema.api.ITool;
 
 public class AutoBuildMakeRule implements IAutoBuildMakeRule {
+	private static final String TOOL_COMMAND_VARS_CACHE_KEY = "toolCommandVars"; //$NON-NLS-1$
+	private static final String PROVIDER_FLAGS_CACHE_KEY = "providerFlags"; //$NON-NLS-1$
 
 	private Map<IOutputType, Set<IFile>> myTargets = new LinkedHashMap<>(); // Macro file target map
 	private Map<IInputType, Set<IFile>> myPrerequisites = new LinkedHashMap<>();// Macro file prerequisites map
@@ -235,7 +234,14 @@ public class AutoBuildMakeRule implements IAutoBuildMakeRule {
 
 		// with all the options applicable for this makerule generate variables to
 		// expand in the recipes
-		Map<String, String> toolCommandVars = myTool.getToolCommandVars(autoBuildConfData, selectedOptions);
+		AutoBuildCache cache = autoBuildConfData.getBuildCache();
+		Map<String, String> toolCommandVars;
+		if (cache == null) {
+			toolCommandVars = myTool.getToolCommandVars(autoBuildConfData, selectedOptions);
+		} else {
+			toolCommandVars = new HashMap<>(cache.get(List.of(TOOL_COMMAND_VARS_CACHE_KEY, myTool, selectedOptions),
+					() -> Map.copyOf(myTool.getToolCommandVars(autoBuildConfData, selectedOptions))));
+		}
 
 		// add the myPrerequisites to the variables
 		for (Entry<IInputType, Set<IFile>> cur : myPrerequisites.entrySet()) {
@@ -278,42 +284,17 @@ public class AutoBuildMakeRule implements IAutoBuildMakeRule {
 					List<ICLanguageSettingEntry> configEntries = provider.getSettingEntries(cfgDescription, curFile,
 							languageId);
 					if (configEntries != null) {
-						for (ICLanguageSettingEntry curEntry : configEntries) {
-							if (curEntry.isBuiltIn()) {
-								// ignore build in settings
-								continue;
-							}
-							switch (curEntry.getKind()) {
-							case ICSettingEntry.INCLUDE_FILE: {
-								IFile file = project.getWorkspace().getRoot()
-										.getFile(IPath.forPosix(curEntry.getValue()));
-								includeFiles = includeFiles + WHITESPACE + DOUBLE_QUOTE + CMD_LINE_INCLUDE_FILE
-										+ file.getLocation().toOSString() + DOUBLE_QUOTE;
-								break;
-							}
-							case ICSettingEntry.INCLUDE_PATH: {
-								IPath path = project.getWorkspace().getRoot()
-										.getFolder(IPath.forPosix(curEntry.getValue())).getLocation();
-								if(path==null) {
-									//Log error to allow for investigation
-									Activator.log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, "No location found for "+curEntry.getValue())); //$NON-NLS-1$
-
-								}else {
-								includePath = includePath + WHITESPACE + DOUBLE_QUOTE + CMD_LINE_INCLUDE_FOLDER
-										+ path.toOSString() + DOUBLE_QUOTE;
-								}
-								break;
-							}
-							case ICSettingEntry.MACRO: {
-								providerMacros = providerMacros + WHITESPACE + DOUBLE_QUOTE + CMD_LINE_DEFINE
-										+ curEntry.getValue() + DOUBLE_QUOTE;
-								break;
-							}
-							default:
-								break;
-
-							}
+						// The providers pool their lists so the same settings result in the same flags
+						String[] providerFlags;
+						if (cache == null) {
+							providerFlags = getProviderFlags(project, configEntries);
+						} else {
+							providerFlags = cache.get(List.of(PROVIDER_FLAGS_CACHE_KEY, configEntries),
+									() -> getProviderFlags(project, configEntries));
 						}
+						includeFiles = includeFiles + providerFlags[0];
+						includePath = includePath + providerFlags[1];
+						providerMacros = providerMacros + providerFlags[2];
 					}
 
 				}
@@ -367,6 +348,55 @@ public class AutoBuildMakeRule implements IAutoBuildMakeRule {
 		return ret.toArray(new String[ret.size()]);
 	}
 
+	/**
+	 * Convert language settings entries to command line flags
+	 *
+	 * @return a array containing the include files, the include paths and the
+	 *         macros
+	 */
+	private static String[] getProviderFlags(IProject project, List<ICLanguageSettingEntry> configEntries) {
+		String includeFiles = new String();
+		String includePath = new String();
+		String providerMacros = new String();
+		for (ICLanguageSettingEntry curEntry : configEntries) {
+			if (curEntry.isBuiltIn()) {
+				// ignore build in settings
+				continue;
+			}
+			switch (curEntry.getKind()) {
+			case ICSettingEntry.INCLUDE_FILE: {
+				IFile file = project.getWorkspace().getRoot()
+						.getFile(IPath.forPosix(curEntry.getValue()));
+				includeFiles = includeFiles + WHITESPACE + DOUBLE_QUOTE + CMD_LINE_INCLUDE_FILE
+						+ file.getLocation().toOSString() + DOUBLE_QUOTE;
+				break;
+			}
+			case ICSettingEntry.INCLUDE_PATH: {
+				IPath path = project.getWorkspace().getRoot()
+						.getFolder(IPath.forPosix(curEntry.getValue())).getLocation();
+				if(path==null) {
+					//Log error to allow for investigation
+					Activator.log(new Status(IStatus.WARNING, Activator.PLUGIN_ID, "No location found for "+curEntry.getValue())); //$NON-NLS-1$
+
+				}else {
+				includePath = includePath + WHITESPACE + DOUBLE_QUOTE + CMD_LINE_INCLUDE_FOLDER
+						+ path.toOSString() + DOUBLE_QUOTE;
+				}
+				break;
+			}
+			case ICSettingEntry.MACRO: {
+				providerMacros = providerMacros + WHITESPACE + DOUBLE_QUOTE + CMD_LINE_DEFINE
+						+ curEntry.getValue() + DOUBLE_QUOTE;
+				break;
+			}
+			default:
+				break;
+
+			}
+		}
+		return new String[] { includeFiles, includePath, providerMacros };
+	}
+
 	public void addPrerequisites(IInputType inputType, Set<IFile> files) {
 		Set<IFile> entrypoint = myPrerequisites.get(inputType);
 		if (entrypoint != null) {
@@ -406,90 +436,44 @@ public class AutoBuildMakeRule implements IAutoBuildMakeRule {
 	}
 
 	@Override
-	public boolean needsExecuting(IFolder buildfolder) {
-		Set<IFile> dependencyFiles = new HashSet<>();
-		// check whether all targets exists
+	public boolean needsExecuting(IFolder buildfolder, AutoBuildState buildState, String[] recipes) {
+		// check whether all targets exists and were build with the same recipes
 		// also get the timestamp of the oldest target
+		String signature = AutoBuildState.getSignature(recipes);
 		long jongestTargetTimeStamp = Long.MAX_VALUE;
 		for (Set<IFile> curTargetSet : myTargets.values()) {
 			for (IFile curTarget : curTargetSet) {
-				if (!curTarget.exists()) {
+				Path targetPath = curTarget.getLocation().toPath();
+				long targetTimeStamp = buildState.getTimeStamp(targetPath);
+				if (targetTimeStamp == AutoBuildState.NOT_EXISTING) {
 					return true;
 				}
-				// could be that a refresh is needed due to cached local time stamp
-				jongestTargetTimeStamp = Math.min(jongestTargetTimeStamp, curTarget.getLocalTimeStamp());
-			}
-		}
-		// check wether all dependency files exists
-		getDependencies();// TODO JABA this is very error prone.
-		for (Set<IFile> curDependencySet : myDependencies.values()) {
-			for (IFile curDependency : curDependencySet) {
-				if (!curDependency.exists()) {
+				if (!signature.equals(buildState.getSignature(targetPath))) {
 					return true;
 				}
-				dependencyFiles.add(curDependency);
+				jongestTargetTimeStamp = Math.min(jongestTargetTimeStamp, targetTimeStamp);
 			}
 		}
 		// get the newest prerequisite timeStamp
-		long oldestPreReqTimeStamp = Long.MIN_VALUE;
 		for (Set<IFile> curPrereqSet : myPrerequisites.values()) {
 			for (IFile curPrereq : curPrereqSet) {
-				if (!curPrereq.exists()) {
+				long prereqTimeStamp = buildState.getTimeStamp(curPrereq.getLocation().toPath());
+				if (prereqTimeStamp == AutoBuildState.NOT_EXISTING || prereqTimeStamp > jongestTargetTimeStamp) {
 					return true;
 				}
-				oldestPreReqTimeStamp = Math.max(oldestPreReqTimeStamp, curPrereq.getLocalTimeStamp());
 			}
 		}
-		if (oldestPreReqTimeStamp > jongestTargetTimeStamp) {
-			return true;
-		}
-
-		// get the newest dependency timeStamp
-		long oldestDependencyTimeStamp = Long.MIN_VALUE;
-		for (IFile curdepFile : dependencyFiles) {
-			oldestDependencyTimeStamp = Math.max(oldestDependencyTimeStamp,
-					getDepFileTimeStamp(curdepFile, buildfolder));
-		}
-		if (oldestDependencyTimeStamp >= jongestTargetTimeStamp) {
-			return true;
-		}
-		return false;
-	}
 
-	/**
-	 * given a dependency file; return the time stamp of the youngest file mentioned
-	 * in the dependency file
-	 *
-	 * @param depFile the dependency file created by a compiler
-	 *
-	 * @return the timestamp of the oldest file in the files; 0 if a referenced file
-	 *         does not exist
-	 */
-	private static long getDepFileTimeStamp(IFile curdepFile, IFolder buildPath) {
-		long newestTime = Long.MIN_VALUE;
-		File depFile = curdepFile.getLocation().toFile();
-		try (BufferedReader reader = new BufferedReader(new FileReader(depFile));) {
-			String curLine = null;
-			while ((curLine = reader.readLine()) != null) {
-				if (curLine.endsWith(COLON)) {
-					String headerName = curLine.substring(0, curLine.length() - 1).replace(BACKSLACH + BLANK, BLANK);
-					Path headerFile = Path.of(headerName);
-					if (!headerFile.isAbsolute()) {
-						//The line below does not work for URI based projects
-						//headerName = buildPath.getFile(headerName).getLocation().toString();
-						headerName = buildPath.getLocation().append(headerName).toString();
-						headerFile = Path.of(headerName);
-					}
-					BasicFileAttributes attr = Files.readAttributes(headerFile, BasicFileAttributes.class);
-					newestTime = Math.max(attr.lastModifiedTime().toMillis(), newestTime);
+		// check the dependency files and the files mentioned in them
+		getDependencies();// TODO JABA this is very error prone.
+		for (Set<IFile> curDependencySet : myDependencies.values()) {
+			for (IFile curDependency : curDependencySet) {
+				if (buildState.getNewestHeaderTimeStamp(curDependency.getLocation().toPath()) >= jongestTargetTimeStamp) {
+					return true;
 				}
 			}
-			reader.close();
-		} catch ( IOException e) {
-			e.printStackTrace();
-			return Long.MAX_VALUE;
 		}
-		return newestTime;
+		return false;
 	}
 
 	@Override
@@ -1,8 +1,10 @@
 package io.sloeber.autoBuild.extensionPoint.providers;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -15,6 +17,8 @@ import org.eclipse.cdt.core.settings.model.util.CDataUtil;
 import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
 import org.eclipse.core.resources.IResourceProxy;
 import org.eclipse.core.resources.IResourceProxyVisitor;
 import org.eclipse.core.runtime.CoreException;
@@ -41,6 +45,10 @@ public class AutoBuildMakeRules implements IAutoBuildMakeRules {
             List.of(".settings", ".project", ".cproject", ".autoBuildProject"));
 
     private Set<IAutoBuildMakeRule> myMakeRules = new LinkedHashSet<>();
+    // index of the rules by the target files they create per output type
+    private Map<IOutputType, Map<IFile, IAutoBuildMakeRule>> myTargetIndex = new HashMap<>();
+    // all the targets of all the rules per output type
+    private Map<IOutputType, Set<IFile>> myTargets = new HashMap<>();
 
     public AutoBuildMakeRules() {
         // default constructor is fine
@@ -75,31 +83,53 @@ public class AutoBuildMakeRules implements IAutoBuildMakeRules {
 			}
 
 			makerule.setSequenceGroupID(newMakeRule.getSequenceGroupID());
-		} else {
-			myMakeRules.add(newMakeRule);
+		} else if (myMakeRules.add(newMakeRule)) {
+			indexTargets(newMakeRule);
 		}
 
 	}
 
+	/*
+	 * Add the targets of a rule to the target index and the target set.
+	 * The targets of a make rule are set when the rule is created so the index
+	 * stays valid when prerequisites are added to the rule later on.
+	 */
+	private void indexTargets(IAutoBuildMakeRule makeRule) {
+		for (Entry<IOutputType, Set<IFile>> curTarget : makeRule.getTargets().entrySet()) {
+			IOutputType outputType = curTarget.getKey();
+			Map<IFile, IAutoBuildMakeRule> rulesForType = myTargetIndex.get(outputType);
+			if (rulesForType == null) {
+				rulesForType = new HashMap<>();
+				myTargetIndex.put(outputType, rulesForType);
+			}
+			Set<IFile> targetsForType = myTargets.get(outputType);
+			if (targetsForType == null) {
+				targetsForType = new HashSet<>();
+				myTargets.put(outputType, targetsForType);
+			}
+			for (IFile curFile : curTarget.getValue()) {
+				rulesForType.putIfAbsent(curFile, makeRule);
+				targetsForType.add(curFile);
+			}
+		}
+	}
+
     public IAutoBuildMakeRule findTarget(IOutputType outputType, IFile correctOutputPath) {
-        for (IAutoBuildMakeRule makeRule : myMakeRules) {
-            for (Entry<IOutputType, Set<IFile>> target : makeRule.getTargets().entrySet()) {
-                if ((target.getKey() == outputType) && (target.getValue().contains(correctOutputPath))) {
-                    return makeRule;
-                }
-            }
+        Map<IFile, IAutoBuildMakeRule> rulesForType = myTargetIndex.get(outputType);
+        if (rulesForType == null) {
+            return null;
         }
-        return null;
+        return rulesForType.get(correctOutputPath);
     }
 
     @Override
 	public void addRule(ITool tool, IInputType inputType, IFile InputFile, IOutputType outputType,
             IFile correctOutputFile, int sequenceID) {
-    	IAutoBuildMakeRule newMakeRule = findTarget(outputType, correctOutputFile);
-        if (newMakeRule == null) {
-            newMakeRule = new AutoBuildMakeRule(tool, inputType, InputFile, outputType, correctOutputFile, sequenceID);
+        if (findTarget(outputType, correctOutputFile) != null) {
+            // adding the existing rule to itself does not change anything
+            return;
         }
-        addRule(newMakeRule);
+        addRule(new AutoBuildMakeRule(tool, inputType, InputFile, outputType, correctOutputFile, sequenceID));
     }
 
     public int size() {
@@ -113,21 +143,17 @@ public class AutoBuildMakeRules implements IAutoBuildMakeRules {
         }
     }
 
+    /**
+     * Get all the targets of all the rules grouped by output type.
+     * The targets are maintained while rules are added so this does not need to
+     * walk all the rules.
+     *
+     * @return a copy of the targets that can be modified by the caller
+     */
     public Map<IOutputType, Set<IFile>> getTargets() {
         Map<IOutputType, Set<IFile>> ret = new HashMap<>();
-        for (IAutoBuildMakeRule makeRule : myMakeRules) {
-            Map<IOutputType, Set<IFile>> toAdd = makeRule.getTargets();
-            for (Entry<IOutputType, Set<IFile>> addEntry : toAdd.entrySet()) {
-                IOutputType toAddKey = addEntry.getKey();
-                Set<IFile> toAddValue = addEntry.getValue();
-                Set<IFile> files = ret.get(toAddKey);
-                if (files == null) {
-                    Set<IFile> addCopy = new HashSet<>(toAddValue);
-                    ret.put(toAddKey, addCopy);
-                } else {
-                    files.addAll(toAddValue);
-                }
-            }
+        for (Entry<IOutputType, Set<IFile>> curEntry : myTargets.entrySet()) {
+            ret.put(curEntry.getKey(), new HashSet<>(curEntry.getValue()));
         }
         return ret;
     }
@@ -216,13 +242,39 @@ public class AutoBuildMakeRules implements IAutoBuildMakeRules {
      * @throws CoreException
      */
     public AutoBuildMakeRules(IAutoBuildConfigurationDescription autoBuildConfData) throws CoreException {
-        SourceLevelMakeRuleGenerator subDirVisitor = new SourceLevelMakeRuleGenerator();
+        this(autoBuildConfData, null);
+    }
+
+    /**
+     * generate the makeRules for the given source files of this configuration.
+     * This is the same as {@link #AutoBuildMakeRules(IAutoBuildConfigurationDescription)}
+     * but the project is not visited to find the source files.
+     *
+     * @param autoBuildConfData
+     *            the configuration to make rules for
+     * @param sourceFiles
+     *            the source files to make rules for. Typically the source files
+     *            of a previous generation updated with
+     *            {@link #applyResourceDelta(IResourceDelta)}. null means visit
+     *            the project to find the source files
+     * @throws CoreException
+     */
+    public AutoBuildMakeRules(IAutoBuildConfigurationDescription autoBuildConfData, List<IFile> sourceFiles)
+            throws CoreException {
         myAutoBuildCfgDesc = autoBuildConfData;
         mySrcEntries = IAutoBuildConfigurationDescription.getResolvedSourceEntries(autoBuildConfData);
         myBuilderExt=myAutoBuildCfgDesc.getProjectType().getBuilderExtension();
 
         myBuilderExt.beforeAddingSourceRules(this,autoBuildConfData);
-		autoBuildConfData.getProject().accept(subDirVisitor, IResource.NONE);
+        if (sourceFiles == null) {
+            autoBuildConfData.getProject().accept(new SourceLevelMakeRuleGenerator(), IResource.NONE);
+        } else {
+            mySourceFiles.addAll(sourceFiles);
+        }
+        // the builder extension may have added files that are also found in the project
+        Set<IFile> uniqueSourceFiles = new LinkedHashSet<>(mySourceFiles);
+        mySourceFiles.clear();
+        mySourceFiles.addAll(uniqueSourceFiles);
 		for (IFile curSourceFile : mySourceFiles) {
 			if (addMakeRulesFromSourceFile(curSourceFile)) {
 				IContainer parent = curSourceFile.getParent();
@@ -272,6 +324,89 @@ public class AutoBuildMakeRules implements IAutoBuildMakeRules {
         }
 
 
+    }
+
+    /**
+     * This class is used to update the source files with the files added to and
+     * removed from the project. Moved files are reported as a removed and an
+     * added file. Changes to the content of a file do not change the make rules.
+     */
+    class SourceFileDeltaVisitor implements IResourceDeltaVisitor {
+        private Set<IFile> mySourceFileSet = new LinkedHashSet<>(mySourceFiles);
+        private boolean mySourceFilesChanged = false;
+
+        @Override
+        public boolean visit(IResourceDelta delta) throws CoreException {
+            IResource resource = delta.getResource();
+            if (resource.getType() == IResource.PROJECT) {
+                return true;
+            }
+            if (InputFileIgnoreList.contains(resource.getName())) {
+                return false;
+            }
+            switch (delta.getKind()) {
+            case IResourceDelta.REMOVED:
+                // A removed resource has no derived flag or exclusion anymore
+                // so simply forget the files that were a source file
+                if (resource.getType() == IResource.FILE) {
+                    mySourceFilesChanged |= mySourceFileSet.remove(resource);
+                    return false;
+                }
+                return true;
+            case IResourceDelta.ADDED:
+                if (resource.isDerived()) {
+                    return false;
+                }
+                if (mySrcEntries != null && CDataUtil.isExcluded(resource.getProjectRelativePath(), mySrcEntries)) {
+                    return false;
+                }
+                if (resource.getType() == IResource.FILE) {
+                    mySourceFilesChanged |= mySourceFileSet.add((IFile) resource);
+                    return false;
+                }
+                return true;
+            default:
+                return !resource.isDerived();
+            }
+        }
+    }
+
+    /**
+     * Update the source files with the files added to and removed from the project
+     * as reported in the resource delta.
+     * The make rules themselves are not updated. When this method returns true
+     * the make rules need to be generated again with
+     * {@link #AutoBuildMakeRules(IAutoBuildConfigurationDescription, List)} using
+     * {@link #getSourceFilesToBuild()}
+     *
+     * @param delta
+     *            the changes in the project since the make rules were generated
+     * @return true if source files have been added or removed
+     * @throws CoreException
+     *             when the delta could not be processed. The source files are
+     *             not changed
+     */
+    public boolean applyResourceDelta(IResourceDelta delta) throws CoreException {
+        SourceFileDeltaVisitor deltaVisitor = new SourceFileDeltaVisitor();
+        delta.accept(deltaVisitor);
+        if (deltaVisitor.mySourceFilesChanged) {
+            mySourceFiles.clear();
+            mySourceFiles.addAll(deltaVisitor.mySourceFileSet);
+        }
+        return deltaVisitor.mySourceFilesChanged;
+    }
+
+    /**
+     * Check whether these make rules were generated with the given source entries.
+     * When the source entries have changed files may have been excluded or
+     * included and the make rules need to be generated again
+     *
+     * @param srcEntries
+     *            the resolved source entries of the configuration
+     * @return true if the make rules were generated with the same source entries
+     */
+    public boolean isGeneratedWith(ICSourceEntry[] srcEntries) {
+        return Arrays.equals(mySrcEntries, srcEntries);
     }
 
 	/**
@@ -412,6 +547,37 @@ public class AutoBuildMakeRules implements IAutoBuildMakeRules {
         return ret;
     }
 
+    /**
+     * Get for each make rule the make rules that create its prerequisites.
+     * A rule can safely be executed once all the rules it depends on have
+     * finished.
+     * Prerequisites that are not created by a make rule (like source files) are
+     * not part of the result.
+     *
+     * @return a map containing all the make rules as key and the rules they depend
+     *         on as value
+     */
+    public Map<IAutoBuildMakeRule, Set<IAutoBuildMakeRule>> getRuleDependencies() {
+        Map<IFile, IAutoBuildMakeRule> targetToRule = new HashMap<>();
+        for (IAutoBuildMakeRule makeRule : myMakeRules) {
+            for (IFile curTarget : makeRule.getTargetFiles()) {
+                targetToRule.put(curTarget, makeRule);
+            }
+        }
+        Map<IAutoBuildMakeRule, Set<IAutoBuildMakeRule>> ret = new LinkedHashMap<>();
+        for (IAutoBuildMakeRule makeRule : myMakeRules) {
+            Set<IAutoBuildMakeRule> dependsOn = new LinkedHashSet<>();
+            for (IFile curPrerequisite : makeRule.getPrerequisiteFiles()) {
+                IAutoBuildMakeRule producer = targetToRule.get(curPrerequisite);
+                if (producer != null && producer != makeRule) {
+                    dependsOn.add(producer);
+                }
+            }
+            ret.put(makeRule, dependsOn);
+        }
+        return ret;
+    }
+
     public Set<String> getDependencyMacros() {
         Set<String> ret = new HashSet<>();
         for (IAutoBuildMakeRule makeRule : myMakeRules) {
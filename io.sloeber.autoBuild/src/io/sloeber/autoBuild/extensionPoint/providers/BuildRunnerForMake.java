@@ -39,7 +39,6 @@ import org.eclipse.cdt.core.settings.model.ICConfigurationDescription;
 import org.eclipse.cdt.utils.CommandLineUtil;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
-import org.eclipse.core.resources.IResource;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -171,7 +170,7 @@ public class BuildRunnerForMake implements IBuildRunner {
 			buildRunnerHelper.close();
 			buildRunnerHelper.goodbye();
 
-			project.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+			CommonBuilder.refreshAfterBuild(autoData, monitor);
 
 		} catch (Exception e) {
 			String msg = MessageFormat.format(ManagedMakeBuilder_message_error_build, project.getName(),
@@ -203,7 +202,13 @@ public class BuildRunnerForMake implements IBuildRunner {
 		monitor.subTask(MessageFormat.format(ManagedMakeBuilder_message_update_makefiles, project.getName()));
 
 		MultiStatus result = null;
-		result = generator.localgenerateMakefiles(monitor);
+		// the make files of all the folders resolve the same variables
+		autoData.startBuildCache();
+		try {
+			result = generator.localgenerateMakefiles(monitor);
+		} finally {
+			autoData.stopBuildCache();
+		}
 
 		if (result.getCode() == IStatus.WARNING || result.getCode() == IStatus.INFO) {
 			IStatus[] kids = result.getChildren();
@@ -341,6 +346,11 @@ public class BuildRunnerForMake implements IBuildRunner {
 		return true;
 	}
 
+	@Override
+	public boolean supportsCommandSignatures() {
+		return false;
+	}
+
 }
 
 //private static List<String> getMakeArguments(IBuilder builder, AutoBuildConfigurationDescription autoData) {
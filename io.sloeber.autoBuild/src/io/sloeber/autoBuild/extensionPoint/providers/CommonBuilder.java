@@ -20,11 +20,15 @@
  *******************************************************************************/
 package io.sloeber.autoBuild.extensionPoint.providers;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.cdt.core.CCorePlugin;
 import org.eclipse.cdt.core.model.CoreModel;
@@ -34,11 +38,16 @@ import org.eclipse.cdt.core.resources.IConsole;
 import org.eclipse.cdt.core.settings.model.ICConfigurationDescription;
 import org.eclipse.cdt.core.settings.model.ICProjectDescription;
 import org.eclipse.core.resources.ICommand;
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IIncrementalProjectBuilder2;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 
@@ -68,6 +77,13 @@ public class CommonBuilder extends ACBuilder implements IIncrementalProjectBuild
 
     static private final Set<IProject> projectsThatAreBuilding = new HashSet<>();
 
+    // some file systems only store the modification time in steps of 2 seconds
+    private static final long REFRESH_TIME_MARGIN = 2000;
+    // the time the folders of the project have last been checked for changes
+    static private final Map<IProject, Long> myRefreshTimes = new ConcurrentHashMap<>();
+    // the number of resources refreshed in the last build of the project
+    static private final Map<IProject, AtomicInteger> myRefreshedResources = new ConcurrentHashMap<>();
+
     public CommonBuilder() {
     }
 
@@ -108,7 +124,6 @@ public class CommonBuilder extends ACBuilder implements IIncrementalProjectBuild
         }
 
         try {
-        	project.refreshLocal(IResource.DEPTH_INFINITE, monitor);
             invokeBuild(project,kind, args, monitor);
         } finally {
             synchronized (projectsThatAreBuilding) {
@@ -130,8 +145,9 @@ public class CommonBuilder extends ACBuilder implements IIncrementalProjectBuild
      * @throws CoreException
      */
     private void invokeBuild(IProject project,int kind, Map<String, String> args, IProgressMonitor monitor) throws CoreException {
-    	project.refreshLocal(IResource.DEPTH_INFINITE, monitor);
         Set<AutoBuildConfigurationDescription> cfgsToBuild = getConfigsToBuild(project, kind, args);
+        refreshBeforeBuild(project, cfgsToBuild, monitor);
+    	applyResourceDelta(project, kind);
 
         //For the configurations to build: get the cdt referenced configurations
         Set<ICConfigurationDescription> referencedCfgs = new HashSet<>();
@@ -180,7 +196,7 @@ public class CommonBuilder extends ACBuilder implements IIncrementalProjectBuild
 
         for (AutoBuildConfigurationDescription curAutoConfig : cfgsToBuild) {
         	IBuilder builder = curAutoConfig.getBuilder(BuildRunnerID);
-        	curAutoConfig.forceFullBuildIfNeeded(monitor);
+        	curAutoConfig.forceFullBuildIfNeeded(builder, monitor);
             buildProjectConfiguration(kind,targetName, builder, curAutoConfig, monitor);
         }
 
@@ -188,6 +204,167 @@ public class CommonBuilder extends ACBuilder implements IIncrementalProjectBuild
 
 
 
+    /**
+     * Make the workspace aware of the files changed outside of eclipse before
+     * the build.
+     * The whole project is only refreshed in the first build of the project in
+     * this session or when a configuration to build asks to refresh the whole
+     * project. Otherwise only the folders (linked or not) that have files
+     * added or removed since the previous build are refreshed. These are found
+     * by comparing the modification time of the folders known to the workspace
+     * with the time of the previous check so the files in the linked folders are
+     * not walked.
+     * A change of the content of an existing file does not change the folder
+     * and is not refreshed. The build tools read the files from disk so the
+     * build does not need the workspace to know about these changes.
+     *
+     * @param project
+     * @param cfgsToBuild
+     *            the configurations that will be build
+     * @param monitor
+     * @throws CoreException
+     */
+    private static void refreshBeforeBuild(IProject project, Set<AutoBuildConfigurationDescription> cfgsToBuild,
+            IProgressMonitor monitor) throws CoreException {
+        myRefreshedResources.put(project, new AtomicInteger());
+        long refreshTime = System.currentTimeMillis();
+        Long previousRefreshTime = myRefreshTimes.get(project);
+        boolean refreshWholeProject = previousRefreshTime == null;
+        Set<IPath> buildFolders = new HashSet<>();
+        for (AutoBuildConfigurationDescription curAutoConfig : cfgsToBuild) {
+            refreshWholeProject = refreshWholeProject || curAutoConfig.refreshWholeProject();
+            buildFolders.add(curAutoConfig.getBuildFolder().getFullPath());
+        }
+        if (refreshWholeProject) {
+            refresh(project, IResource.DEPTH_INFINITE, monitor);
+        } else {
+            refreshChangedFolders(project, buildFolders, previousRefreshTime.longValue() - REFRESH_TIME_MARGIN,
+                    monitor);
+        }
+        myRefreshTimes.put(project, Long.valueOf(refreshTime));
+    }
+
+    /**
+     * Refresh the folders of the project that have a modification time newer
+     * than changedSince.
+     * The build folders are skipped as they are refreshed after the build.
+     */
+    private static void refreshChangedFolders(IProject project, Set<IPath> buildFolders, long changedSince,
+            IProgressMonitor monitor) throws CoreException {
+        Set<IPath> knownFolders = new HashSet<>();
+        List<IContainer> changedFolders = new ArrayList<>();
+        // this only visits the resource tree in memory; the disk is only asked
+        // the modification time of the folders
+        project.accept(proxy -> {
+            if (proxy.getType() == IResource.FILE) {
+                return false;
+            }
+            IPath curPath = proxy.requestFullPath();
+            if (buildFolders.contains(curPath)) {
+                return false;
+            }
+            knownFolders.add(curPath);
+            IContainer curFolder = (IContainer) proxy.requestResource();
+            IPath location = curFolder.getLocation();
+            if (location != null && location.toFile().lastModified() >= changedSince) {
+                changedFolders.add(curFolder);
+            }
+            return true;
+        }, IResource.NONE);
+
+        for (IContainer curFolder : changedFolders) {
+            refresh(curFolder, IResource.DEPTH_ONE, monitor);
+            // the folders added on disk are new to the workspace as well
+            for (IResource curMember : curFolder.members()) {
+                if (curMember instanceof IContainer && !knownFolders.contains(curMember.getFullPath())) {
+                    refresh(curMember, IResource.DEPTH_INFINITE, monitor);
+                }
+            }
+        }
+    }
+
+    private static void refresh(IResource resource, int depth, IProgressMonitor monitor) throws CoreException {
+        resource.refreshLocal(depth, monitor);
+        AtomicInteger refreshed = myRefreshedResources.computeIfAbsent(resource.getProject(),
+                p -> new AtomicInteger());
+        if (resource.exists()) {
+            resource.accept(proxy -> {
+                refreshed.incrementAndGet();
+                return true;
+            }, depth, IResource.NONE);
+        }
+    }
+
+    /**
+     * Get the number of resources refreshed in the last build of the project.
+     * A refresh of a folder counts the folder and all the resources in the
+     * folder up to the depth of the refresh.
+     *
+     * @param project
+     * @return the number of resources refreshed or 0 if the project has not
+     *         been build in this session
+     */
+    public static int getRefreshedResources(IProject project) {
+        AtomicInteger ret = myRefreshedResources.get(project);
+        return ret == null ? 0 : ret.get();
+    }
+
+    /**
+     * Make the workspace aware of the files created by a build.
+     * Only the build folder and the targets of the make rules outside of the
+     * build folder are refreshed; the changes made outside of the build have
+     * been refreshed before the build by refreshBeforeBuild.
+     *
+     * @param autoData the configuration that has been build
+     * @param monitor
+     */
+    static void refreshAfterBuild(AutoBuildConfigurationDescription autoData, IProgressMonitor monitor) {
+        try {
+            IFolder buildFolder = autoData.getBuildFolder();
+            refresh(buildFolder, IResource.DEPTH_INFINITE, monitor);
+            for (IFile curTarget : autoData.getMakeRules().getBuildFiles()) {
+                if (buildFolder.getFullPath().isPrefixOf(curTarget.getFullPath())) {
+                    continue;
+                }
+                // refresh the first folder that is not known to the workspace
+                IResource toRefresh = curTarget;
+                while (!toRefresh.getParent().exists()) {
+                    toRefresh = toRefresh.getParent();
+                }
+                refresh(toRefresh, IResource.DEPTH_INFINITE, monitor);
+            }
+        } catch (CoreException e) {
+            Activator.log(e);
+        }
+    }
+
+    /**
+     * Give the changes since the last build to all the configurations of the
+     * project so they can keep their make rules up to date.
+     * The configurations that are not build now also need the changes as the
+     * next delta will only contain the changes since this build.
+     *
+     * @param project
+     * @param kind
+     *            the kind of build as provided by the build method
+     */
+    private void applyResourceDelta(IProject project, int kind) {
+        IResourceDelta delta = null;
+        if (kind != IncrementalProjectBuilder.FULL_BUILD && kind != IncrementalProjectBuilder.CLEAN_BUILD) {
+            delta = getDelta(project);
+        }
+        ICProjectDescription projectDescription = CoreModel.getDefault().getProjectDescription(project, false);
+        if (projectDescription == null) {
+            return;
+        }
+        for (ICConfigurationDescription curConfig : projectDescription.getConfigurations()) {
+            IAutoBuildConfigurationDescription autoConf = IAutoBuildConfigurationDescription.getConfig(curConfig);
+            if (autoConf instanceof AutoBuildConfigurationDescription) {
+                ((AutoBuildConfigurationDescription) autoConf).applyResourceDelta(delta);
+            }
+        }
+    }
+
 	private static void buildProjectConfigs(IProject project, Set<ICConfigurationDescription> toBuildCfgs, int kind,
             IProgressMonitor localmonitor) {
         Map<String, String> cfgIdArgs = createBuildArgs(toBuildCfgs);
@@ -22,15 +22,22 @@ import static io.sloeber.autoBuild.helpers.api.AutoBuildConstants.*;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import org.eclipse.cdt.core.CommandLauncher;
@@ -59,7 +66,12 @@ import io.sloeber.autoBuild.core.Activator;
 import io.sloeber.autoBuild.core.Messages;
 import io.sloeber.autoBuild.integration.AutoBuildConfigurationDescription;
 import io.sloeber.autoBuild.integration.AutoBuildManager;
+import io.sloeber.autoBuild.internal.AutoBuildCache;
 import io.sloeber.autoBuild.internal.AutoBuildRunnerHelper;
+import io.sloeber.autoBuild.internal.AutoBuildState;
+import io.sloeber.autoBuild.internal.CompileCache;
+import io.sloeber.autoBuild.internal.JobOutput;
+import io.sloeber.autoBuild.internal.JobOutputWriter;
 import io.sloeber.autoBuild.schema.api.IConfiguration;
 
 public class InternalBuildRunner implements IBuildRunner {
@@ -69,7 +81,7 @@ public class InternalBuildRunner implements IBuildRunner {
 	private static final int TICKS_DELETE_MARKERS = 1 * PROGRESS_MONITOR_SCALE;
 	private static final int TICKS_EXECUTE_COMMAND = 1 * PROGRESS_MONITOR_SCALE;
 	private static final int TICKS_REFRESH_PROJECT = 1 * PROGRESS_MONITOR_SCALE;
-	private boolean myHasBuildError = false;
+	private volatile boolean myHasBuildError = false;
 
 	private static void createFolder(IFolder folder, boolean force, boolean local, IProgressMonitor monitor)
 			throws CoreException {
@@ -99,14 +111,16 @@ public class InternalBuildRunner implements IBuildRunner {
 		IConfiguration configuration = autoData.getConfiguration();
 		ICConfigurationDescription cfgDescription = autoData.getCdtConfigurationDescription();
 		IFolder buildRoot = autoData.getBuildFolder();
-
-		// Generate the make Rules
-		AutoBuildMakeRules myMakeRules = new AutoBuildMakeRules(autoData);
+		AutoBuildCache buildCache = autoData.startBuildCache();
+		CompileCache.Statistics compileCacheStatistics = new CompileCache.Statistics();
 
 		try (AutoBuildRunnerHelper buildRunnerHelper = new AutoBuildRunnerHelper(project);
 				ErrorParserManager epm = new ErrorParserManager(project, buildRoot.getLocationURI(), markerGenerator,
 						autoData.getErrorParserList());) {
 
+			// Generate the make Rules
+			AutoBuildMakeRules myMakeRules = autoData.getMakeRules();
+
 			monitor.beginTask("", TICKS_STREAM_PROGRESS_MONITOR + TICKS_DELETE_MARKERS + TICKS_EXECUTE_COMMAND //$NON-NLS-1$
 					+ TICKS_REFRESH_PROJECT);
 
@@ -125,6 +139,7 @@ public class InternalBuildRunner implements IBuildRunner {
 				for (IFile curFile : myMakeRules.getBuildFiles()) {
 					curFile.delete(true, false, monitor);
 				}
+				AutoBuildState.delete(buildRoot.getLocation().toPath());
 			} else {
 				buildRunnerHelper.removeOldMarkers(project, parentMon.newChild(5));
 				buildRunnerHelper.printLine(toolchainName);
@@ -132,8 +147,6 @@ public class InternalBuildRunner implements IBuildRunner {
 
 				int parrallelNum = autoData.getParallelizationNum(true);
 				epm.deferDeDuplication();
-				int sequenceID = -1;
-				boolean lastSequenceID = true;
 				myHasBuildError = false;
 
 				// Run preBuildStep if existing
@@ -155,70 +168,16 @@ public class InternalBuildRunner implements IBuildRunner {
 				}
 
 
-				do {
-					sequenceID++;
-					lastSequenceID = true;
-
-					ExecutorService executor = null;
-					if (parrallelNum > 1) {
-						executor = Executors.newFixedThreadPool(parrallelNum);
-					}
-
-					for (IAutoBuildMakeRule curRule : myMakeRules) {
-						if (curRule.getSequenceGroupID() != sequenceID) {
-							continue;
-						}
-						if (myHasBuildError) {
-							continue;
-						}
-						lastSequenceID = false;
-						//buildRunnerHelper.toConsole("Adding to executor " + curRule.getAnnouncement());
-						if (!curRule.needsExecuting(buildRoot)) {
-							buildRunnerHelper.toConsole(Messages.InternalBuildRunner_NoNeedToRun + curRule.getAnnouncement());
-							continue;
-						}
-
-						// make sure the target folders exists
-						// can not move this into RuleRunner as code locks
-						Set<IFile> targetFiles = curRule.getTargetFiles();
-						try {
-							for (IFile curFile : targetFiles) {
-								IContainer curPath = curFile.getParent();
-								if (curPath instanceof IFolder) {
-									createFolder((IFolder) curPath, true, true, null);
-								}
-								// GNU g++ does not delete the output file if compilation fails
-								if (curFile.exists()) {
-									curFile.delete(true, monitor);
-								}
-							}
-						} catch (Exception e) {
-							// don bother
-							e.printStackTrace();
-						}
-
-						Runnable worker = new RuleRunner(curRule, autoData, monitor, buildRunnerHelper);
-						if (executor != null) {
-							executor.execute(worker);
-						} else {
-							worker.run();
-						}
-
-					}
-					if (executor != null) {
-						// This will make the executor accept no new threads
-						// and finish all existing threads in the queue
-						executor.shutdown();
-						// Wait until all threads are finish
-						executor.awaitTermination(20, TimeUnit.MINUTES);
-					}
-					epm.deDuplicate();
-
-					if (kind == IncrementalProjectBuilder.AUTO_BUILD
-							&& autoData.getAutoMakeTarget().equals(TARGET_OBJECTS)) {
-						lastSequenceID = true;
-					}
-				} while (!(lastSequenceID || myHasBuildError));
+				boolean objectsOnly = kind == IncrementalProjectBuilder.AUTO_BUILD
+						&& autoData.getAutoMakeTarget().equals(TARGET_OBJECTS);
+				AutoBuildState buildState = AutoBuildState.load(buildRoot.getLocation().toPath());
+				try {
+					runMakeRules(myMakeRules, objectsOnly, parrallelNum, autoData, buildState,
+							compileCacheStatistics, monitor, buildRunnerHelper);
+				} finally {
+					buildState.save();
+				}
+				epm.deDuplicate();
 
 				// Run postBuildStep if existing and no error
 				if (!myHasBuildError) {
@@ -252,53 +211,253 @@ public class InternalBuildRunner implements IBuildRunner {
 					}
 				}
 			}
+			buildRunnerHelper.toConsole(MessageFormat.format(Messages.InternalBuildRunner_CacheStatistics,
+					Long.valueOf(buildCache.getHits()), Long.valueOf(buildCache.getMisses()),
+					Long.valueOf(buildCache.getHitRate())));
+			buildRunnerHelper.toConsole(MessageFormat.format(Messages.InternalBuildRunner_CompileCacheStatistics,
+					Long.valueOf(compileCacheStatistics.getHits()), Long.valueOf(compileCacheStatistics.getMisses()),
+					Long.valueOf(compileCacheStatistics.getStores()), Long.valueOf(CompileCache.getEvictions())));
 			buildRunnerHelper.goodbye();
-			buildRunnerHelper.refreshProject(cfgName, parentMon.newChild(5));
+			CommonBuilder.refreshAfterBuild(autoData, parentMon.newChild(5));
 			buildRunnerHelper.close();
 		} catch (Exception e) {
 			e.printStackTrace();
 			String msg = MessageFormat.format(ManagedMakeBuilder_message_error_build,
 					new Object[] { project.getName(), configuration.getName() });
 			throw new CoreException(new Status(IStatus.ERROR, Activator.PLUGIN_ID, msg, e));
+		} finally {
+			autoData.stopBuildCache();
 		}
 		monitor.done();
 		return false;
 	}
 
+	/**
+	 * Run the make rules as a dependency graph.
+	 * A rule is started as soon as all the rules creating its prerequisites have
+	 * finished. All rules share one worker pool for the whole build so linking and
+	 * archiving can overlap with the compilation of unrelated files.
+	 * Scheduling (and thus the creation of the target folders) is done on the
+	 * calling thread because workspace operations in the workers lock.
+	 * Each rule collects its console output itself. The output is written to the
+	 * console as one block per rule by a separate thread that also runs the error
+	 * parsers.
+	 *
+	 * @param makeRules     the rules to run
+	 * @param objectsOnly   only run the rules that build from source files
+	 * @param parrallelNum  the maximum number of rules to run at the same time
+	 * @param autoData      the configuration being build
+	 * @param buildState    the state of the previous builds
+	 * @param compileCacheStatistics the compile cache statistics of this build
+	 * @param monitor       the monitor to report to and check for cancellation
+	 * @param buildRunnerHelper the helper to write to the console
+	 * @throws InterruptedException
+	 */
+	private void runMakeRules(AutoBuildMakeRules makeRules, boolean objectsOnly, int parrallelNum,
+			AutoBuildConfigurationDescription autoData, AutoBuildState buildState,
+			CompileCache.Statistics compileCacheStatistics, IProgressMonitor monitor,
+			AutoBuildRunnerHelper buildRunnerHelper) throws InterruptedException {
+		Map<IAutoBuildMakeRule, Set<IAutoBuildMakeRule>> dependencies = makeRules.getRuleDependencies();
+		Map<IAutoBuildMakeRule, Set<IAutoBuildMakeRule>> dependents = new HashMap<>();
+		Map<IAutoBuildMakeRule, Integer> numWaitingFor = new HashMap<>();
+		LinkedList<IAutoBuildMakeRule> readyRules = new LinkedList<>();
+		for (Entry<IAutoBuildMakeRule, Set<IAutoBuildMakeRule>> curEntry : dependencies.entrySet()) {
+			IAutoBuildMakeRule curRule = curEntry.getKey();
+			if (objectsOnly && curRule.getSequenceGroupID() != 0) {
+				continue;
+			}
+			int waitingFor = 0;
+			for (IAutoBuildMakeRule curDependency : curEntry.getValue()) {
+				if (objectsOnly && curDependency.getSequenceGroupID() != 0) {
+					continue;
+				}
+				dependents.computeIfAbsent(curDependency, k -> new LinkedHashSet<>()).add(curRule);
+				waitingFor++;
+			}
+			if (waitingFor == 0) {
+				readyRules.add(curRule);
+			} else {
+				numWaitingFor.put(curRule, Integer.valueOf(waitingFor));
+			}
+		}
+
+		BlockingQueue<IAutoBuildMakeRule> finishedRules = new LinkedBlockingQueue<>();
+		ExecutorService executor = null;
+		if (parrallelNum > 1) {
+			executor = Executors.newFixedThreadPool(parrallelNum);
+		}
+		int numRunning = 0;
+		try (JobOutputWriter outputWriter = new JobOutputWriter(buildRunnerHelper)) {
+			try {
+				while (true) {
+					while (!readyRules.isEmpty() && !myHasBuildError && !monitor.isCanceled()) {
+						IAutoBuildMakeRule curRule = readyRules.removeFirst();
+						createTargetFolders(curRule);
+						Runnable worker = new RuleRunner(curRule, autoData, buildState, compileCacheStatistics, monitor,
+								outputWriter, finishedRules);
+						numRunning++;
+						if (executor != null) {
+							executor.execute(worker);
+						} else {
+							worker.run();
+						}
+					}
+					if (numRunning == 0) {
+						break;
+					}
+					IAutoBuildMakeRule finishedRule = finishedRules.take();
+					numRunning--;
+					releaseDependents(finishedRule, dependents, numWaitingFor, readyRules);
+				}
+			} finally {
+				if (executor != null) {
+					executor.shutdown();
+					executor.awaitTermination(20, TimeUnit.MINUTES);
+				}
+			}
+		}
+		if (!numWaitingFor.isEmpty() && !myHasBuildError && !monitor.isCanceled()) {
+			buildRunnerHelper.toConsole(MessageFormat.format(Messages.InternalBuildRunner_UnscheduledRules,
+					Integer.valueOf(numWaitingFor.size())));
+			reportBuildError();
+		}
+	}
+
+	/**
+	 * Tell the rules depending on a finished rule they no longer need to wait for
+	 * it. Rules that are no longer waiting are added to the ready rules
+	 */
+	private static void releaseDependents(IAutoBuildMakeRule finishedRule,
+			Map<IAutoBuildMakeRule, Set<IAutoBuildMakeRule>> dependents,
+			Map<IAutoBuildMakeRule, Integer> numWaitingFor, LinkedList<IAutoBuildMakeRule> readyRules) {
+		Set<IAutoBuildMakeRule> waitingRules = dependents.get(finishedRule);
+		if (waitingRules == null) {
+			return;
+		}
+		for (IAutoBuildMakeRule curRule : waitingRules) {
+			Integer waitingFor = numWaitingFor.get(curRule);
+			if (waitingFor == null) {
+				continue;
+			}
+			if (waitingFor.intValue() <= 1) {
+				numWaitingFor.remove(curRule);
+				readyRules.add(curRule);
+			} else {
+				numWaitingFor.put(curRule, Integer.valueOf(waitingFor.intValue() - 1));
+			}
+		}
+	}
+
+	/**
+	 * make sure the target folders exists
+	 * can not move this into RuleRunner as code locks
+	 */
+	private static void createTargetFolders(IAutoBuildMakeRule curRule) {
+		try {
+			for (IFile curFile : curRule.getTargetFiles()) {
+				IContainer curPath = curFile.getParent();
+				if (curPath instanceof IFolder) {
+					createFolder((IFolder) curPath, true, true, null);
+				}
+			}
+		} catch (Exception e) {
+			// don bother
+			e.printStackTrace();
+		}
+	}
+
 	private class RuleRunner implements Runnable {
 		private IAutoBuildMakeRule myRule;
 		private AutoBuildConfigurationDescription myAutoData;
+		private AutoBuildState myBuildState;
+		private CompileCache.Statistics myCompileCacheStatistics;
 		private IProgressMonitor myMonitor;
-		private AutoBuildRunnerHelper myBuildRunnerHelper;
+		private JobOutputWriter myOutputWriter;
+		private BlockingQueue<IAutoBuildMakeRule> myFinishedRules;
+		private JobOutput myOutput = new JobOutput();
 
-		RuleRunner(IAutoBuildMakeRule curRule, AutoBuildConfigurationDescription autoData, IProgressMonitor monitor,
-				AutoBuildRunnerHelper buildRunnerHelper) {
+		RuleRunner(IAutoBuildMakeRule curRule, AutoBuildConfigurationDescription autoData,
+				AutoBuildState buildState, CompileCache.Statistics compileCacheStatistics, IProgressMonitor monitor,
+				JobOutputWriter outputWriter, BlockingQueue<IAutoBuildMakeRule> finishedRules) {
 			myRule = curRule;
 			myAutoData = autoData;
+			myBuildState = buildState;
+			myCompileCacheStatistics = compileCacheStatistics;
 			myMonitor = monitor;
-			myBuildRunnerHelper = buildRunnerHelper;
+			myOutputWriter = outputWriter;
+			myFinishedRules = finishedRules;
 		}
 
 		@Override
 		public void run() {
+			List<java.nio.file.Path> targets = new ArrayList<>();
 			try {
-				myBuildRunnerHelper.toConsole(myRule.getAnnouncement());
-
-				// run the actual build commands -called recipes
-				for (String curRecipe : myRule.getRecipes(myAutoData.getBuildFolder(), myAutoData)) {
-					myBuildRunnerHelper.toConsole(curRecipe);
-					if (launchCommand(curRecipe, myAutoData, myMonitor, myBuildRunnerHelper) != 0) {
-						if (myAutoData.stopOnFirstBuildError()) {
-							reportBuildError();
-							break;
-						}
+				IFolder buildFolder = myAutoData.getBuildFolder();
+				String[] recipes = myRule.getRecipes(buildFolder, myAutoData);
+				if (!myRule.needsExecuting(buildFolder, myBuildState, recipes)) {
+					myOutput.toConsole(Messages.InternalBuildRunner_NoNeedToRun + myRule.getAnnouncement());
+					return;
+				}
+				for (IFile curFile : myRule.getTargetFiles()) {
+					java.nio.file.Path curTarget = curFile.getLocation().toPath();
+					targets.add(curTarget);
+					// GNU g++ does not delete the output file if compilation fails
+					Files.deleteIfExists(curTarget);
+				}
+				CompileCache compileCache = null;
+				if (myAutoData.useCompileCache()) {
+					compileCache = CompileCache.get(myRule, recipes, buildFolder.getLocation().toPath(),
+							myCompileCacheStatistics);
+				}
+				boolean succeeded = true;
+				if (compileCache != null && compileCache.restore()) {
+					myOutput.toConsole(Messages.InternalBuildRunner_FromCompileCache + BLANK + myRule.getAnnouncement());
+					compileCache.replayOutput(myOutput.getOutputStream(), myOutput.getErrorStream());
+				} else {
+					myOutput.toConsole(myRule.getAnnouncement());
+					OutputStream stdout = myOutput.getOutputStream();
+					OutputStream stderr = myOutput.getErrorStream();
+					if (compileCache != null) {
+						stdout = compileCache.captureOutput(stdout);
+						stderr = compileCache.captureErrors(stderr);
 					}
 
+					// run the actual build commands -called recipes
+					for (String curRecipe : recipes) {
+						myOutput.toConsole(curRecipe);
+						if (launchCommand(curRecipe, myAutoData, myMonitor, stdout, stderr) != 0) {
+							succeeded = false;
+							if (myAutoData.stopOnFirstBuildError()) {
+								reportBuildError();
+								break;
+							}
+						}
+
+					}
+					if (succeeded && compileCache != null) {
+						compileCache.store();
+					}
 				}
-			} catch (IOException e) {
+				String signature = AutoBuildState.getSignature(recipes);
+				for (java.nio.file.Path curTarget : targets) {
+					if (succeeded) {
+						myBuildState.setSignature(curTarget, signature);
+					} else {
+						myBuildState.removeSignature(curTarget);
+					}
+				}
+			} catch (Exception e) {
 				e.printStackTrace();
+				for (java.nio.file.Path curTarget : targets) {
+					myBuildState.removeSignature(curTarget);
+				}
 				reportBuildError();
-
+			} finally {
+				for (java.nio.file.Path curTarget : targets) {
+					myBuildState.invalidateTimeStamp(curTarget);
+				}
+				myOutputWriter.publish(myOutput);
+				myFinishedRules.add(myRule);
 			}
 		}
 	}
@@ -309,6 +468,19 @@ public class InternalBuildRunner implements IBuildRunner {
 
 	public static int launchCommand(String curRecipe, IAutoBuildConfigurationDescription autoData,
 			IProgressMonitor monitor, AutoBuildRunnerHelper buildRunnerHelper) throws IOException {
+		try (OutputStream stdout = buildRunnerHelper.getOutputStream();
+				OutputStream stderr = buildRunnerHelper.getErrorStream();) {
+			return launchCommand(curRecipe, autoData, monitor, stdout, stderr);
+		}
+	}
+
+	/**
+	 * Run a command and write its output to the given streams
+	 *
+	 * @return the exit value of the command or -999 if the command failed to run
+	 */
+	public static int launchCommand(String curRecipe, IAutoBuildConfigurationDescription autoData,
+			IProgressMonitor monitor, OutputStream stdout, OutputStream stderr) throws IOException {
 		CommandLauncher launcher = new CommandLauncher();
 		launcher.showCommand(false);
 		String[] args = argumentsToArray(curRecipe);
@@ -316,31 +488,28 @@ public class InternalBuildRunner implements IBuildRunner {
 		String[] onlyArgs = Arrays.copyOfRange(args, 1, args.length);
 
 		Process fProcess = null;
-		try (OutputStream stdout = buildRunnerHelper.getOutputStream();
-				OutputStream stderr = buildRunnerHelper.getErrorStream();) {
-			try {
-				fProcess = launcher.execute(commandPath, onlyArgs, autoData.getEnvironmentVariables(),
-						autoData.getBuildFolder().getLocation(), monitor);
-			} catch ( CoreException e1) {
-				e1.printStackTrace();
-				// ignore and handle null case
-			}
-			if (fProcess == null) {
-				String error = "Failed to execute" + NEWLINE + curRecipe + NEWLINE; //$NON-NLS-1$
-				stdout.write(error.getBytes());
-				return -999;
-			}
+		try {
+			fProcess = launcher.execute(commandPath, onlyArgs, autoData.getEnvironmentVariables(),
+					autoData.getBuildFolder().getLocation(), monitor);
+		} catch ( CoreException e1) {
+			e1.printStackTrace();
+			// ignore and handle null case
+		}
+		if (fProcess == null) {
+			String error = "Failed to execute" + NEWLINE + curRecipe + NEWLINE; //$NON-NLS-1$
+			stdout.write(error.getBytes());
+			return -999;
+		}
 
-			if (ICommandLauncher.OK != launcher.waitAndRead(stdout, stderr, monitor)) {
-				if (autoData.stopOnFirstBuildError()) {
-					return -999;
-				}
-			}
-			String fErrMsg = launcher.getErrorMessage();
-			if (fErrMsg != null && !fErrMsg.isEmpty()) {
-				printMessage(fErrMsg, stderr);
+		if (ICommandLauncher.OK != launcher.waitAndRead(stdout, stderr, monitor)) {
+			if (autoData.stopOnFirstBuildError()) {
+				return -999;
 			}
 		}
+		String fErrMsg = launcher.getErrorMessage();
+		if (fErrMsg != null && !fErrMsg.isEmpty()) {
+			printMessage(fErrMsg, stderr);
+		}
 		return fProcess.exitValue();
 	}
 
@@ -384,6 +553,11 @@ public class InternalBuildRunner implements IBuildRunner {
 		return true;
 	}
 
+	@Override
+	public boolean supportsCommandSignatures() {
+		return true;
+	}
+
 	private static void printMessage(String msg, OutputStream os) {
 		if (os != null) {
 			try {
@@ -105,7 +105,7 @@ public class MakefileGenerator  {
 					+ myCConfigurationDescription.getName());
 		}
 		MultiStatus status;
-		myMakeRules = new AutoBuildMakeRules(myAutoBuildConfData);
+		myMakeRules = myAutoBuildConfData.getMakeRules();
 		myContainersToBuild =myMakeRules.getFoldersThatContainSourceFiles();
 
 		if (myMakeRules.size() == 0) {
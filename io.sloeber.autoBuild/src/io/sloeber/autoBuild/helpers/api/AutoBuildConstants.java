@@ -287,6 +287,8 @@ public class AutoBuildConstants {
 	public static final String KEY_NUM_PARRALEL_BUILDS = "numberOfParralelBuilds"; //$NON-NLS-1$
 	public static final String KEY_CUSTOM_BUILD_COMMAND = "customBuildCommand"; //$NON-NLS-1$
 	public static final String KEY_STOP_ON_FIRST_ERROR = "stopOnFirstError"; //$NON-NLS-1$
+	public static final String KEY_REFRESH_WHOLE_PROJECT = "refreshWholeProject"; //$NON-NLS-1$
+	public static final String KEY_USE_COMPILE_CACHE = "useCompileCache"; //$NON-NLS-1$
 	public static final String KEY_IS_INCREMENTAL_BUILD_ENABLED = "isIncrementalBuildEnabled"; //$NON-NLS-1$
 	public static final String KEY = "key"; //$NON-NLS-1$
 	public static final String KEY_VALUE = "value"; //$NON-NLS-1$
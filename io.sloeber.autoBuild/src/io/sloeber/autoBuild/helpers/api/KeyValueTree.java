@@ -2,19 +2,22 @@ package io.sloeber.autoBuild.helpers.api;
 
 import static io.sloeber.autoBuild.helpers.api.AutoBuildConstants.*;
 
-import java.util.AbstractMap.SimpleEntry;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
-import org.apache.commons.io.FileUtils;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
 
 public class KeyValueTree {
+	private static final char KEY_SEPARATOR = '.';
+	private static final char VALUE_SEPARATOR = '=';
+	private static final char COMMENT = '#';
 
 	private String myValue;
 	private String myKey;
@@ -95,76 +98,87 @@ public class KeyValueTree {
 		return getKey() + EQUAL + getValue();
 	}
 
-	private String toStringLine(KeyValueTree theRoot) {
-		if ((null == getValue()) || (this == theRoot)) {
-			// leaves without a value should not be logged
-			return EMPTY_STRING;
-		}
-		String seperator = EMPTY_STRING;
-		String ret = EQUAL + getValue();
-		KeyValueTree current = this;
-		while ((current.getParent() != null) && (current != theRoot)) {
-			ret = current.getKey() + seperator + ret;
-			current = current.getParent();
-			seperator = DOT;
-		}
-		return ret + NEWLINE;
-	}
-
 	public Map<String, String> toKeyValues(boolean addParents) {
-		KeyValueTree theRoot = this;
+		Map<String, String> ret = new LinkedHashMap<>();
+		StringBuilder keyPath = new StringBuilder();
+		boolean hasKeyPath = false;
 		if (addParents) {
-			theRoot = null;
+			// The key of this node including the keys of the parents
+			// (except the root that has no key)
+			hasKeyPath = myParent != null;
+			if (hasKeyPath) {
+				appendKeyPath(keyPath);
+			}
+			if (myKey != null && myValue != null) {
+				ret.put(keyPath.toString(), myValue);
+			}
 		}
-		return toKeyValues(EMPTY_STRING, theRoot);
+		addKeyValues(ret, keyPath, hasKeyPath);
+		return ret;
 	}
 
 	public Map<String, String> toKeyValues(String prefix) {
-		return toKeyValues(prefix, this);
+		Map<String, String> ret = new LinkedHashMap<>();
+		StringBuilder keyPath = new StringBuilder(prefix);
+		addKeyValues(ret, keyPath, false);
+		return ret;
 	}
 
 	public String dump() {
-		return dump(this);
+		StringBuilder ret = new StringBuilder();
+		dump(ret, new StringBuilder(), false);
+		return ret.toString();
 	}
 
-	private String dump(KeyValueTree theRoot) {
-
-		String stringRepresentation = toStringLine(theRoot);
-		for (KeyValueTree node : getChildren().values()) {
-			stringRepresentation += node.dump(theRoot);
+	private void appendKeyPath(StringBuilder keyPath) {
+		if (myParent.myParent != null) {
+			myParent.appendKeyPath(keyPath);
+			keyPath.append(KEY_SEPARATOR);
 		}
-		return stringRepresentation;
+		keyPath.append(myKey);
 	}
 
-	private Map<String, String> toKeyValues(String prefix, KeyValueTree theRoot) {
-
-		Map<String, String> ret = new LinkedHashMap<>();
-		Entry<String, String> firstEntry = this.toKeyValue(prefix, theRoot);
-		if (firstEntry != null) {
-			ret.put(firstEntry.getKey(), firstEntry.getValue());
-		}
-		for (KeyValueTree node : getChildren().values()) {
-			ret.putAll(node.toKeyValues(prefix, theRoot));
+	/*
+	 * Write the key=value lines of all the children of this node.
+	 * keyPath contains the key of this node and is reused for all the children.
+	 * hasKeyPath is false when the key of this node is not part of the keys of
+	 * the children
+	 */
+	private void dump(StringBuilder out, StringBuilder keyPath, boolean hasKeyPath) {
+		int keyPathLength = keyPath.length();
+		for (KeyValueTree node : myChildren.values()) {
+			if (hasKeyPath) {
+				keyPath.append(KEY_SEPARATOR);
+			}
+			keyPath.append(node.myKey);
+			if (null != node.myValue) {
+				out.append(keyPath).append(VALUE_SEPARATOR).append(node.myValue).append(NEWLINE);
+			}
+			node.dump(out, keyPath, true);
+			keyPath.setLength(keyPathLength);
 		}
-		return ret;
 	}
 
-	private Entry<String, String> toKeyValue(String prefix, KeyValueTree theRoot) {
-		if (this == theRoot || null == myKey || null == myValue) {
-			return null;
-		}
-
-		String seperator = EMPTY_STRING;
-		String keyString = EMPTY_STRING;
-		KeyValueTree current = this;
-		while ((current.getParent() != null) && (current != theRoot)) {
-			keyString = current.getKey() + seperator + keyString;
-			current = current.getParent();
-			seperator = DOT;
+	/*
+	 * Add the key values of all the children of this node to keyValues.
+	 * keyPath contains the prefix and the key of this node and is reused for all
+	 * the children.
+	 * hasKeyPath is false when the key of this node is not part of the keys of
+	 * the children
+	 */
+	private void addKeyValues(Map<String, String> keyValues, StringBuilder keyPath, boolean hasKeyPath) {
+		int keyPathLength = keyPath.length();
+		for (KeyValueTree node : myChildren.values()) {
+			if (hasKeyPath) {
+				keyPath.append(KEY_SEPARATOR);
+			}
+			keyPath.append(node.myKey);
+			if (null != node.myKey && null != node.myValue) {
+				keyValues.put(keyPath.toString(), node.myValue);
+			}
+			node.addKeyValues(keyValues, keyPath, true);
+			keyPath.setLength(keyPathLength);
 		}
-
-		return new SimpleEntry<>(prefix + keyString, myValue);
-
 	}
 
 	/**
@@ -199,27 +213,67 @@ public class KeyValueTree {
 		return child.myValue;
 	}
 
+	/*
+	 * The end of the part of the key that contains sub keys.
+	 * Trailing dots are ignored (as String.split does)
+	 */
+	private static int getKeyEnd(String key) {
+		int end = key.length();
+		while (end > 0 && key.charAt(end - 1) == KEY_SEPARATOR) {
+			end--;
+		}
+		if (end == 0 && key.length() == 0) {
+			// an empty key is a key on its own
+			return -1;
+		}
+		return end;
+	}
+
 	private KeyValueTree getChildInternal(String childKey) {
-		String[] subKeys = childKey.split("\\."); //$NON-NLS-1$
+		int end = getKeyEnd(childKey);
+		if (end < 0) {
+			return myChildren.get(childKey);
+		}
 		KeyValueTree curChild = this;
-		for (String curSubKey : subKeys) {
-			curChild = curChild.myChildren.get(curSubKey);
+		int start = 0;
+		while (start < end) {
+			int dot = childKey.indexOf(KEY_SEPARATOR, start);
+			if (dot < 0 || dot > end) {
+				dot = end;
+			}
+			curChild = curChild.myChildren.get(childKey.substring(start, dot));
 			if (null == curChild) {
 				return null;
 			}
+			start = dot + 1;
 		}
 		return curChild;
 	}
 
 	public void addValue(String theKey, String TheValue) {
-		String[] subKeys = theKey.split("\\."); //$NON-NLS-1$
+		int end = getKeyEnd(theKey);
+		if (end < 0) {
+			KeyValueTree child = myChildren.get(theKey);
+			if (null == child) {
+				child = addChild(theKey);
+			}
+			child.setValue(TheValue);
+			return;
+		}
 		KeyValueTree curChild = this;
-		for (String curSubKey : subKeys) {
+		int start = 0;
+		while (start < end) {
+			int dot = theKey.indexOf(KEY_SEPARATOR, start);
+			if (dot < 0 || dot > end) {
+				dot = end;
+			}
+			String curSubKey = theKey.substring(start, dot);
 			KeyValueTree nextChild = curChild.myChildren.get(curSubKey);
 			if (null == nextChild) {
 				nextChild = curChild.addChild(curSubKey);
 			}
 			curChild = nextChild;
+			start = dot + 1;
 		}
 		curChild.setValue(TheValue);
 	}
@@ -236,17 +290,19 @@ public class KeyValueTree {
 			return;
 		}
 
-		String curConfigsText = FileUtils.readFileToString(boardsFileName, AUTOBUILD_CONFIG_FILE_CHARSET);
-		String[] lines = curConfigsText.split(NEWLINE);
-		for (String line : lines) {
-			if ((line.length() == 0) || (line.charAt(0) == '#'))
-				continue;
-
-			String[] lineParts = line.split("=", 2); //$NON-NLS-1$
-			if (lineParts.length == 2) {
-				String key = lineParts[0].trim();
-				String value = lineParts[1].trim();
-				addValue(key, value);
+		try (BufferedReader reader = Files.newBufferedReader(boardsFileName.toPath(),
+				AUTOBUILD_CONFIG_FILE_CHARSET)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if ((line.length() == 0) || (line.charAt(0) == COMMENT))
+					continue;
+
+				int separator = line.indexOf(VALUE_SEPARATOR);
+				if (separator >= 0) {
+					String key = line.substring(0, separator).trim();
+					String value = line.substring(separator + 1).trim();
+					addValue(key, value);
+				}
 			}
 		}
 	}
@@ -257,17 +313,11 @@ public class KeyValueTree {
 	}
 
 	public void removeKey(String deleteKey) {
-		String[] subKeys = deleteKey.split("\\."); //$NON-NLS-1$
-		KeyValueTree parentKeyTree = this;
-		KeyValueTree foundKeyTree = this;
-		for (String curSubKey : subKeys) {
-			parentKeyTree=foundKeyTree;
-			foundKeyTree = foundKeyTree.myChildren.get(curSubKey);
-			if (null == foundKeyTree) {
-				return ;
-			}
+		KeyValueTree foundKeyTree = getChildInternal(deleteKey);
+		if (null == foundKeyTree || foundKeyTree == this) {
+			return;
 		}
-		parentKeyTree.myChildren.remove(foundKeyTree.getKey());
+		foundKeyTree.myParent.myChildren.remove(foundKeyTree.getKey());
 	}
 
 	public IResource getResource(IProject project) {
@@ -30,6 +30,7 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceDelta;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -48,7 +49,9 @@ import io.sloeber.autoBuild.buildTools.api.IBuildToolsManager;
 import io.sloeber.autoBuild.buildTools.api.IBuildToolsManager.ToolFlavour;
 import io.sloeber.autoBuild.buildTools.api.IBuildToolsManager.ToolType;
 import io.sloeber.autoBuild.core.Activator;
+import io.sloeber.autoBuild.extensionPoint.providers.AutoBuildMakeRules;
 import io.sloeber.autoBuild.helpers.api.KeyValueTree;
+import io.sloeber.autoBuild.internal.AutoBuildCache;
 import io.sloeber.autoBuild.schema.api.IBuilder;
 import io.sloeber.autoBuild.schema.api.IConfiguration;
 import io.sloeber.autoBuild.schema.api.IOption;
@@ -76,6 +79,8 @@ public class AutoBuildConfigurationDescription extends AutoBuildResourceData
 
 	private boolean myGenerateMakeFilesAUtomatically = true;
 	private boolean myStopOnFirstBuildError = true;
+	private boolean myRefreshWholeProject = false;
+	private boolean myUseCompileCache = true;
 
 	private boolean myIsParallelBuild = false;
 
@@ -108,6 +113,10 @@ public class AutoBuildConfigurationDescription extends AutoBuildResourceData
 	private String myId = CDataUtil.genId("io.sloeber.autoBuild.configurationDescription"); //$NON-NLS-1$
 	private boolean myIsWritable = false;
 	private boolean myForceCleanBeforeBuild = false;
+	private boolean myRecipesChanged = false;
+	private volatile AutoBuildCache myBuildCache = null;
+	private AutoBuildMakeRules myMakeRules = null;
+	private boolean mySourceFilesChanged = false;
 
 	public AutoBuildConfigurationDescription(IConfiguration config, IProject project, IBuildTools buildTools,
 			String rootCodeFolder) {
@@ -161,6 +170,8 @@ public class AutoBuildConfigurationDescription extends AutoBuildResourceData
 		myRequiredErrorParserList = myAutoBuildConfiguration.getErrorParserList();
 		myGenerateMakeFilesAUtomatically = base.myGenerateMakeFilesAUtomatically;
 		myStopOnFirstBuildError = base.myStopOnFirstBuildError;
+		myRefreshWholeProject = base.myRefreshWholeProject;
+		myUseCompileCache = base.myUseCompileCache;
 		myIsParallelBuild = base.myIsParallelBuild;
 		myIsCleanBuildEnabled = base.myIsCleanBuildEnabled;
 		myIsIncrementalBuildEnabled = base.myIsIncrementalBuildEnabled;
@@ -187,6 +198,7 @@ public class AutoBuildConfigurationDescription extends AutoBuildResourceData
 		myPostBuildStep = base.myPostBuildStep;
 		myPostBuildStepAnouncement = base.myPostBuildStepAnouncement;
 		myForceCleanBeforeBuild = base.myForceCleanBeforeBuild;
+		myRecipesChanged = base.myRecipesChanged;
 		myCustomToolCommands.clear();
 		for (Entry<ITool, Map<IResource, String>> curCustomToolEntry : base.myCustomToolCommands.entrySet()) {
 			Map<IResource, String> newMap = new HashMap<>(curCustomToolEntry.getValue());
@@ -293,6 +305,10 @@ public class AutoBuildConfigurationDescription extends AutoBuildResourceData
 				.parseBoolean(keyValues.getValue(KEY_GENERATE_MAKE_FILES_AUTOMATICALLY));
 		myUseStandardBuildArguments = Boolean.parseBoolean(keyValues.getValue(KEY_USE_STANDARD_BUILD_ARGUMENTS));
 		myStopOnFirstBuildError = Boolean.parseBoolean(keyValues.getValue(KEY_STOP_ON_FIRST_ERROR));
+		myRefreshWholeProject = Boolean.parseBoolean(keyValues.getValue(KEY_REFRESH_WHOLE_PROJECT));
+		// projects created before the compile cache existed use it
+		String useCompileCache = keyValues.getValue(KEY_USE_COMPILE_CACHE);
+		myUseCompileCache = useCompileCache.isEmpty() || Boolean.parseBoolean(useCompileCache);
 		myIsParallelBuild = Boolean.parseBoolean(keyValues.getValue(KEY_IS_PARRALLEL_BUILD));
 		myIsCleanBuildEnabled = Boolean.parseBoolean(keyValues.getValue(KEY_IS_CLEAN_BUILD_ENABLED));
 		myIsIncrementalBuildEnabled = Boolean.parseBoolean(keyValues.getValue(KEY_IS_INCREMENTAL_BUILD_ENABLED));
@@ -455,6 +471,7 @@ public class AutoBuildConfigurationDescription extends AutoBuildResourceData
 	public void setName(String name) {
 		checkIfWeCanWrite();
 		myName = name;
+		forgetMakeRules();
 
 	}
 
@@ -538,6 +555,7 @@ public class AutoBuildConfigurationDescription extends AutoBuildResourceData
 			return;
 		}
 		checkIfWeCanWrite();
+		forgetMakeRules();
 		IFolder oldBuildFolder = getBuildFolder();
 		if (oldBuildFolder != null && oldBuildFolder.exists()) {
 			try {
@@ -610,6 +628,28 @@ public class AutoBuildConfigurationDescription extends AutoBuildResourceData
 		myStopOnFirstBuildError = stopOnFirstBuildError;
 	}
 
+	@Override
+	public boolean refreshWholeProject() {
+		return myRefreshWholeProject;
+	}
+
+	@Override
+	public void setRefreshWholeProject(boolean refreshWholeProject) {
+		checkIfWeCanWrite();
+		myRefreshWholeProject = refreshWholeProject;
+	}
+
+	@Override
+	public boolean useCompileCache() {
+		return myUseCompileCache;
+	}
+
+	@Override
+	public void setUseCompileCache(boolean useCompileCache) {
+		checkIfWeCanWrite();
+		myUseCompileCache = useCompileCache;
+	}
+
 	@Override
 	public boolean isParallelBuild() {
 		return myIsParallelBuild;
@@ -717,6 +757,8 @@ public class AutoBuildConfigurationDescription extends AutoBuildResourceData
 		keyValuePairs.addValue(KEY_GENERATE_MAKE_FILES_AUTOMATICALLY, String.valueOf(myGenerateMakeFilesAUtomatically));
 		keyValuePairs.addValue(KEY_USE_STANDARD_BUILD_ARGUMENTS, String.valueOf(myUseStandardBuildArguments));
 		keyValuePairs.addValue(KEY_STOP_ON_FIRST_ERROR, String.valueOf(myStopOnFirstBuildError));
+		keyValuePairs.addValue(KEY_REFRESH_WHOLE_PROJECT, String.valueOf(myRefreshWholeProject));
+		keyValuePairs.addValue(KEY_USE_COMPILE_CACHE, String.valueOf(myUseCompileCache));
 		keyValuePairs.addValue(KEY_IS_PARRALLEL_BUILD, String.valueOf(myIsParallelBuild));
 		keyValuePairs.addValue(KEY_IS_CLEAN_BUILD_ENABLED, String.valueOf(myIsCleanBuildEnabled));
 		keyValuePairs.addValue(KEY_IS_INCREMENTAL_BUILD_ENABLED, String.valueOf(myIsIncrementalBuildEnabled));
@@ -946,7 +988,7 @@ public class AutoBuildConfigurationDescription extends AutoBuildResourceData
 			myCustomToolCommands.put(tool, customCommands);
 		}
 		customCommands.put(resource, customCommand);
-		forceCleanBeforeBuild();
+		forceRebuildOfChangedRecipes();
 	}
 
 	@Override
@@ -1005,7 +1047,7 @@ public class AutoBuildConfigurationDescription extends AutoBuildResourceData
 			myCustomToolPattern.put(tool, customCommands);
 		}
 		customCommands.put(resource, pattern);
-		forceCleanBeforeBuild();
+		forceRebuildOfChangedRecipes();
 
 	}
 
@@ -1046,7 +1088,9 @@ public class AutoBuildConfigurationDescription extends AutoBuildResourceData
 	@Override
 	public void setOptionValue(IResource resource, IOption option, String valueID) {
 		checkIfWeCanWrite();
-		myOptions.setOptionValue(resource, option, valueID);
+		if (myOptions.setOptionValue(resource, option, valueID)) {
+			forceRebuildOfChangedRecipes();
+		}
 	}
 
 	@Override
@@ -1128,10 +1172,130 @@ public class AutoBuildConfigurationDescription extends AutoBuildResourceData
 	@Override
 	public void forceCleanBeforeBuild() {
 		myForceCleanBeforeBuild = true;
+		forgetMakeRules();
+	}
+
+	/**
+	 * Get the make rules of this configuration.
+	 * The make rules are kept between builds. When files have been added or
+	 * removed (as reported by {@link #applyResourceDelta(IResourceDelta)}) the
+	 * make rules are generated again for the known source files without visiting
+	 * the project. When the configuration or the source entries changed the
+	 * make rules are generated from scratch.
+	 *
+	 * @return the make rules to build this configuration
+	 * @throws CoreException
+	 */
+	public synchronized AutoBuildMakeRules getMakeRules() throws CoreException {
+		if (myMakeRules != null
+				&& myMakeRules.isGeneratedWith(IAutoBuildConfigurationDescription.getResolvedSourceEntries(this))) {
+			if (mySourceFilesChanged) {
+				myMakeRules = new AutoBuildMakeRules(this, myMakeRules.getSourceFilesToBuild());
+			}
+		} else {
+			myMakeRules = new AutoBuildMakeRules(this);
+		}
+		mySourceFilesChanged = false;
+		return myMakeRules;
 	}
 
-	public void forceFullBuildIfNeeded(IProgressMonitor monitor)  {
-		if (myForceCleanBeforeBuild) {
+	/**
+	 * Tell the configuration which resources changed since the last build so the
+	 * make rules can be kept up to date.
+	 *
+	 * @param delta the changes in the project since the last build. null means
+	 *              the changes are unknown and the make rules will be generated
+	 *              from scratch
+	 */
+	public synchronized void applyResourceDelta(IResourceDelta delta) {
+		if (myMakeRules == null) {
+			return;
+		}
+		if (delta == null) {
+			forgetMakeRules();
+			return;
+		}
+		try {
+			mySourceFilesChanged |= myMakeRules.applyResourceDelta(delta);
+		} catch (CoreException e) {
+			Activator.log(e);
+			forgetMakeRules();
+		}
+	}
+
+	/**
+	 * Tell the configuration a source file generated by the builder extension
+	 * may have been created or deleted.
+	 * Files generated in the build folder are not in the resource delta so the
+	 * kept make rules do not know about them. When the make rules do not match
+	 * the existence of the file they are generated again for the known source
+	 * files.
+	 *
+	 * @param file the generated source file
+	 */
+	public synchronized void updateGeneratedSourceFile(IFile file) {
+		if (myMakeRules == null) {
+			return;
+		}
+		List<IFile> sourceFiles = myMakeRules.getSourceFilesToBuild();
+		if (file.exists()) {
+			if (!sourceFiles.contains(file)) {
+				// added by the builder extension when the make rules are generated
+				mySourceFilesChanged = true;
+			}
+		} else if (sourceFiles.remove(file)) {
+			mySourceFilesChanged = true;
+		}
+	}
+
+	private synchronized void forgetMakeRules() {
+		myMakeRules = null;
+		mySourceFilesChanged = false;
+	}
+
+	/**
+	 * Start caching resolved variables and flags for the duration of a build.
+	 * The configuration should not be changed until {@link #stopBuildCache()}
+	 * has been called.
+	 *
+	 * @return the newly created cache
+	 */
+	public AutoBuildCache startBuildCache() {
+		myBuildCache = new AutoBuildCache();
+		return myBuildCache;
+	}
+
+	public void stopBuildCache() {
+		myBuildCache = null;
+	}
+
+	/**
+	 * @return the cache of the running build or null if no build is running
+	 */
+	public AutoBuildCache getBuildCache() {
+		return myBuildCache;
+	}
+
+	@Override
+	public void forceRebuildOfChangedRecipes() {
+		myRecipesChanged = true;
+		forgetMakeRules();
+	}
+
+	/**
+	 * Delete the build folder if a clean is required before building with the
+	 * given builder.
+	 * Changed recipes only require a clean when the build runner does not
+	 * rebuild targets whose recipes changed by itself.
+	 * Either way the changed recipes are handled by this build.
+	 *
+	 * @param builder the builder that is going to be used for the build
+	 * @param monitor
+	 */
+	public void forceFullBuildIfNeeded(IBuilder builder, IProgressMonitor monitor) {
+		boolean recipesNeedClean = myRecipesChanged && !builder.getBuildRunner().supportsCommandSignatures();
+		myRecipesChanged = false;
+		if (myForceCleanBeforeBuild || recipesNeedClean) {
 			myForceCleanBeforeBuild = false;
 			deleteBuildFolder(monitor);
 		}
@@ -1294,6 +1458,8 @@ public class AutoBuildConfigurationDescription extends AutoBuildResourceData
 		ret.add(KEY_TEAM + DOT + KEY_IS_SHARED);
 		ret.add(KEY_NUM_PARRALEL_BUILDS);
 		ret.add(KEY_STOP_ON_FIRST_ERROR);
+		ret.add(KEY_REFRESH_WHOLE_PROJECT);
+		ret.add(KEY_USE_COMPILE_CACHE);
 		if (myAutoBuildCfgExtDes != null) {
 			ret.addAll(myAutoBuildCfgExtDes.getTeamDefaultExclusionKeys(KEY_EXTENSION));
 		}
@@ -1336,6 +1502,8 @@ public class AutoBuildConfigurationDescription extends AutoBuildResourceData
 				&& myIsTeamShared == localOther.myIsTeamShared
 				&& myGenerateMakeFilesAUtomatically == localOther.myGenerateMakeFilesAUtomatically
 				&& myStopOnFirstBuildError == localOther.myStopOnFirstBuildError
+				&& myRefreshWholeProject == localOther.myRefreshWholeProject
+				&& myUseCompileCache == localOther.myUseCompileCache
 				&& myIsParallelBuild == localOther.myIsParallelBuild
 				&& myIsCleanBuildEnabled == localOther.myIsCleanBuildEnabled
 				&& myIsIncrementalBuildEnabled == localOther.myIsIncrementalBuildEnabled
@@ -2,19 +2,21 @@ package io.sloeber.autoBuild.integration;
 
 import static io.sloeber.autoBuild.helpers.api.AutoBuildConstants.*;
 
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.TreeSet;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.IPath;
 
 import io.sloeber.autoBuild.helpers.api.KeyValueTree;
 import io.sloeber.autoBuild.schema.api.IConfiguration;
@@ -41,6 +43,97 @@ public class AutoBuildOptions {
     private Map<IResource, Map<IOption, String>> myDefaultOptions = new HashMap<>();
     private Map<IResource, Map<IOption, String>> mySelectedOptions = new HashMap<>();
     private Map<IResource, Map<IOption, String>> myCombinedOptions = new HashMap<>();
+    private volatile OptionIndex myIndex = new OptionIndex(myCombinedOptions);
+    private Map<ITool, Set<IOption>> myToolOptions = new ConcurrentHashMap<>();
+
+    private static final Comparator<IOption> OPTION_COMPARATOR = new Comparator<>() {
+
+        @Override
+        public int compare(IOption o1, IOption o2) {
+            if (o1 == null || o2 == null) {
+                return 0;
+            }
+            return o1.getId().compareTo(o2.getId());
+        }
+    };
+
+    /*
+     * The combined options indexed by resource.
+     * getSelectedOptions is called for each file for each tool during a build
+     * and by the indexer so walking all the combined options to find the ones
+     * that apply to a file is too slow.
+     * The index splits the combined options in project, folder and file options.
+     * The merged options of a folder (project options overwritten by the options
+     * of all the folders on the path to the folder) are calculated once and
+     * reused for all the files in that folder.
+     * The index is immutable apart from the merged folder cache. When the combined
+     * options change a new index is created.
+     */
+    private static class OptionIndex {
+        private final Map<IOption, String> myProjectOptions = new HashMap<>();
+        private final Map<IPath, Map<IOption, String>> myFolderOptions = new HashMap<>();
+        private final Map<IResource, Map<IOption, String>> myFileOptions = new HashMap<>();
+        private final Map<IPath, Map<IOption, String>> myMergedFolderOptions = new ConcurrentHashMap<>();
+
+        OptionIndex(Map<IResource, Map<IOption, String>> combinedOptions) {
+            for (Entry<IResource, Map<IOption, String>> curResourceOptions : combinedOptions.entrySet()) {
+                IResource curResource = curResourceOptions.getKey();
+                if (curResource == null || curResource instanceof IProject) {
+                    // null means project level and as sutch is valid for all resources
+                    myProjectOptions.putAll(curResourceOptions.getValue());
+                    continue;
+                }
+                if (curResource instanceof IFolder) {
+                    myFolderOptions.put(curResource.getProjectRelativePath(),
+                            new HashMap<>(curResourceOptions.getValue()));
+                    continue;
+                }
+                if (curResource instanceof IFile) {
+                    myFileOptions.put(curResource, new HashMap<>(curResourceOptions.getValue()));
+                }
+            }
+        }
+
+        /*
+         * Get the options of the project and all the folders from the project root
+         * up to and including folderPath.
+         * The returned map is shared and must not be modified
+         */
+        Map<IOption, String> getFolderOptions(IPath folderPath) {
+            Map<IOption, String> ret = myMergedFolderOptions.get(folderPath);
+            if (ret != null) {
+                return ret;
+            }
+            Map<IOption, String> merged;
+            if (folderPath.segmentCount() == 0) {
+                merged = new HashMap<>(myProjectOptions);
+            } else {
+                merged = new HashMap<>(getFolderOptions(folderPath.removeLastSegments(1)));
+            }
+            Map<IOption, String> folderOptions = myFolderOptions.get(folderPath);
+            if (folderOptions != null) {
+                merged.putAll(folderOptions);
+            }
+            ret = Collections.unmodifiableMap(merged);
+            myMergedFolderOptions.put(folderPath, ret);
+            return ret;
+        }
+
+        TreeMap<IOption, String> getSelectedOptions(IResource file) {
+            TreeMap<IOption, String> ret = getSortedOptionMap();
+            IPath path = file.getProjectRelativePath();
+            if (file instanceof IFile) {
+                ret.putAll(getFolderOptions(path.removeLastSegments(1)));
+                Map<IOption, String> fileOptions = myFileOptions.get(file);
+                if (fileOptions != null) {
+                    ret.putAll(fileOptions);
+                }
+            } else {
+                ret.putAll(getFolderOptions(path));
+            }
+            return ret;
+        }
+    }
 
 
     public AutoBuildOptions() {
@@ -51,6 +144,7 @@ public class AutoBuildOptions {
         options_copy(base.mySelectedOptions, mySelectedOptions);
         options_copy(base.myDefaultOptions, myDefaultOptions);
         options_copy(base.myCombinedOptions, myCombinedOptions);
+        myIndex = new OptionIndex(myCombinedOptions);
     }
 
     public AutoBuildOptions(AutoBuildConfigurationDescription autoDesc, KeyValueTree keyValues) {
@@ -92,69 +186,32 @@ public class AutoBuildOptions {
 
 
     public TreeMap<IOption, String> getSelectedOptions(IResource file){
-        Map<IOption, String> retProject = new HashMap<>();
-        Map<Integer, Map<IOption, String>> retFolder = new HashMap<>();
-        Map<IOption, String> retFile = new HashMap<>();
-        for (Entry<IResource, Map<IOption, String>> curResourceOptions : myCombinedOptions.entrySet()) {
-            IResource curResource = curResourceOptions.getKey();
-            if (curResource == null || curResource instanceof IProject) {
-                // null means project level and as sutch is valid for all resources
-                retProject.putAll(curResourceOptions.getValue());
-                continue;
-            }
-            if (curResource instanceof IFolder) {
-                if (curResource.getProjectRelativePath().isPrefixOf(file.getProjectRelativePath())) {
-
-                    retFolder.put(Integer.valueOf(curResource.getProjectRelativePath().segmentCount()),
-                            curResourceOptions.getValue());
-
-                }
-                continue;
-            }
-            if ((curResource instanceof IFile) && (curResource.equals(file))) {
-                retFile.putAll(curResourceOptions.getValue());
-                continue;
-            }
-        }
-        TreeMap<IOption, String> ret = getSortedOptionMap();
-        ret.putAll(retProject);
-        TreeSet<Integer> segments = new TreeSet<>(retFolder.keySet());
-        for (Integer curSegment : segments) {
-            ret.putAll(retFolder.get(curSegment));
-        }
-        ret.putAll(retFile);
-        return ret;
+        return myIndex.getSelectedOptions(file);
     }
 
 
     private static TreeMap<IOption, String> getSortedOptionMap() {
-        TreeMap<IOption, String> ret = new TreeMap<>(new java.util.Comparator<>() {
-
-            @Override
-            public int compare(IOption o1, IOption o2) {
-                if (o1 == null || o2 == null) {
-                    return 0;
-                }
-                return o1.getId().compareTo(o2.getId());
-            }
-        });
-        return ret;
+        return new TreeMap<>(OPTION_COMPARATOR);
     }
 
     public TreeMap<IOption, String> getSelectedOptions(IResource file, ITool tool) {
         TreeMap<IOption, String> ret = getSelectedOptions(file);
 
         // remove all options not known to the tool
-        List<IOption> toolOptions = tool.getOptions().getOptions();// TOFIX : this should be get Enabled Options
-        for (Iterator<IOption> iterator = ret.keySet().iterator(); iterator.hasNext();) {
-            IOption curOption = iterator.next();
-            if (!toolOptions.contains(curOption)) {
-                iterator.remove();
-            }
-        }
+        ret.keySet().retainAll(getToolOptions(tool));
         return ret;
     }
 
+    /*
+     * The options of a tool as a set so looking up whether a tool knows a option
+     * does not need to walk the list of options of the tool.
+     * A bitset would need a number per option but options only have a string id
+     * and are shared by the tools so a hash set of the option objects is used.
+     */
+    private Set<IOption> getToolOptions(ITool tool) {
+        return myToolOptions.computeIfAbsent(tool, t -> new HashSet<>(t.getOptions().getOptions()));// TOFIX : this should be get Enabled Options
+    }
+
     public TreeMap<IOption, String> getSelectedOptions(Set<? extends IResource> file, ITool tool) {
         TreeMap<IOption, String> ret = getSortedOptionMap();
         for (IResource curFile : file) {
@@ -173,22 +230,35 @@ public class AutoBuildOptions {
         return ret;
     }
 
-    public void setOptionValue(IResource resource, IOption option, String valueID) {
+    /**
+     * Set the value of a option for a resource
+     *
+     * @return true if the selected value has changed
+     */
+    public boolean setOptionValue(IResource resource, IOption option, String valueID) {
         Map<IOption, String> options = mySelectedOptions.get(resource);
         if (options == null) {
             if (valueID == null || valueID.isBlank()) {
                 // as it does not exist and we want to erase do nothing
-                return;
+                return false;
             }
             options = new HashMap<>();
             mySelectedOptions.put(resource, options);
         }
+        String oldValue;
         if (valueID == null || valueID.isBlank()) {
-            options.remove(option);
+            oldValue = options.remove(option);
+            if (oldValue == null) {
+                return false;
+            }
         } else {
-            options.put(option, valueID);
+            oldValue = options.put(option, valueID);
+            if (valueID.equals(oldValue)) {
+                return false;
+            }
         }
         options_combine();
+        return true;
     }
 
     public String getOptionValue(IResource resource, ITool tool, IOption option) {
@@ -267,7 +337,7 @@ public class AutoBuildOptions {
         myCombinedOptions.clear();
         options_copy(myDefaultOptions, myCombinedOptions);
         options_copy(mySelectedOptions, myCombinedOptions);
-
+        myIndex = new OptionIndex(myCombinedOptions);
     }
 
     public void serialize(KeyValueTree keyValuePairs) {
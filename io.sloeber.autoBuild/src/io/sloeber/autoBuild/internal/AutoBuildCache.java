@@ -0,0 +1,72 @@
+package io.sloeber.autoBuild.internal;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A cache that lives for the duration of one build of one configuration.
+ * During a build the configuration does not change so the resolved variables
+ * and the flags derived from the options and language settings providers can
+ * be reused by all the make rules.
+ * A new cache is created at the start of each build so changes to the
+ * configuration between builds are always taken into account.
+ *
+ * The cache can be used by multiple build threads at the same time.
+ * Values are calculated outside of any lock so a value may be calculated more
+ * than once. This is needed as calculating a value (like resolving a variable)
+ * can use the cache.
+ *
+ * @author jan
+ *
+ */
+public class AutoBuildCache {
+	private final Map<List<Object>, Object> myValues = new ConcurrentHashMap<>();
+	private final AtomicLong myHits = new AtomicLong();
+	private final AtomicLong myMisses = new AtomicLong();
+
+	/**
+	 * Get the cached value for the key. If there is no cached value the supplier
+	 * is used to calculate the value and the value is cached.
+	 *
+	 * @param key      the key. All the parts of the key must be immutable and
+	 *                 implement equals and hashCode
+	 * @param supplier calculates the value when not cached. The supplier must not
+	 *                 return null
+	 * @return the cached or calculated value
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(List<Object> key, Supplier<T> supplier) {
+		Object ret = myValues.get(key);
+		if (ret != null) {
+			myHits.incrementAndGet();
+			return (T) ret;
+		}
+		myMisses.incrementAndGet();
+		T newValue = supplier.get();
+		myValues.put(key, newValue);
+		return newValue;
+	}
+
+	public long getHits() {
+		return myHits.get();
+	}
+
+	public long getMisses() {
+		return myMisses.get();
+	}
+
+	/**
+	 * @return the percentage of the requests that were served from the cache
+	 */
+	public long getHitRate() {
+		long total = myHits.get() + myMisses.get();
+		if (total == 0) {
+			return 0;
+		}
+		return (myHits.get() * 100) / total;
+	}
+
+}
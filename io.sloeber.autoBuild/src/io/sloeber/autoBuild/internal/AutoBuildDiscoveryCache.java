@@ -0,0 +1,270 @@
+package io.sloeber.autoBuild.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.cdt.core.settings.model.ICLanguageSettingEntry;
+import org.eclipse.cdt.core.settings.model.util.CDataUtil;
+
+import io.sloeber.autoBuild.api.IAutoBuildConfigurationDescription;
+import io.sloeber.autoBuild.extensionPoint.providers.InternalBuildRunner;
+
+/**
+ * The results of the scanner discovery commands.
+ * The results are stored by discovery command together with the time stamp of
+ * the compiler used by the discovery command. When the compiler changes the
+ * result is outdated and the discovery needs to be run again.
+ *
+ * The results are persisted so the discovery does not need to be run each time
+ * eclipse starts. Failed discoveries are only kept in memory so they are run
+ * again the next time eclipse starts.
+ *
+ * The cache can be used by multiple threads at the same time.
+ *
+ * @author jan
+ *
+ */
+public class AutoBuildDiscoveryCache {
+	public static final long NOT_EXISTING = -1;
+	private static final int VERSION = 2;
+	// Do not check the time stamp of the compiler more than once every 10 seconds
+	private static final long COMPILER_CHECK_INTERVAL = 10000;
+	private static final String PATH = "PATH"; //$NON-NLS-1$
+
+	private final Map<String, DiscoveryResult> myResults = new ConcurrentHashMap<>();
+	private final Set<String> myRunningDiscoveries = ConcurrentHashMap.newKeySet();
+	private final Path myCacheFile;
+
+	public static class DiscoveryResult {
+		private final long myCompilerTimeStamp;
+		private final List<ICLanguageSettingEntry> myEntries;
+		private volatile long myLastCheck = 0;
+
+		public DiscoveryResult(long compilerTimeStamp, List<ICLanguageSettingEntry> entries) {
+			myCompilerTimeStamp = compilerTimeStamp;
+			myEntries = Collections.unmodifiableList(new ArrayList<>(entries));
+			myLastCheck = System.currentTimeMillis();
+		}
+
+		public List<ICLanguageSettingEntry> getEntries() {
+			return myEntries;
+		}
+
+		/**
+		 * @return true if the compiler was not found or the discovery did not find
+		 *         anything
+		 */
+		public boolean isFailed() {
+			return myCompilerTimeStamp == NOT_EXISTING || myEntries.isEmpty();
+		}
+	}
+
+	/**
+	 * @param cacheFile the file to persist the results to. null means the results
+	 *                  are not persisted
+	 */
+	public AutoBuildDiscoveryCache(Path cacheFile) {
+		myCacheFile = cacheFile;
+		load();
+	}
+
+	/**
+	 * @return the last known result of the discovery command or null if the
+	 *         command has never been run
+	 */
+	public DiscoveryResult get(String discoveryCommand) {
+		return myResults.get(discoveryCommand);
+	}
+
+	/**
+	 * Store the result of a discovery command and persist all the results
+	 */
+	public void put(String discoveryCommand, DiscoveryResult result) {
+		myResults.put(discoveryCommand, result);
+		save();
+	}
+
+	/**
+	 * Check whether the compiler used by the discovery command has changed since
+	 * the result was created.
+	 * To avoid accessing the file system for each call the compiler is only
+	 * checked once in a while.
+	 *
+	 * @param autoData the configuration the discovery command is run for. The
+	 *                 compiler is searched for in the path of its environment
+	 * @return true if the discovery command needs to be run again
+	 */
+	public static boolean isOutdated(String discoveryCommand, DiscoveryResult result,
+			IAutoBuildConfigurationDescription autoData) {
+		long now = System.currentTimeMillis();
+		if (now - result.myLastCheck < COMPILER_CHECK_INTERVAL) {
+			return false;
+		}
+		result.myLastCheck = now;
+		return getCompilerTimeStamp(discoveryCommand,
+				autoData.getEnvironmentVariableMap()) != result.myCompilerTimeStamp;
+	}
+
+	/**
+	 * Mark the discovery command as running.
+	 *
+	 * @return false if the discovery command is already running
+	 */
+	public boolean startDiscovery(String discoveryCommand) {
+		return myRunningDiscoveries.add(discoveryCommand);
+	}
+
+	public void endDiscovery(String discoveryCommand) {
+		myRunningDiscoveries.remove(discoveryCommand);
+	}
+
+	/**
+	 * Get the time stamp of the compiler called by the discovery command.
+	 * When the compiler is not a absolute path the compiler is searched for in the
+	 * path of the environment the discovery command is run with.
+	 *
+	 * @param environment the environment the discovery command is run with. null
+	 *                    means the environment of eclipse
+	 * @return the last modified time of the compiler or NOT_EXISTING if the
+	 *         compiler is not found
+	 */
+	public static long getCompilerTimeStamp(String discoveryCommand, Map<String, String> environment) {
+		String[] args = InternalBuildRunner.argumentsToArray(discoveryCommand);
+		if (args.length == 0) {
+			return NOT_EXISTING;
+		}
+		String compiler = args[0].replace("\"", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			Path compilerPath = Path.of(compiler);
+			if (compilerPath.isAbsolute()) {
+				return getTimeStamp(compilerPath);
+			}
+			String path = getPath(environment);
+			if (path == null) {
+				return NOT_EXISTING;
+			}
+			for (String curFolder : path.split(File.pathSeparator)) {
+				if (curFolder.isBlank()) {
+					continue;
+				}
+				long ret = getTimeStamp(Path.of(curFolder, compiler));
+				if (ret == NOT_EXISTING) {
+					ret = getTimeStamp(Path.of(curFolder, compiler + ".exe")); //$NON-NLS-1$
+				}
+				if (ret != NOT_EXISTING) {
+					return ret;
+				}
+			}
+		} catch (InvalidPathException e) {
+			// Not something we can find
+		}
+		return NOT_EXISTING;
+	}
+
+	private static String getPath(Map<String, String> environment) {
+		if (environment == null) {
+			return System.getenv(PATH);
+		}
+		for (Entry<String, String> curVariable : environment.entrySet()) {
+			// windows calls it Path
+			if (PATH.equalsIgnoreCase(curVariable.getKey())) {
+				return curVariable.getValue();
+			}
+		}
+		return null;
+	}
+
+	private static long getTimeStamp(Path file) {
+		try {
+			if (Files.isRegularFile(file)) {
+				return Files.getLastModifiedTime(file).toMillis();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return NOT_EXISTING;
+	}
+
+	private void load() {
+		if (myCacheFile == null || !Files.isRegularFile(myCacheFile)) {
+			return;
+		}
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(Files.newInputStream(myCacheFile)))) {
+			if (in.readInt() != VERSION) {
+				return;
+			}
+			int numResults = in.readInt();
+			for (int curResult = 0; curResult < numResults; curResult++) {
+				String command = in.readUTF();
+				long compilerTimeStamp = in.readLong();
+				int numEntries = in.readInt();
+				List<ICLanguageSettingEntry> entries = new ArrayList<>(numEntries);
+				for (int curEntry = 0; curEntry < numEntries; curEntry++) {
+					int kind = in.readInt();
+					String name = in.readUTF();
+					String value = in.readUTF();
+					int flags = in.readInt();
+					entries.add((ICLanguageSettingEntry) CDataUtil.createEntry(kind, name, value, null, flags));
+				}
+				DiscoveryResult result = new DiscoveryResult(compilerTimeStamp, entries);
+				// make sure the compiler is checked the first time the result is used
+				result.myLastCheck = 0;
+				myResults.put(command, result);
+			}
+		} catch (Exception e) {
+			// A corrupt cache simply means the discovery is run again
+			e.printStackTrace();
+			myResults.clear();
+		}
+	}
+
+	private synchronized void save() {
+		if (myCacheFile == null) {
+			return;
+		}
+		Path tmpFile = myCacheFile.resolveSibling(myCacheFile.getFileName() + ".tmp"); //$NON-NLS-1$
+		try {
+			Files.createDirectories(myCacheFile.getParent());
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+				List<Entry<String, DiscoveryResult>> results = new ArrayList<>(myResults.entrySet());
+				out.writeInt(VERSION);
+				out.writeInt(results.size());
+				results.removeIf(curResult -> curResult.getValue().isFailed());
+				for (Entry<String, DiscoveryResult> curResult : results) {
+					DiscoveryResult result = curResult.getValue();
+					out.writeUTF(curResult.getKey());
+					out.writeLong(result.myCompilerTimeStamp);
+					out.writeInt(result.myEntries.size());
+					for (ICLanguageSettingEntry curEntry : result.myEntries) {
+						out.writeInt(curEntry.getKind());
+						out.writeUTF(curEntry.getName());
+						String value = curEntry.getValue();
+						out.writeUTF(value == null ? "" : value); //$NON-NLS-1$
+						out.writeInt(curEntry.getFlags());
+					}
+				}
+			}
+			Files.move(tmpFile, myCacheFile, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+}
@@ -0,0 +1,353 @@
+package io.sloeber.autoBuild.internal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The state of the internal builder that is kept in the build folder between
+ * builds.
+ * The state contains the signature (a hash of the resolved recipes) used to
+ * build each target and the header dependencies parsed from the .d files
+ * together with the time stamp of the .d file when it was parsed.
+ * This way a .d file is only parsed again when it has been rewritten and a
+ * target is rebuild when the recipes to build it have changed even if no file
+ * changed.
+ *
+ * Time stamps of files are only read once per build. When a target is rebuild
+ * the time stamps of the target files need to be forgotten with
+ * {@link #invalidateTimeStamp(Path)}
+ *
+ * This class does not use the workspace so it can be used by the build threads
+ *
+ * @author jan
+ *
+ */
+public class AutoBuildState {
+	public static final String STATE_FILE_NAME = ".autoBuildState"; //$NON-NLS-1$
+	public static final long NOT_EXISTING = -1;
+	private static final String VERSION_LINE = "#autoBuild state 1"; //$NON-NLS-1$
+	private static final char TARGET_KEY = 'T';
+	private static final char DEP_FILE_KEY = 'D';
+	private static final char HEADER_KEY = 'H';
+	private static final char SEPARATOR = '\t';
+
+	private final Path myBuildFolder;
+	private final Path myStateFile;
+	private final Map<Path, String> mySignatures = new ConcurrentHashMap<>();
+	private final Map<Path, DependencyInfo> myDependencies = new ConcurrentHashMap<>();
+	private final Map<Path, Long> myTimeStamps = new ConcurrentHashMap<>();
+	private volatile boolean myIsDirty = false;
+
+	private static class DependencyInfo {
+		final long myDepFileTimeStamp;
+		final List<Path> myHeaders;
+
+		DependencyInfo(long depFileTimeStamp, List<Path> headers) {
+			myDepFileTimeStamp = depFileTimeStamp;
+			myHeaders = headers;
+		}
+	}
+
+	private AutoBuildState(Path buildFolder) {
+		myBuildFolder = buildFolder;
+		myStateFile = buildFolder.resolve(STATE_FILE_NAME);
+	}
+
+	/**
+	 * Load the state stored in the build folder.
+	 * When there is no state or the state can not be read an empty state is
+	 * returned
+	 *
+	 * @param buildFolder the location of the build folder
+	 * @return the build state; never null
+	 */
+	public static AutoBuildState load(Path buildFolder) {
+		AutoBuildState ret = new AutoBuildState(buildFolder);
+		if (!Files.isRegularFile(ret.myStateFile)) {
+			return ret;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(ret.myStateFile, StandardCharsets.UTF_8)) {
+			if (!VERSION_LINE.equals(reader.readLine())) {
+				return ret;
+			}
+			Path curDepFile = null;
+			long curDepFileTimeStamp = NOT_EXISTING;
+			List<Path> curHeaders = null;
+			String curLine;
+			while ((curLine = reader.readLine()) != null) {
+				if (curLine.length() < 2 || curLine.charAt(1) != SEPARATOR) {
+					continue;
+				}
+				switch (curLine.charAt(0)) {
+				case TARGET_KEY: {
+					int sep = curLine.lastIndexOf(SEPARATOR);
+					if (sep > 2) {
+						ret.mySignatures.put(Path.of(curLine.substring(2, sep)), curLine.substring(sep + 1));
+					}
+					break;
+				}
+				case DEP_FILE_KEY: {
+					if (curDepFile != null) {
+						ret.myDependencies.put(curDepFile, new DependencyInfo(curDepFileTimeStamp, curHeaders));
+					}
+					int sep = curLine.lastIndexOf(SEPARATOR);
+					curDepFile = Path.of(curLine.substring(2, sep));
+					curDepFileTimeStamp = Long.parseLong(curLine.substring(sep + 1));
+					curHeaders = new ArrayList<>();
+					break;
+				}
+				case HEADER_KEY:
+					if (curHeaders != null) {
+						curHeaders.add(Path.of(curLine.substring(2)));
+					}
+					break;
+				default:
+					break;
+				}
+			}
+			if (curDepFile != null) {
+				ret.myDependencies.put(curDepFile, new DependencyInfo(curDepFileTimeStamp, curHeaders));
+			}
+		} catch (Exception e) {
+			// A corrupt state simply means everything gets checked again
+			e.printStackTrace();
+			ret.mySignatures.clear();
+			ret.myDependencies.clear();
+		}
+		return ret;
+	}
+
+	/**
+	 * Write the state to the build folder if it has changed
+	 *
+	 * @throws IOException
+	 */
+	public void save() throws IOException {
+		if (!myIsDirty) {
+			return;
+		}
+		Files.createDirectories(myBuildFolder);
+		Path tmpFile = myBuildFolder.resolve(STATE_FILE_NAME + ".tmp"); //$NON-NLS-1$
+		try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+			writer.write(VERSION_LINE);
+			writer.newLine();
+			for (Entry<Path, String> curSignature : mySignatures.entrySet()) {
+				writer.write(TARGET_KEY);
+				writer.write(SEPARATOR);
+				writer.write(curSignature.getKey().toString());
+				writer.write(SEPARATOR);
+				writer.write(curSignature.getValue());
+				writer.newLine();
+			}
+			for (Entry<Path, DependencyInfo> curDependency : myDependencies.entrySet()) {
+				DependencyInfo info = curDependency.getValue();
+				writer.write(DEP_FILE_KEY);
+				writer.write(SEPARATOR);
+				writer.write(curDependency.getKey().toString());
+				writer.write(SEPARATOR);
+				writer.write(Long.toString(info.myDepFileTimeStamp));
+				writer.newLine();
+				for (Path curHeader : info.myHeaders) {
+					writer.write(HEADER_KEY);
+					writer.write(SEPARATOR);
+					writer.write(curHeader.toString());
+					writer.newLine();
+				}
+			}
+		}
+		Files.move(tmpFile, myStateFile, StandardCopyOption.REPLACE_EXISTING);
+		myIsDirty = false;
+	}
+
+	/**
+	 * Remove the stored state from the build folder
+	 */
+	public static void delete(Path buildFolder) {
+		try {
+			Files.deleteIfExists(buildFolder.resolve(STATE_FILE_NAME));
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Calculate the signature of a set of recipes.
+	 *
+	 * @param recipes the fully resolved recipes
+	 * @return a string that changes when the recipes change
+	 */
+	public static String getSignature(String[] recipes) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+			for (String curRecipe : recipes) {
+				digest.update(curRecipe.getBytes(StandardCharsets.UTF_8));
+				digest.update((byte) '\n');
+			}
+			StringBuilder ret = new StringBuilder();
+			for (byte curByte : digest.digest()) {
+				ret.append(Character.forDigit((curByte >> 4) & 0xF, 16));
+				ret.append(Character.forDigit(curByte & 0xF, 16));
+			}
+			return ret.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// every java implementation must support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Get the signature of the recipes used the last time the target was build
+	 * successfully
+	 *
+	 * @param target the location of the target file
+	 * @return the signature or null if unknown
+	 */
+	public String getSignature(Path target) {
+		return mySignatures.get(target);
+	}
+
+	/**
+	 * Store that the target has been build successfully with the given signature
+	 */
+	public void setSignature(Path target, String signature) {
+		if (!signature.equals(mySignatures.put(target, signature))) {
+			myIsDirty = true;
+		}
+	}
+
+	/**
+	 * Forget the signature of a target. Typically because the build of the target
+	 * failed.
+	 */
+	public void removeSignature(Path target) {
+		if (mySignatures.remove(target) != null) {
+			myIsDirty = true;
+		}
+	}
+
+	/**
+	 * Get the last modified time stamp of a file.
+	 * The time stamp is read only once from the file system
+	 *
+	 * @param file the location of the file
+	 * @return the time stamp in millis or NOT_EXISTING if the file does not exist
+	 */
+	public long getTimeStamp(Path file) {
+		Long ret = myTimeStamps.get(file);
+		if (ret == null) {
+			ret = Long.valueOf(readTimeStamp(file));
+			myTimeStamps.put(file, ret);
+		}
+		return ret.longValue();
+	}
+
+	/**
+	 * Forget the time stamp of a file. Needed when the file has been (re)created
+	 */
+	public void invalidateTimeStamp(Path file) {
+		myTimeStamps.remove(file);
+	}
+
+	private static long readTimeStamp(Path file) {
+		try {
+			return Files.readAttributes(file, BasicFileAttributes.class).lastModifiedTime().toMillis();
+		} catch (@SuppressWarnings("unused") NoSuchFileException e) {
+			return NOT_EXISTING;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return NOT_EXISTING;
+		}
+	}
+
+	/**
+	 * Get the headers listed in a dependency file created by a compiler.
+	 * The dependency file is only parsed when it changed since the last time it
+	 * was parsed.
+	 *
+	 * @param depFile the location of the dependency file
+	 * @return the headers mentioned in the dependency file or null if the
+	 *         dependency file does not exist or could not be read
+	 */
+	public List<Path> getHeaders(Path depFile) {
+		long depFileTimeStamp = getTimeStamp(depFile);
+		if (depFileTimeStamp == NOT_EXISTING) {
+			return null;
+		}
+		DependencyInfo info = myDependencies.get(depFile);
+		if (info != null && info.myDepFileTimeStamp == depFileTimeStamp) {
+			return info.myHeaders;
+		}
+		List<Path> headers = parseDepFile(depFile);
+		if (headers == null) {
+			myDependencies.remove(depFile);
+			return null;
+		}
+		myDependencies.put(depFile, new DependencyInfo(depFileTimeStamp, headers));
+		myIsDirty = true;
+		return headers;
+	}
+
+	/**
+	 * given a dependency file; return the time stamp of the youngest file mentioned
+	 * in the dependency file
+	 *
+	 * @param depFile the dependency file created by a compiler
+	 *
+	 * @return the timestamp of the youngest file in the dependency file;
+	 *         Long.MAX_VALUE if a referenced file does not exist or the dependency
+	 *         file can not be read
+	 */
+	public long getNewestHeaderTimeStamp(Path depFile) {
+		List<Path> headers = getHeaders(depFile);
+		if (headers == null) {
+			return Long.MAX_VALUE;
+		}
+		long newestTime = Long.MIN_VALUE;
+		for (Path curHeader : headers) {
+			long curTimeStamp = getTimeStamp(curHeader);
+			if (curTimeStamp == NOT_EXISTING) {
+				return Long.MAX_VALUE;
+			}
+			newestTime = Math.max(newestTime, curTimeStamp);
+		}
+		return newestTime;
+	}
+
+	private List<Path> parseDepFile(Path depFile) {
+		List<Path> ret = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new FileReader(depFile.toFile()))) {
+			String curLine = null;
+			while ((curLine = reader.readLine()) != null) {
+				if (curLine.endsWith(":")) { //$NON-NLS-1$
+					String headerName = curLine.substring(0, curLine.length() - 1).replace("\\ ", " "); //$NON-NLS-1$ //$NON-NLS-2$
+					Path headerFile = Path.of(headerName);
+					if (!headerFile.isAbsolute()) {
+						headerFile = myBuildFolder.resolve(headerName).normalize();
+					}
+					ret.add(headerFile);
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+		return Collections.unmodifiableList(ret);
+	}
+
+}
@@ -0,0 +1,721 @@
+package io.sloeber.autoBuild.internal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.resources.IFile;
+
+import io.sloeber.autoBuild.api.IAutoBuildMakeRule;
+import io.sloeber.autoBuild.core.Activator;
+
+/**
+ * A cache of compiled files shared by all projects and configurations in the
+ * workspace. Projects using the same board compile the same core, variant and
+ * library sources with the same command. When such a compile has been done
+ * before the result is copied from the cache instead of running the compiler.
+ *
+ * Like ccache in direct mode the key of a compile is a hash of the command
+ * (with the build folder replaced by a placeholder), the content of the source
+ * files and the size and time stamp of the compiler. A rule whose compiler can
+ * not be found is not cached. The headers used by the compile are taken from the
+ * dependency file created by the compiler and their content hash is stored
+ * with the result. A result is only used when all these headers still have
+ * the same content.
+ * Only rules that create dependency files can be cached as otherwise the
+ * headers are unknown. When the dependency file does not list any file the
+ * result is not stored.
+ * The output of the compiler (like warnings) is stored with the result and
+ * written to the console again when the result is used so the markers are
+ * created as if the file was compiled.
+ *
+ * The size of the cache is limited. When the cache gets too big the least
+ * recently used results are removed.
+ *
+ * This class does not use the workspace so it can be used by the build threads
+ *
+ * @author jan
+ *
+ */
+public class CompileCache {
+	private static final String CACHE_FOLDER_NAME = "compileCache"; //$NON-NLS-1$
+	private static final String MANIFEST_FILE_NAME = "manifest"; //$NON-NLS-1$
+	private static final String OUTPUT_FILE_NAME = "compiler.out"; //$NON-NLS-1$
+	private static final String ERROR_FILE_NAME = "compiler.err"; //$NON-NLS-1$
+	private static final String VERSION_LINE = "#compile cache 2"; //$NON-NLS-1$
+	private static final String BUILD_FOLDER_PLACEHOLDER = "${BUILD_FOLDER}"; //$NON-NLS-1$
+	private static final char HEADER_KEY = 'H';
+	private static final char SEPARATOR = '\t';
+	private static final long MAX_CACHE_SIZE = 1024L * 1024L * 1024L;
+	// evict till the cache is this much smaller than the maximum
+	private static final long EVICTION_TARGET_SIZE = MAX_CACHE_SIZE / 10 * 9;
+
+	private static final Map<Path, FileHash> myFileHashes = new ConcurrentHashMap<>();
+	// the results in the cache with their size and last use. null till needed
+	private static Map<String, CachedResult> myResults = null;
+	private static long myCacheSize = 0;
+	private static final AtomicLong myEvictions = new AtomicLong();
+
+	private static class FileHash {
+		final long myTimeStamp;
+		final long mySize;
+		final String myHash;
+
+		FileHash(long timeStamp, long size, String hash) {
+			myTimeStamp = timeStamp;
+			mySize = size;
+			myHash = hash;
+		}
+	}
+
+	private static class CachedResult {
+		final long mySize;
+		long myLastUse;
+
+		CachedResult(long size, long lastUse) {
+			mySize = size;
+			myLastUse = lastUse;
+		}
+	}
+
+	/**
+	 * The hits and misses of one build
+	 */
+	public static class Statistics {
+		private final AtomicLong myHits = new AtomicLong();
+		private final AtomicLong myMisses = new AtomicLong();
+		private final AtomicLong myStores = new AtomicLong();
+
+		public long getHits() {
+			return myHits.get();
+		}
+
+		public long getMisses() {
+			return myMisses.get();
+		}
+
+		public long getStores() {
+			return myStores.get();
+		}
+	}
+
+	private final String myKey;
+	private final Path myBuildFolder;
+	private final List<Path> myTargets = new ArrayList<>();
+	private final List<Path> myDependencyFiles = new ArrayList<>();
+	private final Statistics myStatistics;
+	private final ByteArrayOutputStream myOutput = new ByteArrayOutputStream();
+	private final ByteArrayOutputStream myErrors = new ByteArrayOutputStream();
+	// the compiler output of a restored result
+	private String myRestoredOutput = null;
+	private String myRestoredErrors = null;
+
+	/*
+	 * Writes to the console and keeps a copy to store with the result
+	 */
+	private static class CapturingStream extends OutputStream {
+		private final OutputStream myConsole;
+		private final ByteArrayOutputStream myCopy;
+
+		CapturingStream(OutputStream console, ByteArrayOutputStream copy) {
+			myConsole = console;
+			myCopy = copy;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			myConsole.write(b);
+			synchronized (myCopy) {
+				myCopy.write(b);
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			myConsole.write(b, off, len);
+			synchronized (myCopy) {
+				myCopy.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			myConsole.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			myConsole.close();
+		}
+	}
+
+	private CompileCache(String key, Path buildFolder, List<Path> targets, List<Path> dependencyFiles,
+			Statistics statistics) {
+		myKey = key;
+		myBuildFolder = buildFolder;
+		myStatistics = statistics;
+		myTargets.addAll(targets);
+		myDependencyFiles.addAll(dependencyFiles);
+	}
+
+	/**
+	 * Get the cache entry for a rule
+	 *
+	 * @param rule        the rule to run
+	 * @param recipes     the resolved recipes of the rule
+	 * @param buildFolder the location of the build folder
+	 * @param statistics  the statistics to update
+	 * @return the cache entry or null if the rule can not be cached
+	 */
+	public static CompileCache get(IAutoBuildMakeRule rule, String[] recipes, Path buildFolder,
+			Statistics statistics) {
+		if (rule.getSequenceGroupID() != 0 || recipes.length != 1 || rule.getDependencyFiles().isEmpty()) {
+			return null;
+		}
+		List<Path> sources = new ArrayList<>();
+		for (IFile curFile : rule.getPrerequisiteFiles()) {
+			sources.add(curFile.getLocation().toPath());
+		}
+		List<Path> targets = new ArrayList<>();
+		for (IFile curFile : rule.getTargetFiles()) {
+			targets.add(curFile.getLocation().toPath());
+		}
+		List<Path> dependencyFiles = new ArrayList<>();
+		for (IFile curFile : rule.getDependencyFiles()) {
+			dependencyFiles.add(curFile.getLocation().toPath());
+		}
+		return get(recipes[0], sources, targets, dependencyFiles, buildFolder, statistics);
+	}
+
+	/**
+	 * Get the cache entry for a compile command
+	 *
+	 * @param recipe          the resolved compile command
+	 * @param sources         the files compiled by the command
+	 * @param targets         the files created by the command
+	 * @param dependencyFiles the dependency files created by the command
+	 * @param buildFolder     the location of the build folder
+	 * @param statistics      the statistics to update
+	 * @return the cache entry or null if the command can not be cached
+	 */
+	public static CompileCache get(String recipe, List<Path> sources, List<Path> targets,
+			List<Path> dependencyFiles, Path buildFolder, Statistics statistics) {
+		String key = getKey(recipe, sources, buildFolder);
+		if (key == null || dependencyFiles.isEmpty()) {
+			return null;
+		}
+		return new CompileCache(key, buildFolder, targets, dependencyFiles, statistics);
+	}
+
+	/**
+	 * Get the key of a compile command. The headers are not part of the key as
+	 * they are only known after the compile; they are checked when the result
+	 * is restored.
+	 *
+	 * @param recipe      the resolved compile command
+	 * @param sources     the files compiled by the command
+	 * @param buildFolder the location of the build folder
+	 * @return the key or null if the command can not be cached
+	 */
+	public static String getKey(String recipe, List<Path> sources, Path buildFolder) {
+		Path compiler = getCompiler(recipe);
+		if (compiler == null) {
+			// a new compiler would get the results of the old compiler
+			return null;
+		}
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+			digest.update(VERSION_LINE.getBytes(StandardCharsets.UTF_8));
+			digest.update(normalize(recipe, buildFolder).getBytes(StandardCharsets.UTF_8));
+			List<Path> sortedSources = new ArrayList<>(sources);
+			sortedSources.sort(Comparator.naturalOrder());
+			for (Path curSource : sortedSources) {
+				String hash = getHash(curSource);
+				if (hash == null) {
+					return null;
+				}
+				digest.update(hash.getBytes(StandardCharsets.UTF_8));
+			}
+			// a new compiler at the same location compiles differently
+			BasicFileAttributes attributes = Files.readAttributes(compiler, BasicFileAttributes.class);
+			digest.update((Long.toString(attributes.size()) + SEPARATOR + attributes.lastModifiedTime())
+					.getBytes(StandardCharsets.UTF_8));
+			return toHex(digest.digest());
+		} catch (Exception e) {
+			// The command will simply not be cached
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Get the compiler of a compile command. This is the first word of the
+	 * command which is quoted when the path of the compiler contains spaces.
+	 * On windows the compiler may be written without the .exe extension.
+	 *
+	 * @param recipe the resolved compile command
+	 * @return the compiler or null if the compiler can not be found
+	 */
+	public static Path getCompiler(String recipe) {
+		String command = recipe.trim();
+		String compilerName;
+		if (command.startsWith("\"") || command.startsWith("'")) { //$NON-NLS-1$ //$NON-NLS-2$
+			int quoteEnd = command.indexOf(command.charAt(0), 1);
+			if (quoteEnd < 0) {
+				return null;
+			}
+			compilerName = command.substring(1, quoteEnd);
+		} else {
+			compilerName = command.split("\\s+", 2)[0]; //$NON-NLS-1$
+		}
+		try {
+			Path compiler = Path.of(compilerName);
+			if (!compiler.isAbsolute()) {
+				return null;
+			}
+			if (Files.isRegularFile(compiler)) {
+				return compiler;
+			}
+			Path exeCompiler = Path.of(compilerName + ".exe"); //$NON-NLS-1$
+			if (Files.isRegularFile(exeCompiler)) {
+				return exeCompiler;
+			}
+		} catch (InvalidPathException e) {
+			// not a file name so not a compiler that can be found
+		}
+		return null;
+	}
+
+	private static Path getCacheFolder() {
+		return Activator.getInstance().getStateLocation().append(CACHE_FOLDER_NAME).toFile().toPath();
+	}
+
+	private Path getResultFolder() {
+		return getCacheFolder().resolve(myKey);
+	}
+
+	/**
+	 * Get the stream to write the output of the compile command to. The output is
+	 * written to the console and stored with the result.
+	 */
+	public OutputStream captureOutput(OutputStream console) {
+		return new CapturingStream(console, myOutput);
+	}
+
+	/**
+	 * Get the stream to write the errors of the compile command to. The errors
+	 * are written to the console and stored with the result.
+	 */
+	public OutputStream captureErrors(OutputStream console) {
+		return new CapturingStream(console, myErrors);
+	}
+
+	/**
+	 * Copy the result of a previous compile to the targets.
+	 * Use {@link #replayOutput(OutputStream, OutputStream)} to write the compiler
+	 * output of that compile to the console.
+	 *
+	 * @return true if the targets have been created from the cache
+	 */
+	public boolean restore() {
+		Path resultFolder = getResultFolder();
+		Path manifest = resultFolder.resolve(MANIFEST_FILE_NAME);
+		if (!Files.isRegularFile(manifest) || !headersAreUnchanged(manifest)) {
+			myStatistics.myMisses.incrementAndGet();
+			return false;
+		}
+		try {
+			for (Path curTarget : myTargets) {
+				Files.copy(resultFolder.resolve(curTarget.getFileName().toString()), curTarget,
+						StandardCopyOption.REPLACE_EXISTING);
+			}
+			for (Path curDepFile : myDependencyFiles) {
+				String content = Files.readString(resultFolder.resolve(curDepFile.getFileName().toString()),
+						StandardCharsets.UTF_8);
+				Files.writeString(curDepFile, denormalizeDepFile(content, myBuildFolder), StandardCharsets.UTF_8);
+			}
+			myRestoredOutput = readOutput(resultFolder.resolve(OUTPUT_FILE_NAME));
+			myRestoredErrors = readOutput(resultFolder.resolve(ERROR_FILE_NAME));
+			Files.setLastModifiedTime(manifest, FileTime.fromMillis(System.currentTimeMillis()));
+			markUsed(myKey);
+		} catch (IOException e) {
+			// a half restored result is no result
+			e.printStackTrace();
+			for (Path curTarget : myTargets) {
+				deleteQuietly(curTarget);
+			}
+			myStatistics.myMisses.incrementAndGet();
+			return false;
+		}
+		myStatistics.myHits.incrementAndGet();
+		return true;
+	}
+
+	private String readOutput(Path outputFile) throws IOException {
+		if (!Files.isRegularFile(outputFile)) {
+			return null;
+		}
+		String content = Files.readString(outputFile, StandardCharsets.UTF_8);
+		return content.replace(BUILD_FOLDER_PLACEHOLDER, myBuildFolder.toString());
+	}
+
+	/**
+	 * Write the compiler output of the restored result to the console so the
+	 * warnings show up as if the file was compiled.
+	 *
+	 * @param out the stream the compiler output is written to
+	 * @param err the stream the compiler errors are written to
+	 */
+	public void replayOutput(OutputStream out, OutputStream err) throws IOException {
+		if (myRestoredOutput != null) {
+			out.write(myRestoredOutput.getBytes(StandardCharsets.UTF_8));
+			out.flush();
+		}
+		if (myRestoredErrors != null) {
+			err.write(myRestoredErrors.getBytes(StandardCharsets.UTF_8));
+			err.flush();
+		}
+	}
+
+	private boolean headersAreUnchanged(Path manifest) {
+		try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+			if (!VERSION_LINE.equals(reader.readLine())) {
+				return false;
+			}
+			String curLine;
+			while ((curLine = reader.readLine()) != null) {
+				if (curLine.length() < 2 || curLine.charAt(0) != HEADER_KEY) {
+					continue;
+				}
+				int sep = curLine.lastIndexOf(SEPARATOR);
+				Path header = toPath(curLine.substring(2, sep), myBuildFolder);
+				if (!curLine.substring(sep + 1).equals(getHash(header))) {
+					return false;
+				}
+			}
+			return true;
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Store the result of a successful compile
+	 */
+	public void store() {
+		Path cacheFolder = getCacheFolder();
+		Path tmpFolder = cacheFolder.resolve(myKey + '.' + Thread.currentThread().getId() + ".tmp"); //$NON-NLS-1$
+		try {
+			Files.createDirectories(tmpFolder);
+			long size = 0;
+			for (Path curTarget : myTargets) {
+				Path cachedFile = tmpFolder.resolve(curTarget.getFileName().toString());
+				Files.copy(curTarget, cachedFile, StandardCopyOption.REPLACE_EXISTING);
+				size += Files.size(cachedFile);
+			}
+			Set<String> headers = new LinkedHashSet<>();
+			for (Path curDepFile : myDependencyFiles) {
+				String content = Files.readString(curDepFile, StandardCharsets.UTF_8);
+				headers.addAll(getHeaders(content));
+				String normalized = normalizeDepFile(content, myBuildFolder);
+				Files.writeString(tmpFolder.resolve(curDepFile.getFileName().toString()), normalized,
+						StandardCharsets.UTF_8);
+				size += normalized.length();
+			}
+			if (headers.isEmpty()) {
+				// without the files the compile used the result can not be checked
+				deleteFolder(tmpFolder);
+				return;
+			}
+			size += storeOutput(myOutput, tmpFolder.resolve(OUTPUT_FILE_NAME));
+			size += storeOutput(myErrors, tmpFolder.resolve(ERROR_FILE_NAME));
+			try (BufferedWriter writer = Files.newBufferedWriter(tmpFolder.resolve(MANIFEST_FILE_NAME),
+					StandardCharsets.UTF_8)) {
+				writer.write(VERSION_LINE);
+				writer.newLine();
+				for (String curHeader : headers) {
+					String hash = getHash(toPath(curHeader, myBuildFolder));
+					if (hash == null) {
+						// the compile used a header that is gone
+						deleteFolder(tmpFolder);
+						return;
+					}
+					writer.write(HEADER_KEY);
+					writer.write(SEPARATOR);
+					writer.write(normalize(curHeader, myBuildFolder));
+					writer.write(SEPARATOR);
+					writer.write(hash);
+					writer.newLine();
+				}
+			}
+			Path resultFolder = getResultFolder();
+			deleteFolder(resultFolder);
+			Files.move(tmpFolder, resultFolder);
+			addResult(myKey, size);
+			myStatistics.myStores.incrementAndGet();
+		} catch (IOException e) {
+			// The result is simply not cached
+			e.printStackTrace();
+			deleteFolder(tmpFolder);
+		}
+	}
+
+	private long storeOutput(ByteArrayOutputStream output, Path outputFile) throws IOException {
+		String content;
+		synchronized (output) {
+			if (output.size() == 0) {
+				return 0;
+			}
+			content = normalize(output.toString(StandardCharsets.UTF_8), myBuildFolder);
+		}
+		Files.writeString(outputFile, content, StandardCharsets.UTF_8);
+		return content.length();
+	}
+
+	/**
+	 * @return the number of results removed from the cache since startup
+	 */
+	public static long getEvictions() {
+		return myEvictions.get();
+	}
+
+	private static synchronized void loadResults() {
+		if (myResults != null) {
+			return;
+		}
+		myResults = new HashMap<>();
+		myCacheSize = 0;
+		Path cacheFolder = getCacheFolder();
+		if (!Files.isDirectory(cacheFolder)) {
+			return;
+		}
+		try (DirectoryStream<Path> resultFolders = Files.newDirectoryStream(cacheFolder)) {
+			for (Path curResultFolder : resultFolders) {
+				String key = curResultFolder.getFileName().toString();
+				if (key.endsWith(".tmp")) { //$NON-NLS-1$
+					// left over of a crash
+					deleteFolder(curResultFolder);
+					continue;
+				}
+				long size = 0;
+				try (DirectoryStream<Path> files = Files.newDirectoryStream(curResultFolder)) {
+					for (Path curFile : files) {
+						size += Files.size(curFile);
+					}
+				}
+				long lastUse = Files.getLastModifiedTime(curResultFolder.resolve(MANIFEST_FILE_NAME)).toMillis();
+				myResults.put(key, new CachedResult(size, lastUse));
+				myCacheSize += size;
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static synchronized void markUsed(String key) {
+		loadResults();
+		CachedResult result = myResults.get(key);
+		if (result != null) {
+			result.myLastUse = System.currentTimeMillis();
+		}
+	}
+
+	private static synchronized void addResult(String key, long size) {
+		loadResults();
+		CachedResult old = myResults.put(key, new CachedResult(size, System.currentTimeMillis()));
+		if (old != null) {
+			myCacheSize -= old.mySize;
+		}
+		myCacheSize += size;
+		if (myCacheSize <= MAX_CACHE_SIZE) {
+			return;
+		}
+		List<Entry<String, CachedResult>> results = new ArrayList<>(myResults.entrySet());
+		results.sort(Comparator.comparingLong(e -> e.getValue().myLastUse));
+		Path cacheFolder = getCacheFolder();
+		for (Entry<String, CachedResult> curResult : results) {
+			if (myCacheSize <= EVICTION_TARGET_SIZE) {
+				break;
+			}
+			deleteFolder(cacheFolder.resolve(curResult.getKey()));
+			myResults.remove(curResult.getKey());
+			myCacheSize -= curResult.getValue().mySize;
+			myEvictions.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Get the content hash of a file. The hash is only calculated again when the
+	 * time stamp or size of the file changed
+	 *
+	 * @return the hash or null if the file can not be read
+	 */
+	private static String getHash(Path file) {
+		try {
+			BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+			long timeStamp = attributes.lastModifiedTime().toMillis();
+			long size = attributes.size();
+			FileHash ret = myFileHashes.get(file);
+			if (ret != null && ret.myTimeStamp == timeStamp && ret.mySize == size) {
+				return ret.myHash;
+			}
+			MessageDigest digest = MessageDigest.getInstance("SHA-256"); //$NON-NLS-1$
+			byte[] buffer = new byte[8192];
+			try (InputStream in = Files.newInputStream(file)) {
+				int numRead;
+				while ((numRead = in.read(buffer)) > 0) {
+					digest.update(buffer, 0, numRead);
+				}
+			}
+			ret = new FileHash(timeStamp, size, toHex(digest.digest()));
+			myFileHashes.put(file, ret);
+			return ret.myHash;
+		} catch (IOException e) {
+			return null;
+		} catch (NoSuchAlgorithmException e) {
+			// every java implementation must support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Get the files the compile used as written in a dependency file.
+	 * These are the prerequisites of the rules in the dependency file. The
+	 * phony rules created with -MP have no prerequisites.
+	 */
+	private static List<String> getHeaders(String depFileContent) {
+		List<String> ret = new ArrayList<>();
+		String joined = depFileContent.replaceAll("\\\\\\R", " "); //$NON-NLS-1$ //$NON-NLS-2$
+		for (String curLine : joined.split("\\R")) { //$NON-NLS-1$
+			int colon = getRuleColon(curLine);
+			if (colon >= 0) {
+				ret.addAll(splitFileNames(curLine.substring(colon + 1)));
+			}
+		}
+		return ret;
+	}
+
+	/*
+	 * The colon separating the targets from the prerequisites. The colon of a
+	 * windows drive letter is not followed by a white space
+	 */
+	private static int getRuleColon(String line) {
+		for (int curPos = 0; curPos < line.length(); curPos++) {
+			char c = line.charAt(curPos);
+			if (c == '\\') {
+				curPos++;
+			} else if (c == ':' && (curPos + 1 == line.length() || Character.isWhitespace(line.charAt(curPos + 1)))) {
+				return curPos;
+			}
+		}
+		return -1;
+	}
+
+	/*
+	 * Split a list of file names on the white space that is not escaped
+	 */
+	private static List<String> splitFileNames(String fileNames) {
+		List<String> ret = new ArrayList<>();
+		StringBuilder curName = new StringBuilder();
+		for (int curPos = 0; curPos < fileNames.length(); curPos++) {
+			char c = fileNames.charAt(curPos);
+			char next = curPos + 1 < fileNames.length() ? fileNames.charAt(curPos + 1) : 0;
+			if (c == '\\' && (next == ' ' || next == '#')) {
+				curName.append(next);
+				curPos++;
+			} else if (c == '$' && next == '$') {
+				curName.append(c);
+				curPos++;
+			} else if (Character.isWhitespace(c)) {
+				if (curName.length() > 0) {
+					ret.add(curName.toString());
+					curName.setLength(0);
+				}
+			} else {
+				curName.append(c);
+			}
+		}
+		if (curName.length() > 0) {
+			ret.add(curName.toString());
+		}
+		return ret;
+	}
+
+	private static Path toPath(String fileName, Path buildFolder) {
+		String name = fileName.replace(BUILD_FOLDER_PLACEHOLDER, buildFolder.toString());
+		Path ret = Path.of(name);
+		if (!ret.isAbsolute()) {
+			ret = buildFolder.resolve(name).normalize();
+		}
+		return ret;
+	}
+
+	private static String normalize(String text, Path buildFolder) {
+		return text.replace(buildFolder.toString(), BUILD_FOLDER_PLACEHOLDER);
+	}
+
+	private static String normalizeDepFile(String content, Path buildFolder) {
+		String escapedBuildFolder = buildFolder.toString().replace(" ", "\\ "); //$NON-NLS-1$ //$NON-NLS-2$
+		return normalize(content, buildFolder).replace(escapedBuildFolder, BUILD_FOLDER_PLACEHOLDER);
+	}
+
+	private static String denormalizeDepFile(String content, Path buildFolder) {
+		String escapedBuildFolder = buildFolder.toString().replace(" ", "\\ "); //$NON-NLS-1$ //$NON-NLS-2$
+		return content.replace(BUILD_FOLDER_PLACEHOLDER, escapedBuildFolder);
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder ret = new StringBuilder();
+		for (byte curByte : bytes) {
+			ret.append(Character.forDigit((curByte >> 4) & 0xF, 16));
+			ret.append(Character.forDigit(curByte & 0xF, 16));
+		}
+		return ret.toString();
+	}
+
+	private static void deleteQuietly(Path file) {
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static void deleteFolder(Path folder) {
+		if (!Files.isDirectory(folder)) {
+			return;
+		}
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(folder)) {
+			for (Path curFile : files) {
+				deleteQuietly(curFile);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		deleteQuietly(folder);
+	}
+}
@@ -0,0 +1,116 @@
+package io.sloeber.autoBuild.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The console output of one job of a build.
+ * The job writes to the streams of its own JobOutput instead of the console so
+ * no other job needs to wait for it. When the job is done the output is written
+ * to the console in one go by the {@link JobOutputWriter} so the output of the
+ * jobs is not mixed.
+ *
+ * The order of what is written to the output and error stream is kept. The
+ * streams can be written to from different threads (the command launcher reads
+ * the output and error of a process on separate threads).
+ */
+public class JobOutput {
+	private final List<Part> myParts = new ArrayList<>();
+	private final OutputStream myOutputStream = new PartStream(false);
+	private final OutputStream myErrorStream = new PartStream(true);
+
+	/**
+	 * A piece of the output that was written to one stream
+	 */
+	private static class Part {
+		final boolean myIsError;
+		final ByteArrayOutputStream myBytes = new ByteArrayOutputStream();
+
+		Part(boolean isError) {
+			myIsError = isError;
+		}
+	}
+
+	private class PartStream extends OutputStream {
+		private final boolean myIsError;
+
+		PartStream(boolean isError) {
+			myIsError = isError;
+		}
+
+		@Override
+		public void write(int b) {
+			synchronized (myParts) {
+				getPart(myIsError).myBytes.write(b);
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			synchronized (myParts) {
+				getPart(myIsError).myBytes.write(b, off, len);
+			}
+		}
+
+		@Override
+		public void close() {
+			// the output is closed when it is written to the console
+		}
+	}
+
+	private Part getPart(boolean isError) {
+		if (!myParts.isEmpty()) {
+			Part lastPart = myParts.get(myParts.size() - 1);
+			if (lastPart.myIsError == isError) {
+				return lastPart;
+			}
+		}
+		Part newPart = new Part(isError);
+		myParts.add(newPart);
+		return newPart;
+	}
+
+	/**
+	 * @return the stream to write the normal output of the job to
+	 */
+	public OutputStream getOutputStream() {
+		return myOutputStream;
+	}
+
+	/**
+	 * @return the stream to write the errors of the job to
+	 */
+	public OutputStream getErrorStream() {
+		return myErrorStream;
+	}
+
+	/**
+	 * Add a line to the normal output
+	 */
+	public void toConsole(String msg) {
+		try {
+			myOutputStream.write(msg.getBytes());
+			myOutputStream.write('\n');
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Write everything the job has written to the given streams in the order it
+	 * has been written.
+	 */
+	void writeTo(OutputStream out, OutputStream err) throws IOException {
+		synchronized (myParts) {
+			for (Part curPart : myParts) {
+				curPart.myBytes.writeTo(curPart.myIsError ? err : out);
+			}
+			myParts.clear();
+		}
+		out.flush();
+		err.flush();
+	}
+}
@@ -0,0 +1,67 @@
+package io.sloeber.autoBuild.internal;
+
+import java.io.OutputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Writes the output of the jobs of a build to the console.
+ * The console streams of the build runner helper feed the error parsers and
+ * the console parsers. Parsing is slow compared to compiling small files so
+ * it is done on a thread of its own. The jobs hand over their finished output
+ * through a queue and continue with the next job.
+ * The output of a job is written as one block in the order the jobs finished.
+ *
+ * {@link #close()} must be called before anything else is written to the
+ * console and before the error parsers are asked for their results.
+ */
+public class JobOutputWriter implements AutoCloseable {
+	// marks the end of the queue
+	private static final JobOutput END = new JobOutput();
+
+	private final AutoBuildRunnerHelper myBuildRunnerHelper;
+	private final BlockingQueue<JobOutput> myQueue = new LinkedBlockingQueue<>();
+	private final Thread myThread;
+
+	public JobOutputWriter(AutoBuildRunnerHelper buildRunnerHelper) {
+		myBuildRunnerHelper = buildRunnerHelper;
+		myThread = new Thread(this::writeJobOutputs, "AutoBuild console writer"); //$NON-NLS-1$
+		myThread.setDaemon(true);
+		myThread.start();
+	}
+
+	/**
+	 * Queue the output of a finished job for the console
+	 */
+	public void publish(JobOutput jobOutput) {
+		myQueue.add(jobOutput);
+	}
+
+	private void writeJobOutputs() {
+		try {
+			while (true) {
+				JobOutput curJobOutput = myQueue.take();
+				if (curJobOutput == END) {
+					return;
+				}
+				try (OutputStream out = myBuildRunnerHelper.getOutputStream();
+						OutputStream err = myBuildRunnerHelper.getErrorStream();) {
+					curJobOutput.writeTo(out, err);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Wait till all the queued output has been written to the console
+	 */
+	@Override
+	public void close() throws InterruptedException {
+		myQueue.add(END);
+		myThread.join();
+	}
+}
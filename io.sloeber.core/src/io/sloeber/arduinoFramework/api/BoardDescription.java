@@ -898,9 +898,49 @@ public class BoardDescription {
      *            the project for which the environment variables are set
      * @param arduinoProperties
      *            the info of the selected board to set the variables for
+     * @return the environment variables. The map can not be modified
 	 */
 	public Map<String, String> getEnvVars() {
 		updateWhenDirty();
+		String key = getEnvVarsKey();
+		Map<String, String> ret = BoardEnvVarsCache.get(key);
+		if (ret == null) {
+			Set<File> dependencies = new HashSet<>();
+			ret = BoardEnvVarsCache.put(key, calculateEnvVars(dependencies), dependencies);
+		}
+		return ret;
+	}
+
+	/*
+	 * Everything the environment variables depend on except for the content of the
+	 * txt files
+	 */
+	private String getEnvVarsKey() {
+		StringBuilder key = new StringBuilder();
+		key.append(myUserSelectedBoardsTxtFile).append(NEWLINE);
+		key.append(myBoardID).append(NEWLINE);
+		key.append(myOptions).append(NEWLINE);
+		key.append(getProgrammer()).append(NEWLINE);
+		key.append(getActualUploadPort()).append(NEWLINE);
+		for (IArduinoPlatformVersion curPlatform : new IArduinoPlatformVersion[] { myReferencedPlatformCore,
+				myReferencedPlatformVariant, myReferencedPlatformUpload }) {
+			key.append(curPlatform == null ? null : curPlatform.getInstallPath()).append(NEWLINE);
+		}
+		key.append(getArduinoPlatformPath()).append(NEWLINE);
+		key.append(ConfigurationPreferences.getUseArduinoToolSelection());
+		return key.toString();
+	}
+
+	private Map<String, String> calculateEnvVars(Set<File> dependencies) {
+		dependencies.add(ConfigurationPreferences.getPreProcessingPlatformFile());
+		dependencies.add(ConfigurationPreferences.getPostProcessingPlatformFile());
+		dependencies.add(ConfigurationPreferences.getPreProcessingBoardsFile());
+		dependencies.add(ConfigurationPreferences.getPostProcessingBoardsFile());
+		dependencies.add(mySloeberBoardTxtFile.getLoadedFile());
+		dependencies.add(getreferencingPlatformPath().append(PLATFORM_FILE_NAME).toFile());
+		if (myReferencedPlatformCore != null) {
+			dependencies.add(myReferencedPlatformCore.getInstallPath().append(PLATFORM_FILE_NAME).toFile());
+		}
 
 		TxtFile pluginPreProcessingPlatformTxt = new TxtFile(ConfigurationPreferences.getPreProcessingPlatformFile());
 		TxtFile pluginPostProcessingPlatformTxt = new TxtFile(ConfigurationPreferences.getPostProcessingPlatformFile());
@@ -960,7 +1000,7 @@ public class BoardDescription {
 
 		// put in the installed tools info
 		try {
-			allVars.putAll(getEnVarPlatformInfo());
+			allVars.putAll(getEnVarPlatformInfo(dependencies));
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			Activator.log(new Status(IStatus.ERROR, CORE_PLUGIN_ID, Messages.BoardDescription_0, e));
@@ -984,6 +1024,7 @@ public class BoardDescription {
 		Programmers localProgrammers[] = Programmers.fromBoards(this);
 		String programmer = getProgrammer();
 		for (Programmers curProgrammer : localProgrammers) {
+			dependencies.add(curProgrammer.getLoadedFile());
 			String programmerID = curProgrammer.getIDFromNiceName(programmer);
 			if (programmerID != null) {
 				allVars.putAll(curProgrammer.getAllEnvironVars(programmerID));
@@ -1011,24 +1052,24 @@ public class BoardDescription {
 		return fqbn + options;
 	}
 
-	private Map<String, String> getEnVarPlatformInfo() throws IOException {
+	private Map<String, String> getEnVarPlatformInfo(Set<File> dependencies) throws IOException {
 		Map<String, String> ret = new HashMap<>();
 
-		ret.putAll(getEnvVarPlatformFileTools(myReferencedPlatformUpload));
-		ret.putAll(getEnvVarPlatformFileTools(myReferencedPlatformVariant));
-		ret.putAll(getEnvVarPlatformFileTools(myReferencedPlatformCore));
+		ret.putAll(getEnvVarPlatformFileTools(myReferencedPlatformUpload, dependencies));
+		ret.putAll(getEnvVarPlatformFileTools(myReferencedPlatformVariant, dependencies));
+		ret.putAll(getEnvVarPlatformFileTools(myReferencedPlatformCore, dependencies));
 
 		BoardsManager.update(false);// This way we know the boardsmanager is started or we wait for the lock
 		IArduinoPlatformVersion latestArduinoPlatform = BoardsManager.getNewestInstalledPlatform(VENDOR_ARDUINO,
 				getArchitecture());
-		ret.putAll(getEnvVarPlatformFileTools(latestArduinoPlatform));
+		ret.putAll(getEnvVarPlatformFileTools(latestArduinoPlatform, dependencies));
 
 		IPath referencingPlatformPath = getreferencingPlatformPath();
 		IArduinoPlatformVersion referencingPlatform = BoardsManager.getPlatform(referencingPlatformPath);
 		if (referencingPlatform == null) {
-			ret.putAll(getEnvVarPlatformFileTools(referencingPlatformPath.toFile()));
+			ret.putAll(getEnvVarPlatformFileTools(referencingPlatformPath.toFile(), dependencies));
 		} else {
-			ret.putAll(getEnvVarPlatformFileTools(referencingPlatform));
+			ret.putAll(getEnvVarPlatformFileTools(referencingPlatform, dependencies));
 		}
 
 		if (myReferencedPlatformCore == null) {
@@ -1039,11 +1080,11 @@ public class BoardDescription {
 		boolean jsonBasedPlatformManagement = !ConfigurationPreferences.getUseArduinoToolSelection();
 		if (jsonBasedPlatformManagement) {
 			// overrule the Arduino IDE way of working and use the json refereced tools
-			ret.putAll(getEnvVarPlatformFileTools(referencingPlatform));
+			ret.putAll(getEnvVarPlatformFileTools(referencingPlatform, dependencies));
 			return ret;
 		}
 		// standard arduino IDE way
-		ret.putAll(getEnvVarPlatformFileTools(myReferencedPlatformCore));
+		ret.putAll(getEnvVarPlatformFileTools(myReferencedPlatformCore, dependencies));
 		return ret;
 
 	}
@@ -1054,14 +1095,16 @@ public class BoardDescription {
      * These are purely based on the tool dependencies
 	 *
 	 * @param platformVersion
+	 * @param dependencies    the files read are added to this set
 	 * @return environment variables pointing to the tools used by the platform
 	 * @throws IOException
 	 */
-	private Map<String, String> getEnvVarPlatformFileTools(IArduinoPlatformVersion platformVersion) throws IOException {
+	private Map<String, String> getEnvVarPlatformFileTools(IArduinoPlatformVersion platformVersion,
+			Set<File> dependencies) throws IOException {
 		if (platformVersion == null) {
 			Path path = new Path(myUserSelectedBoardsTxtFile.toString());
 			File sloeberTxtFile = path.removeLastSegments(1).append(SLOEBER_TXT_FILE_NAME).toFile();
-			return getEnvVarPlatformFileTools(sloeberTxtFile);
+			return getEnvVarPlatformFileTools(sloeberTxtFile, dependencies);
 		}
 		File sloeberTxtFile = platformVersion.getInstallPath().append(SLOEBER_TXT_FILE_NAME).toFile();
 		deleteIfOutdated(sloeberTxtFile);
@@ -1085,10 +1128,13 @@ public class BoardDescription {
 					StandardOpenOption.CREATE);
 		}
 
-		return getEnvVarPlatformFileTools(sloeberTxtFile);
+		return getEnvVarPlatformFileTools(sloeberTxtFile, dependencies);
 	}
 
-	private static Map<String, String> getEnvVarPlatformFileTools(File sloeberTxtFile) {
+	private static Map<String, String> getEnvVarPlatformFileTools(File sloeberTxtFile, Set<File> dependencies) {
+		if (sloeberTxtFile != null) {
+			dependencies.add(sloeberTxtFile);
+		}
 		if (sloeberTxtFile == null || (!sloeberTxtFile.exists())) {
 			return new HashMap<>();
 		}
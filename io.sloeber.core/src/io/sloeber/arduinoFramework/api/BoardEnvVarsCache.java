@@ -0,0 +1,88 @@
+package io.sloeber.arduinoFramework.api;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The environment variables of board descriptions.
+ * Calculating the environment variables of a board means reading and merging
+ * lots of txt files. As all the projects using the same board with the same
+ * options get the same environment variables the result is shared.
+ *
+ * A result is only used as long as the txt files used to calculate it have the
+ * same time stamp.
+ *
+ * @author jan
+ *
+ */
+class BoardEnvVarsCache {
+	// Only a handful of boards is used at the same time
+	private static final int MAX_ENTRIES = 100;
+
+	private static final Map<String, EnvVars> myEnvVars = new ConcurrentHashMap<>();
+
+	private static class EnvVars {
+		final Map<String, String> myVars;
+		final Map<File, Long> myDependencies = new HashMap<>();
+
+		EnvVars(Map<String, String> vars, Set<File> dependencies) {
+			myVars = Collections.unmodifiableMap(vars);
+			for (File curFile : dependencies) {
+				myDependencies.put(curFile, Long.valueOf(curFile.lastModified()));
+			}
+		}
+
+		boolean isUpToDate() {
+			for (Entry<File, Long> curDependency : myDependencies.entrySet()) {
+				if (curDependency.getKey().lastModified() != curDependency.getValue().longValue()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	private BoardEnvVarsCache() {
+		// only static methods
+	}
+
+	/**
+	 * @param key identifies everything the environment variables depend on except
+	 *            the content of the txt files
+	 * @return the environment variables or null if they need to be calculated
+	 */
+	static Map<String, String> get(String key) {
+		EnvVars ret = myEnvVars.get(key);
+		if (ret == null) {
+			return null;
+		}
+		if (!ret.isUpToDate()) {
+			myEnvVars.remove(key);
+			return null;
+		}
+		return ret.myVars;
+	}
+
+	/**
+	 * Store calculated environment variables
+	 *
+	 * @param key          see get
+	 * @param vars         the calculated environment variables
+	 * @param dependencies the files read to calculate the environment variables.
+	 *                     Files that do not exist can be added as well.
+	 * @return the environment variables that can no longer be modified
+	 */
+	static Map<String, String> put(String key, Map<String, String> vars, Set<File> dependencies) {
+		if (myEnvVars.size() >= MAX_ENTRIES) {
+			myEnvVars.clear();
+		}
+		EnvVars envVars = new EnvVars(vars, dependencies);
+		myEnvVars.put(key, envVars);
+		return envVars.myVars;
+	}
+}
@@ -5,6 +5,7 @@ import static io.sloeber.core.api.Common.*;
 import static io.sloeber.core.api.ConfigurationPreferences.*;
 import static io.sloeber.core.api.Const.*;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
@@ -27,6 +28,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -67,6 +72,7 @@ public class BoardsManager {
 	private static boolean envVarsNeedUpdating = true;// reset global variables at startup
 
 	private static HashMap<String, String> myWorkbenchEnvironmentVariables = new HashMap<>();
+	private static int myWorkbenchEnvironmentVariablesVersion = 0;
 
 	private static boolean myIsDirty = true;
 
@@ -261,21 +267,9 @@ public class BoardsManager {
 		System.out.println("start installing platform " + platformVersion.toString()); //$NON-NLS-1$
 
 		MyMultiStatus mstatus = new MyMultiStatus("Failed to install " + platformVersion.getName()); //$NON-NLS-1$
-		mstatus.addErrors(PackageManager.downloadAndInstall(platformVersion, forceDownload, monitor));
-		if (!mstatus.isOK()) {
-			// no use installing tools when the boards failed installing
-			return mstatus;
-		}
-
-		// keep a copy of the json file used at install
-		File packageFile = platformVersion.getParent().getParent().getPackageIndex().getJsonFile();
-		File copyToFile = platformVersion.getInstallPath().append(packageFile.getName()).toFile();
-		try {
-			Files.copy(packageFile.toPath(), copyToFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-
+		// The platform and the tools it needs are downloaded in parallel
+		List<ArduinoInstallable> installables = new ArrayList<>();
+		installables.add(platformVersion);
 		IArduinoPackage referencingPkg = platformVersion.getParent().getParent();
 		for (ArduinoPlatformTooldDependency toolDependency : platformVersion.getToolsDependencies()) {
 			ArduinoPlatformToolVersion tool = referencingPkg.getTool(toolDependency.getName(),
@@ -294,13 +288,37 @@ public class BoardsManager {
 						Messages.Tool_no_valid_system.replace(Messages.KEY_TAG, toolDependency.getName())));
 			} else if (!tool.isInstalled()) {
 				ArduinoInstallable installable = tool.getInstallable();
-				if (installable != null) {
-					monitor.setTaskName(InstallProgress.getRandomMessage());
-					mstatus.addErrors(PackageManager.downloadAndInstall(installable, forceDownload, monitor));
+				if (installable != null && !installables.contains(installable)) {
+					installables.add(installable);
 				}
 			}
 		}
 
+		monitor.setTaskName(InstallProgress.getRandomMessage());
+		try {
+			List<IStatus> installStatus = PackageManager.downloadAndInstall(installables, forceDownload, monitor);
+			for (IStatus curStatus : installStatus) {
+				mstatus.addErrors(curStatus);
+			}
+			if (!installStatus.get(0).isOK()) {
+				// no use installing tools when the boards failed installing
+				return mstatus;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			mstatus.addErrors(new Status(IStatus.ERROR, Activator.getId(), "Installation interrupted", e)); //$NON-NLS-1$
+			return mstatus;
+		}
+
+		// keep a copy of the json file used at install
+		File packageFile = platformVersion.getParent().getParent().getPackageIndex().getJsonFile();
+		File copyToFile = platformVersion.getInstallPath().append(packageFile.getName()).toFile();
+		try {
+			Files.copy(packageFile.toPath(), copyToFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+
 		WorkAround.applyKnownWorkArounds(platformVersion);
 
 		System.out.println("done installing platform " + platformVersion.toString()); //$NON-NLS-1$
@@ -454,9 +472,23 @@ public class BoardsManager {
 	 */
 	private static void downloadJsons(boolean forceDownload) {
 		String[] jsonUrls = getJsonURLList();
-		for (String jsonUrl : jsonUrls) {
-			if (!jsonUrl.trim().isEmpty()) // skip empty lines
-				downloadJson(jsonUrl, forceDownload);
+		// The json files are independent so they are downloaded in parallel
+		ExecutorService downloaders = Executors.newFixedThreadPool(PackageManager.MAX_PARALLEL_DOWNLOADS);
+		try {
+			List<Future<?>> downloads = new ArrayList<>();
+			for (String jsonUrl : jsonUrls) {
+				if (!jsonUrl.trim().isEmpty()) // skip empty lines
+					downloads.add(downloaders.submit(() -> downloadJson(jsonUrl, forceDownload)));
+			}
+			for (Future<?> curDownload : downloads) {
+				curDownload.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			Activator.log(new Status(IStatus.ERROR, Activator.getId(), "Unable to download json files", e.getCause())); //$NON-NLS-1$
+		} finally {
+			downloaders.shutdown();
 		}
 	}
 
@@ -520,7 +552,7 @@ public class BoardsManager {
 	}
 
 	static private void loadPackageJson(String url, File jsonFile) {
-		try (Reader reader = new FileReader(jsonFile)) {
+		try (Reader reader = new BufferedReader(new FileReader(jsonFile))) {
 			ArduinoPlatformPackageIndex index = new Gson().fromJson(reader, ArduinoPlatformPackageIndex.class);
 			index.setPackageFile(jsonFile);
 			index.setURL(url);
@@ -633,6 +665,17 @@ public class BoardsManager {
 		return myWorkbenchEnvironmentVariables;
 	}
 
+	/**
+	 * The version changes each time the workbench environment variables are
+	 * recalculated
+	 *
+	 * @return the version of the map returned by getEnvironmentVariables
+	 */
+	public static int getEnvironmentVariablesVersion() {
+		update(false);
+		return myWorkbenchEnvironmentVariablesVersion;
+	}
+
 	private static Map<String, String> getEnvVarPlatformFileTools(IArduinoPlatformVersion platformVersion) {
 		HashMap<String, String> vars = new HashMap<>();
 		IArduinoPackage pkg = platformVersion.getParent().getParent();
@@ -903,6 +946,7 @@ public class BoardsManager {
 				if (latestAvrPlatform != null) {
 					myWorkbenchEnvironmentVariables.putAll(getEnvVarPlatformFileTools(latestAvrPlatform));
 				}
+				myWorkbenchEnvironmentVariablesVersion++;
 				envVarsNeedUpdating = false;
 			}
 		}
@@ -0,0 +1,321 @@
+package io.sloeber.arduinoFramework.api;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * The libraries found in the library folders.
+ * Finding the libraries in a folder means scanning the folder and its
+ * subfolders. As the libraries are needed very often (for each project for
+ * each build and each index) the result of a scan is kept till a file is
+ * added to or removed from one of the scanned folders.
+ * The folders are watched with a WatchService. The watch events are processed
+ * when the libraries are asked for so there is no need for a thread.
+ * A root folder that does not exist is not scanned. Its closest existing parent
+ * folder is watched instead so the root folder is scanned once it is created.
+ *
+ * The libraries of several root folders are merged once and the merged result
+ * is kept till the libraries of one of the root folders change. The same goes
+ * for the merged libraries with the library name as key.
+ * The change count tells users of the libraries, like the header index, when
+ * the libraries or the folders with their headers may have changed.
+ *
+ * When the WatchService is not available the folders are scanned each time.
+ *
+ * @author jan
+ *
+ */
+class LibraryCatalog {
+	/**
+	 * Finds the libraries in a library root folder
+	 */
+	interface Scanner {
+		/**
+		 * @param folderVisitor must be called with each folder before its content is
+		 *                      read and with the folders that contain the headers
+		 *                      of the libraries found
+		 * @return the libraries found with the FQN as key
+		 */
+		Map<String, IArduinoLibraryVersion> scan(Consumer<IPath> folderVisitor);
+	}
+
+	/**
+	 * A root folder and the way it is scanned
+	 */
+	static class Root {
+		final String myKey;
+		final IPath myPath;
+		final Scanner myScanner;
+
+		/**
+		 * @param key     identifies the root folder and the way it is scanned
+		 * @param path    the root folder
+		 * @param scanner scans the root folder when there is no up to date result
+		 */
+		Root(String key, IPath path, Scanner scanner) {
+			myKey = key;
+			myPath = path;
+			myScanner = scanner;
+		}
+	}
+
+	private static final WatchService myWatchService = createWatchService();
+	// catalog key -> libraries found
+	private static final Map<String, Map<String, IArduinoLibraryVersion>> myLibraries = new HashMap<>();
+	// catalog key -> the watch keys of the scanned folders
+	private static final Map<String, List<WatchKey>> myWatchKeys = new HashMap<>();
+	// watch key -> catalog keys that scanned the folder
+	private static final Map<WatchKey, Set<String>> myCatalogKeys = new HashMap<>();
+	// the catalog keys of the merged root folders -> the merged libraries
+	private static final Map<List<String>, SortedMap<String, IArduinoLibraryVersion>> myMergedLibraries = new HashMap<>();
+	// the catalog keys of the merged root folders -> the merged libraries by name
+	private static final Map<List<String>, Map<String, IArduinoLibraryVersion>> myMergedLibrariesByName = new HashMap<>();
+	// changes each time the libraries of a root folder are forgotten
+	private static long myChangeCount = 0;
+
+	private LibraryCatalog() {
+		// only static methods
+	}
+
+	private static WatchService createWatchService() {
+		try {
+			return FileSystems.getDefault().newWatchService();
+		} catch (IOException | UnsupportedOperationException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Get the libraries in a root folder.
+	 *
+	 * @param key     identifies the root folder and the way it is scanned
+	 * @param root    the root folder
+	 * @param scanner scans the root folder when there is no up to date result
+	 * @return the libraries in the root folder with the FQN as key. The map can
+	 *         not be modified
+	 */
+	static synchronized Map<String, IArduinoLibraryVersion> getLibraries(String key, IPath root, Scanner scanner) {
+		processEvents();
+		return getCachedLibraries(key, root, scanner);
+	}
+
+	/**
+	 * Get the libraries in a root folder.
+	 *
+	 * @param root the root folder and the way it is scanned
+	 * @return the libraries in the root folder with the FQN as key. The map can
+	 *         not be modified
+	 */
+	static Map<String, IArduinoLibraryVersion> getLibraries(Root root) {
+		return getLibraries(root.myKey, root.myPath, root.myScanner);
+	}
+
+	/**
+	 * Get the libraries of several root folders merged in one map. When a
+	 * library is found in more than one root folder the one of the last root
+	 * folder is used.
+	 *
+	 * @param roots the root folders
+	 * @return the libraries in the root folders with the FQN as key. The map can
+	 *         not be modified
+	 */
+	static synchronized SortedMap<String, IArduinoLibraryVersion> getMergedLibraries(List<Root> roots) {
+		processEvents();
+		List<String> keys = getKeys(roots);
+		SortedMap<String, IArduinoLibraryVersion> ret = myMergedLibraries.get(keys);
+		if (ret != null) {
+			return ret;
+		}
+		SortedMap<String, IArduinoLibraryVersion> merged = new TreeMap<>();
+		for (Root curRoot : roots) {
+			merged.putAll(getCachedLibraries(curRoot.myKey, curRoot.myPath, curRoot.myScanner));
+		}
+		ret = Collections.unmodifiableSortedMap(merged);
+		if (myLibraries.keySet().containsAll(keys)) {
+			// only keep the merged result when all the parts are kept
+			myMergedLibraries.put(keys, ret);
+		}
+		return ret;
+	}
+
+	/**
+	 * Get the libraries of several root folders merged in one map with the
+	 * library name as key. When a library name is found in more than one root
+	 * folder the library of the last root folder is used.
+	 *
+	 * @param roots the root folders
+	 * @return the libraries in the root folders with the library name as key.
+	 *         The map can not be modified
+	 */
+	static synchronized Map<String, IArduinoLibraryVersion> getMergedLibrariesByName(List<Root> roots) {
+		processEvents();
+		List<String> keys = getKeys(roots);
+		Map<String, IArduinoLibraryVersion> ret = myMergedLibrariesByName.get(keys);
+		if (ret != null) {
+			return ret;
+		}
+		Map<String, IArduinoLibraryVersion> merged = new HashMap<>();
+		for (Root curRoot : roots) {
+			for (IArduinoLibraryVersion curLib : getCachedLibraries(curRoot.myKey, curRoot.myPath, curRoot.myScanner)
+					.values()) {
+				merged.put(curLib.getName(), curLib);
+			}
+		}
+		ret = Collections.unmodifiableMap(merged);
+		if (myLibraries.keySet().containsAll(keys)) {
+			// only keep the merged result when all the parts are kept
+			myMergedLibrariesByName.put(keys, ret);
+		}
+		return ret;
+	}
+
+	private static List<String> getKeys(List<Root> roots) {
+		List<String> ret = new ArrayList<>();
+		for (Root curRoot : roots) {
+			ret.add(curRoot.myKey);
+		}
+		return ret;
+	}
+
+	private static Map<String, IArduinoLibraryVersion> getCachedLibraries(String key, IPath root, Scanner scanner) {
+		Map<String, IArduinoLibraryVersion> ret = myLibraries.get(key);
+		if (ret != null) {
+			return ret;
+		}
+		if (myWatchService == null) {
+			return Collections.unmodifiableMap(scanner.scan(folder -> {
+				// nothing to watch
+			}));
+		}
+		List<WatchKey> watchKeys = new ArrayList<>();
+		myWatchKeys.put(key, watchKeys);
+		if (!root.toFile().isDirectory()) {
+			// A folder that does not exist has no libraries
+			IPath parent = root.removeLastSegments(1);
+			while (parent.segmentCount() > 0 && !parent.toFile().isDirectory()) {
+				parent = parent.removeLastSegments(1);
+			}
+			if (parent.toFile().isDirectory() && watch(key, parent, watchKeys)) {
+				ret = Collections.emptyMap();
+				myLibraries.put(key, ret);
+				return ret;
+			}
+			invalidate(key);
+			return Collections.emptyMap();
+		}
+		boolean[] isWatched = { true };
+		ret = Collections.unmodifiableMap(scanner.scan(folder -> {
+			if (!watch(key, folder, watchKeys)) {
+				isWatched[0] = false;
+			}
+		}));
+		if (isWatched[0]) {
+			myLibraries.put(key, ret);
+		} else {
+			invalidate(key);
+		}
+		return ret;
+	}
+
+	/*
+	 * Watch a folder for added and removed files for the catalog key
+	 * Returns false if the folder can not be watched so the result can not be
+	 * kept
+	 */
+	private static boolean watch(String key, IPath folder, List<WatchKey> watchKeys) {
+		try {
+			WatchKey watchKey = folder.toPath().register(myWatchService, ENTRY_CREATE, ENTRY_DELETE);
+			watchKeys.add(watchKey);
+			myCatalogKeys.computeIfAbsent(watchKey, k -> new HashSet<>()).add(key);
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Forget the libraries of a root folder so it is scanned again the next time.
+	 * This is needed for changes made by Sloeber itself as watch events are not
+	 * reported immediately
+	 */
+	static synchronized void invalidate(String key) {
+		myChangeCount++;
+		myLibraries.remove(key);
+		myMergedLibraries.keySet().removeIf(keys -> keys.contains(key));
+		myMergedLibrariesByName.keySet().removeIf(keys -> keys.contains(key));
+		List<WatchKey> watchKeys = myWatchKeys.remove(key);
+		if (watchKeys == null) {
+			return;
+		}
+		for (WatchKey curWatchKey : watchKeys) {
+			Set<String> catalogKeys = myCatalogKeys.get(curWatchKey);
+			if (catalogKeys != null) {
+				catalogKeys.remove(key);
+				if (catalogKeys.isEmpty()) {
+					myCatalogKeys.remove(curWatchKey);
+					curWatchKey.cancel();
+				}
+			}
+		}
+	}
+
+	static synchronized void invalidateAll() {
+		for (String curKey : new ArrayList<>(myWatchKeys.keySet())) {
+			invalidate(curKey);
+		}
+		myLibraries.clear();
+		myMergedLibraries.clear();
+		myMergedLibrariesByName.clear();
+		myChangeCount++;
+	}
+
+	/**
+	 * Get a number that changes when the libraries or the folders with the
+	 * headers of the libraries may have changed. When the folders can not be
+	 * watched the number changes each time.
+	 *
+	 * @return the change count
+	 */
+	static synchronized long getChangeCount() {
+		processEvents();
+		if (myWatchService == null) {
+			myChangeCount++;
+		}
+		return myChangeCount;
+	}
+
+	private static void processEvents() {
+		if (myWatchService == null) {
+			return;
+		}
+		WatchKey watchKey;
+		while ((watchKey = myWatchService.poll()) != null) {
+			watchKey.pollEvents();
+			Set<String> catalogKeys = myCatalogKeys.get(watchKey);
+			if (catalogKeys == null) {
+				watchKey.cancel();
+				continue;
+			}
+			for (String curKey : new ArrayList<>(catalogKeys)) {
+				invalidate(curKey);
+			}
+		}
+	}
+}
@@ -0,0 +1,393 @@
+package io.sloeber.arduinoFramework.api;
+
+import static io.sloeber.core.api.Const.*;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import io.sloeber.arduinoFramework.internal.ArduinoLibraryVersion;
+import io.sloeber.core.Activator;
+
+/**
+ * An index from header names to the libraries that provide the header.
+ *
+ * The headers of the installed libraries are found by listing the library
+ * folders. The result is stored on disk per library folder together with the
+ * time stamps of the folders so only new and changed library folders need to
+ * be listed again. The library folders are only checked again when the library
+ * catalog reports a change or other libraries are asked for.
+ * The headers of the libraries that can be installed come from the
+ * providesIncludes field in the library index.
+ *
+ * A library is also indexed under its own name so a include that matches the
+ * library name keeps working as before.
+ * A header provided by more than one library that is not named after the
+ * header is ambiguous and no library is returned for it.
+ *
+ * The header names are without extension as that is how the unresolved
+ * includes are reported.
+ *
+ * @author jan
+ *
+ */
+class LibraryHeaderIndex {
+	private static final int VERSION = 1;
+	private static final String INDEX_FILE = "libraryHeaderIndex.bin"; //$NON-NLS-1$
+	private static final long NOT_EXISTING = -1;
+	private static final Set<String> HEADER_EXTENSIONS = new HashSet<>(List.of("h", "hh", "hpp")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	private static final String ALL_ARCHITECTURES = "*"; //$NON-NLS-1$
+
+	// lower is better
+	private static final int RANK_HARDWARE = 0;
+	private static final int RANK_PRIVATE = 1;
+	private static final int RANK_MANAGED = 2;
+	private static final int RANK_INSTALLABLE = 3;
+
+	private static class LibraryFolder {
+		final long myLibStamp;
+		final long mySrcStamp;
+		final List<String> myHeaders;
+
+		LibraryFolder(long libStamp, long srcStamp, List<String> headers) {
+			myLibStamp = libStamp;
+			mySrcStamp = srcStamp;
+			myHeaders = headers;
+		}
+	}
+
+	// library folder -> headers in the folder
+	private static Map<String, LibraryFolder> myLibraryFolders;
+	// header -> FQN of the installed libraries that provide the header
+	private static final Map<String, Set<String>> myInstalledHeaders = new HashMap<>();
+	// FQN -> the headers indexed for the installed library
+	private static final Map<String, List<String>> myInstalledLibraries = new HashMap<>();
+	// header -> the newest version of the libraries in the library index
+	private static final Map<String, List<IArduinoLibraryVersion>> myInstallableHeaders = new HashMap<>();
+	private static List<IArduinoLibraryIndex> myIndexedLibraryIndices = new ArrayList<>();
+	// the installed libraries and the catalog change count the index is up to date with
+	private static Map<String, IArduinoLibraryVersion> myIndexedInstalledLibraries = null;
+	private static long myIndexedChangeCount = -1;
+	private static boolean myIsDirty = false;
+
+	private static final Job myUpdateJob = new Job("Indexing library headers") { //$NON-NLS-1$
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			try {
+				LibraryManager.getLibrariesForHeaders(new HashSet<>(), null, true);
+			} catch (Exception e) {
+				// The index is updated again when it is used
+				Activator.log(new Status(IStatus.WARNING, Activator.getId(), "Failed to index the library headers", e)); //$NON-NLS-1$
+			}
+			return Status.OK_STATUS;
+		}
+	};
+
+	static {
+		myUpdateJob.setSystem(true);
+		myUpdateJob.setPriority(Job.DECORATE);
+	}
+
+	private LibraryHeaderIndex() {
+		// only static methods
+	}
+
+	/**
+	 * Update the index in the background. Multiple calls in a short time result
+	 * in one update.
+	 */
+	static void scheduleUpdate() {
+		myUpdateJob.schedule(1000);
+	}
+
+	/**
+	 * Find the best library for each header
+	 *
+	 * @param headers            the header names without extension
+	 * @param installedLibraries the installed libraries with the FQN as key
+	 * @param libraryIndices     the library indices to look in for libraries
+	 *                           that are not installed. null to only look at the
+	 *                           installed libraries
+	 * @param architecture       the architecture of the board. null if unknown
+	 * @return header->library for all the headers a library was found for
+	 */
+	static synchronized Map<String, IArduinoLibraryVersion> getLibraries(Set<String> headers,
+			Map<String, IArduinoLibraryVersion> installedLibraries, List<IArduinoLibraryIndex> libraryIndices,
+			String architecture) {
+		long changeCount = LibraryCatalog.getChangeCount();
+		if (installedLibraries != myIndexedInstalledLibraries || changeCount != myIndexedChangeCount) {
+			updateInstalled(installedLibraries);
+			myIndexedInstalledLibraries = installedLibraries;
+			myIndexedChangeCount = changeCount;
+		}
+		if (libraryIndices != null) {
+			updateInstallable(libraryIndices);
+		}
+		Map<String, IArduinoLibraryVersion> ret = new HashMap<>();
+		for (String curHeader : headers) {
+			List<IArduinoLibraryVersion> candidates = new ArrayList<>();
+			for (String curFQN : myInstalledHeaders.getOrDefault(curHeader, Set.of())) {
+				IArduinoLibraryVersion curLib = installedLibraries.get(curFQN);
+				if (curLib != null) {
+					candidates.add(curLib);
+				}
+			}
+			if (candidates.isEmpty() && libraryIndices != null) {
+				for (IArduinoLibraryVersion curLib : myInstallableHeaders.getOrDefault(curHeader, List.of())) {
+					if (!curLib.getLibrary().isInstalled() && isCompatible(curLib, architecture)) {
+						candidates.add(curLib);
+					}
+				}
+			}
+			if (candidates.isEmpty()) {
+				continue;
+			}
+			candidates.sort(getRanking(curHeader, architecture));
+			IArduinoLibraryVersion bestLib = candidates.get(0);
+			if (candidates.size() > 1 && !getNames(bestLib).contains(curHeader)
+					&& isCompatible(candidates.get(1), architecture) == isCompatible(bestLib, architecture)) {
+				// More than one library provides the header and none is named after
+				// it. Picking one would be a guess so the header is left alone.
+				continue;
+			}
+			ret.put(curHeader, bestLib);
+		}
+		return ret;
+	}
+
+	/*
+	 * Libraries that match the architecture go first, then the libraries with
+	 * the name of the header and then the libraries closest to the project.
+	 */
+	private static Comparator<IArduinoLibraryVersion> getRanking(String header, String architecture) {
+		Comparator<IArduinoLibraryVersion> ret = Comparator
+				.comparing((IArduinoLibraryVersion lib) -> Boolean.valueOf(!isCompatible(lib, architecture)));
+		ret = ret.thenComparing(lib -> Boolean.valueOf(!getNames(lib).contains(header)));
+		ret = ret.thenComparingInt(LibraryHeaderIndex::getLocationRank);
+		return ret.thenComparing(IArduinoLibraryVersion::getName);
+	}
+
+	private static boolean isCompatible(IArduinoLibraryVersion lib, String architecture) {
+		List<String> architectures = lib.getArchitectures();
+		if (architecture == null || architectures == null || architectures.isEmpty()) {
+			return true;
+		}
+		return architectures.contains(ALL_ARCHITECTURES) || architectures.contains(architecture);
+	}
+
+	private static int getLocationRank(IArduinoLibraryVersion lib) {
+		if (lib.isHardwareLib()) {
+			return RANK_HARDWARE;
+		}
+		if (lib.isPrivateLib()) {
+			return RANK_PRIVATE;
+		}
+		return lib.isInstalled() ? RANK_MANAGED : RANK_INSTALLABLE;
+	}
+
+	private static Set<String> getNames(IArduinoLibraryVersion lib) {
+		Set<String> ret = new LinkedHashSet<>();
+		ret.add(lib.getName());
+		ret.add(lib.getName().replace(' ', '_'));
+		return ret;
+	}
+
+	private static void updateInstallable(List<IArduinoLibraryIndex> libraryIndices) {
+		if (myIndexedLibraryIndices.equals(libraryIndices)) {
+			return;
+		}
+		myInstallableHeaders.clear();
+		for (IArduinoLibraryIndex curIndex : libraryIndices) {
+			for (IArduinoLibrary curLibrary : curIndex.getLibraries()) {
+				IArduinoLibraryVersion newestVersion = curLibrary.getNewestVersion();
+				if (newestVersion == null) {
+					continue;
+				}
+				Set<String> headers = new LinkedHashSet<>(getNames(newestVersion));
+				if (newestVersion instanceof ArduinoLibraryVersion) {
+					for (String curInclude : ((ArduinoLibraryVersion) newestVersion).getProvidesIncludes()) {
+						headers.add(removeExtension(curInclude));
+					}
+				}
+				for (String curHeader : headers) {
+					myInstallableHeaders.computeIfAbsent(curHeader, k -> new ArrayList<>()).add(newestVersion);
+				}
+			}
+		}
+		myIndexedLibraryIndices = new ArrayList<>(libraryIndices);
+	}
+
+	private static void updateInstalled(Map<String, IArduinoLibraryVersion> installedLibraries) {
+		if (myLibraryFolders == null) {
+			myLibraryFolders = load();
+		}
+		// forget the libraries that are no longer installed
+		for (Iterator<Entry<String, List<String>>> iter = myInstalledLibraries.entrySet().iterator(); iter
+				.hasNext();) {
+			Entry<String, List<String>> curLibrary = iter.next();
+			if (!installedLibraries.containsKey(curLibrary.getKey())) {
+				removeHeaders(curLibrary.getKey(), curLibrary.getValue());
+				iter.remove();
+			}
+		}
+		for (IArduinoLibraryVersion curLib : installedLibraries.values()) {
+			List<String> headers = new ArrayList<>(getNames(curLib));
+			headers.addAll(getHeaders(curLib.getInstallPath().toFile()));
+			String fqn = curLib.getFQN().toPortableString();
+			List<String> oldHeaders = myInstalledLibraries.put(fqn, headers);
+			if (headers.equals(oldHeaders)) {
+				continue;
+			}
+			if (oldHeaders != null) {
+				removeHeaders(fqn, oldHeaders);
+			}
+			for (String curHeader : headers) {
+				myInstalledHeaders.computeIfAbsent(curHeader, k -> new HashSet<>()).add(fqn);
+			}
+		}
+		if (myIsDirty) {
+			save();
+			myIsDirty = false;
+		}
+	}
+
+	private static void removeHeaders(String fqn, List<String> headers) {
+		for (String curHeader : headers) {
+			Set<String> libs = myInstalledHeaders.get(curHeader);
+			if (libs != null) {
+				libs.remove(fqn);
+				if (libs.isEmpty()) {
+					myInstalledHeaders.remove(curHeader);
+				}
+			}
+		}
+	}
+
+	/*
+	 * The headers of a library are in the src folder if there is one and
+	 * otherwise in the library folder itself
+	 */
+	private static List<String> getHeaders(File libFolder) {
+		File srcFolder = new File(libFolder, SRC_FODER);
+		long libStamp = getTimeStamp(libFolder);
+		long srcStamp = getTimeStamp(srcFolder);
+		String key = libFolder.getAbsolutePath();
+		LibraryFolder ret = myLibraryFolders.get(key);
+		if (ret != null && ret.myLibStamp == libStamp && ret.mySrcStamp == srcStamp) {
+			return ret.myHeaders;
+		}
+		List<String> headers = new ArrayList<>();
+		String[] children = (srcStamp == NOT_EXISTING ? libFolder : srcFolder).list();
+		if (children != null) {
+			for (String curChild : children) {
+				int dot = curChild.lastIndexOf('.');
+				if (dot > 0 && HEADER_EXTENSIONS.contains(curChild.substring(dot + 1).toLowerCase())) {
+					headers.add(curChild.substring(0, dot));
+				}
+			}
+		}
+		myLibraryFolders.put(key, new LibraryFolder(libStamp, srcStamp, headers));
+		myIsDirty = true;
+		return headers;
+	}
+
+	private static long getTimeStamp(File folder) {
+		return folder.isDirectory() ? folder.lastModified() : NOT_EXISTING;
+	}
+
+	private static String removeExtension(String include) {
+		int dot = include.lastIndexOf('.');
+		return dot > 0 ? include.substring(0, dot) : include;
+	}
+
+	private static Path getIndexFile() {
+		Activator activator = Activator.getDefault();
+		if (activator == null) {
+			return null;
+		}
+		return activator.getStateLocation().append(INDEX_FILE).toPath();
+	}
+
+	private static Map<String, LibraryFolder> load() {
+		Map<String, LibraryFolder> ret = new HashMap<>();
+		Path indexFile = getIndexFile();
+		if (indexFile == null || !Files.isRegularFile(indexFile)) {
+			return ret;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile)))) {
+			if (in.readInt() != VERSION) {
+				return ret;
+			}
+			int numFolders = in.readInt();
+			for (int curFolder = 0; curFolder < numFolders; curFolder++) {
+				String path = in.readUTF();
+				long libStamp = in.readLong();
+				long srcStamp = in.readLong();
+				int numHeaders = in.readInt();
+				List<String> headers = new ArrayList<>(numHeaders);
+				for (int curHeader = 0; curHeader < numHeaders; curHeader++) {
+					headers.add(in.readUTF());
+				}
+				ret.put(path, new LibraryFolder(libStamp, srcStamp, headers));
+			}
+		} catch (Exception e) {
+			// A corrupt index simply means the library folders are listed again
+			e.printStackTrace();
+			ret.clear();
+		}
+		return ret;
+	}
+
+	private static void save() {
+		Path indexFile = getIndexFile();
+		if (indexFile == null) {
+			return;
+		}
+		// forget the libraries that have been removed
+		myLibraryFolders.keySet().removeIf(path -> !new File(path).isDirectory());
+		Path tmpFile = indexFile.resolveSibling(INDEX_FILE + ".tmp"); //$NON-NLS-1$
+		try {
+			Files.createDirectories(indexFile.getParent());
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+				out.writeInt(VERSION);
+				out.writeInt(myLibraryFolders.size());
+				for (Entry<String, LibraryFolder> curFolder : myLibraryFolders.entrySet()) {
+					LibraryFolder folder = curFolder.getValue();
+					out.writeUTF(curFolder.getKey());
+					out.writeLong(folder.myLibStamp);
+					out.writeLong(folder.mySrcStamp);
+					out.writeInt(folder.myHeaders.size());
+					for (String curHeader : folder.myHeaders) {
+						out.writeUTF(curHeader);
+					}
+				}
+			}
+			Files.move(tmpFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			// Not being able to save only means the folders are listed again
+			e.printStackTrace();
+		}
+	}
+}
@@ -5,9 +5,7 @@ import static io.sloeber.core.api.Common.*;
 import static io.sloeber.core.api.Const.*;
 
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
-import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -15,8 +13,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.function.Consumer;
 
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.runtime.IPath;
@@ -27,8 +27,6 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 
-import com.google.gson.Gson;
-
 import io.sloeber.arduinoFramework.internal.ArduinoLibraryIndex;
 import io.sloeber.arduinoFramework.internal.ArduinoLibraryVersion;
 import io.sloeber.core.Activator;
@@ -57,6 +55,9 @@ public class LibraryManager {
 			Arrays.asList(SRC_FODER, EXAMPLES_FOLDER, eXAMPLES_FODER, LIBRARY_PROPERTIES));
 	private static final Set<String> IGNORE_FILES = new HashSet<>(Arrays.asList(DOT, DOT + DOT));
 	private static final Set<String> CODE_EXTENSIONS = new HashSet<>(Arrays.asList("h", "cpp")); //$NON-NLS-1$ //$NON-NLS-2$
+	private static final String MANAGED_CATALOG_KEY = "managed"; //$NON-NLS-1$
+	private static final String PRIVATE_CATALOG_KEY = "private:"; //$NON-NLS-1$
+	private static final String HARDWARE_CATALOG_KEY = "hardware:"; //$NON-NLS-1$
 
 	static private List<IArduinoLibraryIndex> libraryIndices;
 	private static IInstallLibraryHandler myInstallLibraryHandler = new DefaultInstallHandler();
@@ -89,6 +90,7 @@ public class LibraryManager {
 
 	public static void setPrivateLibraryPaths(String[] libraryPaths) {
 		InstancePreferences.setPrivateLibraryPaths(libraryPaths);
+		LibraryCatalog.invalidateAll();
 
 	}
 
@@ -114,10 +116,11 @@ public class LibraryManager {
 	}
 
 	static public void loadJson(File jsonFile) {
-		try (Reader reader = new FileReader(jsonFile)) {
-			IArduinoLibraryIndex index = new Gson().fromJson(reader, ArduinoLibraryIndex.class);
-			((ArduinoLibraryIndex)index).setJsonFile(jsonFile);
+		try {
+			IArduinoLibraryIndex index = ArduinoLibraryIndex.load(jsonFile);
 			libraryIndices.add(index);
+			LibraryCatalog.invalidate(MANAGED_CATALOG_KEY);
+			LibraryHeaderIndex.scheduleUpdate();
 		} catch (Exception e) {
 			Activator.log(new Status(IStatus.ERROR, Activator.getId(),
 					Manager_Failed_to_parse.replace(FILE_TAG, jsonFile.getAbsolutePath()), e));
@@ -153,8 +156,9 @@ public class LibraryManager {
 			return Status.OK_STATUS;
 		}
 		IStatus ret = PackageManager.downloadAndInstall(lib.getUrl(), lib.getArchiveFileName(), lib.getInstallPath(),
-				false, monitor);
+				lib.getChecksum(), false, monitor);
 		FileModifiers.addPragmaOnce(lib.getInstallPath());
+		LibraryCatalog.invalidate(MANAGED_CATALOG_KEY);
 		return ret;
 	}
 
@@ -177,6 +181,8 @@ public class LibraryManager {
 			return new Status(IStatus.ERROR, Activator.getId(),
 					"Failed to remove folder" + lib.getInstallPath().toOSString(), //$NON-NLS-1$
 					e);
+		} finally {
+			LibraryCatalog.invalidate(MANAGED_CATALOG_KEY);
 		}
 
 		return Status.OK_STATUS;
@@ -212,6 +218,7 @@ public class LibraryManager {
 
 	public static void flushIndices() {
 		libraryIndices = new ArrayList<>();
+		LibraryCatalog.invalidate(MANAGED_CATALOG_KEY);
 	}
 
 	public static void unInstallAllLibs() {
@@ -220,6 +227,7 @@ public class LibraryManager {
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
+		LibraryCatalog.invalidate(MANAGED_CATALOG_KEY);
 	}
 
 	public static Map<String, IArduinoLibraryVersion> getLatestInstallableLibraries(Set<String> libnames) {
@@ -341,40 +349,110 @@ public class LibraryManager {
 	 * manager plus all the libraries provided by the core plus all the libraries
 	 * provided by the personal libraries
 	 *
+	 * The result is kept till the libraries in one of the folders change.
+	 *
 	 * @param confDesc can be null
-	 * @return
+	 * @return the libraries with the FQN as key. The map can not be modified
 	 */
-	public static TreeMap<String, IArduinoLibraryVersion> getLibrariesAll(BoardDescription boardDescriptor) {
-		TreeMap<String, IArduinoLibraryVersion> libraries = new TreeMap<>();
-		libraries.putAll(getLibrariesdManaged());
-		libraries.putAll(getLibrariesPrivate());
+	public static SortedMap<String, IArduinoLibraryVersion> getLibrariesAll(BoardDescription boardDescriptor) {
+		return LibraryCatalog.getMergedLibraries(getRoots(boardDescriptor));
+	}
+
+	// the root folders of the libraries ordered from far from to close to the board
+	private static List<LibraryCatalog.Root> getRoots(BoardDescription boardDescriptor) {
+		List<LibraryCatalog.Root> ret = new ArrayList<>();
+		ret.add(getManagedRoot());
+		ret.addAll(getPrivateRoots());
 		if (boardDescriptor != null) {
-			libraries.putAll(getLibrariesHarware(boardDescriptor));
+			ret.addAll(getHardwareRoots(boardDescriptor));
 		}
-		return libraries;
+		return ret;
+	}
+
+	/**
+	 * Find the libraries that provide the given headers.
+	 * When more than one library provides a header the library that supports the
+	 * architecture of the board, has the name of the header and is closest to the
+	 * board (hardware, private, managed, installable) is selected.
+	 * When none of the libraries that support the architecture has the name of
+	 * the header the header is ambiguous and no library is returned for it.
+	 *
+	 * @param headers            the header names without extension
+	 * @param boardDescriptor    the board of the project. can be null
+	 * @param includeInstallable also look for libraries that are not installed yet
+	 * @return header->library for the headers a library has been found for
+	 */
+	public static Map<String, IArduinoLibraryVersion> getLibrariesForHeaders(Set<String> headers,
+			BoardDescription boardDescriptor, boolean includeInstallable) {
+		String architecture = boardDescriptor == null ? null : boardDescriptor.getArchitecture();
+		List<IArduinoLibraryIndex> indices = includeInstallable ? getLibraryIndices() : null;
+		return LibraryHeaderIndex.getLibraries(headers, getLibrariesAll(boardDescriptor), indices, architecture);
+	}
+
+	/**
+	 * Find an installed library by its name. When libraries with the same name
+	 * are found the one closest to the board (hardware, private, managed) is
+	 * returned.
+	 * The libraries by name are kept like the libraries returned by
+	 * getLibrariesAll so this does not access the file system when nothing
+	 * changed.
+	 *
+	 * @param libName         the name of the library
+	 * @param boardDescriptor can be null
+	 * @return the library or null if no library with this name is installed
+	 */
+	public static IArduinoLibraryVersion getLibraryByName(String libName, BoardDescription boardDescriptor) {
+		return LibraryCatalog.getMergedLibrariesByName(getRoots(boardDescriptor)).get(libName);
 	}
 
 	private static Map<String, IArduinoLibraryVersion> getLibrariesdManaged() {
-		Map<String, IArduinoLibraryVersion> ret = new HashMap<>();
-		for (IArduinoLibraryIndex libindex : libraryIndices) {
-			for (IArduinoLibrary curLib : libindex.getLibraries()) {
-				IArduinoLibraryVersion instVersion = curLib.getInstalledVersion();
-				if (instVersion != null) {
-					ret.put(instVersion.getFQN().toPortableString(), instVersion);
+		return LibraryCatalog.getLibraries(getManagedRoot());
+	}
+
+	private static LibraryCatalog.Root getManagedRoot() {
+		IPath librariesPath = ConfigurationPreferences.getInstallationPathLibraries();
+		return new LibraryCatalog.Root(MANAGED_CATALOG_KEY, librariesPath, folderVisitor -> {
+			Map<String, IArduinoLibraryVersion> ret = new HashMap<>();
+			// Only look at the libraries that have a folder
+			// instead of checking the folders of all the versions of all the libraries
+			folderVisitor.accept(librariesPath);
+			String[] installedFolders = librariesPath.toFile().list();
+			if (installedFolders == null || libraryIndices == null) {
+				return ret;
+			}
+			Set<String> installedFolderNames = new HashSet<>(Arrays.asList(installedFolders));
+			for (String curFolder : installedFolders) {
+				// a version being added or removed changes the installed version
+				if (librariesPath.append(curFolder).toFile().isDirectory()) {
+					folderVisitor.accept(librariesPath.append(curFolder));
 				}
 			}
-		}
-		return ret;
+			for (IArduinoLibraryIndex libindex : libraryIndices) {
+				for (IArduinoLibrary curLib : libindex.getLibraries()) {
+					if (!installedFolderNames.contains(curLib.getInstallPath().lastSegment())) {
+						continue;
+					}
+					IArduinoLibraryVersion instVersion = curLib.getInstalledVersion();
+					if (instVersion != null) {
+						folderVisitor.accept(instVersion.getInstallPath());
+						visitSrcFolder(instVersion.getInstallPath(), folderVisitor);
+						ret.put(instVersion.getFQN().toPortableString(), instVersion);
+					}
+				}
+			}
+			return ret;
+		});
 	}
 
-	private static Map<String, IArduinoLibraryVersion> getLibrariesPrivate() {
-		Map<String, IArduinoLibraryVersion> ret = new HashMap<>();
+	private static List<LibraryCatalog.Root> getPrivateRoots() {
+		List<LibraryCatalog.Root> ret = new ArrayList<>();
 		String privateLibPaths[] = InstancePreferences.getPrivateLibraryPaths();
 		for (String curLibPath : privateLibPaths) {
-			ret.putAll(getLibrariesFromFolder(new Path(curLibPath), 2, false,true));
+			IPath libPath = new Path(curLibPath);
+			ret.add(new LibraryCatalog.Root(PRIVATE_CATALOG_KEY + libPath, libPath,
+					folderVisitor -> getLibrariesFromFolder(libPath, 2, false, true, folderVisitor)));
 		}
 		return ret;
-
 	}
 
 	/**
@@ -386,10 +464,11 @@ public class LibraryManager {
 	 *         equals full path.
 	 */
 	private static Map<String, IArduinoLibraryVersion> getLibrariesFromFolder(IPath ipath, int depth,
-			boolean isHardwareLib,boolean isPrivate) {
+			boolean isHardwareLib, boolean isPrivate, Consumer<IPath> folderVisitor) {
 		if (ConfigurationPreferences.getInstallationPathLibraries().isPrefixOf(ipath)) {
 			System.err.println("The method findAllPrivateLibs should not be called on Library manager installed libs"); //$NON-NLS-1$
 		}
+		folderVisitor.accept(ipath);
 		String[] children = ipath.toFile().list();
 		Map<String, IArduinoLibraryVersion> ret = new HashMap<>();
 		if (children == null) {
@@ -405,6 +484,7 @@ public class LibraryManager {
 			}
 			String fileExt = (new Path(curChild)).getFileExtension();
 			if (LIBRARY_INDICATION_FILES.contains(curChild) || CODE_EXTENSIONS.contains(fileExt)) {
+				visitSrcFolder(ipath, folderVisitor);
 				if (isHardwareLib) {
 					IArduinoLibraryVersion retVersion = new ArduinoHardwareLibrary(ipath);
 					ret.put(retVersion.getFQN().toPortableString(), retVersion);
@@ -425,12 +505,23 @@ public class LibraryManager {
 			IPath LibPath = ipath.append(curFolder);
 			File LibPathFile = LibPath.toFile();
 			if (LibPathFile.isDirectory() && !LibPathFile.isHidden()) {
-				ret.putAll(getLibrariesFromFolder(LibPath, depth - 1, isHardwareLib,isPrivate));
+				ret.putAll(getLibrariesFromFolder(LibPath, depth - 1, isHardwareLib, isPrivate, folderVisitor));
 			}
 		}
 		return ret;
 	}
 
+	/*
+	 * The headers of a library are in the src folder when there is one. Visiting
+	 * it makes the header index see headers added to or removed from the library
+	 */
+	private static void visitSrcFolder(IPath libFolder, Consumer<IPath> folderVisitor) {
+		IPath srcFolder = libFolder.append(SRC_FODER);
+		if (srcFolder.toFile().isDirectory()) {
+			folderVisitor.accept(srcFolder);
+		}
+	}
+
 	/**
 	 * Searches all the hardware dependent libraries of a project. If this is a
 	 * board referencing a core then the libraries of the referenced core are added
@@ -441,19 +532,32 @@ public class LibraryManager {
 	 */
 	public static Map<String, IArduinoLibraryVersion> getLibrariesHarware(BoardDescription boardDescriptor) {
 		Map<String, IArduinoLibraryVersion> ret = new HashMap<>();
+		for (LibraryCatalog.Root curRoot : getHardwareRoots(boardDescriptor)) {
+			ret.putAll(LibraryCatalog.getLibraries(curRoot));
+		}
+		return ret;
+	}
+
+	private static List<LibraryCatalog.Root> getHardwareRoots(BoardDescription boardDescriptor) {
+		List<LibraryCatalog.Root> ret = new ArrayList<>();
 		// first add the referenced
 		IPath libPath = boardDescriptor.getReferencedCoreLibraryPath();
 		if (libPath != null) {
-			ret.putAll(getLibrariesFromFolder(libPath, 1, true,boardDescriptor.isPrivate()));
+			ret.add(getHardwareRoot(libPath, boardDescriptor.isPrivate()));
 		}
 		// then add the referencing
 		libPath = boardDescriptor.getReferencingLibraryPath();
 		if (libPath != null) {
-			ret.putAll(getLibrariesFromFolder(libPath, 1, true,boardDescriptor.isPrivate()));
+			ret.add(getHardwareRoot(libPath, boardDescriptor.isPrivate()));
 		}
 		return ret;
 	}
 
+	private static LibraryCatalog.Root getHardwareRoot(IPath libPath, boolean isPrivate) {
+		return new LibraryCatalog.Root(HARDWARE_CATALOG_KEY + libPath, libPath,
+				folderVisitor -> getLibrariesFromFolder(libPath, 1, true, isPrivate, folderVisitor));
+	}
+
 	public static IArduinoLibraryVersion getLibraryVersionFromLocation(IFolder libFolder,BoardDescription boardDescriptor) {
 		if (boardDescriptor != null) {
 			IPath libPath=boardDescriptor.getReferencedCoreLibraryPath();
@@ -468,7 +572,8 @@ public class LibraryManager {
 			return getLibrariesdManaged().get(FQNLibName);
 		}
 
-		return getLibrariesPrivate().get(libFolder.getName());
+		// the private libraries are not named after their FQN
+		return LibraryCatalog.getMergedLibrariesByName(getPrivateRoots()).get(libFolder.getName());
 	}
 
 	/**
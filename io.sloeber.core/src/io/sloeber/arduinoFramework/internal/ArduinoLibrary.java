@@ -1,7 +1,5 @@
 package io.sloeber.arduinoFramework.internal;
 
-import static io.sloeber.arduinoFramework.internal.GsonConverter.*;
-
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
@@ -10,10 +8,6 @@ import java.util.TreeMap;
 
 import org.eclipse.core.runtime.IPath;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
-
 import io.sloeber.arduinoFramework.api.IArduinoLibrary;
 import io.sloeber.arduinoFramework.api.IArduinoLibraryVersion;
 import io.sloeber.arduinoFramework.api.Node;
@@ -33,25 +27,14 @@ public class ArduinoLibrary   extends IArduinoLibrary {
     private TreeMap<VersionNumber, ArduinoLibraryVersion> versions = new TreeMap<>(Collections.reverseOrder());
     private ArduinoLibraryIndex myParent;
 
-    private static final String VERSION_KEY = "version"; //$NON-NLS-1$
-
-    @SuppressWarnings("nls")
-    public ArduinoLibrary(JsonElement json, ArduinoLibraryIndex libraryIndexJson) {
-        JsonObject jsonObject = json.getAsJsonObject();
-        try {
-            myParent = libraryIndexJson;
-            name = getSafeString(jsonObject, "name");
-            addVersion(json);
-        } catch (Exception e) {
-            throw new JsonParseException("failed to parse json  " + e.getMessage(),e);
-        }
-
+    public ArduinoLibrary(String libraryName, ArduinoLibraryIndex libraryIndexJson) {
+        myParent = libraryIndexJson;
+        name = libraryName;
     }
 
-    protected void addVersion(JsonElement json) {
-        JsonObject jsonObject = json.getAsJsonObject();
-        VersionNumber versionNumber = getSafeVersion(jsonObject, VERSION_KEY);
-        versions.put(versionNumber, new ArduinoLibraryVersion(jsonObject, this));
+    protected void addVersion(ArduinoLibraryVersion libraryVersion) {
+        libraryVersion.setParent(this);
+        versions.put(libraryVersion.getVersion(), libraryVersion);
     }
 
     @Override
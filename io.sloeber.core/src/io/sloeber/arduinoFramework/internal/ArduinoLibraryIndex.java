@@ -1,42 +1,228 @@
 package io.sloeber.arduinoFramework.internal;
 
-import static io.sloeber.arduinoFramework.internal.GsonConverter.*;
-
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.UUID;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
 
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
-import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
 
 import io.sloeber.arduinoFramework.api.IArduinoLibrary;
 import io.sloeber.arduinoFramework.api.IArduinoLibraryIndex;
 import io.sloeber.arduinoFramework.api.IArduinoLibraryVersion;
 import io.sloeber.arduinoFramework.api.Node;
+import io.sloeber.core.Activator;
 
 /**
  * This class represents a json file that references libraries
  *
+ * The library index is big (tens of megabytes) so it is read with a streaming
+ * parser that only keeps the fields Sloeber uses.
+ * The result is stored in a binary snapshot. When the json file has not changed
+ * the libraries are read from the snapshot the first time they are needed.
+ *
  * @author jan
  *
  */
-@JsonAdapter(ArduinoLibraryIndex.class)
-public class ArduinoLibraryIndex extends Node
-        implements  JsonDeserializer<ArduinoLibraryIndex>, IArduinoLibraryIndex {
-    private TreeMap<String, ArduinoLibrary> libraries = new TreeMap<>();
-    private transient File jsonFile;
+public class ArduinoLibraryIndex extends Node implements IArduinoLibraryIndex {
+    private static final int SNAPSHOT_VERSION = 2;
+    private static final String SNAPSHOT_FOLDER = "libraryIndexCache"; //$NON-NLS-1$
+    private static final String SNAPSHOT_EXTENSION = ".bin"; //$NON-NLS-1$
+
+    // null as long as the snapshot has not been read
+    private TreeMap<String, ArduinoLibrary> libraries;
+    private File jsonFile;
+    private boolean isFromSnapshot;
+
+    private ArduinoLibraryIndex(File libraryJsonFile) {
+        jsonFile = libraryJsonFile;
+    }
+
+    /**
+     * Load a library index json file. When there is a snapshot of the json file
+     * the libraries are only read when needed.
+     *
+     * @param libraryJsonFile
+     *            the json file
+     * @return the library index
+     * @throws IOException
+     *             when the json file can not be read or is not valid
+     */
+    public static ArduinoLibraryIndex load(File libraryJsonFile) throws IOException {
+        ArduinoLibraryIndex ret = new ArduinoLibraryIndex(libraryJsonFile);
+        ret.isFromSnapshot = ret.hasValidSnapshot();
+        if (!ret.isFromSnapshot) {
+            ret.libraries = ret.readJson();
+            ret.writeSnapshot();
+        }
+        return ret;
+    }
+
+    private synchronized TreeMap<String, ArduinoLibrary> getLibraryMap() {
+        if (libraries == null) {
+            libraries = readSnapshot();
+        }
+        if (libraries == null) {
+            // The snapshot is gone or damaged
+            isFromSnapshot = false;
+            try {
+                libraries = readJson();
+                writeSnapshot();
+            } catch (IOException e) {
+                Activator.log(new Status(IStatus.ERROR, Activator.getId(),
+                        "Failed to read library index " + jsonFile, e)); //$NON-NLS-1$
+                libraries = new TreeMap<>();
+            }
+        }
+        return libraries;
+    }
+
+    /**
+     * @return true if the libraries are read from the snapshot instead of the
+     *         json file
+     */
+    public boolean isFromSnapshot() {
+        return isFromSnapshot;
+    }
+
+    private void addVersion(TreeMap<String, ArduinoLibrary> libraryMap, ArduinoLibraryVersion libraryVersion) {
+        String libName = libraryVersion.getName();
+        ArduinoLibrary library = libraryMap.get(libName);
+        if (library == null) {
+            library = new ArduinoLibrary(libName, this);
+            libraryMap.put(libName, library);
+        }
+        library.addVersion(libraryVersion);
+    }
+
+    @SuppressWarnings("nls")
+    private TreeMap<String, ArduinoLibrary> readJson() throws IOException {
+        TreeMap<String, ArduinoLibrary> ret = new TreeMap<>();
+        StringPool strings = new StringPool();
+        try (BufferedReader bufferedReader = Files.newBufferedReader(jsonFile.toPath(), StandardCharsets.UTF_8);
+                JsonReader reader = new JsonReader(bufferedReader)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("libraries".equals(reader.nextName())) {
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        addVersion(ret, new ArduinoLibraryVersion(reader, strings));
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException | NumberFormatException e) {
+            // The json is not a library index
+            throw new IOException("failed to parse LibraryIndexJson json  " + e.getMessage(), e);
+        }
+        return ret;
+    }
+
+    private Path getSnapshotFile() {
+        Activator activator = Activator.getDefault();
+        if (activator == null) {
+            return null;
+        }
+        String fileName = UUID.nameUUIDFromBytes(jsonFile.getAbsolutePath().getBytes(StandardCharsets.UTF_8))
+                .toString() + SNAPSHOT_EXTENSION;
+        return activator.getStateLocation().append(SNAPSHOT_FOLDER).append(fileName).toPath();
+    }
 
-    public void setJsonFile(File packageFile) {
-        jsonFile = packageFile;
+    /*
+     * The snapshot starts with the path, size and time stamp of the json file so a
+     * snapshot of another or an older json file is never used
+     */
+    private boolean readSnapshotHeader(DataInputStream in) throws IOException {
+        return in.readInt() == SNAPSHOT_VERSION && jsonFile.getAbsolutePath().equals(in.readUTF())
+                && in.readLong() == jsonFile.length() && in.readLong() == jsonFile.lastModified();
+    }
+
+    private boolean hasValidSnapshot() {
+        Path snapshotFile = getSnapshotFile();
+        if (snapshotFile == null || !Files.isRegularFile(snapshotFile)) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            return readSnapshotHeader(in);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private TreeMap<String, ArduinoLibrary> readSnapshot() {
+        Path snapshotFile = getSnapshotFile();
+        if (snapshotFile == null || !Files.isRegularFile(snapshotFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (!readSnapshotHeader(in)) {
+                return null;
+            }
+            TreeMap<String, ArduinoLibrary> ret = new TreeMap<>();
+            StringPool strings = new StringPool();
+            int numVersions = in.readInt();
+            for (int curVersion = 0; curVersion < numVersions; curVersion++) {
+                addVersion(ret, new ArduinoLibraryVersion(in, strings));
+            }
+            return ret;
+        } catch (Exception e) {
+            // A damaged snapshot simply means the json file is read again
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void writeSnapshot() {
+        Path snapshotFile = getSnapshotFile();
+        if (snapshotFile == null) {
+            return;
+        }
+        Path tmpFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp"); //$NON-NLS-1$
+        try {
+            Files.createDirectories(snapshotFile.getParent());
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeUTF(jsonFile.getAbsolutePath());
+                out.writeLong(jsonFile.length());
+                out.writeLong(jsonFile.lastModified());
+                int numVersions = 0;
+                for (ArduinoLibrary curLibrary : libraries.values()) {
+                    numVersions += curLibrary.getVersions().size();
+                }
+                out.writeInt(numVersions);
+                StringPool strings = new StringPool();
+                for (ArduinoLibrary curLibrary : libraries.values()) {
+                    for (IArduinoLibraryVersion curVersion : curLibrary.getVersions()) {
+                        ((ArduinoLibraryVersion) curVersion).write(out, strings);
+                    }
+                }
+            }
+            Files.move(tmpFile, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // Not being able to write the snapshot only makes the next start slower
+            e.printStackTrace();
+        }
     }
 
     /**
@@ -47,7 +233,7 @@ public class ArduinoLibraryIndex extends Node
      */
     @Override
 	public IArduinoLibrary getLibrary(String libraryName) {
-        return libraries.get(libraryName);
+        return getLibraryMap().get(libraryName);
     }
 
     /**
@@ -63,7 +249,7 @@ public class ArduinoLibraryIndex extends Node
         if (libNames.isEmpty()) {
             return ret;
         }
-        for (IArduinoLibrary curLibrary : libraries.values()) {
+        for (IArduinoLibrary curLibrary : getLibraryMap().values()) {
             if (libNames.contains(curLibrary.getNodeName())) {
                 if (!curLibrary.isInstalled()) {
                     ret.put(curLibrary.getNodeName(), curLibrary.getNewestVersion());
@@ -73,31 +259,6 @@ public class ArduinoLibraryIndex extends Node
         return ret;
     }
 
-    @SuppressWarnings("nls")
-    @Override
-    public ArduinoLibraryIndex deserialize(JsonElement json, Type arg1, JsonDeserializationContext arg2)
-            throws JsonParseException {
-        JsonObject jsonObject = json.getAsJsonObject();
-
-        try {
-            for (JsonElement curElement : jsonObject.get("libraries").getAsJsonArray()) {
-                JsonObject jsonObject2 = curElement.getAsJsonObject();
-                String libName = getSafeString(jsonObject2, "name");
-                ArduinoLibrary library = libraries.get(libName);
-                if (library == null) {
-                    libraries.put(libName, new ArduinoLibrary(curElement, this));
-                } else {
-                    library.addVersion(curElement);
-                }
-            }
-        } catch (Exception e) {
-            throw new JsonParseException("failed to parse LibraryIndexJson json  " + e.getMessage(), e);
-        }
-
-        return this;
-
-    }
-
     @Override
     public String getNodeName() {
         return jsonFile.getName();
@@ -105,7 +266,8 @@ public class ArduinoLibraryIndex extends Node
 
     @Override
     public Node[] getChildren() {
-        return libraries.values().toArray(new Node[libraries.size()]);
+        TreeMap<String, ArduinoLibrary> libraryMap = getLibraryMap();
+        return libraryMap.values().toArray(new Node[libraryMap.size()]);
     }
 
     @Override
@@ -125,7 +287,7 @@ public class ArduinoLibraryIndex extends Node
 
     @Override
 	public Collection<IArduinoLibrary> getLibraries() {
-        return new LinkedList<> (libraries.values());
+        return new LinkedList<> (getLibraryMap().values());
     }
 
 }
@@ -1,17 +1,17 @@
 package io.sloeber.arduinoFramework.internal;
 
-import static io.sloeber.arduinoFramework.internal.GsonConverter.*;
 import static io.sloeber.core.api.Const.*;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
 
-import com.google.gson.JsonElement;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
 
 import io.sloeber.arduinoFramework.api.IArduinoLibrary;
 import io.sloeber.arduinoFramework.api.IArduinoLibraryVersion;
@@ -27,51 +27,134 @@ import io.sloeber.core.api.VersionNumber;
 
 public class ArduinoLibraryVersion extends Node implements IArduinoLibraryVersion {
 
-	private String name;
+	private static final String NO_VERSION = "no version number provided"; //$NON-NLS-1$
+
+	private String name = StringPool.NO_INFO;
 	private VersionNumber version;
-	private String author;
-	private String maintainer;
-	private String sentence;
-	private String paragraph;
-	private String website;
-	private String category;
+	private String author = StringPool.NO_INFO;
+	private String maintainer = StringPool.NO_INFO;
+	private String sentence = StringPool.NO_INFO;
+	private String paragraph = StringPool.NO_INFO;
+	private String website = StringPool.NO_INFO;
+	private String category = StringPool.NO_INFO;
 	private List<String> architectures = new ArrayList<>();
 	private List<String> types = new ArrayList<>();
-	private String url;
-	private String archiveFileName;
+	private List<String> providesIncludes = new ArrayList<>();
+	private String url = StringPool.NO_INFO;
+	private String archiveFileName = StringPool.NO_INFO;
 	private int size;
-	private String checksum;
+	private String checksum = StringPool.NO_INFO;
 	private ArduinoLibrary myParent;
 	private IPath myFQN;
 
+	/**
+	 * Read a library version from a library index. Only the fields Sloeber uses
+	 * are kept. The parent is set when the version is added to a library.
+	 *
+	 * @param reader positioned at the start of the library object
+	 */
 	@SuppressWarnings("nls")
-	public ArduinoLibraryVersion(JsonElement json, ArduinoLibrary arduinoLibrary) {
-		JsonObject jsonObject = json.getAsJsonObject();
-		try {
-			myParent = arduinoLibrary;
-			name = getSafeString(jsonObject, "name");
-			version = getSafeVersion(jsonObject, "version");
-			author = getSafeString(jsonObject, "author");
-			maintainer = getSafeString(jsonObject, "maintainer");
-			sentence = getSafeString(jsonObject, "sentence");
-			paragraph = getSafeString(jsonObject, "paragraph");
-			website = getSafeString(jsonObject, "website");
-			category = getSafeString(jsonObject, "category");
-			for (JsonElement curType : jsonObject.get("architectures").getAsJsonArray()) {
-				architectures.add(curType.getAsString());
-			}
-			for (JsonElement curType : jsonObject.get("types").getAsJsonArray()) {
-				types.add(curType.getAsString());
+	ArduinoLibraryVersion(JsonReader reader, StringPool strings) throws IOException {
+		String versionString = NO_VERSION;
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+			case "name":
+				name = strings.nextString(reader);
+				break;
+			case "version":
+				versionString = strings.nextString(reader);
+				break;
+			case "author":
+				author = strings.nextString(reader);
+				break;
+			case "maintainer":
+				maintainer = strings.nextString(reader);
+				break;
+			case "sentence":
+				sentence = strings.nextString(reader);
+				break;
+			case "paragraph":
+				paragraph = strings.nextString(reader);
+				break;
+			case "website":
+				website = strings.nextString(reader);
+				break;
+			case "category":
+				category = strings.nextString(reader);
+				break;
+			case "architectures":
+				architectures = strings.nextStrings(reader);
+				break;
+			case "types":
+				types = strings.nextStrings(reader);
+				break;
+			case "providesIncludes":
+				providesIncludes = strings.nextStrings(reader);
+				break;
+			case "url":
+				url = strings.nextString(reader);
+				break;
+			case "archiveFileName":
+				archiveFileName = strings.nextString(reader);
+				break;
+			case "size":
+				size = reader.nextInt();
+				break;
+			case "checksum":
+				checksum = strings.nextString(reader);
+				break;
+			default:
+				reader.skipValue();
 			}
-			url = getSafeString(jsonObject, "url");
-			archiveFileName = getSafeString(jsonObject, "archiveFileName");
-			size = jsonObject.get("size").getAsInt();
-			checksum = getSafeString(jsonObject, "checksum");
-			myFQN=calculateFQN(getName());
-		} catch (Exception e) {
-			throw new JsonParseException("failed to parse json  " + e.getMessage(),e);
 		}
+		reader.endObject();
+		version = new VersionNumber(versionString);
+		myFQN = calculateFQN(name);
+	}
+
+	/**
+	 * Read a library version from a snapshot written with write
+	 */
+	ArduinoLibraryVersion(DataInputStream in, StringPool strings) throws IOException {
+		name = strings.readString(in);
+		version = new VersionNumber(strings.readString(in));
+		author = strings.readString(in);
+		maintainer = strings.readString(in);
+		sentence = strings.readString(in);
+		paragraph = strings.readString(in);
+		website = strings.readString(in);
+		category = strings.readString(in);
+		architectures = strings.readStrings(in);
+		types = strings.readStrings(in);
+		providesIncludes = strings.readStrings(in);
+		url = strings.readString(in);
+		archiveFileName = strings.readString(in);
+		size = in.readInt();
+		checksum = strings.readString(in);
+		myFQN = calculateFQN(name);
+	}
 
+	void write(DataOutputStream out, StringPool strings) throws IOException {
+		strings.writeString(out, name);
+		strings.writeString(out, version.toString());
+		strings.writeString(out, author);
+		strings.writeString(out, maintainer);
+		strings.writeString(out, sentence);
+		strings.writeString(out, paragraph);
+		strings.writeString(out, website);
+		strings.writeString(out, category);
+		strings.writeStrings(out, architectures);
+		strings.writeStrings(out, types);
+		strings.writeStrings(out, providesIncludes);
+		strings.writeString(out, url);
+		strings.writeString(out, archiveFileName);
+		out.writeInt(size);
+		strings.writeString(out, checksum);
+	}
+
+	void setParent(ArduinoLibrary library) {
+		myParent = library;
 	}
 
 	@Override
@@ -116,6 +199,13 @@ public class ArduinoLibraryVersion extends Node implements IArduinoLibraryVersio
 		return types;
 	}
 
+	/**
+	 * @return the headers the library index says this version provides
+	 */
+	public List<String> getProvidesIncludes() {
+		return providesIncludes;
+	}
+
 	public String getUrl() {
 		return url;
 	}
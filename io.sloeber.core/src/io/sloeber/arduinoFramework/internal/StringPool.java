@@ -0,0 +1,107 @@
+package io.sloeber.arduinoFramework.internal;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+/**
+ * The index files contain the same strings (authors, categories,
+ * architectures, ...) over and over again.
+ * This class makes sure each distinct string is only kept once in memory and
+ * only written once to a snapshot file.
+ *
+ * A string pool is meant to be used for reading or writing one file.
+ *
+ * @author jan
+ *
+ */
+class StringPool {
+    static final String NO_INFO = "no info found in file"; //$NON-NLS-1$
+    private static final int NEW_STRING = -1;
+
+    private final Map<String, String> myStrings = new HashMap<>();
+    private final Map<String, Integer> myWrittenStrings = new HashMap<>();
+    private final List<String> myReadStrings = new ArrayList<>();
+
+    String intern(String string) {
+        String ret = myStrings.putIfAbsent(string, string);
+        return ret == null ? string : ret;
+    }
+
+    /**
+     * Read the next value as a string. Like GsonConverter.getSafeString a missing
+     * value results in NO_INFO
+     */
+    String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return NO_INFO;
+        }
+        return intern(reader.nextString());
+    }
+
+    /**
+     * Read the next value as a list of strings
+     */
+    List<String> nextStrings(JsonReader reader) throws IOException {
+        List<String> ret = new ArrayList<>();
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return ret;
+        }
+        reader.beginArray();
+        while (reader.hasNext()) {
+            ret.add(nextString(reader));
+        }
+        reader.endArray();
+        return ret;
+    }
+
+    /**
+     * Write a string. A string that has been written before is written as a
+     * reference to the first one.
+     */
+    void writeString(DataOutputStream out, String string) throws IOException {
+        Integer id = myWrittenStrings.get(string);
+        if (id != null) {
+            out.writeInt(id.intValue());
+            return;
+        }
+        myWrittenStrings.put(string, Integer.valueOf(myWrittenStrings.size()));
+        out.writeInt(NEW_STRING);
+        out.writeUTF(string);
+    }
+
+    String readString(DataInputStream in) throws IOException {
+        int id = in.readInt();
+        if (id != NEW_STRING) {
+            return myReadStrings.get(id);
+        }
+        String ret = intern(in.readUTF());
+        myReadStrings.add(ret);
+        return ret;
+    }
+
+    void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+        out.writeInt(strings.size());
+        for (String curString : strings) {
+            writeString(out, curString);
+        }
+    }
+
+    List<String> readStrings(DataInputStream in) throws IOException {
+        int numStrings = in.readInt();
+        List<String> ret = new ArrayList<>(numStrings);
+        for (int curString = 0; curString < numStrings; curString++) {
+            ret.add(readString(in));
+        }
+        return ret;
+    }
+}
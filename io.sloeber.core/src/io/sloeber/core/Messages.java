@@ -70,6 +70,7 @@ public class Messages extends NLS {
     public static String Manager_Cant_create_folder;
     public static String Manager_Cant_create_folder_exists;
     public static String Manager_Cant_extract_file_exist;
+    public static String Manager_Checksum_mismatch;
     public static String Manager_Failed_to_download;
     public static String Manager_Failed_to_extract;
     public static String Manager_Failed_to_parse;
@@ -80,6 +80,15 @@ public interface ISloeberConfiguration {
 
     Map<String, String> getEnvironmentVariables();
 
+    /**
+     * get the version of the environment variables
+     * The version changes each time the environment variables are recalculated
+     * so users can keep derived data as long as the version does not change
+     *
+     * @return the version of the map returned by getEnvironmentVariables
+     */
+    int getEnvironmentVariablesVersion();
+
     /**
      * get the text for the decorator
      *
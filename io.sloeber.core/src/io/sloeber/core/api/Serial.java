@@ -33,6 +33,7 @@ import static io.sloeber.core.api.Const.*;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.regex.Pattern;
 
 import org.eclipse.cdt.core.CCorePlugin;
@@ -45,6 +46,8 @@ import org.osgi.framework.ServiceRegistration;
 
 import io.sloeber.core.Activator;
 import io.sloeber.core.common.InstancePreferences;
+import io.sloeber.core.communication.SerialConsumerPump;
+import io.sloeber.core.communication.SerialRingBuffer;
 import jssc.SerialPort;
 import jssc.SerialPortEvent;
 import jssc.SerialPortEventListener;
@@ -81,7 +84,10 @@ public class Serial implements SerialPortEventListener {
 
     private ServiceRegistration<Serial> fServiceRegistration;
 
-    private List<MessageConsumer> fConsumers;
+    // The received bytes. Each consumer reads them on its own thread
+    private final SerialRingBuffer fReceivedData = new SerialRingBuffer(SerialRingBuffer.DEFAULT_CAPACITY);
+
+    private final List<SerialConsumerPump> fConsumers = new CopyOnWriteArrayList<>();
 
     public Serial(String iname, int irate) {
         this(iname, irate, 'N', 8, 1.0f, true);
@@ -163,16 +169,65 @@ public class Serial implements SerialPortEventListener {
     }
 
     public void addListener(MessageConsumer consumer) {
-        if (this.fConsumers == null) {
-            this.fConsumers = new ArrayList<>();
-        }
-        this.fConsumers.add(consumer);
+        SerialConsumerPump pump = new SerialConsumerPump(this.fReceivedData, consumer, this.portName);
+        this.fConsumers.add(pump);
+        pump.start();
     }
 
     public void removeListener(MessageConsumer consumer) {
-        if (this.fConsumers == null)
+        SerialConsumerPump pump = getPump(consumer);
+        if (pump == null)
             return;
-        this.fConsumers.remove(consumer);
+        this.fConsumers.remove(pump);
+        pump.stopPumping();
+    }
+
+    private SerialConsumerPump getPump(MessageConsumer consumer) {
+        for (SerialConsumerPump pump : this.fConsumers) {
+            if (pump.getConsumer() == consumer) {
+                return pump;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of bytes received from the serial port
+     */
+    public long getReceivedBytes() {
+        return this.fReceivedData.getWrittenBytes();
+    }
+
+    /**
+     * @return the number of received bytes the consumer did not get because it
+     *         could not keep up
+     */
+    public long getLostBytes(MessageConsumer consumer) {
+        SerialConsumerPump pump = getPump(consumer);
+        return pump == null ? 0 : pump.getCursor().getLostBytes();
+    }
+
+    /**
+     * @return the number of times the consumer fell so far behind that received
+     *         bytes were lost
+     */
+    public long getOverflowCount(MessageConsumer consumer) {
+        SerialConsumerPump pump = getPump(consumer);
+        return pump == null ? 0 : pump.getCursor().getOverflows();
+    }
+
+    /**
+     * @return the largest number of received bytes that were waiting for the
+     *         consumer. When this gets close to the buffer capacity the consumer
+     *         is about to lose data.
+     */
+    public long getMaxBacklog(MessageConsumer consumer) {
+        SerialConsumerPump pump = getPump(consumer);
+        return pump == null ? 0 : pump.getCursor().getMaxBacklog();
+    }
+
+    public int getBufferCapacity() {
+        return this.fReceivedData.getCapacity();
     }
 
     public void connect() {
@@ -238,6 +293,10 @@ public class Serial implements SerialPortEventListener {
     public void dispose() {
         notifyConsumersOfEvent("Disconnect of port " + portName + " executed"); //$NON-NLS-1$ //$NON-NLS-2$
         disconnect();
+        for (SerialConsumerPump pump : this.fConsumers) {
+            pump.stopPumping();
+        }
+        this.fConsumers.clear();
 
         if (this.fServiceRegistration != null) {
             this.fServiceRegistration.unregister();
@@ -249,18 +308,15 @@ public class Serial implements SerialPortEventListener {
     }
 
     private void notifyConsumersOfData(byte[] message) {
-        if (this.fConsumers != null) {
-            for (MessageConsumer consumer : this.fConsumers) {
-                consumer.message(message);
-            }
+        this.fReceivedData.write(message);
+        for (SerialConsumerPump pump : this.fConsumers) {
+            pump.dataReceived();
         }
     }
 
     private void notifyConsumersOfEvent(String message) {
-        if (this.fConsumers != null) {
-            for (MessageConsumer consumer : this.fConsumers) {
-                consumer.event(message);
-            }
+        for (SerialConsumerPump pump : this.fConsumers) {
+            pump.event(message);
         }
     }
 
@@ -9,7 +9,6 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 
 import org.eclipse.cdt.core.CCProjectNature;
 import org.eclipse.cdt.core.CCorePlugin;
@@ -221,7 +220,7 @@ public class SloeberProject extends Common {
 					autoConf.setAutoBuildConfigurationExtensionDescription(sloeberConfiguration);
 
 					// Add the libraries
-					TreeMap<String, IArduinoLibraryVersion> availableLibs = LibraryManager
+					Map<String, IArduinoLibraryVersion> availableLibs = LibraryManager
 							.getLibrariesAll(boardDescriptor);
 					// find the libs we can add
 					Set<IArduinoLibraryVersion> toInstallLibs = new HashSet<>();
@@ -0,0 +1,408 @@
+package io.sloeber.core.builder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+
+import io.sloeber.autoBuild.api.AutoBuildCommon;
+import io.sloeber.autoBuild.api.IAutoBuildConfigurationDescription;
+import io.sloeber.autoBuild.api.IAutoBuildMakeRule;
+import io.sloeber.autoBuild.integration.AutoBuildConfigurationDescription;
+import io.sloeber.core.Activator;
+import io.sloeber.core.internal.SloeberConfiguration;
+
+/**
+ * A workspace wide store of compiled Arduino cores.
+ * Compiling the core is the biggest part of the first build of a project and
+ * the compiled core only depends on the board, the platform and the compile
+ * options. So when a project has build the core, new and cleaned projects with
+ * the same fingerprint get the objects and the archive of the core from this
+ * store instead of compiling them again.
+ *
+ * The fingerprint is a hash of the resolved recipes of the core compile rules
+ * and the archive rule (with the build folder replaced by a placeholder) and of
+ * the names, sizes and time stamps of the files in the core and variant
+ * folders. So any change to the commands that build the core (board, platform,
+ * tool options or recipe overrides) gives a new fingerprint while settings
+ * that do not end up in the commands (like the upload port) do not.
+ * The include paths of the libraries of the project are part of the compile
+ * recipes so only projects that use the same libraries share a core. The
+ * include paths are sorted so the order the libraries were added in does not
+ * matter.
+ *
+ * A core is only stored when the internal builder has build it. The internal
+ * builder records the recipes each target was build with so the core can be
+ * checked to be build with the recipes of the fingerprint. Make does not so a
+ * core build by make could have been build with other options.
+ *
+ * @author jan
+ *
+ */
+@SuppressWarnings("nls")
+public class CoreArchiveCache {
+	private static final String CACHE_FOLDER_NAME = "coreCache";
+	private static final String MANIFEST_FILE_NAME = "manifest";
+	private static final String VERSION_LINE = "#sloeber core cache 2";
+	private static final String BUILD_FOLDER_PLACEHOLDER = "${BUILD_FOLDER}";
+	private static final String ARCHIVER_TOOL_ID = "io.sloeber.tool.ar";
+	// A core takes between a few hundred KB and a few MB
+	private static final int MAX_ENTRIES = 30;
+
+	private final AutoBuildConfigurationDescription myAutoData;
+	private final SloeberConfiguration mySloeberConf;
+	private final Path myBuildFolder;
+	private final Set<IAutoBuildMakeRule> myCompileRules;
+	private final IAutoBuildMakeRule myArchiveRule;
+	private String myFingerprint = null;
+
+	private CoreArchiveCache(AutoBuildConfigurationDescription autoData, SloeberConfiguration sloeberConf,
+			Set<IAutoBuildMakeRule> compileRules, IAutoBuildMakeRule archiveRule) {
+		myAutoData = autoData;
+		mySloeberConf = sloeberConf;
+		myBuildFolder = autoData.getBuildFolder().getLocation().toPath();
+		myCompileRules = compileRules;
+		myArchiveRule = archiveRule;
+	}
+
+	/**
+	 * Get the core cache for a configuration
+	 *
+	 * @param autoData the configuration to build
+	 * @return the core cache or null when the configuration does not build an
+	 *         Arduino core archive
+	 */
+	public static CoreArchiveCache get(IAutoBuildConfigurationDescription autoData) {
+		if (!(autoData instanceof AutoBuildConfigurationDescription) || Activator.getDefault() == null) {
+			return null;
+		}
+		SloeberConfiguration sloeberConf = SloeberConfiguration.getFromAutoBuildConfDesc(autoData);
+		if (sloeberConf == null || sloeberConf.getBoardDescription() == null
+				|| sloeberConf.getCompileDescription() == null) {
+			return null;
+		}
+		AutoBuildConfigurationDescription autoBuildData = (AutoBuildConfigurationDescription) autoData;
+		IPath coreFolder = sloeberConf.getArduinoCoreFolder().getFullPath();
+		Set<IAutoBuildMakeRule> compileRules = new HashSet<>();
+		Set<IFile> objectFiles = new HashSet<>();
+		try {
+			for (IAutoBuildMakeRule curRule : autoBuildData.getMakeRules().getMakeRules()) {
+				for (IFile curPrerequisite : curRule.getPrerequisiteFiles()) {
+					if (coreFolder.isPrefixOf(curPrerequisite.getFullPath())) {
+						compileRules.add(curRule);
+						objectFiles.addAll(curRule.getTargetFiles());
+						break;
+					}
+				}
+			}
+			for (IAutoBuildMakeRule curRule : autoBuildData.getMakeRules().getMakeRules()) {
+				if (ARCHIVER_TOOL_ID.equals(curRule.getTool().getId())
+						&& objectFiles.equals(curRule.getPrerequisiteFiles())) {
+					return new CoreArchiveCache(autoBuildData, sloeberConf, compileRules, curRule);
+				}
+			}
+		} catch (CoreException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+	/**
+	 * Put the core from the store in the build folder.
+	 * This is only done when the build folder does not contain the core archive.
+	 *
+	 * @return true if the core has been put in the build folder
+	 */
+	public boolean restore() {
+		if (getArchiveFiles().stream().anyMatch(Files::exists)) {
+			return false;
+		}
+		Path entry = getStore().resolve(getFingerprint());
+		Path manifest = entry.resolve(MANIFEST_FILE_NAME);
+		List<String> fileNames;
+		try {
+			if (!Files.isRegularFile(manifest)) {
+				return false;
+			}
+			fileNames = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+		if (fileNames.isEmpty() || !VERSION_LINE.equals(fileNames.get(0))) {
+			return false;
+		}
+		fileNames = fileNames.subList(1, fileNames.size());
+		Set<String> requiredFileNames = new HashSet<>();
+		for (Path curFile : getObjectFiles()) {
+			requiredFileNames.add(toFileName(curFile));
+		}
+		for (Path curFile : getArchiveFiles()) {
+			requiredFileNames.add(toFileName(curFile));
+		}
+		if (!fileNames.containsAll(requiredFileNames)) {
+			return false;
+		}
+
+		// The files are restored in the order they were build so make sees them
+		// as up to date
+		List<Path> restoredFiles = new ArrayList<>();
+		try {
+			for (String curFileName : fileNames) {
+				Path source = entry.resolve(curFileName);
+				Path target = myBuildFolder.resolve(curFileName);
+				Files.createDirectories(target.getParent());
+				restoredFiles.add(target);
+				if (isDependencyFile(curFileName)) {
+					String content = Files.readString(source, StandardCharsets.UTF_8);
+					Files.writeString(target, content.replace(BUILD_FOLDER_PLACEHOLDER, myBuildFolder.toString()),
+							StandardCharsets.UTF_8);
+				} else {
+					Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+				}
+			}
+			Files.setLastModifiedTime(manifest, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			e.printStackTrace();
+			// Do not leave half a core behind
+			for (Path curFile : restoredFiles) {
+				try {
+					Files.deleteIfExists(curFile);
+				} catch (IOException e1) {
+					e1.printStackTrace();
+				}
+			}
+			return false;
+		}
+		AutoBuildCommon.setUpToDate(myAutoData, getRules());
+		return true;
+	}
+
+	/**
+	 * Put the core of the build folder in the store.
+	 * This is only done when the store does not contain the core yet and the
+	 * internal builder considers the core in the build folder up to date: all
+	 * the objects and the archive exist, have been build with the current
+	 * recipes and are newer than the sources and headers they are build from.
+	 * Only call this after a successful build by the internal builder.
+	 */
+	public void store() {
+		if (!AutoBuildCommon.isUpToDate(myAutoData, getRules())) {
+			return;
+		}
+		Path store = getStore();
+		Path entry = store.resolve(getFingerprint());
+		if (Files.exists(entry)) {
+			return;
+		}
+		Path tmpEntry = null;
+		try {
+			Files.createDirectories(store);
+			tmpEntry = Files.createTempDirectory(store, getFingerprint());
+			List<String> manifest = new ArrayList<>();
+			manifest.add(VERSION_LINE);
+			List<Path> files = new ArrayList<>(getObjectFiles());
+			files.addAll(getDependencyFiles());
+			files.addAll(getArchiveFiles());
+			for (Path curFile : files) {
+				String fileName = toFileName(curFile);
+				Path target = tmpEntry.resolve(fileName);
+				Files.createDirectories(target.getParent());
+				if (isDependencyFile(fileName)) {
+					String content = Files.readString(curFile, StandardCharsets.UTF_8);
+					Files.writeString(target, content.replace(myBuildFolder.toString(), BUILD_FOLDER_PLACEHOLDER),
+							StandardCharsets.UTF_8);
+				} else {
+					Files.copy(curFile, target);
+				}
+				manifest.add(fileName);
+			}
+			Files.write(tmpEntry.resolve(MANIFEST_FILE_NAME), manifest, StandardCharsets.UTF_8);
+			Files.move(tmpEntry, entry);
+			tmpEntry = null;
+		} catch (@SuppressWarnings("unused") FileAlreadyExistsException e) {
+			// an other build stored the same core
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			if (tmpEntry != null) {
+				FileUtils.deleteQuietly(tmpEntry.toFile());
+			}
+		}
+		evict(store);
+	}
+
+	/**
+	 * @return true if the store contains the core with the fingerprint of the
+	 *         configuration
+	 */
+	public boolean isStored() {
+		return Files.isRegularFile(getStore().resolve(getFingerprint()).resolve(MANIFEST_FILE_NAME));
+	}
+
+	private List<IAutoBuildMakeRule> getRules() {
+		List<IAutoBuildMakeRule> ret = new ArrayList<>(myCompileRules);
+		ret.add(myArchiveRule);
+		return ret;
+	}
+
+	/**
+	 * @return the fingerprint of the core of the configuration
+	 */
+	public String getFingerprint() {
+		if (myFingerprint != null) {
+			return myFingerprint;
+		}
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			StringBuilder input = new StringBuilder();
+			input.append(VERSION_LINE).append('\n');
+			addRecipes(input);
+			addFolder(input, mySloeberConf.getArduinoCoreFolder());
+			addFolder(input, mySloeberConf.getArduinoVariantFolder());
+			digest.update(input.toString().getBytes(StandardCharsets.UTF_8));
+			StringBuilder ret = new StringBuilder();
+			for (byte curByte : digest.digest()) {
+				ret.append(Character.forDigit((curByte >> 4) & 0xF, 16));
+				ret.append(Character.forDigit(curByte & 0xF, 16));
+			}
+			myFingerprint = ret.toString();
+		} catch (NoSuchAlgorithmException e) {
+			// every java implementation must support SHA-256
+			throw new IllegalStateException(e);
+		}
+		return myFingerprint;
+	}
+
+	/*
+	 * The recipes of the rules sorted so the order of the rules does not matter
+	 */
+	private void addRecipes(StringBuilder input) {
+		IFolder buildFolder = myAutoData.getBuildFolder();
+		List<String> recipes = new ArrayList<>();
+		for (IAutoBuildMakeRule curRule : myCompileRules) {
+			recipes.add(String.join("\n", curRule.getRecipes(buildFolder, myAutoData)));
+		}
+		recipes.sort(null);
+		recipes.add(String.join("\n", myArchiveRule.getRecipes(buildFolder, myAutoData)));
+		for (String curRecipe : recipes) {
+			input.append(curRecipe.replace(myBuildFolder.toString(), BUILD_FOLDER_PLACEHOLDER)).append('\n');
+		}
+	}
+
+	private static void addFolder(StringBuilder input, IFolder folder) {
+		IPath location = folder.getLocation();
+		if (location == null) {
+			return;
+		}
+		Path root = location.toPath();
+		input.append(root).append('\n');
+		if (!Files.isDirectory(root)) {
+			return;
+		}
+		try (Stream<Path> files = Files.walk(root)) {
+			for (Path curFile : files.sorted().collect(Collectors.toList())) {
+				BasicFileAttributes attributes = Files.readAttributes(curFile, BasicFileAttributes.class);
+				if (attributes.isRegularFile()) {
+					input.append(root.relativize(curFile)).append('\t').append(attributes.size()).append('\t')
+							.append(attributes.lastModifiedTime().toMillis()).append('\n');
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			// make sure this fingerprint does not match a complete one
+			input.append(e.getMessage()).append('\n');
+		}
+	}
+
+	/**
+	 * Remove the least recently used cores when there are too many
+	 */
+	private static void evict(Path store) {
+		List<Path> entries;
+		try (Stream<Path> files = Files.list(store)) {
+			entries = files.filter(curEntry -> Files.isRegularFile(curEntry.resolve(MANIFEST_FILE_NAME)))
+					.collect(Collectors.toList());
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		if (entries.size() <= MAX_ENTRIES) {
+			return;
+		}
+		entries.sort(Comparator.comparingLong(curEntry -> getTimeStamp(curEntry.resolve(MANIFEST_FILE_NAME))));
+		for (Path curEntry : entries.subList(0, entries.size() - MAX_ENTRIES)) {
+			FileUtils.deleteQuietly(curEntry.toFile());
+		}
+	}
+
+	private static Path getStore() {
+		return Activator.getDefault().getStateLocation().append(CACHE_FOLDER_NAME).toPath();
+	}
+
+	private List<Path> getObjectFiles() {
+		Set<IFile> ret = new LinkedHashSet<>();
+		for (IAutoBuildMakeRule curRule : myCompileRules) {
+			ret.addAll(curRule.getTargetFiles());
+		}
+		return toPaths(ret);
+	}
+
+	private List<Path> getDependencyFiles() {
+		Set<IFile> ret = new LinkedHashSet<>();
+		for (IAutoBuildMakeRule curRule : myCompileRules) {
+			ret.addAll(curRule.getDependencyFiles());
+		}
+		List<Path> paths = toPaths(ret);
+		paths.removeIf(curFile -> !Files.isRegularFile(curFile));
+		return paths;
+	}
+
+	private List<Path> getArchiveFiles() {
+		return toPaths(myArchiveRule.getTargetFiles());
+	}
+
+	private static List<Path> toPaths(Set<IFile> files) {
+		List<Path> ret = new ArrayList<>();
+		for (IFile curFile : files) {
+			ret.add(curFile.getLocation().toPath());
+		}
+		return ret;
+	}
+
+	private String toFileName(Path file) {
+		return myBuildFolder.relativize(file).toString();
+	}
+
+	private static boolean isDependencyFile(String fileName) {
+		return fileName.endsWith(".d");
+	}
+
+	private static long getTimeStamp(Path file) {
+		try {
+			return Files.getLastModifiedTime(file).toMillis();
+		} catch (@SuppressWarnings("unused") IOException e) {
+			return -1;
+		}
+	}
+}
@@ -0,0 +1,703 @@
+package io.sloeber.core.builder;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+
+/**
+ * Finds the parts of a ino file that need to be added to the sloeber.ino.cpp
+ * file:
+ * the includes, defines and global variables up to the last include and the
+ * prototypes of the functions.
+ * The prototypes are wrapped in the conditionals (#if #else ...) the functions
+ * are defined in so only the prototypes of the active branches are used.
+ *
+ * This is a lightweight tokenizer that only looks at the top level of the file.
+ * It does not need the indexer so the ino files can be processed while the
+ * indexer is busy.
+ * The result is cached per file and only recalculated when the content of the
+ * file changes.
+ *
+ * @author jan
+ *
+ */
+@SuppressWarnings("nls")
+public class InoFileParser {
+	private static final String NEWLINE = "\n";
+	private static final Set<String> SKIP_DECLARATION_KEYWORDS = new HashSet<>(Arrays.asList("typedef", "using",
+			"template", "static_assert", "friend", "namespace", "class", "struct", "union", "enum", "extern",
+			"static", "constexpr", "auto", "return"));
+	private static final Set<String> TYPE_KEYWORDS = new HashSet<>(
+			Arrays.asList("class", "struct", "union", "enum"));
+	private static final Pattern ATTRIBUTE = Pattern
+			.compile("(__attribute__\\s*\\(\\((?:[^()]|\\([^()]*\\))*\\)\\)|alignas\\s*\\([^()]*\\))");
+	private static final Pattern DECLARATOR = Pattern.compile("([A-Za-z_]\\w*)\\s*((?:\\[[^\\]]*\\]\\s*)*)$");
+
+	private static final Map<String, CachedInfo> myCache = new ConcurrentHashMap<>();
+
+	private enum BlockKind {
+		FUNCTION, EXTERN_C, TYPE, INITIALIZER, OTHER
+	}
+
+	private enum DirectiveKind {
+		INCLUDE, DEFINE, CONDITIONAL, OTHER
+	}
+
+	/**
+	 * The result of parsing a ino file
+	 */
+	public static class InoFileInfo {
+		private final String myDeclarations;
+		private final String myPrototypes;
+
+		InoFileInfo(String declarations, String prototypes) {
+			myDeclarations = declarations;
+			myPrototypes = prototypes;
+		}
+
+		/**
+		 * @return the includes, defines, conditionals and extern declarations of the
+		 *         global variables found before the last include
+		 */
+		public String getDeclarations() {
+			return myDeclarations;
+		}
+
+		/**
+		 * @return the prototypes of the functions defined in the file
+		 */
+		public String getPrototypes() {
+			return myPrototypes;
+		}
+	}
+
+	private static class CachedInfo {
+		final byte[] myHash;
+		final InoFileInfo myInfo;
+
+		CachedInfo(byte[] hash, InoFileInfo info) {
+			myHash = hash;
+			myInfo = info;
+		}
+	}
+
+	/*
+	 * something found before the last include
+	 */
+	private static class HeaderItem {
+		final int myLine;
+		final DirectiveKind myKind;
+		final String myText;
+		final boolean myIsExternC;
+
+		HeaderItem(int line, DirectiveKind kind, String text, boolean isExternC) {
+			myLine = line;
+			myKind = kind;
+			myText = text;
+			myIsExternC = isExternC;
+		}
+	}
+
+	private static class Prototype {
+		final String mySignature;
+		final List<List<String>> myConditionals;
+
+		Prototype(String signature, List<List<String>> conditionals) {
+			mySignature = signature;
+			myConditionals = conditionals;
+		}
+	}
+
+	private final String myContent;
+	private final int myLength;
+	private int myPos = 0;
+	private int myLine = 1;
+	private boolean myIsLineStart = true;
+	private int myBraceDepth = 0;
+	private int myParenDepth = 0;
+	private BlockKind myBlockKind = BlockKind.OTHER;
+	private StringBuilder myStatement = new StringBuilder();
+	private int myStatementLine = 1;
+	private boolean myIsTypeDefinition = false;
+	private int myLastIncludeLine = 0;
+	private final List<HeaderItem> myHeaderItems = new ArrayList<>();
+	// the open conditionals. Each has the directives from the #if up to the
+	// current branch
+	private final List<List<String>> myConditionals = new ArrayList<>();
+	private final List<Prototype> myPrototypes = new ArrayList<>();
+
+	private InoFileParser(String content) {
+		myContent = content;
+		myLength = content.length();
+	}
+
+	/**
+	 * Get the parts of a ino file needed in the sloeber.ino.cpp file.
+	 * The file is only parsed when its content changed since the last call.
+	 *
+	 * @param inoFile the ino or pde file
+	 * @return the parts found in the file
+	 * @throws IOException   when the file can not be read
+	 * @throws CoreException when the charset of the file can not be determined
+	 */
+	public static InoFileInfo getFileInfo(IFile inoFile) throws IOException, CoreException {
+		IPath location = inoFile.getLocation();
+		if (location == null) {
+			throw new IOException("No local file for " + inoFile.getFullPath());
+		}
+		byte[] content = Files.readAllBytes(location.toPath());
+		byte[] hash = getHash(content);
+		String key = location.toOSString();
+		CachedInfo cached = myCache.get(key);
+		if (cached != null && Arrays.equals(cached.myHash, hash)) {
+			return cached.myInfo;
+		}
+		Charset charset = Charset.defaultCharset();
+		try {
+			charset = Charset.forName(inoFile.getCharset());
+		} catch (IllegalArgumentException e) {
+			e.printStackTrace();
+		}
+		InoFileInfo ret = parse(new String(content, charset));
+		if (hash != null) {
+			myCache.put(key, new CachedInfo(hash, ret));
+		}
+		return ret;
+	}
+
+	/**
+	 * Parse the content of a ino file
+	 *
+	 * @param content the content of the ino file
+	 * @return the parts found in the content
+	 */
+	public static InoFileInfo parse(String content) {
+		InoFileParser parser = new InoFileParser(content);
+		parser.parse();
+		return new InoFileInfo(parser.getDeclarations(), parser.getPrototypes());
+	}
+
+	private static byte[] getHash(byte[] content) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(content);
+		} catch (NoSuchAlgorithmException e) {
+			// Every java implementation has SHA-256; just do not cache
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	private void parse() {
+		while (myPos < myLength) {
+			char c = myContent.charAt(myPos);
+			if (c == '\n') {
+				myLine++;
+				myIsLineStart = true;
+				appendSpace();
+				myPos++;
+				continue;
+			}
+			if (Character.isWhitespace(c)) {
+				appendSpace();
+				myPos++;
+				continue;
+			}
+			if (c == '/' && peek(1) == '/') {
+				skipLineComment();
+				continue;
+			}
+			if (c == '/' && peek(1) == '*') {
+				skipBlockComment();
+				appendSpace();
+				continue;
+			}
+			if (c == '#' && myIsLineStart) {
+				readDirective();
+				continue;
+			}
+			myIsLineStart = false;
+			if (c == '"' || (c == '\'' && !isDigitSeparator())) {
+				int start = myPos;
+				skipLiteral();
+				if (myBraceDepth == 0) {
+					append(myContent.substring(start, myPos));
+				}
+				continue;
+			}
+			myPos++;
+			if (myBraceDepth > 0) {
+				if (c == '{') {
+					myBraceDepth++;
+				} else if (c == '}') {
+					myBraceDepth--;
+					if (myBraceDepth == 0) {
+						endBlock();
+					}
+				}
+				continue;
+			}
+			switch (c) {
+			case '{':
+				startBlock();
+				break;
+			case '}':
+				// unbalanced; start over
+				resetStatement();
+				break;
+			case ';':
+				if (myParenDepth == 0) {
+					endStatement();
+				} else {
+					append(c);
+				}
+				break;
+			case '(':
+				myParenDepth++;
+				append(c);
+				break;
+			case ')':
+				myParenDepth = Math.max(0, myParenDepth - 1);
+				append(c);
+				break;
+			default:
+				append(c);
+			}
+		}
+	}
+
+	private char peek(int offset) {
+		int pos = myPos + offset;
+		return pos < myLength ? myContent.charAt(pos) : 0;
+	}
+
+	private boolean isDigitSeparator() {
+		return myPos > 0 && Character.isDigit(myContent.charAt(myPos - 1))
+				&& Character.isLetterOrDigit(peek(1));
+	}
+
+	private void skipLineComment() {
+		while (myPos < myLength && myContent.charAt(myPos) != '\n') {
+			myPos++;
+		}
+	}
+
+	private void skipBlockComment() {
+		int end = myContent.indexOf("*/", myPos + 2);
+		end = end < 0 ? myLength : end + 2;
+		for (int curPos = myPos; curPos < end; curPos++) {
+			if (myContent.charAt(curPos) == '\n') {
+				myLine++;
+				myIsLineStart = true;
+			}
+		}
+		myPos = end;
+	}
+
+	/*
+	 * Skip a string or character literal including raw strings
+	 */
+	private void skipLiteral() {
+		char quote = myContent.charAt(myPos);
+		if (quote == '"' && myPos > 0 && myContent.charAt(myPos - 1) == 'R') {
+			int open = myContent.indexOf('(', myPos);
+			if (open > 0) {
+				String terminator = ")" + myContent.substring(myPos + 1, open) + "\"";
+				int end = myContent.indexOf(terminator, open);
+				end = end < 0 ? myLength : end + terminator.length();
+				for (int curPos = myPos; curPos < end; curPos++) {
+					if (myContent.charAt(curPos) == '\n') {
+						myLine++;
+					}
+				}
+				myPos = end;
+				return;
+			}
+		}
+		myPos++;
+		while (myPos < myLength) {
+			char c = myContent.charAt(myPos);
+			if (c == '\\') {
+				myPos += 2;
+			} else if (c == '\n') {
+				// unterminated literal
+				return;
+			} else {
+				myPos++;
+				if (c == quote) {
+					return;
+				}
+			}
+		}
+		myPos = Math.min(myPos, myLength);
+	}
+
+	/*
+	 * Read a preprocessor directive with its continuation lines. Comments are
+	 * removed. The newline ending the directive is not consumed.
+	 */
+	private void readDirective() {
+		int startLine = myLine;
+		StringBuilder text = new StringBuilder();
+		while (myPos < myLength) {
+			char c = myContent.charAt(myPos);
+			if (c == '\n') {
+				break;
+			}
+			if (c == '\\' && (peek(1) == '\n' || (peek(1) == '\r' && peek(2) == '\n'))) {
+				text.append("\\\n");
+				myPos += peek(1) == '\r' ? 3 : 2;
+				myLine++;
+				continue;
+			}
+			if (c == '/' && peek(1) == '/') {
+				skipLineComment();
+				break;
+			}
+			if (c == '/' && peek(1) == '*') {
+				skipBlockComment();
+				text.append(' ');
+				continue;
+			}
+			if (c == '"' || (c == '\'' && !isDigitSeparator())) {
+				int start = myPos;
+				skipLiteral();
+				text.append(myContent, start, myPos);
+				continue;
+			}
+			text.append(c);
+			myPos++;
+		}
+		String directive = text.toString().strip();
+		DirectiveKind kind = getDirectiveKind(directive);
+		if (kind == DirectiveKind.OTHER) {
+			return;
+		}
+		if (kind == DirectiveKind.CONDITIONAL) {
+			updateConditionals(directive);
+		}
+		boolean isExternC = myBraceDepth > 0 && myBlockKind == BlockKind.EXTERN_C;
+		myHeaderItems.add(new HeaderItem(startLine, kind, directive, isExternC));
+		if (kind == DirectiveKind.INCLUDE) {
+			myLastIncludeLine = startLine;
+		}
+	}
+
+	private static String getDirectiveName(String directive) {
+		String name = directive.substring(1).stripLeading();
+		int end = 0;
+		while (end < name.length() && Character.isLetter(name.charAt(end))) {
+			end++;
+		}
+		return name.substring(0, end);
+	}
+
+	private static DirectiveKind getDirectiveKind(String directive) {
+		switch (getDirectiveName(directive)) {
+		case "include":
+		case "include_next":
+			return DirectiveKind.INCLUDE;
+		case "define":
+		case "undef":
+			return DirectiveKind.DEFINE;
+		case "if":
+		case "ifdef":
+		case "ifndef":
+		case "elif":
+		case "elifdef":
+		case "elifndef":
+		case "else":
+		case "endif":
+			return DirectiveKind.CONDITIONAL;
+		default:
+			return DirectiveKind.OTHER;
+		}
+	}
+
+	private void updateConditionals(String directive) {
+		switch (getDirectiveName(directive)) {
+		case "if":
+		case "ifdef":
+		case "ifndef":
+			List<String> newConditional = new ArrayList<>();
+			newConditional.add(directive);
+			myConditionals.add(newConditional);
+			break;
+		case "endif":
+			if (!myConditionals.isEmpty()) {
+				myConditionals.remove(myConditionals.size() - 1);
+			}
+			break;
+		default:
+			// #elif and #else start a new branch of the open conditional
+			if (!myConditionals.isEmpty()) {
+				myConditionals.get(myConditionals.size() - 1).add(directive);
+			}
+		}
+	}
+
+	private void append(char c) {
+		if (myStatement.length() == 0) {
+			myStatementLine = myLine;
+		}
+		myStatement.append(c);
+	}
+
+	private void append(String text) {
+		if (myStatement.length() == 0) {
+			myStatementLine = myLine;
+		}
+		myStatement.append(text);
+	}
+
+	private void appendSpace() {
+		if (myBraceDepth == 0 && myStatement.length() > 0
+				&& myStatement.charAt(myStatement.length() - 1) != ' ') {
+			myStatement.append(' ');
+		}
+	}
+
+	private void resetStatement() {
+		myStatement.setLength(0);
+		myParenDepth = 0;
+		myIsTypeDefinition = false;
+	}
+
+	private void startBlock() {
+		String statement = myStatement.toString().strip();
+		myBraceDepth = 1;
+		if (myParenDepth > 0) {
+			myBlockKind = BlockKind.INITIALIZER;
+		} else if (statement.equals("extern \"C\"")) {
+			myBlockKind = BlockKind.EXTERN_C;
+		} else if (statement.matches("(inline\\s+)?namespace\\b.*") || statement.startsWith("extern ")
+				&& !statement.contains("(")) {
+			myBlockKind = BlockKind.OTHER;
+		} else {
+			String withoutAttributes = ATTRIBUTE.matcher(statement).replaceAll(" ");
+			int open = withoutAttributes.indexOf('(');
+			if (open < 0) {
+				myBlockKind = isTypeDefinition(withoutAttributes) ? BlockKind.TYPE : BlockKind.INITIALIZER;
+			} else if (withoutAttributes.substring(0, open).contains("=")) {
+				myBlockKind = BlockKind.INITIALIZER;
+			} else {
+				myBlockKind = BlockKind.FUNCTION;
+				addPrototype(statement);
+			}
+		}
+		if (myBlockKind == BlockKind.TYPE) {
+			myIsTypeDefinition = true;
+		}
+	}
+
+	private void endBlock() {
+		switch (myBlockKind) {
+		case TYPE:
+			break;
+		case INITIALIZER:
+			myStatement.append("{}");
+			break;
+		default:
+			resetStatement();
+		}
+	}
+
+	private static boolean isTypeDefinition(String statement) {
+		for (String curWord : statement.split("[^\\w]+")) {
+			if (TYPE_KEYWORDS.contains(curWord)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Like before functions with default values (or other assignments), class
+	 * functions and templates do not get a prototype
+	 */
+	private void addPrototype(String signature) {
+		if (signature.contains("=") || signature.contains("::") || signature.startsWith("template")) {
+			return;
+		}
+		List<List<String>> conditionals = new ArrayList<>();
+		for (List<String> curConditional : myConditionals) {
+			conditionals.add(new ArrayList<>(curConditional));
+		}
+		myPrototypes.add(new Prototype(signature, conditionals));
+	}
+
+	/*
+	 * The prototypes in the branches of the conditionals they were found in.
+	 * Prototypes in the same branch share the conditionals.
+	 */
+	private String getPrototypes() {
+		StringBuilder ret = new StringBuilder();
+		List<List<String>> openConditionals = new ArrayList<>();
+		for (Prototype curPrototype : myPrototypes) {
+			if (!curPrototype.myConditionals.equals(openConditionals)) {
+				closeConditionals(ret, openConditionals);
+				openConditionals = curPrototype.myConditionals;
+				for (List<String> curConditional : openConditionals) {
+					for (String curDirective : curConditional) {
+						ret.append(curDirective).append(NEWLINE);
+					}
+				}
+			}
+			ret.append(curPrototype.mySignature).append(';').append(NEWLINE);
+		}
+		closeConditionals(ret, openConditionals);
+		return ret.toString();
+	}
+
+	private static void closeConditionals(StringBuilder ret, List<List<String>> conditionals) {
+		for (int curConditional = 0; curConditional < conditionals.size(); curConditional++) {
+			ret.append("#endif").append(NEWLINE);
+		}
+	}
+
+	private void endStatement() {
+		String statement = myStatement.toString().strip();
+		int line = myStatementLine;
+		boolean isTypeDefinition = myIsTypeDefinition;
+		resetStatement();
+		if (statement.isEmpty() || isTypeDefinition) {
+			return;
+		}
+		String firstWord = statement.split("[^\\w]", 2)[0];
+		if (SKIP_DECLARATION_KEYWORDS.contains(firstWord)) {
+			return;
+		}
+		List<String> declarators = splitDeclarators(ATTRIBUTE.matcher(statement).replaceAll(" "));
+		String baseType = null;
+		for (String curDeclarator : declarators) {
+			String declarator = removeInitializer(curDeclarator);
+			if (declarator == null) {
+				// a function declaration
+				return;
+			}
+			Matcher matcher = DECLARATOR.matcher(declarator);
+			if (!matcher.find()) {
+				return;
+			}
+			String name = matcher.group(1);
+			String arraySuffix = matcher.group(2).replace(" ", "");
+			String type = declarator.substring(0, matcher.start()).strip();
+			if (baseType == null) {
+				baseType = type.replaceAll("[*&\\s]+$", "");
+				if (baseType.isEmpty()) {
+					// not a declaration
+					return;
+				}
+			} else {
+				type = baseType + " " + type;
+			}
+			// ignore double arrays
+			if (arraySuffix.indexOf('[') != arraySuffix.lastIndexOf('[')) {
+				continue;
+			}
+			myHeaderItems.add(new HeaderItem(line, DirectiveKind.OTHER,
+					"extern " + type.strip() + " " + name + arraySuffix + ";", false));
+		}
+	}
+
+	/*
+	 * Split a declaration on the commas that are not nested
+	 */
+	private static List<String> splitDeclarators(String statement) {
+		List<String> ret = new ArrayList<>();
+		int depth = 0;
+		int start = 0;
+		for (int curPos = 0; curPos < statement.length(); curPos++) {
+			char c = statement.charAt(curPos);
+			if (c == '(' || c == '[' || c == '{' || c == '<') {
+				depth++;
+			} else if (c == ')' || c == ']' || c == '}' || c == '>') {
+				depth--;
+			} else if (c == ',' && depth == 0) {
+				ret.add(statement.substring(start, curPos));
+				start = curPos + 1;
+			}
+		}
+		ret.add(statement.substring(start));
+		return ret;
+	}
+
+	/*
+	 * Remove the initializer from a declarator.
+	 * returns null when the declarator is a function declaration
+	 */
+	private static String removeInitializer(String declarator) {
+		int depth = 0;
+		for (int curPos = 0; curPos < declarator.length(); curPos++) {
+			char c = declarator.charAt(curPos);
+			if (c == '<' || c == '[') {
+				depth++;
+			} else if (c == '>' || c == ']') {
+				depth--;
+			} else if (depth == 0) {
+				if (c == '=' || c == '{') {
+					return declarator.substring(0, curPos);
+				}
+				if (c == '(') {
+					// Servo myServo(9); is a variable void foo(int bar); is not
+					String arguments = declarator.substring(curPos + 1).stripLeading();
+					if (arguments.isEmpty() || !isLiteralStart(arguments.charAt(0))) {
+						return null;
+					}
+					return declarator.substring(0, curPos);
+				}
+			}
+		}
+		return declarator;
+	}
+
+	private static boolean isLiteralStart(char c) {
+		return Character.isDigit(c) || c == '"' || c == '\'' || c == '-' || c == '+' || c == '.';
+	}
+
+	/*
+	 * The includes, defines, conditionals and variables up to the last include.
+	 * Conditionals that are still open at the last include are closed
+	 */
+	private String getDeclarations() {
+		StringBuilder ret = new StringBuilder();
+		int openConditionals = 0;
+		for (HeaderItem curItem : myHeaderItems) {
+			if (curItem.myLine > myLastIncludeLine) {
+				continue;
+			}
+			if (curItem.myKind == DirectiveKind.CONDITIONAL) {
+				if (curItem.myText.matches("#\\s*if.*")) {
+					openConditionals++;
+				} else if (curItem.myText.matches("#\\s*endif.*")) {
+					openConditionals--;
+				}
+			}
+			if (curItem.myIsExternC) {
+				ret.append("extern \"C\" {").append(NEWLINE);
+				ret.append(curItem.myText).append(NEWLINE);
+				ret.append("}").append(NEWLINE);
+			} else {
+				ret.append(curItem.myText).append(NEWLINE);
+			}
+		}
+		for (; openConditionals > 0; openConditionals--) {
+			ret.append("#endif").append(NEWLINE);
+		}
+		return ret.toString();
+	}
+}
@@ -32,22 +32,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import org.eclipse.cdt.core.CCorePlugin;
-import org.eclipse.cdt.core.dom.ast.IASTDeclaration;
-import org.eclipse.cdt.core.dom.ast.IASTNode;
-import org.eclipse.cdt.core.dom.ast.IASTTranslationUnit;
-import org.eclipse.cdt.core.dom.ast.cpp.ICPPASTLinkageSpecification;
-import org.eclipse.cdt.core.index.IIndex;
-import org.eclipse.cdt.core.model.CoreModel;
-import org.eclipse.cdt.core.model.ICElement;
-import org.eclipse.cdt.core.model.ICProject;
-import org.eclipse.cdt.core.model.IInclude;
-import org.eclipse.cdt.core.model.IMacro;
-import org.eclipse.cdt.core.model.ITranslationUnit;
-import org.eclipse.cdt.core.model.IVariable;
 import org.eclipse.cdt.core.settings.model.ICSourceEntry;
 import org.eclipse.cdt.core.settings.model.util.CDataUtil;
-import org.eclipse.cdt.internal.core.dom.parser.cpp.CPPASTFunctionDefinition;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
@@ -56,12 +42,12 @@ import org.eclipse.core.resources.IResourceProxy;
 import org.eclipse.core.resources.IResourceProxyVisitor;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
-import org.eclipse.core.runtime.Path;
 
 import io.sloeber.autoBuild.api.IAutoBuildConfigurationDescription;
+import io.sloeber.core.builder.InoFileParser.InoFileInfo;
 import io.sloeber.core.tools.Helpers;
 
-@SuppressWarnings({ "nls", "restriction" })
+@SuppressWarnings("nls")
 public class InoPreprocessor {
 	private static String generatedFileName = "sloeber.ino.cpp";
 	private static final String DEFINE_IN_ECLIPSE = "__IN_ECLIPSE__";
@@ -69,11 +55,10 @@ public class InoPreprocessor {
 	private static Map<IProject, IFile> projectInoFiles = new HashMap<>();
 	private static final Set<String> ARDUINO_EXTENSIONS = new HashSet<>(Arrays.asList("ino", "pde"));
 
-	public static void generateSloeberInoCPPFile(boolean canSkip, IAutoBuildConfigurationDescription autoBuildConfDesc,
+	public static void generateSloeberInoCPPFile(IAutoBuildConfigurationDescription autoBuildConfDesc,
 			IProgressMonitor monitor) throws CoreException {
 
 		// loop through all the files in the project to see we need to generate a file
-		// This way we can avoid hitting the indexer when we use .cpp files
 		IProject iProject = autoBuildConfDesc.getProject();
 		List<IFile> inoResources = getInoFiles(autoBuildConfDesc);
 		IFile generatedFile = getSloeberInoCPPFile(autoBuildConfDesc);
@@ -87,64 +72,48 @@ public class InoPreprocessor {
 			}
 			return;
 		}
-		if (canSkip && !CCorePlugin.getIndexManager().isIndexerIdle())
-			return;
-		ICProject tt = CoreModel.getDefault().create(iProject);
-		IIndex index = CCorePlugin.getIndexManager().getIndex(tt);
 
-		try {
+		StringBuilder methodDeclarations = new StringBuilder();
+		StringBuilder includeInoPart = new StringBuilder(NEWLINE);
+		StringBuilder header = new StringBuilder();
+		header.append("//This is a automatic generated file" + NEWLINE);
+		header.append("//Please do not modify this file" + NEWLINE);
+		header.append("//If you touch this file your change will be overwritten during the next build" + NEWLINE);
+		// adding the generation timestamp forces a rebuild of sloeber.ino.cpp each and
+		// every time
+//		header += "//This file has been generated on ";
+//		header += new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+		header.append(NEWLINE);
+		header.append(NEWLINE);
+		header.append("#include \"Arduino.h\"" + NEWLINE);
+
+		String projectNameDot = iProject.getName() + DOT;
+		// loop through all the files in the project
+		for (IFile curFile : inoResources) {
+			InoFileInfo inoFileInfo;
 			try {
-				index.acquireReadLock();
-			} catch (InterruptedException e) {
-				// ignore
-				e.printStackTrace();
-				return;
+				inoFileInfo = InoFileParser.getFileInfo(curFile);
+			} catch (IOException e) {
+				methodDeclarations.append(fileNotReadContent(curFile, e));
+				continue;
 			}
-
-			String methodDeclarations = new String();
-			String includeInoPart = NEWLINE;
-			String header = "//This is a automatic generated file" + NEWLINE;
-			header += "//Please do not modify this file" + NEWLINE;
-			header += "//If you touch this file your change will be overwritten during the next build" + NEWLINE;
-			// adding the generation timestamp forces a rebuild of sloeber.ino.cpp each and
-			// every time
-//			header += "//This file has been generated on ";
-//			header += new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
-			header += NEWLINE;
-			header += NEWLINE;
-			header += "#include \"Arduino.h\"" + NEWLINE;
-
-			String projectNameDot = iProject.getName() + DOT;
-			// loop through all the files in the project
-			for (IResource curResource : inoResources) {
-				// check whether the indexer is properly configured.
-				// IPath path = curResource.getFullPath();
-				IFile curFile = (IFile) curResource;
-				ITranslationUnit tu = (ITranslationUnit) CoreModel.getDefault().create(curFile);
-				if (tu == null) {
-					methodDeclarations = methodDeclarations + fileNotFoundContent(curResource);
-				} else {
-					// if the name of the ino/pde file matches the project put
-					// the file in front
-					// Otherwise add it to the end
-					if (curResource.getName().equals(projectNameDot + curResource.getFileExtension())) {
-						// This is the ino file with the same name as the project
-						// so put it first and generate the generate file name
-						includeInoPart = getIncludedInoPartForFile(curFile) +NEWLINE+ includeInoPart;
-						methodDeclarations = getdMethodDeclarationsForFile(index, tu) + methodDeclarations;
-						header = getExternCMethodDeclarations(index, tu) + header;
-					} else {
-						includeInoPart = includeInoPart +NEWLINE+ getIncludedInoPartForFile(curFile);
-						methodDeclarations = methodDeclarations + getdMethodDeclarationsForFile(index, tu);
-						header = header + getExternCMethodDeclarations(index, tu);
-					}
-				}
+			// if the name of the ino/pde file matches the project put
+			// the file in front
+			// Otherwise add it to the end
+			if (curFile.getName().equals(projectNameDot + curFile.getFileExtension())) {
+				// This is the ino file with the same name as the project
+				// so put it first and generate the generate file name
+				includeInoPart.insert(0, getIncludedInoPartForFile(curFile) + NEWLINE);
+				methodDeclarations.insert(0, inoFileInfo.getPrototypes());
+				header.insert(0, inoFileInfo.getDeclarations());
+			} else {
+				includeInoPart.append(NEWLINE).append(getIncludedInoPartForFile(curFile));
+				methodDeclarations.append(inoFileInfo.getPrototypes());
+				header.append(inoFileInfo.getDeclarations());
 			}
-			writeTheGeneratedFile(generatedFile, header + NEWLINE + methodDeclarations + NEWLINE + includeInoPart,
-					monitor);
-		} finally {
-			index.releaseReadLock();
 		}
+		writeTheGeneratedFile(generatedFile, header + NEWLINE + methodDeclarations + NEWLINE + includeInoPart,
+				monitor);
 	}
 
 	private static  boolean resourceFound=false;
@@ -275,125 +244,12 @@ public class InoPreprocessor {
 		}
 	}
 
-	private static String getdMethodDeclarationsForFile(IIndex index, ITranslationUnit tu) throws CoreException {
-		// add declarations made in ino files.
-		String localBody = new String();
-		IASTTranslationUnit asttu = tu.getAST(index,
-				ITranslationUnit.AST_SKIP_FUNCTION_BODIES | ITranslationUnit.AST_SKIP_ALL_HEADERS);
-		IASTNode astNodes[] = asttu.getChildren();
-		for (IASTNode astNode : astNodes) {
-			if (astNode instanceof CPPASTFunctionDefinition) {
-				String addString = astNode.getRawSignature();
-				addString = addString.replace("\r\n", NEWLINE);
-				addString = addString.replace("\r", NEWLINE);
-				addString = addString.replaceAll("//[^\n]+\n", " ");
-				addString = addString.replace("\n", " ");
-				addString = addString.replaceAll("\\{.*\\}", "");
-				if (addString.contains("=") || addString.contains("::")) {
-					// ignore when there are assignments in the
-					// declaration
-					// or when it is a class function
-				} else {
-					localBody += addString + ';' + NEWLINE;
-				}
-
-			}
-		}
-		return localBody;
-
-	}
-
-	private static String getExternCMethodDeclarations(IIndex index, ITranslationUnit tu) throws CoreException {
-		String localHeader = new String();
-		// Locate All lines that are extern "C"
-		HashMap<Integer, Integer> externCLines = new HashMap<>();
-		IASTTranslationUnit astTuTest = tu.getAST(index, ITranslationUnit.AST_SKIP_ALL_HEADERS);
-		IASTDeclaration[] topDeclaratons = astTuTest.getDeclarations();
-		for (IASTDeclaration curTopDeclaration : topDeclaratons) {
-
-			ICPPASTLinkageSpecification test = curTopDeclaration instanceof ICPPASTLinkageSpecification
-					? (ICPPASTLinkageSpecification) curTopDeclaration
-					: null;
-			if (test != null) {
-				if (test.getLiteral().equals("\"C\"")) {
-					Path curFile = new Path(curTopDeclaration.getContainingFilename());
-					if (curFile.equals(tu.getFile().getLocation())) {
-						int startLine = test.getFileLocation().getStartingLineNumber();
-						int endLine = test.getFileLocation().getEndingLineNumber();
-						for (int curline = startLine; curline <= endLine; curline++) {
-							externCLines.put(Integer.valueOf(curline), null);
-						}
-					}
-				}
-			}
-		}
-
-		// find the last line containing a include
-		IInclude includes[] = tu.getIncludes();
-		int lastHeaderLine = 0;
-		for (IInclude include : includes) {
-			int curHeaderLine = include.getSourceRange().getEndLine();
-			lastHeaderLine = Math.max(lastHeaderLine, curHeaderLine);
-		}
-
-		// parse line by line until all includes have been parsed
-		for (int curline = 1; curline <= lastHeaderLine; curline++) {
-			ICElement curElement = tu.getElementAtLine(curline);
-			if (curElement != null) {
-				switch (curElement.getElementType()) {
-				case ICElement.C_MACRO:
-					IMacro curMacro = (IMacro) curElement;
-					if (curMacro.isActive()) {
-						localHeader += curMacro.getSource() + NEWLINE;
-					}
-					break;
-				case ICElement.C_VARIABLE:
-					IVariable curVardeclar = (IVariable) curElement;
-					if (curVardeclar.isActive()) {
-						String fullTypeName = curVardeclar.getTypeName();
-						// ignore double arrays
-						if (fullTypeName.indexOf('[') == fullTypeName.lastIndexOf('[')) {
-							String typeName = fullTypeName.replace('[', ' ').replace(']', ' ').trim();
-							String typeExtensions = fullTypeName.replace(typeName, "");
-							localHeader += "extern " + typeName + " " + curVardeclar.getElementName() + typeExtensions
-									+ ";" + NEWLINE;
-						}
-					}
-					break;
-				case ICElement.C_INCLUDE:
-					IInclude curInclude = (IInclude) curElement;
-
-					int curHeaderLine = curInclude.getSourceRange().getStartLine();
-					if (curInclude.isActive()) {
-						if (externCLines.containsKey(Integer.valueOf(curHeaderLine))) {
-							localHeader += "extern \"C\" {" + NEWLINE;
-							localHeader += curInclude.getSource() + NEWLINE;
-							localHeader += "}" + NEWLINE;
-						} else {
-
-							localHeader += curInclude.getSource();
-							localHeader += NEWLINE;
-						}
-					}
-					break;
-				default:
-					break;
-				}
-			}
-		}
-		return localHeader;
-	}
-
-	// the indexer is not properly configured so drop a
+	// the ino file could not be read so drop a
 	// error in the file
-	private static String fileNotFoundContent(IResource curResource) {
+	private static String fileNotReadContent(IResource curResource, IOException e) {
 		String localBody = NEWLINE;
-		localBody += "#error the file: " + curResource.getName()
-				+ " is not found in the indexer though it exists on the file system." + NEWLINE;
-		localBody += "#error this is probably due to a bad eclipse configuration : ino and pde are not marked as c++ file."
-				+ NEWLINE;
-		localBody += "#error please check whether *.ino and *.pde are marked as C++ source code in windows->preferences->C/C++->file types."
-				+ NEWLINE;
+		localBody += "#error the file: " + curResource.getName() + " could not be read: "
+				+ String.valueOf(e.getMessage()).replace(NEWLINE, " ") + NEWLINE;
 		return localBody;
 	}
 
@@ -13,6 +13,7 @@ import org.apache.commons.io.FileUtils;
 import org.eclipse.cdt.core.IMarkerGenerator;
 import org.eclipse.cdt.core.resources.IConsole;
 import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 
@@ -28,9 +29,12 @@ import io.sloeber.autoBuild.schema.api.IBuilder;
 import io.sloeber.core.Messages;
 import io.sloeber.core.api.Common;
 import io.sloeber.core.internal.SloeberConfiguration;
+import io.sloeber.core.toolchain.SloeberConfigurationVariableSupplier;
 import io.sloeber.core.tools.Helpers;
 
 public class SloeberBuilderExtension extends AutoBuildBuilderExtension {
+	// print how often the environment variables have been asked for after each build
+	public static boolean VERBOSE = false;
 
 	@Override
 	public String[] modifyRecipes(AutoBuildConfigurationDescription autoBuildConfData,IAutoBuildMakeRule autoBuildMakeRule, String[] buildRecipes) {
@@ -68,8 +72,6 @@ public class SloeberBuilderExtension extends AutoBuildBuilderExtension {
 		if (sloeberInoCppFile != null && sloeberInoCppFile.exists()) {
 			makeRules.getSourceFilesToBuild().add(sloeberInoCppFile);
 		}
-		generateAwkFile(autoBuildConfData);
-		generateArduinoSizeCommandFile(autoBuildConfData);
 
 		super.beforeAddingSourceRules(makeRules, autoBuildConfData);
 	}
@@ -80,11 +82,45 @@ public class SloeberBuilderExtension extends AutoBuildBuilderExtension {
 	@Override
 	public boolean invokeBuild(IBuilder builder, int kind, String targetName, IAutoBuildConfigurationDescription autoData,
 			IMarkerGenerator markerGenerator, IConsole console, IProgressMonitor monitor) throws CoreException {
-		InoPreprocessor.generateSloeberInoCPPFile(false, autoData, monitor);
+		InoPreprocessor.generateSloeberInoCPPFile(autoData, monitor);
+		// The make rules are kept between builds so the generated files can not
+		// be made when the make rules are made
+		IFile sloeberInoCppFile = InoPreprocessor.getSloeberInoCPPFile(autoData);
+		if (sloeberInoCppFile != null && autoData instanceof AutoBuildConfigurationDescription) {
+			((AutoBuildConfigurationDescription) autoData).updateGeneratedSourceFile(sloeberInoCppFile);
+		}
+		generateAwkFile(autoData);
+		generateArduinoSizeCommandFile(autoData);
 		if (builder.getId().equals(AutoBuildProject.MAKE_BUILDER_ID)) {
 			generateExtensionMakeFile(autoData);
 		}
-		return super.invokeBuild(builder, kind,targetName, autoData, markerGenerator, console, monitor);
+		// New and cleaned projects take the core from the core cache
+		CoreArchiveCache coreCache = CoreArchiveCache.get(autoData);
+		if (coreCache != null && kind != IncrementalProjectBuilder.CLEAN_BUILD) {
+			coreCache.restore();
+		}
+		boolean ret = super.invokeBuild(builder, kind, targetName, autoData, markerGenerator, console, monitor);
+		// Only the internal builder records the recipes the core has been build with
+		// so only then the core is known to match its fingerprint
+		boolean isCanceled = monitor != null && monitor.isCanceled();
+		if (coreCache != null && kind != IncrementalProjectBuilder.CLEAN_BUILD && !isCanceled
+				&& builder.getId().equals(AutoBuildProject.INTERNAL_BUILDER_ID)) {
+			coreCache.store();
+		}
+		if (VERBOSE) {
+			showEnvironmentStatistics();
+		}
+		return ret;
+	}
+
+	/*
+	 * Show how often the environment variables have been asked for and
+	 * recalculated since the start of eclipse
+	 */
+	private static void showEnvironmentStatistics() {
+		System.out.println("Environment variables: " + SloeberConfigurationVariableSupplier.getVariableCalls() //$NON-NLS-1$
+				+ " single and " + SloeberConfigurationVariableSupplier.getVariablesCalls() //$NON-NLS-1$
+				+ " full requests, " + SloeberConfigurationVariableSupplier.getRebuilds() + " recalculations"); //$NON-NLS-1$ //$NON-NLS-2$
 	}
 
 	private static void generateExtensionMakeFile(IAutoBuildConfigurationDescription autoData) {
@@ -0,0 +1,124 @@
+package io.sloeber.core.communication;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import io.sloeber.core.api.MessageConsumer;
+import io.sloeber.core.api.Serial;
+
+/**
+ * Feeds the received data and the events to one consumer on a thread of its
+ * own so a slow consumer does not block the serial port nor the other
+ * consumers.
+ * An event remembers how many bytes had been received when it happened. The
+ * data received before the event is passed to the consumer before the event
+ * and the data received after the event after it.
+ */
+public class SerialConsumerPump extends Thread {
+    // wake up now and then even without notification
+    private static final long MAX_WAIT = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final SerialRingBuffer myReceivedData;
+    private final MessageConsumer myConsumer;
+    private final SerialRingBuffer.Cursor myCursor;
+    private final Queue<PendingEvent> myEvents = new ConcurrentLinkedQueue<>();
+    private volatile boolean myIsStopped = false;
+
+    private static class PendingEvent {
+        final String myEvent;
+        // the number of bytes received before the event
+        final long myPosition;
+
+        PendingEvent(String event, long position) {
+            myEvent = event;
+            myPosition = position;
+        }
+    }
+
+    /**
+     * @param receivedData the buffer the received data is written to
+     * @param consumer     the consumer to feed
+     * @param portName     the name of the serial port; only used to name the
+     *                     thread
+     */
+    public SerialConsumerPump(SerialRingBuffer receivedData, MessageConsumer consumer, String portName) {
+        super("Serial " + portName + " consumer"); //$NON-NLS-1$ //$NON-NLS-2$
+        setDaemon(true);
+        myReceivedData = receivedData;
+        myConsumer = consumer;
+        myCursor = receivedData.new Cursor();
+    }
+
+    public MessageConsumer getConsumer() {
+        return myConsumer;
+    }
+
+    /**
+     * @return the read position and statistics of the consumer
+     */
+    public SerialRingBuffer.Cursor getCursor() {
+        return myCursor;
+    }
+
+    /**
+     * Pass an event to the consumer after the data received so far
+     */
+    public void event(String event) {
+        myEvents.add(new PendingEvent(event, myReceivedData.getWrittenBytes()));
+        LockSupport.unpark(this);
+    }
+
+    /**
+     * Tell the pump new data has been written to the buffer
+     */
+    public void dataReceived() {
+        LockSupport.unpark(this);
+    }
+
+    /**
+     * Stop the pump after passing the data received so far to the consumer
+     */
+    public void stopPumping() {
+        myIsStopped = true;
+        LockSupport.unpark(this);
+    }
+
+    @Override
+    public void run() {
+        while (!myIsStopped) {
+            if (!pump()) {
+                LockSupport.parkNanos(this, MAX_WAIT);
+            }
+        }
+        // deliver what was received before the stop
+        pump();
+    }
+
+    /**
+     * @return true if something was passed to the consumer
+     */
+    private boolean pump() {
+        boolean ret = false;
+        try {
+            PendingEvent event;
+            while ((event = myEvents.poll()) != null) {
+                byte[] data = myCursor.read(event.myPosition);
+                if (data != null) {
+                    myConsumer.message(data);
+                }
+                myConsumer.event(event.myEvent);
+                ret = true;
+            }
+            byte[] data = myCursor.read();
+            if (data != null) {
+                myConsumer.message(data);
+                ret = true;
+            }
+        } catch (RuntimeException e) {
+            Serial.errorMessage("consumer", e); //$NON-NLS-1$
+        }
+        return ret;
+    }
+}
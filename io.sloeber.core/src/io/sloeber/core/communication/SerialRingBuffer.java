@@ -0,0 +1,180 @@
+package io.sloeber.core.communication;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * A byte ring buffer with one producer (the thread reading the serial port)
+ * and multiple consumers that each read at their own pace.
+ * <p>
+ * The producer never waits for the consumers. When a consumer falls more than
+ * the capacity of the buffer behind the oldest bytes are overwritten and the
+ * consumer skips them. The skipped bytes are counted per consumer so a slow
+ * consumer only makes itself lose data.
+ * <p>
+ * No locks are used. The producer first claims the range it is going to
+ * write, then writes the bytes and then publishes them. A consumer copies the
+ * published bytes and afterwards checks the claimed position to find out
+ * whether some of the copied bytes were overwritten while copying.
+ */
+public class SerialRingBuffer {
+    // about 5 seconds of data at 2 Mbaud
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    private final byte[] myBuffer;
+    private final int myMask;
+    // all bytes before this position have been written
+    private volatile long myWritePosition = 0;
+    // all bytes from this position onwards may be being written
+    private volatile long myClaimPosition = 0;
+
+    /**
+     * The read position and statistics of one consumer.
+     * A cursor must only be used by one thread.
+     */
+    public class Cursor {
+        private long myReadPosition;
+        private volatile long myLostBytes = 0;
+        private volatile long myOverflows = 0;
+        private volatile long myMaxBacklog = 0;
+
+        public Cursor() {
+            // a new consumer only gets the data received from now on
+            myReadPosition = myWritePosition;
+        }
+
+        /**
+         * Get all the bytes received since the previous call.
+         *
+         * @return the bytes or null if there are no new bytes
+         */
+        public byte[] read() {
+            return read(myWritePosition);
+        }
+
+        /**
+         * Get the bytes received since the previous call up to a position.
+         *
+         * @param limit the position (see {@link SerialRingBuffer#getWrittenBytes()})
+         *              to stop reading at
+         * @return the bytes or null if there are no new bytes before the limit
+         */
+        public byte[] read(long limit) {
+            long writePosition = Math.min(limit, myWritePosition);
+            long readPosition = myReadPosition;
+            long backlog = writePosition - readPosition;
+            if (backlog <= 0) {
+                return null;
+            }
+            if (backlog > myMaxBacklog) {
+                myMaxBacklog = backlog;
+            }
+            // the bytes that were overwritten before the copy started
+            long lostBytes = 0;
+            if (backlog > myBuffer.length) {
+                lostBytes = backlog - myBuffer.length;
+                readPosition = writePosition - myBuffer.length;
+            }
+            byte[] ret = copy(readPosition, writePosition);
+            // make sure the bytes are read before the claim position
+            VarHandle.acquireFence();
+            // the bytes that were overwritten while copying
+            long overwritten = Math.min(Math.max(myClaimPosition - myBuffer.length - readPosition, 0), ret.length);
+            myReadPosition = writePosition;
+            if (lostBytes + overwritten > 0) {
+                // one overrun no matter how many bytes it cost
+                lose(lostBytes + overwritten);
+            }
+            if (overwritten == 0) {
+                return ret;
+            }
+            if (overwritten == ret.length) {
+                return null;
+            }
+            return Arrays.copyOfRange(ret, (int) overwritten, ret.length);
+        }
+
+        public boolean hasData() {
+            return myWritePosition != myReadPosition;
+        }
+
+        private void lose(long numBytes) {
+            myLostBytes = myLostBytes + numBytes;
+            myOverflows = myOverflows + 1;
+        }
+
+        /**
+         * @return the number of bytes this consumer skipped because it was too slow
+         */
+        public long getLostBytes() {
+            return myLostBytes;
+        }
+
+        /**
+         * @return the number of times this consumer had to skip bytes
+         */
+        public long getOverflows() {
+            return myOverflows;
+        }
+
+        /**
+         * @return the largest number of bytes this consumer has been behind
+         */
+        public long getMaxBacklog() {
+            return myMaxBacklog;
+        }
+    }
+
+    public SerialRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2));
+        if (size < capacity) {
+            size = size << 1;
+        }
+        myBuffer = new byte[size];
+        myMask = size - 1;
+    }
+
+    /**
+     * Add bytes to the buffer. Must only be called by the producer thread.
+     */
+    public void write(byte[] data) {
+        int offset = 0;
+        int length = data.length;
+        if (length > myBuffer.length) {
+            // only the last part can be kept
+            offset = length - myBuffer.length;
+            length = myBuffer.length;
+        }
+        long writePosition = myWritePosition + offset;
+        long newWritePosition = writePosition + length;
+        myClaimPosition = newWritePosition;
+        // make sure the claim is visible before the bytes are overwritten
+        VarHandle.storeStoreFence();
+        int start = (int) (writePosition & myMask);
+        int firstPart = Math.min(length, myBuffer.length - start);
+        System.arraycopy(data, offset, myBuffer, start, firstPart);
+        System.arraycopy(data, offset + firstPart, myBuffer, 0, length - firstPart);
+        myWritePosition = newWritePosition;
+    }
+
+    private byte[] copy(long from, long to) {
+        int length = (int) (to - from);
+        byte[] ret = new byte[length];
+        int start = (int) (from & myMask);
+        int firstPart = Math.min(length, myBuffer.length - start);
+        System.arraycopy(myBuffer, start, ret, 0, firstPart);
+        System.arraycopy(myBuffer, 0, ret, firstPart, length - firstPart);
+        return ret;
+    }
+
+    /**
+     * @return the total number of bytes written to the buffer
+     */
+    public long getWrittenBytes() {
+        return myWritePosition;
+    }
+
+    public int getCapacity() {
+        return myBuffer.length;
+    }
+}
@@ -63,7 +63,8 @@ public class SloeberConfiguration extends AutoBuildConfigurationExtensionDescrip
 	private boolean myMemoryIsDirty = true;
 
 	// derived data
-	private Map<String, String> myEnvironmentVariables = new HashMap<>();
+	private volatile Map<String, String> myEnvironmentVariables = new HashMap<>();
+	private volatile int myEnvironmentVariablesVersion = 0;
 
 	public static SloeberConfiguration getFromAutoBuildConfDesc(IAutoBuildConfigurationDescription autoBuildConfData) {
 		return (SloeberConfiguration) autoBuildConfData.getAutoBuildConfigurationExtensionDescription();
@@ -119,7 +120,7 @@ public class SloeberConfiguration extends AutoBuildConfigurationExtensionDescrip
 	@Override
 	public void setOtherDescription(OtherDescription newOtherDesc) {
 		if (myOtherDesc != null && myOtherDesc.needsRebuild(newOtherDesc)) {
-			getAutoBuildDescription().forceCleanBeforeBuild();
+			getAutoBuildDescription().forceRebuildOfChangedRecipes();
 		}
 		myOtherDesc = new OtherDescription(newOtherDesc);
 		setIsDirty();
@@ -133,7 +134,7 @@ public class SloeberConfiguration extends AutoBuildConfigurationExtensionDescrip
 	@Override
 	public void setCompileDescription(CompileDescription newCompDesc) {
 		if (myCompileDescription != null && myCompileDescription.needsRebuild(newCompDesc)) {
-			getAutoBuildDescription().forceCleanBeforeBuild();
+			getAutoBuildDescription().forceRebuildOfChangedRecipes();
 		}
 		myCompileDescription = new CompileDescription(newCompDesc);
 		setIsDirty();
@@ -201,6 +202,13 @@ public class SloeberConfiguration extends AutoBuildConfigurationExtensionDescrip
 		return myEnvironmentVariables;
 	}
 
+	@Override
+	public int getEnvironmentVariablesVersion() {
+		configureWhenDirty();
+
+		return myEnvironmentVariablesVersion;
+	}
+
 	private void configureWhenDirty() {
 		if (myMemoryIsDirty) {
 			myMemoryIsDirty = getEnvVarsNonExpanding();
@@ -254,43 +262,47 @@ public class SloeberConfiguration extends AutoBuildConfigurationExtensionDescrip
 	 * @return true when data was missing
 	 */
 	private boolean getEnvVarsNonExpanding() {
-		myEnvironmentVariables.clear();
+		// Build a new map so readers never see a half filled map
+		Map<String, String> envVars = new HashMap<>();
 
-		myEnvironmentVariables.put(ENV_KEY_BUILD_PATH,
+		envVars.put(ENV_KEY_BUILD_PATH,
 				getProject().getFolder(getAutoBuildDescription().getBuildFolderString()).getLocation().toOSString());
 
-		myEnvironmentVariables.put(ENV_KEY_BUILD_SOURCE_PATH, getCodeLocation().toOSString());
+		envVars.put(ENV_KEY_BUILD_SOURCE_PATH, getCodeLocation().toOSString());
 //			myEnvironmentVariables.put(ENV_KEY_BUILD_PATH,
 //					getAutoBuildDescription().getBuildFolder().getLocation().toOSString());
 
 		if (myBoardDescription != null) {
-			myEnvironmentVariables.putAll(myBoardDescription.getEnvVars());
+			envVars.putAll(myBoardDescription.getEnvVars());
 		}
 		if (myCompileDescription != null) {
-			myEnvironmentVariables.putAll(myCompileDescription.getEnvVars());
+			envVars.putAll(myCompileDescription.getEnvVars());
 		}
 		if (myOtherDesc != null) {
-			myEnvironmentVariables.putAll(myOtherDesc.getEnvVars());
+			envVars.putAll(myOtherDesc.getEnvVars());
 		}
 		// set the paths
 		String pathDelimiter = makeEnvironmentVar("PathDelimiter"); //$NON-NLS-1$
 		if (isWindows) {
-			myEnvironmentVariables.put(SLOEBER_MAKE_LOCATION,
+			envVars.put(SLOEBER_MAKE_LOCATION,
 					ConfigurationPreferences.getMakePath().addTrailingSeparator().toOSString());
-			myEnvironmentVariables.put(SLOEBER_AWK_LOCATION,
+			envVars.put(SLOEBER_AWK_LOCATION,
 					ConfigurationPreferences.getAwkPath().addTrailingSeparator().toOSString());
 
 			String systemroot = makeEnvironmentVar("SystemRoot"); //$NON-NLS-1$
-			myEnvironmentVariables.put("PATH", //$NON-NLS-1$
+			envVars.put("PATH", //$NON-NLS-1$
 					makeEnvironmentVar(ENV_KEY_COMPILER_PATH) + pathDelimiter
 								+ makeEnvironmentVar(ENV_KEY_BUILD_GENERIC_PATH) + pathDelimiter + systemroot
 								+ "\\system32" //$NON-NLS-1$
 							+ pathDelimiter + systemroot + pathDelimiter + systemroot + "\\system32\\Wbem" //$NON-NLS-1$
 							+ pathDelimiter + makeEnvironmentVar("sloeber_path_extension")); //$NON-NLS-1$
 		} else {
-			myEnvironmentVariables.put("PATH", makeEnvironmentVar(ENV_KEY_COMPILER_PATH) + pathDelimiter //$NON-NLS-1$
+			envVars.put("PATH", makeEnvironmentVar(ENV_KEY_COMPILER_PATH) + pathDelimiter //$NON-NLS-1$
 					+ makeEnvironmentVar(ENV_KEY_BUILD_GENERIC_PATH) + pathDelimiter + makeEnvironmentVar("PATH")); //$NON-NLS-1$
 		}
+		myEnvironmentVariables = envVars;
+		// only now the map is complete readers may use it under the new version
+		myEnvironmentVariablesVersion++;
 		return (myBoardDescription == null) || (myCompileDescription == null) || (myOtherDesc == null);
 	}
 
@@ -426,7 +438,7 @@ public class SloeberConfiguration extends AutoBuildConfigurationExtensionDescrip
 	@Override
 	public void setBoardDescription(BoardDescription boardDescription) {
 		if (myBoardDescription != null && myBoardDescription.needsRebuild(boardDescription)) {
-			getAutoBuildDescription().forceCleanBeforeBuild();
+			getAutoBuildDescription().forceRebuildOfChangedRecipes();
 		}
 		myBoardDescription = new BoardDescription(boardDescription);
 		setIsDirty();
@@ -487,14 +499,18 @@ public class SloeberConfiguration extends AutoBuildConfigurationExtensionDescrip
 
 	@Override
 	public Set<IFolder> getIncludeFolders() {
-		Set<IFolder> ret = new HashSet<>();
+		// keep the order the same for each call so the compile commands (and
+		// thus the core cache fingerprint) do not change
+		Set<IFolder> ret = new LinkedHashSet<>();
 		ret.add(getArduinoCoreFolder());
 		if (myBoardDescription.getActualVariantPath() != null) {
 			ret.add(getArduinoVariantFolder());
 		}
 		try {
 			if (getArduinoLibraryFolder().exists()) {
-				for (IResource curMember : getArduinoLibraryFolder().members()) {
+				IResource[] members = getArduinoLibraryFolder().members();
+				Arrays.sort(members, Comparator.comparing(IResource::getName));
+				for (IResource curMember : members) {
 					if (curMember instanceof IFolder) {
 						IFolder curFolder = (IFolder) curMember;
 						IFolder srcFolder = curFolder.getFolder(SRC_FODER);
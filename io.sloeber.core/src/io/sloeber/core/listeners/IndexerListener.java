@@ -32,6 +32,7 @@ import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.core.runtime.Status;
 
+import io.sloeber.arduinoFramework.api.BoardDescription;
 import io.sloeber.arduinoFramework.api.IArduinoLibraryVersion;
 import io.sloeber.arduinoFramework.api.LibraryManager;
 import io.sloeber.core.Activator;
@@ -45,8 +46,6 @@ import io.sloeber.core.common.InstancePreferences;
 public class IndexerListener implements IIndexChangeListener, IIndexerStateListener {
 	private static Set<IProject> newChangedProjects = new HashSet<>();
 
-	private static Map<String, String> myIncludeHeaderReplacement;
-
 	@Override
 	public void indexChanged(IIndexChangeEvent event) {
 		if (!InstancePreferences.getAutomaticallyImportLibraries()) {
@@ -115,52 +114,38 @@ public class IndexerListener implements IIndexChangeListener, IIndexerStateListe
 			return false;
 		}
 
-		for (Map.Entry<String, String> entry : getIncludeHeaderReplacement().entrySet()) {
-			if (UnresolvedIncludedHeaders.contains(entry.getKey())) {
-				UnresolvedIncludedHeaders.remove(entry.getKey());
-				UnresolvedIncludedHeaders.add(entry.getValue());
-			}
-		}
-
-		Map<String, IArduinoLibraryVersion> availableLibs = LibraryManager.getLibrariesAll(SloeberCfg.getBoardDescription());
+		BoardDescription boardDescriptor = SloeberCfg.getBoardDescription();
+		IInstallLibraryHandler installHandler = LibraryManager.getInstallLibraryHandler();
+		boolean installLibraries = ConfigurationPreferences.getInstallLibraries() && installHandler.autoInstall();
+		Map<String, IArduinoLibraryVersion> foundLibs = LibraryManager.getLibrariesForHeaders(UnresolvedIncludedHeaders,
+				boardDescriptor, installLibraries);
 
 		//Check wether we need to download and install libraries
-		IInstallLibraryHandler installHandler = LibraryManager.getInstallLibraryHandler();
-		if (ConfigurationPreferences.getInstallLibraries() && installHandler.autoInstall()) {
-			// Check if there are libraries that are not found in
-			// the installed libraries
-			Set<String> uninstalledIncludedHeaders = new TreeSet<>(UnresolvedIncludedHeaders);
-			for(IArduinoLibraryVersion curlib:availableLibs.values()) {
-				uninstalledIncludedHeaders.remove(curlib.getName());
+		Map<String, IArduinoLibraryVersion> uninstalledLibs = new TreeMap<>();
+		for (IArduinoLibraryVersion curlib : foundLibs.values()) {
+			if (!curlib.isInstalled()) {
+				uninstalledLibs.put(curlib.getName(), curlib);
 			}
-			//uninstalledIncludedHeaders.removeAll(availableLibs.keySet());
-			if (!uninstalledIncludedHeaders.isEmpty()) {
-				// some libraries may need to be installed
-
-				Map<String, IArduinoLibraryVersion> toInstallLibs = LibraryManager
-						.getLatestInstallableLibraries(uninstalledIncludedHeaders);
-
-				if (!toInstallLibs.isEmpty()) {
-					// Ask the user which libs need installing
-					toInstallLibs = installHandler.selectLibrariesToInstall(toInstallLibs);
-					for (Entry<String, IArduinoLibraryVersion> curLib : toInstallLibs.entrySet()) {
-						LibraryManager.install(curLib.getValue(), new NullProgressMonitor());
-					}
-					//As libraries have been installed update the lst of available libraries
-					availableLibs= LibraryManager.getLibrariesAll(SloeberCfg.getBoardDescription());
-				}
+		}
+		if (!uninstalledLibs.isEmpty()) {
+			// Ask the user which libs need installing
+			Map<String, IArduinoLibraryVersion> selectedLibs = installHandler.selectLibrariesToInstall(uninstalledLibs);
+			for (Entry<String, IArduinoLibraryVersion> curLib : selectedLibs.entrySet()) {
+				LibraryManager.install(curLib.getValue(), new NullProgressMonitor());
 			}
 		}
 
 		//find the libs we can add
-		String toInstallLibString=new String();
 		Set< IArduinoLibraryVersion> toInstallLibs=new HashSet<>();
-		for(IArduinoLibraryVersion curlib:availableLibs.values()) {
-			if(UnresolvedIncludedHeaders.contains(curlib.getName())) {
+		for(IArduinoLibraryVersion curlib:foundLibs.values()) {
+			if (curlib.isInstalled()) {
 				toInstallLibs.add(curlib);
-				toInstallLibString=toInstallLibString+SPACE+curlib.getFQN();
 			}
 		}
+		String toInstallLibString=new String();
+		for(IArduinoLibraryVersion curlib:toInstallLibs) {
+			toInstallLibString=toInstallLibString+SPACE+curlib.getFQN();
+		}
 		boolean ret =false;
 		if (!toInstallLibs.isEmpty()) {
 			// there are possible libraries to add
@@ -202,75 +187,4 @@ public class IndexerListener implements IIndexChangeListener, IIndexerStateListe
 		return ret;
 	}
 
-	private static Map<String, String> getIncludeHeaderReplacement() {
-		if (myIncludeHeaderReplacement == null) {
-			myIncludeHeaderReplacement = buildincludeHeaderReplacementMap();
-		}
-		return myIncludeHeaderReplacement;
-	}
-
-	/**
-	 * Builds a map of includes->libraries for all headers not mapping libraryname.h
-	 * If a include is found more than once in the libraries it is not added to the
-	 * list If a library has to many includes it is ignored
-	 *
-	 * @return
-	 */
-	private static Map<String, String> buildincludeHeaderReplacementMap() {
-
-		Map<String, String> map = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-//		LinkedList<String> doubleHeaders = new LinkedList<>();
-//		TreeMap<String, IPath> libraries = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-//
-//		libraries.putAll(findAllArduinoManagerLibraries());
-//		libraries.putAll(findAllPrivateLibraries());
-//		for (Entry<String, IPath> CurItem : libraries.entrySet()) {
-//			IPath sourcePath = CurItem.getValue();
-//			String curLibName = CurItem.getKey();
-//			if (sourcePath.append(SRC_FODER).toFile().exists()) {
-//				sourcePath = sourcePath.append(SRC_FODER);
-//			}
-//			File[] allHeaderFiles = sourcePath.toFile().listFiles(new FilenameFilter() {
-//				@Override
-//				public boolean accept(File dir, String name) {
-//					return name.toLowerCase().endsWith(".h"); //$NON-NLS-1$
-//				}
-//			});
-//			if (Arrays.stream(allHeaderFiles).anyMatch(new File(curLibName + ".h")::equals)) { //$NON-NLS-1$
-//				// if (ArrayUtils.contains(allHeaderFiles, new File(curLibName + ".h"))) {
-//				// //$NON-NLS
-//				// We found a one to one match make sure others do not
-//				// overrule
-//				doubleHeaders.add(curLibName);
-//				map.remove(curLibName + ".h"); //$NON-NLS-1$
-//			} else if (allHeaderFiles.length <= 10) { // Ignore libraries with
-//														// to many headers
-//				for (File CurFile : allHeaderFiles) {
-//					String curInclude = CurFile.getName().substring(0, CurFile.getName().length() - 2);
-//
-//					// here we have a lib using includes that do not map the
-//					// folder name
-//					if ((map.get(curInclude) == null) && (!doubleHeaders.contains(curInclude))) {
-//						map.put(curInclude, curLibName);
-//					} else {
-//						doubleHeaders.add(curInclude);
-//						map.remove(curInclude);
-//					}
-//				}
-//			}
-//		}
-//		// return KeyValue.makeMap(
-//		// "AFMotor=Adafruit_Motor_Shield_library\nAdafruit_MotorShield=Adafruit_Motor_Shield_V2_Library\nAdafruit_Simple_AHRS=Adafruit_AHRS\nAdafruit_ADS1015=Adafruit_ADS1X15\nAdafruit_ADXL345_U=Adafruit_ADXL345\n\nAdafruit_LSM303_U=Adafruit_LSM303DLHC\nAdafruit_BMP085_U=Adafruit_BMP085_Unified\nAdafruit_BLE=Adafruit_BluefruitLE_nRF51");
-//		// //$NON-NLS-1$
-//		// add adrfruit sensor as this lib is highly used and the header is in
-//		// libs
-//		map.put("Adafruit_Sensor", "Adafruit_Unified_Sensor"); //$NON-NLS-1$ //$NON-NLS-2$
-//		// remove the common hardware libraries so they will never be redirected
-//		map.remove("SPI"); //$NON-NLS-1$
-//		map.remove("SoftwareSerial"); //$NON-NLS-1$
-//		map.remove("HID"); //$NON-NLS-1$
-//		map.remove("EEPROM"); //$NON-NLS-1$
-		return map;
-	}
-
 }
@@ -1,8 +1,11 @@
 package io.sloeber.core.toolchain;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.eclipse.cdt.core.envvar.EnvironmentVariable;
 import org.eclipse.cdt.core.envvar.IEnvironmentVariable;
@@ -12,60 +15,120 @@ import io.sloeber.arduinoFramework.api.BoardsManager;
 import io.sloeber.autoBuild.api.IEnvironmentVariableProvider;
 import io.sloeber.core.api.ISloeberConfiguration;
 
+/**
+ * Provides the environment variables of the sloeber configurations to CDT.
+ * CDT asks for the environment variables very often (during builds and
+ * indexing) so the environment variables are kept per configuration till the
+ * environment variables of the configuration or the workbench change.
+ */
 public class SloeberConfigurationVariableSupplier implements IEnvironmentVariableProvider {
+    private static final IEnvironmentVariable[] NO_VARIABLES = new IEnvironmentVariable[0];
 
-    @Override
-    public IEnvironmentVariable getVariable(String variableName, ICConfigurationDescription configuration,
-            boolean resolveMacros) {
-        String ret = null;
-        if (configuration == null) {
-            return null;
+    private static final Map<ISloeberConfiguration, Snapshot> mySnapshots = Collections
+            .synchronizedMap(new WeakHashMap<>());
+    // The snapshot used when the configuration is not a sloeber configuration
+    private static volatile Snapshot myWorkbenchSnapshot;
+
+    private static final AtomicLong myGetVariableCalls = new AtomicLong();
+    private static final AtomicLong myGetVariablesCalls = new AtomicLong();
+    private static final AtomicLong myRebuilds = new AtomicLong();
+
+    private static class Snapshot {
+        final int myCfgVersion;
+        final int myWorkbenchVersion;
+        final IEnvironmentVariable[] myVariables;
+        final Map<String, IEnvironmentVariable> myIndex;
+
+        Snapshot(int cfgVersion, int workbenchVersion, Map<String, String> workbenchVars,
+                Map<String, String> cfgVars) {
+            myCfgVersion = cfgVersion;
+            myWorkbenchVersion = workbenchVersion;
+            Map<String, IEnvironmentVariable> index = new HashMap<>();
+            addVariables(index, workbenchVars);
+            // the configuration overrules the workbench
+            addVariables(index, cfgVars);
+            myIndex = index;
+            myVariables = index.values().toArray(NO_VARIABLES);
         }
-        ISloeberConfiguration sloeberCfg = ISloeberConfiguration.getConfig(configuration);
-        if (sloeberCfg != null) {
-            Map<String, String> sloeberCfgEnvVars = sloeberCfg.getEnvironmentVariables();
-            if (null != sloeberCfgEnvVars) {
-                ret = sloeberCfgEnvVars.get(variableName);
+
+        private static void addVariables(Map<String, IEnvironmentVariable> index, Map<String, String> vars) {
+            if (vars == null) {
+                return;
+            }
+            for (Entry<String, String> curVar : vars.entrySet()) {
+                //TOFIX Take resolveMacros into account here
+                index.put(curVar.getKey(), new EnvironmentVariable(curVar.getKey(), curVar.getValue()));
             }
         }
-        if (ret == null) {
-            // when the configuration doesn't hold the env var maybe the workbench does
-            ret = BoardsManager.getEnvironmentVariables().get(variableName);
+
+        boolean isUpToDate(int cfgVersion, int workbenchVersion) {
+            return myCfgVersion == cfgVersion && myWorkbenchVersion == workbenchVersion;
         }
-        if (ret == null) {
+    }
+
+    @Override
+    public IEnvironmentVariable getVariable(String variableName, ICConfigurationDescription configuration,
+            boolean resolveMacros) {
+        myGetVariableCalls.incrementAndGet();
+        if (configuration == null) {
             return null;
         }
-        //TOFIX I should take the resolveMacros parameter into account
-        return new EnvironmentVariable(variableName, ret);
+        return getSnapshot(configuration).myIndex.get(variableName);
     }
 
     @Override
     public IEnvironmentVariable[] getVariables(ICConfigurationDescription configuration, boolean resolveMacros) {
+        myGetVariablesCalls.incrementAndGet();
         if (configuration == null) {
-            return new IEnvironmentVariable[0];
-        }
-
-        Map<String, String> retVars = new HashMap<>();
-        Map<String, String> workbenchVars = BoardsManager.getEnvironmentVariables();
-        if (workbenchVars != null) {
-            retVars.putAll(workbenchVars);
+            return NO_VARIABLES;
         }
+        // The snapshot is shared so the caller gets its own array
+        return getSnapshot(configuration).myVariables.clone();
+    }
 
+    private static Snapshot getSnapshot(ICConfigurationDescription configuration) {
+        int workbenchVersion = BoardsManager.getEnvironmentVariablesVersion();
         ISloeberConfiguration sloeberCfg = ISloeberConfiguration.getConfig(configuration);
-        if (sloeberCfg != null) {
-            Map<String, String> sloeberCfgEnvVars = sloeberCfg.getEnvironmentVariables();
-            if (sloeberCfgEnvVars != null) {
-                retVars.putAll(sloeberCfgEnvVars);
+        if (sloeberCfg == null) {
+            Snapshot ret = myWorkbenchSnapshot;
+            if (ret == null || !ret.isUpToDate(0, workbenchVersion)) {
+                myRebuilds.incrementAndGet();
+                ret = new Snapshot(0, workbenchVersion, BoardsManager.getEnvironmentVariables(), null);
+                myWorkbenchSnapshot = ret;
             }
+            return ret;
         }
-
-        EnvironmentVariable[] ret = new EnvironmentVariable[retVars.size()];
-        int i = 0;
-        for (Entry<String, String> curVar : retVars.entrySet()) {
-            //TOFIX Take resolveMacros into account here
-            ret[i++] = new EnvironmentVariable(curVar.getKey(), curVar.getValue());
+        int cfgVersion = sloeberCfg.getEnvironmentVariablesVersion();
+        Snapshot ret = mySnapshots.get(sloeberCfg);
+        if (ret == null || !ret.isUpToDate(cfgVersion, workbenchVersion)) {
+            myRebuilds.incrementAndGet();
+            ret = new Snapshot(cfgVersion, workbenchVersion, BoardsManager.getEnvironmentVariables(),
+                    sloeberCfg.getEnvironmentVariables());
+            mySnapshots.put(sloeberCfg, ret);
         }
         return ret;
     }
 
+    /**
+     * @return the number of times a single environment variable has been asked for
+     */
+    public static long getVariableCalls() {
+        return myGetVariableCalls.get();
+    }
+
+    /**
+     * @return the number of times all environment variables have been asked for
+     */
+    public static long getVariablesCalls() {
+        return myGetVariablesCalls.get();
+    }
+
+    /**
+     * @return the number of times the environment variables of a configuration
+     *         have been (re)calculated
+     */
+    public static long getRebuilds() {
+        return myRebuilds.get();
+    }
+
 }
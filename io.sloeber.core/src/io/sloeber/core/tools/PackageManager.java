@@ -11,8 +11,22 @@ import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
@@ -26,6 +40,7 @@ import org.apache.commons.io.FileUtils;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.Status;
 
 import io.sloeber.arduinoFramework.api.ArduinoInstallable;
@@ -37,6 +52,17 @@ public class PackageManager {
     private static final String FILE = Messages.FILE_TAG;
     private static final String FOLDER = Messages.FOLDER_TAG;
     private final static int MAX_HTTP_REDIRECTIONS = 5;
+    private final static int HTTP_RANGE_NOT_SATISFIABLE = 416;
+    // Files up to this size are read in memory and written by the writer threads
+    // Bigger files are written directly from the archive
+    private final static int MAX_BUFFERED_FILE_SIZE = 8 * 1024 * 1024;
+    // The maximum number of bytes read from the archive but not yet written
+    private final static int MAX_BUFFERED_BYTES = 64 * 1024 * 1024;
+    private final static int MAX_WRITER_THREADS = 4;
+    private final static int COPY_BUFFER_SIZE = 64 * 1024;
+    // The maximum number of files downloaded at the same time
+    public final static int MAX_PARALLEL_DOWNLOADS = 4;
+    private final static String PARTIAL_DOWNLOAD_EXTENSION = ".part"; //$NON-NLS-1$
 
     /**
      * downloads an archive file from the internet and saves it in the download
@@ -58,20 +84,107 @@ public class PackageManager {
      */
     public static IStatus downloadAndInstall(String pURL, String pArchiveFileName, IPath pInstallPath,
             boolean pForceDownload, IProgressMonitor pMonitor) {
+        return downloadAndInstall(pURL, pArchiveFileName, pInstallPath, null, pForceDownload, pMonitor);
+    }
+
+    /**
+     * Same as downloadAndInstall but the archive is only extracted when it
+     * matches the checksum
+     *
+     * @param pChecksum
+     *            the checksum as found in the package index like
+     *            SHA-256:1234... null or an unknown algorithm means the archive is
+     *            not verified
+     */
+    public static IStatus downloadAndInstall(String pURL, String pArchiveFileName, IPath pInstallPath,
+            String pChecksum, boolean pForceDownload, IProgressMonitor pMonitor) {
+        IStatus ret = download(pURL, pArchiveFileName, pChecksum, pForceDownload, pMonitor);
+        if (!ret.isOK()) {
+            return ret;
+        }
+        IPath archivePath = ConfigurationPreferences.getInstallationPathDownload().append(pArchiveFileName);
+        return processArchive(pArchiveFileName, pInstallPath, pForceDownload, archivePath.toString(), pMonitor);
+    }
+
+    /**
+     * Download the archive to the download folder.
+     * An existing archive is only used if it matches the checksum.
+     * The archive is downloaded to a .part file first. When a .part file exists
+     * the download continues where the previous download stopped.
+     */
+    private static IStatus download(String pURL, String pArchiveFileName, String pChecksum, boolean pForceDownload,
+            IProgressMonitor pMonitor) {
         IPath dlDir = ConfigurationPreferences.getInstallationPathDownload();
-        IPath archivePath = dlDir.append(pArchiveFileName);
+        File archiveFile = dlDir.append(pArchiveFileName).toFile();
         try {
             URL dl = new URL(pURL);
             dlDir.toFile().mkdir();
-            if (!archivePath.toFile().exists() || pForceDownload) {
-                pMonitor.subTask("Downloading " + pArchiveFileName + " .."); //$NON-NLS-1$ //$NON-NLS-2$
-                myCopy(dl, archivePath.toFile(), true);
+            if (archiveFile.exists() && !pForceDownload) {
+                MessageDigest digest = createDigest(pChecksum);
+                if (digest == null) {
+                    return Status.OK_STATUS;
+                }
+                try (InputStream in = new FileInputStream(archiveFile)) {
+                    copyStream(in, null, digest);
+                }
+                if (matchesChecksum(digest, pChecksum)) {
+                    return Status.OK_STATUS;
+                }
             }
+            pMonitor.subTask("Downloading " + pArchiveFileName + " .."); //$NON-NLS-1$ //$NON-NLS-2$
+            File partFile = new File(archiveFile.getPath() + PARTIAL_DOWNLOAD_EXTENSION);
+            if (pForceDownload) {
+                partFile.delete();
+            }
+            boolean isResumed = partFile.exists();
+            MessageDigest digest = createDigest(pChecksum);
+            myResumableCopy(dl, partFile, digest, 0);
+            boolean isValid = matchesChecksum(digest, pChecksum);
+            if (isResumed && !isValid) {
+                // The partial file may be from a different archive with the same name
+                partFile.delete();
+                digest = createDigest(pChecksum);
+                myResumableCopy(dl, partFile, digest, 0);
+                isValid = matchesChecksum(digest, pChecksum);
+            }
+            if (!isValid) {
+                partFile.delete();
+                return new Status(IStatus.ERROR, Activator.getId(),
+                        Messages.Manager_Checksum_mismatch.replace(FILE, pURL));
+            }
+            Files.move(partFile.toPath(), archiveFile.toPath(), REPLACE_EXISTING);
         } catch (Exception e) {
             return new Status(IStatus.ERROR, Activator.getId(), Messages.Manager_Failed_to_download.replace(FILE, pURL),
                     e);
         }
-        return processArchive(pArchiveFileName, pInstallPath, pForceDownload, archivePath.toString(), pMonitor);
+        return Status.OK_STATUS;
+    }
+
+    /*
+     * Returns a digest for the algorithm of the checksum or null if the checksum
+     * can not be verified
+     */
+    private static MessageDigest createDigest(String checksum) {
+        if (checksum == null) {
+            return null;
+        }
+        int separator = checksum.indexOf(':');
+        if (separator <= 0) {
+            return null;
+        }
+        try {
+            return MessageDigest.getInstance(checksum.substring(0, separator));
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    private static boolean matchesChecksum(MessageDigest digest, String checksum) {
+        if (digest == null) {
+            return true;
+        }
+        String expected = checksum.substring(checksum.indexOf(':') + 1).trim();
+        return expected.equalsIgnoreCase(HexFormat.of().formatHex(digest.digest()));
     }
 
     private static IStatus processArchive(String pArchiveFileName, IPath pInstallPath, boolean pForceDownload,
@@ -118,6 +231,19 @@ public class PackageManager {
 
     private static IStatus extract(ArchiveInputStream<?> in, File destFolder, int stripPath, boolean overwrite,
             IProgressMonitor pMonitor) throws IOException, InterruptedException {
+        // Decompressing is done by the calling thread. Writing the files is done by
+        // the writer threads
+        int numWriters = Math.min(MAX_WRITER_THREADS, Runtime.getRuntime().availableProcessors());
+        ExecutorService writers = Executors.newFixedThreadPool(Math.max(1, numWriters));
+        try {
+            return extract(in, destFolder, stripPath, overwrite, writers, pMonitor);
+        } finally {
+            writers.shutdownNow();
+        }
+    }
+
+    private static IStatus extract(ArchiveInputStream<?> in, File destFolder, int stripPath, boolean overwrite,
+            ExecutorService writers, IProgressMonitor pMonitor) throws IOException, InterruptedException {
 
         // Folders timestamps must be set at the end of archive extraction
         // (because creating a file in a folder alters the folder's timestamp)
@@ -130,6 +256,8 @@ public class PackageManager {
         Map<File, String> symLinks = new HashMap<>();
         Map<File, Long> symLinksModifiedTimes = new HashMap<>();
 
+        Semaphore bufferedBytes = new Semaphore(MAX_BUFFERED_BYTES);
+        List<Future<?>> pendingWrites = new ArrayList<>();
         // Cycle through all the archive entries
         while (true) {
             ArchiveEntry entry = in.getNextEntry();
@@ -257,21 +385,59 @@ public class PackageManager {
                 if (!outputFile.getParentFile().isDirectory()) {
                     outputFile.getParentFile().mkdirs();
                 }
-                copyStreamToFile(in, size, outputFile);
-                outputFile.setLastModified(modifiedTime.longValue());
+                long lastModified = modifiedTime.longValue();
+                Integer fileMode = mode;
+                if (size >= 0 && size <= MAX_BUFFERED_FILE_SIZE) {
+                    // Read the file in memory and let a writer thread write it
+                    int bufferSize = (int) size;
+                    bufferedBytes.acquire(bufferSize);
+                    byte[] content = in.readNBytes(bufferSize);
+                    if (content.length != bufferSize) {
+                        bufferedBytes.release(bufferSize);
+                        throw new IOException(
+                                Messages.Manager_Failed_to_extract.replace(FILE, outputFile.getAbsolutePath()));
+                    }
+                    pendingWrites.add(writers.submit(() -> {
+                        try {
+                            Files.write(outputFile.toPath(), content);
+                            outputFile.setLastModified(lastModified);
+                            if (fileMode != null) {
+                                chmod(outputFile, fileMode.intValue());
+                            }
+                        } finally {
+                            bufferedBytes.release(bufferSize);
+                        }
+                        return null;
+                    }));
+                } else {
+                    copyStreamToFile(in, size, outputFile);
+                    outputFile.setLastModified(lastModified);
+                    if (mode != null) {
+                        chmod(outputFile, mode.intValue());
+                    }
+                }
             }
 
-            // Set file/folder permission
-            if (mode != null && !isSymLink && outputFile.exists()) {
+            // Set folder permission
+            if (mode != null && isDirectory && outputFile.exists()) {
                 chmod(outputFile, mode.intValue());
             }
         }
 
+        // Links can only be made when all files have been written
+        waitForWrites(pendingWrites);
+
         for (Map.Entry<File, File> entry : hardLinks.entrySet()) {
             if (entry.getKey().exists() && overwrite) {
                 entry.getKey().delete();
             }
-            link(entry.getValue(), entry.getKey());
+            try {
+                Files.createLink(entry.getKey().toPath(), entry.getValue().toPath());
+            } catch (IOException | UnsupportedOperationException e) {
+                Activator.log(new Status(IStatus.WARNING, Activator.getId(),
+                        Messages.Manager_Failed_to_extract.replace(FILE, entry.getKey().getAbsolutePath()), e));
+                continue;
+            }
             Integer mode = hardLinksMode.get(entry.getKey());
             if (mode != null) {
                 chmod(entry.getKey(), mode.intValue());
@@ -283,8 +449,9 @@ public class PackageManager {
                 entry.getKey().delete();
             }
 
-            symlink(entry.getValue(), entry.getKey());
-            entry.getKey().setLastModified(symLinksModifiedTimes.get(entry.getKey()).longValue());
+            if (symlink(entry.getValue(), entry.getKey())) {
+                entry.getKey().setLastModified(symLinksModifiedTimes.get(entry.getKey()).longValue());
+            }
         }
 
         // Set folders timestamps
@@ -296,54 +463,75 @@ public class PackageManager {
 
     }
 
-    private static void symlink(String from, File to) throws IOException, InterruptedException {
-        if (isWindows) {
-            // needs special rights only one board seems to fail due to this
-            // Process process = Runtime.getRuntime().exec(new String[] {
-            // "mklink", from, to.getAbsolutePath() }, //$NON-NLS-1$
-            // null, to.getParentFile());
-            // process.waitFor();
-        } else {
-            Process process = Runtime.getRuntime().exec(new String[] { "ln", "-s", from, to.getAbsolutePath() }, //$NON-NLS-1$ //$NON-NLS-2$
-                    null, to.getParentFile());
-            process.waitFor();
+    /*
+     * Wait till all the files have been written. The first write error is thrown.
+     */
+    private static void waitForWrites(List<Future<?>> pendingWrites) throws IOException, InterruptedException {
+        for (Future<?> curWrite : pendingWrites) {
+            try {
+                curWrite.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException(cause);
+            }
         }
-
     }
 
     /*
-     * create a link file at the level of the os using mklink /H on windows makes
-     * that no admin rights are needed
+     * Symbolic links are relative to the folder containing the link so the link
+     * target is used as is
+     *
+     * returns true if the link has been created
      */
-    @SuppressWarnings("nls")
-    private static void link(File actualFile, File linkName) throws IOException, InterruptedException {
-        String[] command = new String[] { "ln", actualFile.getAbsolutePath(), linkName.getAbsolutePath() };
+    private static boolean symlink(String from, File to) {
         if (isWindows) {
-            command = new String[] { "cmd", "/c", "mklink", "/H", linkName.getAbsolutePath(),
-                    actualFile.getAbsolutePath() };
+            // needs special rights only one board seems to fail due to this
+            return false;
+        }
+        try {
+            Files.createSymbolicLink(to.toPath(), Paths.get(from));
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            Activator.log(new Status(IStatus.WARNING, Activator.getId(),
+                    Messages.Manager_Failed_to_extract.replace(FILE, to.getAbsolutePath()), e));
+            return false;
         }
-        Process process = Runtime.getRuntime().exec(command, null, null);
-        process.waitFor();
     }
 
-    private static void chmod(File file, int mode) throws IOException, InterruptedException {
-        String octal = Integer.toOctalString(mode);
-        if (isWindows) {
-            boolean ownerExecute = (((mode / (8 * 8)) & 1) == 1);
-            boolean ownerRead = (((mode / (8 * 8)) & 4) == 4);
-            boolean ownerWrite = (((mode / (8 * 8)) & 2) == 2);
-            boolean everyoneExecute = (((mode / 8) & 1) == 1);
-            boolean everyoneRead = (((mode / 8) & 4) == 4);
-            boolean everyoneWrite = (((mode / 8) & 2) == 2);
-            file.setWritable(true, false);
-            file.setExecutable(ownerExecute, !everyoneExecute);
-            file.setReadable(ownerRead, !everyoneRead);
-            file.setWritable(ownerWrite, !everyoneWrite);
-        } else {
-            Process process = Runtime.getRuntime().exec(new String[] { "chmod", octal, file.getAbsolutePath() }, null, //$NON-NLS-1$
-                    null);
-            process.waitFor();
+    private static Set<PosixFilePermission> toPosixFilePermissions(int mode) {
+        // The permissions are declared from OWNER_READ (0400) to OTHERS_EXECUTE (0001)
+        PosixFilePermission[] permissions = PosixFilePermission.values();
+        Set<PosixFilePermission> ret = EnumSet.noneOf(PosixFilePermission.class);
+        for (int curPermission = 0; curPermission < permissions.length; curPermission++) {
+            if ((mode & (1 << (permissions.length - 1 - curPermission))) != 0) {
+                ret.add(permissions[curPermission]);
+            }
         }
+        return ret;
+    }
+
+    private static void chmod(File file, int mode) throws IOException {
+        if (!isWindows) {
+            try {
+                Files.setPosixFilePermissions(file.toPath(), toPosixFilePermissions(mode));
+                return;
+            } catch (UnsupportedOperationException e) {
+                // The file system does not support posix permissions
+            }
+        }
+        boolean ownerExecute = (((mode / (8 * 8)) & 1) == 1);
+        boolean ownerRead = (((mode / (8 * 8)) & 4) == 4);
+        boolean ownerWrite = (((mode / (8 * 8)) & 2) == 2);
+        boolean everyoneExecute = (((mode / 8) & 1) == 1);
+        boolean everyoneRead = (((mode / 8) & 4) == 4);
+        boolean everyoneWrite = (((mode / 8) & 2) == 2);
+        file.setWritable(true, false);
+        file.setExecutable(ownerExecute, !everyoneExecute);
+        file.setReadable(ownerRead, !everyoneRead);
+        file.setWritable(ownerWrite, !everyoneWrite);
     }
 
     private static void copyStreamToFile(InputStream in, long size, File outputFile) throws IOException {
@@ -351,7 +539,7 @@ public class PackageManager {
 
             // if size is not available, copy until EOF...
             if (size == -1) {
-                byte[] buffer = new byte[4096];
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
                 int length;
                 while ((length = in.read(buffer)) != -1) {
                     fos.write(buffer, 0, length);
@@ -360,7 +548,7 @@ public class PackageManager {
             }
 
             // ...else copy just the needed amount of bytes
-            byte[] buffer = new byte[4096];
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
             long leftToWrite = size;
             while (leftToWrite > 0) {
                 int length = in.read(buffer);
@@ -385,6 +573,89 @@ public class PackageManager {
         myCopy(url, localFile, report_error, 0);
     }
 
+    @SuppressWarnings("nls")
+    private static HttpURLConnection openConnection(URL url) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setReadTimeout(30000);
+        conn.addRequestProperty("Accept-Language", "en-US,en;q=0.8");
+        conn.addRequestProperty("User-Agent", "Mozilla");
+        conn.addRequestProperty("Referer", "google.com");
+        return conn;
+    }
+
+    private static boolean isRedirect(int status) {
+        return status == HttpURLConnection.HTTP_MOVED_TEMP || status == HttpURLConnection.HTTP_MOVED_PERM
+                || status == HttpURLConnection.HTTP_SEE_OTHER;
+    }
+
+    /*
+     * Copy the stream to out (if not null) and update the digest (if not null)
+     */
+    private static void copyStream(InputStream in, FileOutputStream out, MessageDigest digest) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            if (out != null) {
+                out.write(buffer, 0, length);
+            }
+            if (digest != null) {
+                digest.update(buffer, 0, length);
+            }
+        }
+    }
+
+    /*
+     * Download the url to partFile. If partFile exists only the missing part is
+     * requested. The digest is updated with the content of the complete file.
+     */
+    @SuppressWarnings("nls")
+    private static void myResumableCopy(URL url, File partFile, MessageDigest digest, int redirectionCounter)
+            throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try (InputStream in = new FileInputStream(url.getFile());
+                    FileOutputStream out = new FileOutputStream(partFile)) {
+                copyStream(in, out, digest);
+            }
+            return;
+        }
+        long existingLength = partFile.exists() ? partFile.length() : 0;
+        HttpURLConnection conn = openConnection(url);
+        if (existingLength > 0) {
+            conn.addRequestProperty("Range", "bytes=" + existingLength + "-");
+        }
+        int status = conn.getResponseCode();
+        if (status == HttpURLConnection.HTTP_PARTIAL || status == HTTP_RANGE_NOT_SATISFIABLE) {
+            // Continue with the bytes we already have.
+            // When the range is not satisfiable the part file is complete (or wrong
+            // which is found by the checksum)
+            try (InputStream in = new FileInputStream(partFile)) {
+                copyStream(in, null, digest);
+            }
+            if (status == HttpURLConnection.HTTP_PARTIAL) {
+                try (InputStream in = conn.getInputStream();
+                        FileOutputStream out = new FileOutputStream(partFile, true)) {
+                    copyStream(in, out, digest);
+                }
+            }
+            return;
+        }
+        if (status == HttpURLConnection.HTTP_OK) {
+            // The server does not support ranges or there was nothing to resume
+            try (InputStream in = conn.getInputStream(); FileOutputStream out = new FileOutputStream(partFile)) {
+                copyStream(in, out, digest);
+            }
+            return;
+        }
+        if (isRedirect(status)) {
+            if (redirectionCounter >= MAX_HTTP_REDIRECTIONS) {
+                throw new IOException("Too many redirections while downloading file.");
+            }
+            myResumableCopy(new URL(conn.getHeaderField("Location")), partFile, digest, redirectionCounter + 1);
+            return;
+        }
+        throw new IOException("Failed to download url " + url + " error code is: " + status);
+    }
+
     @SuppressWarnings("nls")
     private static void myCopy(URL url, File localFile, boolean report_error, int redirectionCounter)
             throws IOException {
@@ -393,24 +664,19 @@ public class PackageManager {
             return;
         }
         try {
-            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-            conn.setReadTimeout(30000);
-            conn.addRequestProperty("Accept-Language", "en-US,en;q=0.8");
-            conn.addRequestProperty("User-Agent", "Mozilla");
-            conn.addRequestProperty("Referer", "google.com");
+            HttpURLConnection conn = openConnection(url);
 
             // normally, 3xx is redirect
             int status = conn.getResponseCode();
 
             if (status == HttpURLConnection.HTTP_OK) {
-                try (InputStream stream = url.openStream()) {
+                try (InputStream stream = conn.getInputStream()) {
                     Files.copy(stream, localFile.toPath(), REPLACE_EXISTING);
                 }
                 return;
             }
 
-            if (status == HttpURLConnection.HTTP_MOVED_TEMP || status == HttpURLConnection.HTTP_MOVED_PERM
-                    || status == HttpURLConnection.HTTP_SEE_OTHER) {
+            if (isRedirect(status)) {
                 if (redirectionCounter >= MAX_HTTP_REDIRECTIONS) {
                     throw new IOException("Too many redirections while downloading file.");
                 }
@@ -470,8 +736,66 @@ public class PackageManager {
             IProgressMonitor monitor) {
 
         return downloadAndInstall(installable.getUrl(), installable.getArchiveFileName(), installable.getInstallPath(),
-                forceDownload, monitor);
+                installable.getChecksum(), forceDownload, monitor);
 
     }
 
+    /**
+     * Download and install a list of installables.
+     * The archives are downloaded in parallel. The archives are extracted in the
+     * order of the list as soon as they are downloaded and verified.
+     * When an installable fails the installables after it are still installed
+     * except when it is the first one (normally the platform the others are the
+     * tools of).
+     *
+     * @param installables
+     *            the installables to install. The first one is the one the others
+     *            depend on
+     * @param forceDownload
+     * @param monitor
+     * @return the status of each installable in the order of the list
+     */
+    static public synchronized List<IStatus> downloadAndInstall(List<ArduinoInstallable> installables,
+            boolean forceDownload, IProgressMonitor monitor) throws InterruptedException {
+        List<IStatus> ret = new ArrayList<>();
+        if (installables.isEmpty()) {
+            return ret;
+        }
+        ExecutorService downloaders = Executors
+                .newFixedThreadPool(Math.min(MAX_PARALLEL_DOWNLOADS, installables.size()));
+        try {
+            List<Future<IStatus>> downloads = new ArrayList<>();
+            for (ArduinoInstallable curInstallable : installables) {
+                downloads.add(downloaders.submit(() -> download(curInstallable.getUrl(),
+                        curInstallable.getArchiveFileName(), curInstallable.getChecksum(), forceDownload,
+                        new NullProgressMonitor())));
+            }
+            for (int curIndex = 0; curIndex < installables.size(); curIndex++) {
+                ArduinoInstallable installable = installables.get(curIndex);
+                monitor.subTask("Downloading " + installable.getArchiveFileName() + " .."); //$NON-NLS-1$ //$NON-NLS-2$
+                IStatus status;
+                try {
+                    status = downloads.get(curIndex).get();
+                } catch (ExecutionException e) {
+                    status = new Status(IStatus.ERROR, Activator.getId(),
+                            Messages.Manager_Failed_to_download.replace(FILE, installable.getUrl()), e.getCause());
+                }
+                if (status.isOK()) {
+                    IPath archivePath = ConfigurationPreferences.getInstallationPathDownload()
+                            .append(installable.getArchiveFileName());
+                    status = processArchive(installable.getArchiveFileName(), installable.getInstallPath(),
+                            forceDownload, archivePath.toString(), monitor);
+                }
+                ret.add(status);
+                if (curIndex == 0 && !status.isOK()) {
+                    // no use installing the others when the first one failed
+                    break;
+                }
+            }
+        } finally {
+            downloaders.shutdownNow();
+        }
+        return ret;
+    }
+
 }
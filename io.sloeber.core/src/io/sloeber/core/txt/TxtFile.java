@@ -3,13 +3,8 @@ package io.sloeber.core.txt;
 import static io.sloeber.core.Messages.*;
 import static io.sloeber.core.api.Const.*;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import org.eclipse.core.runtime.IStatus;
@@ -57,18 +52,7 @@ public class TxtFile {
         }
 
         try {
-            String[] lines = readLines(boardsFileName.getPath());
-            for (String line : lines) {
-                if ((line.length() == 0) || (line.charAt(0) == '#'))
-                    continue;
-
-                String[] lineParts = line.split("=", 2); //$NON-NLS-1$
-                if (lineParts.length == 2) {
-                    String key = lineParts[0].trim();
-                    String value = lineParts[1].trim();
-                    myData.addValue(key, value);
-                }
-            }
+            TxtFileCache.mergeFile(boardsFileName, myData);
         } catch (Exception e) {
             Activator.log(new Status(IStatus.WARNING, Const.CORE_PLUGIN_ID,
                     Boards_Failed_to_read_boards.replace(FILE_TAG, boardsFileName.getName()), e));
@@ -90,29 +74,6 @@ public class TxtFile {
         return this.myData.getChild(SectionKey).toKeyValues(false);
     }
 
-    /**
-     * from
-     * https://stackoverflow.com/questions/285712/java-reading-a-file-into-an-array#285745
-     * reads a file to a string array
-     *
-     * @param filename
-     * @return
-     * @throws IOException
-     */
-    private static String[] readLines(String filename) throws IOException {
-        try (FileReader fileReader = new FileReader(filename)) {
-            try (BufferedReader bufferedReader = new BufferedReader(fileReader)) {
-                List<String> lines = new ArrayList<>();
-                String line = null;
-                while ((line = bufferedReader.readLine()) != null) {
-                    lines.add(line);
-                }
-                bufferedReader.close();
-                return lines.toArray(new String[lines.size()]);
-            }
-        }
-    }
-
     public String getNiceNameFromID(String myBoardID) {
         return myData.getValue(myBoardID + DOT + NAME);
     }
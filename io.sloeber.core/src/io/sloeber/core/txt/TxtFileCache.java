@@ -0,0 +1,330 @@
+package io.sloeber.core.txt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.ref.SoftReference;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+import io.sloeber.autoBuild.helpers.api.KeyValueTree;
+import io.sloeber.core.Activator;
+
+/**
+ * A cache of parsed txt files.
+ * The same boards.txt and platform.txt files are read for each board
+ * description and each project. Large platforms have boards.txt files of
+ * several megabytes so parsing them over and over again is slow.
+ *
+ * The parsed files are kept in memory (as long as memory is available) and
+ * are stored on disk in a compact binary form so they do not need to be parsed
+ * after a restart.
+ * A cached file is only used when the size and the modification time of the
+ * txt file have not changed.
+ * A file changed shortly after it was read can keep its size and modification
+ * time as the modification time has a limited resolution. So when the file
+ * was read within the resolution of its modification time the content is
+ * compared with the hash of the content that was read.
+ *
+ * The cache files of txt files that no longer exist are removed the first time
+ * the cache is used after a start.
+ *
+ * The cached trees are never handed out. Callers get a copy they can modify.
+ *
+ * @author jan
+ *
+ */
+class TxtFileCache {
+    private static final int VERSION = 2;
+    private static final String CACHE_FOLDER = "txtFileCache"; //$NON-NLS-1$
+    private static final String CACHE_FILE_EXTENSION = ".bin"; //$NON-NLS-1$
+    private static final int NO_VALUE = -1;
+    // The modification time resolution of the worst file system (FAT)
+    private static final long TIME_STAMP_RESOLUTION = 2000;
+
+    private static final Map<String, SoftReference<ParsedFile>> myParsedFiles = new ConcurrentHashMap<>();
+    private static boolean myIsEvicted = false;
+
+    private static class ParsedFile {
+        final long mySize;
+        final long myTimeStamp;
+        final long myHash;
+        // the last time the content was known to match
+        volatile long myCheckTime;
+        final KeyValueTree myData;
+
+        ParsedFile(long size, long timeStamp, long hash, long checkTime, KeyValueTree data) {
+            mySize = size;
+            myTimeStamp = timeStamp;
+            myHash = hash;
+            myCheckTime = checkTime;
+            myData = data;
+        }
+
+        boolean isFor(File file) throws IOException {
+            if (mySize != file.length() || myTimeStamp != file.lastModified()) {
+                return false;
+            }
+            if (myCheckTime - myTimeStamp >= TIME_STAMP_RESOLUTION) {
+                // a later change gives a later time stamp
+                return true;
+            }
+            long checkTime = System.currentTimeMillis();
+            if (getHash(Files.readAllBytes(file.toPath())) != myHash) {
+                return false;
+            }
+            myCheckTime = checkTime;
+            return true;
+        }
+    }
+
+    private TxtFileCache() {
+        // only static methods
+    }
+
+    /**
+     * Add the content of a txt file to a key value tree
+     *
+     * @param txtFile
+     *            the txt file to read
+     * @param data
+     *            the tree to add the keys to
+     * @throws IOException
+     */
+    static void mergeFile(File txtFile, KeyValueTree data) throws IOException {
+        mergeTree(getParsedFile(txtFile).myData, data);
+    }
+
+    private static ParsedFile getParsedFile(File txtFile) throws IOException {
+        String path = txtFile.getAbsolutePath();
+        SoftReference<ParsedFile> ref = myParsedFiles.get(path);
+        ParsedFile ret = ref == null ? null : ref.get();
+        if (ret != null && ret.isFor(txtFile)) {
+            return ret;
+        }
+        // forget the files the garbage collector took
+        myParsedFiles.values().removeIf(curRef -> curRef.get() == null);
+        Path cacheFile = getCacheFile(path);
+        ret = readCacheFile(cacheFile, path, txtFile);
+        if (ret == null) {
+            ret = parse(txtFile);
+            writeCacheFile(cacheFile, path, ret);
+        }
+        myParsedFiles.put(path, new SoftReference<>(ret));
+        return ret;
+    }
+
+    private static ParsedFile parse(File txtFile) throws IOException {
+        // read the size and time stamp before reading the file so a file that
+        // changes while reading is read again next time
+        long checkTime = System.currentTimeMillis();
+        long size = txtFile.length();
+        long timeStamp = txtFile.lastModified();
+        byte[] content = Files.readAllBytes(txtFile.toPath());
+        KeyValueTree data = KeyValueTree.createRoot();
+        try (BufferedReader bufferedReader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(content), Charset.defaultCharset()))) {
+            String line = null;
+            while ((line = bufferedReader.readLine()) != null) {
+                if ((line.length() == 0) || (line.charAt(0) == '#'))
+                    continue;
+
+                int separator = line.indexOf('=');
+                if (separator >= 0) {
+                    String key = line.substring(0, separator).trim();
+                    String value = line.substring(separator + 1).trim();
+                    data.addValue(key, value);
+                }
+            }
+        }
+        return new ParsedFile(size, timeStamp, getHash(content), checkTime, data);
+    }
+
+    private static long getHash(byte[] content) {
+        CRC32C ret = new CRC32C();
+        ret.update(content);
+        return ret.getValue();
+    }
+
+    /*
+     * Add all the keys in from to the keys in to. Values of keys that exist in
+     * both trees are overwritten
+     */
+    private static void mergeTree(KeyValueTree from, KeyValueTree to) {
+        for (KeyValueTree fromChild : from.getChildren().values()) {
+            KeyValueTree toChild = to.getChildren().get(fromChild.getKey());
+            if (toChild == null) {
+                toChild = to.addChild(fromChild.getKey(), fromChild.getValue());
+            } else if (fromChild.getValue() != null) {
+                toChild.setValue(fromChild.getValue());
+            }
+            mergeTree(fromChild, toChild);
+        }
+    }
+
+    private static Path getCacheFile(String path) {
+        Activator activator = Activator.getDefault();
+        if (activator == null) {
+            return null;
+        }
+        String fileName = UUID.nameUUIDFromBytes(path.getBytes(StandardCharsets.UTF_8)).toString()
+                + CACHE_FILE_EXTENSION;
+        Path cacheFolder = activator.getStateLocation().append(CACHE_FOLDER).toPath();
+        evictRemovedFiles(cacheFolder);
+        return cacheFolder.resolve(fileName);
+    }
+
+    /*
+     * Delete the cache files of txt files that no longer exist and of older
+     * versions of the cache. This is only done once per session.
+     */
+    private static synchronized void evictRemovedFiles(Path cacheFolder) {
+        if (myIsEvicted) {
+            return;
+        }
+        myIsEvicted = true;
+        myParsedFiles.keySet().removeIf(curPath -> !new File(curPath).isFile());
+        if (!Files.isDirectory(cacheFolder)) {
+            return;
+        }
+        try (DirectoryStream<Path> cacheFiles = Files.newDirectoryStream(cacheFolder,
+                "*" + CACHE_FILE_EXTENSION)) { //$NON-NLS-1$
+            for (Path curCacheFile : cacheFiles) {
+                boolean isUsed = false;
+                try (DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(Files.newInputStream(curCacheFile)))) {
+                    isUsed = in.readInt() == VERSION && new File(in.readUTF()).isFile();
+                } catch (IOException e) {
+                    // A corrupt cache file is not used
+                }
+                if (!isUsed) {
+                    Files.deleteIfExists(curCacheFile);
+                }
+            }
+        } catch (IOException e) {
+            // The cache files are tried again next session
+            e.printStackTrace();
+        }
+    }
+
+    /*
+     * The cache file contains a header identifying the txt file, a table with all
+     * the distinct strings and the tree where each node refers to its key and
+     * value in the string table.
+     * The header has the size, time stamp and content hash of the txt file and
+     * the time the content was read.
+     */
+    private static ParsedFile readCacheFile(Path cacheFile, String path, File txtFile) {
+        if (cacheFile == null || !Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (in.readInt() != VERSION || !path.equals(in.readUTF())) {
+                return null;
+            }
+            ParsedFile header = new ParsedFile(in.readLong(), in.readLong(), in.readLong(), in.readLong(), null);
+            if (!header.isFor(txtFile)) {
+                return null;
+            }
+            String[] strings = new String[in.readInt()];
+            for (int curString = 0; curString < strings.length; curString++) {
+                strings[curString] = in.readUTF();
+            }
+            KeyValueTree data = KeyValueTree.createRoot();
+            readChildren(in, strings, data);
+            return new ParsedFile(header.mySize, header.myTimeStamp, header.myHash, header.myCheckTime, data);
+        } catch (Exception e) {
+            // A corrupt cache file simply means the txt file is parsed again
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static void readChildren(DataInputStream in, String[] strings, KeyValueTree parent) throws IOException {
+        int numChildren = in.readInt();
+        for (int curChild = 0; curChild < numChildren; curChild++) {
+            String key = strings[in.readInt()];
+            int valueIndex = in.readInt();
+            KeyValueTree child = parent.addChild(key, valueIndex == NO_VALUE ? null : strings[valueIndex]);
+            readChildren(in, strings, child);
+        }
+    }
+
+    private static void writeCacheFile(Path cacheFile, String path, ParsedFile parsedFile) {
+        if (cacheFile == null) {
+            return;
+        }
+        Map<String, Integer> stringIndex = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        indexStrings(parsedFile.myData, stringIndex, strings);
+        Path tmpFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp"); //$NON-NLS-1$
+        try {
+            Files.createDirectories(cacheFile.getParent());
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+                out.writeInt(VERSION);
+                out.writeUTF(path);
+                out.writeLong(parsedFile.mySize);
+                out.writeLong(parsedFile.myTimeStamp);
+                out.writeLong(parsedFile.myHash);
+                out.writeLong(parsedFile.myCheckTime);
+                out.writeInt(strings.size());
+                for (String curString : strings) {
+                    out.writeUTF(curString);
+                }
+                writeChildren(out, stringIndex, parsedFile.myData);
+            }
+            Files.move(tmpFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            // Not being able to cache is not a problem
+            e.printStackTrace();
+        }
+    }
+
+    private static void indexStrings(KeyValueTree node, Map<String, Integer> stringIndex, List<String> strings) {
+        for (Entry<String, KeyValueTree> curChild : node.getChildren().entrySet()) {
+            addString(curChild.getKey(), stringIndex, strings);
+            String value = curChild.getValue().getValue();
+            if (value != null) {
+                addString(value, stringIndex, strings);
+            }
+            indexStrings(curChild.getValue(), stringIndex, strings);
+        }
+    }
+
+    private static void addString(String string, Map<String, Integer> stringIndex, List<String> strings) {
+        if (!stringIndex.containsKey(string)) {
+            stringIndex.put(string, Integer.valueOf(strings.size()));
+            strings.add(string);
+        }
+    }
+
+    private static void writeChildren(DataOutputStream out, Map<String, Integer> stringIndex, KeyValueTree node)
+            throws IOException {
+        out.writeInt(node.getChildren().size());
+        for (Entry<String, KeyValueTree> curChild : node.getChildren().entrySet()) {
+            out.writeInt(stringIndex.get(curChild.getKey()).intValue());
+            String value = curChild.getValue().getValue();
+            out.writeInt(value == null ? NO_VALUE : stringIndex.get(value).intValue());
+            writeChildren(out, stringIndex, curChild.getValue());
+        }
+    }
+}
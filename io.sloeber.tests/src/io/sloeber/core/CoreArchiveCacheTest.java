@@ -0,0 +1,98 @@
+package io.sloeber.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import io.sloeber.arduinoFramework.api.BoardDescription;
+import io.sloeber.autoBuild.api.AutoBuildProject;
+import io.sloeber.autoBuild.api.IAutoBuildConfigurationDescription;
+import io.sloeber.core.api.CodeDescription;
+import io.sloeber.core.api.CompileDescription;
+import io.sloeber.core.api.SloeberProject;
+import io.sloeber.core.builder.CoreArchiveCache;
+import io.sloeber.providers.Arduino;
+
+/**
+ * Check the core of a project build by the internal builder is stored, that a
+ * project with the same board and options gets the core from the store and
+ * that other options or the make builder do not use the stored core.
+ * Each run uses a define with the current time so the cores of previous runs
+ * are not found in the store.
+ */
+@SuppressWarnings({ "nls", "static-method" })
+public class CoreArchiveCacheTest {
+
+    @BeforeAll
+    public static void beforeClass() throws Exception {
+        Shared.waitForBoardsManager();
+        Shared.setDeleteProjects(false);
+        Arduino.installLatestAVRBoards();
+    }
+
+    @Test
+    public void storeRestoreAndFingerprint() throws Exception {
+        String runID = Long.toString(System.currentTimeMillis());
+        BoardDescription unoBoard = Arduino.uno().getBoardDescriptor();
+        CompileDescription compileDesc = new CompileDescription();
+        compileDesc.set_All_CompileOptions("-DCORE_CACHE_TEST=" + runID);
+
+        IProject firstProject = createProject("coreCacheFirst_" + runID, unoBoard, compileDesc, null);
+        CoreArchiveCache firstCache = getCoreCache(firstProject);
+        assertFalse(firstCache.isStored(), "A core with new options is in the store");
+        build(firstProject, IncrementalProjectBuilder.FULL_BUILD);
+        assertTrue(firstCache.isStored(), "The core build by the internal builder has not been stored");
+
+        IProject secondProject = createProject("coreCacheSecond_" + runID, unoBoard, compileDesc, null);
+        CoreArchiveCache secondCache = getCoreCache(secondProject);
+        assertEquals(firstCache.getFingerprint(), secondCache.getFingerprint(),
+                "The same board and options give a different fingerprint");
+        assertTrue(secondCache.restore(), "The stored core has not been restored");
+        assertFalse(secondCache.restore(), "The core has been restored over an existing core");
+        build(secondProject, IncrementalProjectBuilder.INCREMENTAL_BUILD);
+
+        CompileDescription otherCompileDesc = new CompileDescription();
+        otherCompileDesc.set_All_CompileOptions("-DCORE_CACHE_TEST_OTHER=" + runID);
+        IProject otherProject = createProject("coreCacheOther_" + runID, unoBoard, otherCompileDesc, null);
+        CoreArchiveCache otherCache = getCoreCache(otherProject);
+        assertNotEquals(firstCache.getFingerprint(), otherCache.getFingerprint(),
+                "Other options give the same fingerprint");
+        assertFalse(otherCache.isStored(), "A core with other options is found in the store");
+        assertFalse(otherCache.restore(), "A core with other options has been restored");
+    }
+
+    @Test
+    public void makeBuilderDoesNotStore() throws Exception {
+        String runID = Long.toString(System.currentTimeMillis());
+        CompileDescription compileDesc = new CompileDescription();
+        compileDesc.set_All_CompileOptions("-DCORE_CACHE_MAKE_TEST=" + runID);
+        IProject project = createProject("coreCacheMake_" + runID, Arduino.uno().getBoardDescriptor(), compileDesc,
+                AutoBuildProject.MAKE_BUILDER_ID);
+        build(project, IncrementalProjectBuilder.FULL_BUILD);
+        assertFalse(getCoreCache(project).isStored(), "The core build by make has been stored");
+    }
+
+    private static IProject createProject(String projectName, BoardDescription boardDescriptor,
+            CompileDescription compileDesc, String builderName) throws Exception {
+        IProject project = SloeberProject.createArduinoProject(projectName, null, boardDescriptor,
+                CodeDescription.createDefaultIno(), compileDesc, builderName, new NullProgressMonitor());
+        Shared.waitForIndexer(project);
+        return project;
+    }
+
+    private static void build(IProject project, int kind) throws Exception {
+        project.build(kind, new NullProgressMonitor());
+        assertNull(Shared.hasBuildErrors(project));
+    }
+
+    private static CoreArchiveCache getCoreCache(IProject project) {
+        CoreArchiveCache ret = CoreArchiveCache
+                .get(IAutoBuildConfigurationDescription.getActiveConfig(project, false));
+        assertNotNull(ret, "No core archive found in the make rules of " + project.getName());
+        return ret;
+    }
+}
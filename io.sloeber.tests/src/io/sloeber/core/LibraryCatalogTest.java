@@ -0,0 +1,133 @@
+package io.sloeber.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.sloeber.arduinoFramework.api.IArduinoLibraryVersion;
+import io.sloeber.arduinoFramework.api.LibraryManager;
+
+/**
+ * Check the libraries are kept till a library folder changes using two private
+ * library folders.
+ * Without changes the same merged view is returned. Adding or removing a
+ * library in one folder rescans that folder and gives a new merged view while
+ * the libraries of the other folder are kept. The libraries by name follow the
+ * same changes.
+ */
+@SuppressWarnings({ "nls", "static-method" })
+public class LibraryCatalogTest {
+    // the watch events of the library folders are reported with a delay
+    private static final long MAX_WAIT_FOR_CHANGE = 10000;
+    private static String myOldPrivateLibraryPaths;
+    private Path myChangedRoot;
+    private Path myOtherRoot;
+
+    @BeforeAll
+    public static void beforeClass() throws Exception {
+        Shared.waitForBoardsManager();
+        myOldPrivateLibraryPaths = LibraryManager.getPrivateLibraryPathsString();
+    }
+
+    @AfterAll
+    public static void afterClass() {
+        LibraryManager.setPrivateLibraryPaths(myOldPrivateLibraryPaths.split(File.pathSeparator));
+    }
+
+    @BeforeEach
+    public void beforeEach() throws Exception {
+        myChangedRoot = Files.createTempDirectory("libraryCatalogChanged");
+        myOtherRoot = Files.createTempDirectory("libraryCatalogOther");
+        addLibrary(myChangedRoot, "CatalogTestKept");
+        addLibrary(myOtherRoot, "CatalogTestOther");
+        LibraryManager.setPrivateLibraryPaths(new String[] { myChangedRoot.toString(), myOtherRoot.toString() });
+    }
+
+    @AfterEach
+    public void afterEach() throws Exception {
+        delete(myChangedRoot);
+        delete(myOtherRoot);
+    }
+
+    @Test
+    public void unchangedFoldersAreNotScannedAgain() {
+        Map<String, IArduinoLibraryVersion> libraries = LibraryManager.getLibrariesAll(null);
+        assertNotNull(getLibrary(libraries, "CatalogTestKept"), "The library has not been found");
+        assertNotNull(getLibrary(libraries, "CatalogTestOther"), "The library has not been found");
+        assertSame(libraries, LibraryManager.getLibrariesAll(null), "The libraries have been merged again");
+        assertSame(getLibrary(libraries, "CatalogTestKept"), LibraryManager.getLibraryByName("CatalogTestKept", null),
+                "The library by name is not the library found by FQN");
+        assertNull(LibraryManager.getLibraryByName("CatalogTestMissing", null),
+                "A library is found for a name that does not exist");
+    }
+
+    @Test
+    public void changedFolderIsScannedAgain() throws Exception {
+        Map<String, IArduinoLibraryVersion> libraries = LibraryManager.getLibrariesAll(null);
+        IArduinoLibraryVersion otherLibrary = getLibrary(libraries, "CatalogTestOther");
+        assertNull(LibraryManager.getLibraryByName("CatalogTestAdded", null));
+
+        addLibrary(myChangedRoot, "CatalogTestAdded");
+        libraries = waitFor("CatalogTestAdded", true);
+        assertNotNull(getLibrary(libraries, "CatalogTestAdded"), "The merged view misses the added library");
+        assertSame(otherLibrary, getLibrary(libraries, "CatalogTestOther"),
+                "The folder that did not change has been scanned again");
+
+        delete(myChangedRoot.resolve("CatalogTestKept"));
+        libraries = waitFor("CatalogTestKept", false);
+        assertNull(getLibrary(libraries, "CatalogTestKept"), "The merged view still has the removed library");
+        assertNotNull(getLibrary(libraries, "CatalogTestAdded"));
+        assertSame(otherLibrary, getLibrary(libraries, "CatalogTestOther"),
+                "The folder that did not change has been scanned again");
+    }
+
+    private static void addLibrary(Path root, String library) throws Exception {
+        Path libFolder = root.resolve(library);
+        Files.createDirectories(libFolder);
+        Files.writeString(libFolder.resolve(library + ".h"), "#pragma once", StandardCharsets.UTF_8);
+    }
+
+    private static void delete(Path folder) throws Exception {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(curPath -> curPath.toFile().delete());
+        }
+    }
+
+    /*
+     * Wait till the library by name is found or gone and return the merged
+     * libraries
+     */
+    private static Map<String, IArduinoLibraryVersion> waitFor(String library, boolean isInstalled)
+            throws Exception {
+        long end = System.currentTimeMillis() + MAX_WAIT_FOR_CHANGE;
+        while (System.currentTimeMillis() < end) {
+            if ((LibraryManager.getLibraryByName(library, null) != null) == isInstalled) {
+                return LibraryManager.getLibrariesAll(null);
+            }
+            Thread.sleep(100);
+        }
+        fail("The change in the library folder has not been seen for " + library);
+        return null;
+    }
+
+    private static IArduinoLibraryVersion getLibrary(Map<String, IArduinoLibraryVersion> libraries, String name) {
+        for (IArduinoLibraryVersion curLibrary : libraries.values()) {
+            if (name.equals(curLibrary.getName())) {
+                return curLibrary;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,120 @@
+package io.sloeber.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.sloeber.arduinoFramework.api.IArduinoLibraryVersion;
+import io.sloeber.arduinoFramework.api.LibraryManager;
+
+/**
+ * Check the library selected for a header using private libraries.
+ * A library named after the header wins, a header provided by more than one
+ * library that is not named after it is ambiguous and headers added to or
+ * libraries removed from the library folders are seen without restart.
+ */
+@SuppressWarnings({ "nls", "static-method" })
+public class LibraryHeaderTest {
+    // the watch events of the library folders are reported with a delay
+    private static final long MAX_WAIT_FOR_CHANGE = 10000;
+    private static String myOldPrivateLibraryPaths;
+    private Path myLibraryRoot;
+
+    @BeforeAll
+    public static void beforeClass() throws Exception {
+        Shared.waitForBoardsManager();
+        myOldPrivateLibraryPaths = LibraryManager.getPrivateLibraryPathsString();
+    }
+
+    @AfterAll
+    public static void afterClass() {
+        LibraryManager.setPrivateLibraryPaths(myOldPrivateLibraryPaths.split(File.pathSeparator));
+    }
+
+    @BeforeEach
+    public void beforeEach() throws Exception {
+        myLibraryRoot = Files.createTempDirectory("libraryHeaders");
+        addHeader("HeaderTestNamed", "HeaderTestNamed");
+        addHeader("HeaderTestNamed", "headerTestShared");
+        addHeader("HeaderTestOther", "HeaderTestNamed");
+        addHeader("HeaderTestOther", "headerTestShared");
+        addHeader("HeaderTestOther", "headerTestUnique");
+        Files.createDirectories(myLibraryRoot.resolve("HeaderTestSrc").resolve("src"));
+        addHeader("HeaderTestSrc/src", "headerTestInSrc");
+        LibraryManager.setPrivateLibraryPaths(new String[] { myLibraryRoot.toString() });
+    }
+
+    @AfterEach
+    public void afterEach() throws Exception {
+        try (Stream<Path> paths = Files.walk(myLibraryRoot)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(curPath -> curPath.toFile().delete());
+        }
+    }
+
+    @Test
+    public void rankingAndAmbiguousHeaders() {
+        Map<String, IArduinoLibraryVersion> found = getLibraries("HeaderTestNamed", "headerTestShared",
+                "headerTestUnique", "headerTestInSrc", "headerTestMissing");
+        assertEquals("HeaderTestNamed", getName(found, "HeaderTestNamed"),
+                "The library named after the header is not selected");
+        assertFalse(found.containsKey("headerTestShared"), "A library has been guessed for an ambiguous header");
+        assertEquals("HeaderTestOther", getName(found, "headerTestUnique"),
+                "The only library with the header is not selected");
+        assertEquals("HeaderTestSrc", getName(found, "headerTestInSrc"),
+                "The header in the src folder is not found");
+        assertFalse(found.containsKey("headerTestMissing"), "A library is found for a header that does not exist");
+    }
+
+    @Test
+    public void changedLibraryFolders() throws Exception {
+        assertFalse(getLibraries("headerTestAdded").containsKey("headerTestAdded"));
+        addHeader("HeaderTestSrc/src", "headerTestAdded");
+        waitFor("headerTestAdded", "HeaderTestSrc");
+
+        assertFalse(getLibraries("headerTestShared").containsKey("headerTestShared"));
+        try (Stream<Path> paths = Files.walk(myLibraryRoot.resolve("HeaderTestOther"))) {
+            paths.sorted(Comparator.reverseOrder()).forEach(curPath -> curPath.toFile().delete());
+        }
+        // the removed library no longer provides the header
+        waitFor("headerTestShared", "HeaderTestNamed");
+    }
+
+    private void addHeader(String library, String header) throws Exception {
+        Path libFolder = myLibraryRoot.resolve(library);
+        Files.createDirectories(libFolder);
+        Files.writeString(libFolder.resolve(header + ".h"), "#pragma once", StandardCharsets.UTF_8);
+    }
+
+    private static void waitFor(String header, String expectedLibrary) throws Exception {
+        long end = System.currentTimeMillis() + MAX_WAIT_FOR_CHANGE;
+        while (System.currentTimeMillis() < end) {
+            if (expectedLibrary.equals(getName(getLibraries(header), header))) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        fail("The change in the library folders has not been seen for " + header);
+    }
+
+    private static Map<String, IArduinoLibraryVersion> getLibraries(String... headers) {
+        return LibraryManager.getLibrariesForHeaders(Set.of(headers), null, false);
+    }
+
+    private static String getName(Map<String, IArduinoLibraryVersion> found, String header) {
+        IArduinoLibraryVersion library = found.get(header);
+        return library == null ? null : library.getName();
+    }
+}
@@ -0,0 +1,153 @@
+package io.sloeber.core;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.sloeber.arduinoFramework.api.IArduinoLibrary;
+import io.sloeber.arduinoFramework.api.IArduinoLibraryVersion;
+import io.sloeber.arduinoFramework.internal.ArduinoLibraryIndex;
+import io.sloeber.arduinoFramework.internal.ArduinoLibraryVersion;
+
+/**
+ * Check the binary snapshot of a library index gives the same libraries as
+ * the streaming json parse and that the snapshot is not used once the size or
+ * the modification time of the json file changed.
+ * Each test uses a json file in a new temporary folder so snapshots of previous
+ * runs are not found.
+ */
+@SuppressWarnings({ "nls", "static-method" })
+public class LibraryIndexSnapshotTest {
+    private static final String LIBRARY_INDEX = "{\n"
+            + "  \"libraries\": [\n"
+            + "    {\n"
+            + "      \"name\": \"SnapshotTest\",\n"
+            + "      \"version\": \"1.0.0\",\n"
+            + "      \"author\": \"Jan <jan@example.com>\",\n"
+            + "      \"maintainer\": \"Jan\",\n"
+            + "      \"sentence\": \"A library with \u00fcnicode\",\n"
+            + "      \"paragraph\": \"\",\n"
+            + "      \"website\": \"https://example.com/snapshot\",\n"
+            + "      \"category\": \"Other\",\n"
+            + "      \"architectures\": [\"avr\", \"esp32\"],\n"
+            + "      \"types\": [\"Contributed\"],\n"
+            + "      \"repository\": { \"url\": \"skipped\", \"tags\": [\"skipped\"] },\n"
+            + "      \"providesIncludes\": [\"SnapshotTest.h\", \"SnapshotTestExtra.h\"],\n"
+            + "      \"url\": \"https://example.com/SnapshotTest-1.0.0.zip\",\n"
+            + "      \"archiveFileName\": \"SnapshotTest-1.0.0.zip\",\n"
+            + "      \"size\": 1234,\n"
+            + "      \"checksum\": \"SHA-256:0123\"\n"
+            + "    },\n"
+            + "    {\n"
+            + "      \"name\": \"SnapshotTest\",\n"
+            + "      \"version\": \"1.1.0\",\n"
+            + "      \"author\": \"Jan <jan@example.com>\",\n"
+            + "      \"architectures\": [\"*\"],\n"
+            + "      \"url\": \"https://example.com/SnapshotTest-1.1.0.zip\",\n"
+            + "      \"size\": 2345\n"
+            + "    },\n"
+            + "    {\n"
+            + "      \"name\": \"SnapshotOther\",\n"
+            + "      \"version\": \"0.1\",\n"
+            + "      \"category\": \"Other\",\n"
+            + "      \"dependencies\": [ { \"name\": \"SnapshotTest\" } ]\n"
+            + "    }\n"
+            + "  ],\n"
+            + "  \"unknown\": { \"skipped\": true }\n"
+            + "}\n";
+
+    private Path myRoot;
+    private File myJsonFile;
+
+    @BeforeAll
+    public static void beforeClass() throws Exception {
+        Shared.waitForBoardsManager();
+    }
+
+    @BeforeEach
+    public void beforeEach() throws Exception {
+        myRoot = Files.createTempDirectory("librarySnapshot");
+        myJsonFile = myRoot.resolve("library_index.json").toFile();
+        Files.writeString(myJsonFile.toPath(), LIBRARY_INDEX, StandardCharsets.UTF_8);
+    }
+
+    @AfterEach
+    public void afterEach() throws Exception {
+        try (Stream<Path> paths = Files.walk(myRoot)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(curPath -> curPath.toFile().delete());
+        }
+    }
+
+    @Test
+    public void snapshotGivesTheSameLibraries() throws Exception {
+        ArduinoLibraryIndex parsed = ArduinoLibraryIndex.load(myJsonFile);
+        assertFalse(parsed.isFromSnapshot(), "A snapshot has been found for a new json file");
+        String parsedLibraries = dump(parsed);
+        assertTrue(parsedLibraries.contains("SnapshotTest 1.0.0"), parsedLibraries);
+        assertTrue(parsedLibraries.contains("[SnapshotTest.h, SnapshotTestExtra.h]"), parsedLibraries);
+        assertTrue(parsedLibraries.contains("A library with \u00fcnicode"), parsedLibraries);
+        assertTrue(parsedLibraries.contains("SnapshotOther 0.1"), parsedLibraries);
+
+        ArduinoLibraryIndex restored = ArduinoLibraryIndex.load(myJsonFile);
+        assertTrue(restored.isFromSnapshot(), "The snapshot of the json file has not been used");
+        assertEquals(parsedLibraries, dump(restored), "The snapshot gives other libraries than the json file");
+        assertTrue(restored.isFromSnapshot(), "The snapshot could not be read");
+    }
+
+    @Test
+    public void changedSizeRejectsTheSnapshot() throws Exception {
+        dump(ArduinoLibraryIndex.load(myJsonFile));
+        long lastModified = myJsonFile.lastModified();
+        Files.writeString(myJsonFile.toPath(), LIBRARY_INDEX.replace("\"0.1\"", "\"0.22\""),
+                StandardCharsets.UTF_8);
+        // only the size tells the json file changed
+        assertTrue(myJsonFile.setLastModified(lastModified));
+
+        ArduinoLibraryIndex changed = ArduinoLibraryIndex.load(myJsonFile);
+        assertFalse(changed.isFromSnapshot(), "The snapshot has been used after a size change");
+        assertTrue(dump(changed).contains("SnapshotOther 0.22"), "The changed json file has not been read");
+    }
+
+    @Test
+    public void changedModificationTimeRejectsTheSnapshot() throws Exception {
+        dump(ArduinoLibraryIndex.load(myJsonFile));
+        long lastModified = myJsonFile.lastModified();
+        // same size
+        Files.writeString(myJsonFile.toPath(), LIBRARY_INDEX.replace("\"0.1\"", "\"0.2\""), StandardCharsets.UTF_8);
+        assertTrue(myJsonFile.setLastModified(lastModified + 2000));
+
+        ArduinoLibraryIndex changed = ArduinoLibraryIndex.load(myJsonFile);
+        assertFalse(changed.isFromSnapshot(), "The snapshot has been used after a modification time change");
+        assertTrue(dump(changed).contains("SnapshotOther 0.2"), "The changed json file has not been read");
+    }
+
+    // All the fields kept of all the versions of all the libraries
+    private static String dump(ArduinoLibraryIndex index) {
+        StringBuilder ret = new StringBuilder();
+        for (IArduinoLibrary curLibrary : index.getLibraries()) {
+            ret.append(curLibrary.getNodeName()).append('\n');
+            for (IArduinoLibraryVersion curVersion : curLibrary.getVersions()) {
+                ArduinoLibraryVersion version = (ArduinoLibraryVersion) curVersion;
+                ret.append(version.getName()).append(' ').append(version.getVersion()).append('|')
+                        .append(version.getAuthor()).append('|').append(version.getMaintainer()).append('|')
+                        .append(version.getSentence()).append('|').append(version.getParagraph()).append('|')
+                        .append(version.getWebsite()).append('|').append(version.getCategory()).append('|')
+                        .append(version.getArchitectures()).append('|').append(version.getTypes()).append('|')
+                        .append(version.getProvidesIncludes()).append('|').append(version.getUrl()).append('|')
+                        .append(version.getArchiveFileName()).append('|').append(version.getSize()).append('|')
+                        .append(version.getChecksum()).append('|').append(version.getFQN()).append('\n');
+            }
+        }
+        return ret.toString();
+    }
+}
@@ -15,8 +15,8 @@ import org.junit.platform.suite.api.SuiteDisplayName;
 
 
 @SuiteDisplayName("Sloeber Nightly suite")
-@SelectClasses ({ TestPlatformWorkAround.class, TestSerialPlotterFilter.class, TestTxtFile.class, TestWorkAround.class,
-    TestVersionCompare.class })
+@SelectClasses ({ TestPlatformWorkAround.class, TestSerialPlotterFilter.class, TestSerialRingBuffer.class, TestTxtFile.class, TestWorkAround.class,
+    TestVersionCompare.class, TestPackageDownload.class, TestInoFileParser.class })
 @Suite
 public class AllJUnitTests {
 //nothing needs to be done here
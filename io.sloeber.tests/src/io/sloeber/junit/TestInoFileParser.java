@@ -0,0 +1,60 @@
+package io.sloeber.junit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import io.sloeber.core.builder.InoFileParser;
+import io.sloeber.core.builder.InoFileParser.InoFileInfo;
+
+@SuppressWarnings({ "nls", "static-method" })
+public class TestInoFileParser {
+
+    @Test
+    public void prototypesOfTopLevelFunctions() {
+        String ino = "#include <Arduino.h>\n" + "void setup() {\n" + "  if (a) { b = '}'; }\n" + "}\n"
+                + "/* a { comment */\n" + "static void helper(int a,\n" + "        int b) // trailing\n" + "{\n"
+                + "}\n" + "void withDefault(int a = 5) {}\n" + "int Foo::bar() { return 1; }\n"
+                + "template<typename T> T maxOf(T a, T b) { return a; }\n" + "class MyClass {\n"
+                + "  void member() {}\n" + "};\n" + "namespace ns { void inNamespace() {} }\n"
+                + "auto lambda = [](int x) { return x; };\n" + "void loop()\n" + "{\n" + "}\n";
+        InoFileInfo info = InoFileParser.parse(ino);
+        assertEquals("void setup();\n" + "static void helper(int a, int b);\n" + "void loop();\n",
+                info.getPrototypes());
+    }
+
+    @Test
+    public void declarationsUpToTheLastInclude() {
+        String ino = "#include <Arduino.h>\n" + "#define LED 13 // the led\n" + "int counter = 0, *ptr;\n"
+                + "const char* names[] = {\"a;\", \"}\"};\n" + "int matrix[2][3];\n" + "Servo myServo(9);\n"
+                + "void proto(int a);\n" + "static int hidden = 5;\n" + "extern \"C\" {\n" + "#include \"c_lib.h\"\n"
+                + "}\n" + "#ifdef ESP32\n" + "#include <WiFi.h>\n" + "#else\n" + "#include <Ethernet.h>\n"
+                + "#endif\n" + "#if FOO\n" + "#include \"foo.h\"\n" + "#else\n" + "long notThere;\n" + "#endif\n"
+                + "int afterInclude = 3;\n";
+        InoFileInfo info = InoFileParser.parse(ino);
+        assertEquals("#include <Arduino.h>\n" + "#define LED 13\n" + "extern int counter;\n" + "extern int * ptr;\n"
+                + "extern const char* names[];\n" + "extern Servo myServo;\n" + "extern \"C\" {\n"
+                + "#include \"c_lib.h\"\n" + "}\n" + "#ifdef ESP32\n" + "#include <WiFi.h>\n" + "#else\n"
+                + "#include <Ethernet.h>\n" + "#endif\n" + "#if FOO\n" + "#include \"foo.h\"\n" + "#endif\n",
+                info.getDeclarations());
+    }
+
+    @Test
+    public void prototypesKeepTheirConditionals() {
+        String ino = "#include <Arduino.h>\n" + "#ifdef ESP32\n" + "void f(WiFiClient c) {}\n" + "void g() {}\n"
+                + "#else\n" + "void f(EthernetClient c) {\n" + "#if DEBUG\n" + "  log();\n" + "#endif\n" + "}\n"
+                + "#if VERBOSE\n" + "void h() {}\n" + "#endif\n" + "#endif\n" + "void setup() {}\n";
+        InoFileInfo info = InoFileParser.parse(ino);
+        assertEquals("#ifdef ESP32\n" + "void f(WiFiClient c);\n" + "void g();\n" + "#endif\n" + "#ifdef ESP32\n"
+                + "#else\n" + "void f(EthernetClient c);\n" + "#endif\n" + "#ifdef ESP32\n" + "#else\n"
+                + "#if VERBOSE\n" + "void h();\n" + "#endif\n" + "#endif\n" + "void setup();\n",
+                info.getPrototypes());
+    }
+
+    @Test
+    public void noIncludesNoDeclarations() {
+        InoFileInfo info = InoFileParser.parse("int led = 13;\nvoid setup() {}\n");
+        assertEquals("", info.getDeclarations());
+        assertEquals("void setup();\n", info.getPrototypes());
+    }
+}
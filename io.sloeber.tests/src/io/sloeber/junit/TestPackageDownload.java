@@ -0,0 +1,133 @@
+package io.sloeber.junit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpServer;
+
+import io.sloeber.core.api.ConfigurationPreferences;
+import io.sloeber.core.tools.PackageManager;
+
+/**
+ * Download archives from a local http server to test resuming and checksum
+ * verification
+ */
+@SuppressWarnings({ "nls", "static-method" })
+public class TestPackageDownload {
+    private static final String HELLO_CONTENT = "hello world";
+
+    private HttpServer myServer;
+    private byte[] myArchive;
+    private String myArchiveName;
+    private AtomicReference<String> myLastRange = new AtomicReference<>();
+
+    @TempDir
+    Path myInstallFolder;
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        myArchive = createArchive();
+        myArchiveName = "TestPackageDownload" + System.nanoTime() + ".zip";
+        myServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        myServer.createContext("/" + myArchiveName, exchange -> {
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            myLastRange.set(range);
+            int start = 0;
+            if (range != null) {
+                start = Integer.parseInt(range.substring("bytes=".length(), range.indexOf('-')));
+                exchange.getResponseHeaders().add("Content-Range",
+                        "bytes " + start + "-" + (myArchive.length - 1) + "/" + myArchive.length);
+                exchange.sendResponseHeaders(206, myArchive.length - start);
+            } else {
+                exchange.sendResponseHeaders(200, myArchive.length);
+            }
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(myArchive, start, myArchive.length - start);
+            }
+        });
+        myServer.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        myServer.stop(0);
+        File archive = getDownloadFile().toFile();
+        archive.delete();
+        new File(archive.getPath() + ".part").delete();
+    }
+
+    @Test
+    public void downloadResumesPartialFile() throws Exception {
+        File partFile = new File(getDownloadFile().toString() + ".part");
+        partFile.getParentFile().mkdirs();
+        Files.write(partFile.toPath(), Arrays.copyOf(myArchive, myArchive.length / 2));
+
+        IStatus status = PackageManager.downloadAndInstall(getUrl(), myArchiveName, IPath.fromFile(myInstallFolder),
+                getChecksum(myArchive), false, new NullProgressMonitor());
+
+        assertTrue(status.isOK(), status.toString());
+        assertEquals("bytes=" + (myArchive.length / 2) + "-", myLastRange.get());
+        assertEquals(HELLO_CONTENT, Files.readString(myInstallFolder.resolve("hello.txt")));
+        assertFalse(partFile.exists());
+    }
+
+    @Test
+    public void downloadWithWrongChecksumIsNotInstalled() throws Exception {
+        IStatus status = PackageManager.downloadAndInstall(getUrl(), myArchiveName, IPath.fromFile(myInstallFolder),
+                getChecksum(new byte[] { 1 }), false, new NullProgressMonitor());
+
+        assertFalse(status.isOK());
+        assertFalse(getDownloadFile().toFile().exists());
+        assertFalse(myInstallFolder.resolve("hello.txt").toFile().exists());
+    }
+
+    private String getUrl() {
+        return "http://localhost:" + myServer.getAddress().getPort() + "/" + myArchiveName;
+    }
+
+    private IPath getDownloadFile() {
+        return ConfigurationPreferences.getInstallationPathDownload().append(myArchiveName);
+    }
+
+    private static String getChecksum(byte[] content) throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+        return "SHA-256:" + HexFormat.of().formatHex(digest);
+    }
+
+    /*
+     * An archive with a single root folder as used in the package indexes
+     */
+    private static byte[] createArchive() throws IOException {
+        ByteArrayOutputStream ret = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(ret)) {
+            zip.putNextEntry(new ZipEntry("root/"));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("root/hello.txt"));
+            zip.write(HELLO_CONTENT.getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        return ret.toByteArray();
+    }
+}
@@ -0,0 +1,172 @@
+package io.sloeber.junit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import io.sloeber.core.api.MessageConsumer;
+import io.sloeber.core.communication.SerialConsumerPump;
+import io.sloeber.core.communication.SerialRingBuffer;
+
+@SuppressWarnings({ "nls", "static-method" })
+public class TestSerialRingBuffer {
+
+    @Test
+    public void wrapAround() {
+        SerialRingBuffer buffer = new SerialRingBuffer(16);
+        SerialRingBuffer.Cursor cursor = buffer.new Cursor();
+        assertNull(cursor.read(), "An empty buffer returned data");
+        buffer.write(bytes(0, 10));
+        assertArrayEquals(bytes(0, 10), cursor.read());
+        // the second write wraps around the end of the buffer
+        buffer.write(bytes(10, 10));
+        assertArrayEquals(bytes(10, 10), cursor.read(), "The data is wrong after a wrap around");
+        assertNull(cursor.read(), "The same data has been read twice");
+        assertEquals(0, cursor.getLostBytes());
+        assertEquals(0, cursor.getOverflows());
+        assertEquals(10, cursor.getMaxBacklog());
+    }
+
+    @Test
+    public void overrunIsCountedOnce() {
+        SerialRingBuffer buffer = new SerialRingBuffer(16);
+        SerialRingBuffer.Cursor cursor = buffer.new Cursor();
+        for (int curWrite = 0; curWrite < 4; curWrite++) {
+            buffer.write(bytes(curWrite * 10, 10));
+        }
+        assertArrayEquals(bytes(24, 16), cursor.read(), "Not the newest data has been kept");
+        assertEquals(24, cursor.getLostBytes());
+        assertEquals(1, cursor.getOverflows(), "One overrun has not been counted once");
+        assertEquals(40, cursor.getMaxBacklog());
+
+        // one write bigger than the buffer
+        buffer.write(bytes(40, 20));
+        assertArrayEquals(bytes(44, 16), cursor.read(), "Not the end of a big write has been kept");
+        assertEquals(28, cursor.getLostBytes());
+        assertEquals(2, cursor.getOverflows());
+
+        // a cursor that keeps up does not lose anything
+        SerialRingBuffer.Cursor fastCursor = buffer.new Cursor();
+        buffer.write(bytes(60, 16));
+        assertArrayEquals(bytes(60, 16), fastCursor.read());
+        assertEquals(0, fastCursor.getLostBytes());
+        assertEquals(0, fastCursor.getOverflows());
+    }
+
+    @Test
+    public void readUpToALimit() {
+        SerialRingBuffer buffer = new SerialRingBuffer(16);
+        SerialRingBuffer.Cursor cursor = buffer.new Cursor();
+        buffer.write(bytes(0, 4));
+        long limit = buffer.getWrittenBytes();
+        buffer.write(bytes(4, 4));
+        assertArrayEquals(bytes(0, 4), cursor.read(limit));
+        assertNull(cursor.read(limit), "Data after the limit has been read");
+        assertArrayEquals(bytes(4, 4), cursor.read());
+    }
+
+    @Test
+    public void eventsAreDeliveredWithTheData() throws Exception {
+        SerialRingBuffer buffer = new SerialRingBuffer(1 << 16);
+        RecordingConsumer consumer = new RecordingConsumer();
+        SerialConsumerPump pump = new SerialConsumerPump(buffer, consumer, "test");
+        pump.start();
+        StringBuilder expected = new StringBuilder();
+        for (int curEvent = 0; curEvent < 1000; curEvent++) {
+            String data = "data" + curEvent + ";";
+            buffer.write(data.getBytes());
+            pump.dataReceived();
+            pump.event("event" + curEvent);
+            expected.append(data).append("[event").append(curEvent).append(']');
+        }
+        buffer.write("end".getBytes());
+        expected.append("end");
+        pump.stopPumping();
+        pump.join(10000);
+        assertFalse(pump.isAlive(), "The pump did not stop");
+        assertEquals(expected.toString(), consumer.getReceived(), "The events are not in order with the data");
+    }
+
+    @Test
+    public void concurrentProducerAndConsumer() throws Exception {
+        final int totalBytes = 4_000_000;
+        SerialRingBuffer buffer = new SerialRingBuffer(4096);
+        SerialRingBuffer.Cursor cursor = buffer.new Cursor();
+        AtomicReference<String> error = new AtomicReference<>();
+        long[] received = { 0 };
+        Thread consumer = new Thread(() -> {
+            int expectedNext = 0;
+            long lostBytes = 0;
+            while (received[0] + cursor.getLostBytes() < totalBytes && error.get() == null) {
+                long overflows = cursor.getOverflows();
+                byte[] data = cursor.read();
+                if (cursor.getOverflows() > overflows + 1) {
+                    error.set("An overrun has been counted more than once");
+                }
+                if (data == null) {
+                    Thread.yield();
+                    continue;
+                }
+                if (lostBytes == cursor.getLostBytes() && (data[0] & 0xFF) != expectedNext) {
+                    error.set("Bytes are missing without being counted as lost");
+                }
+                for (int curByte = 1; curByte < data.length; curByte++) {
+                    if ((data[curByte] & 0xFF) != ((data[curByte - 1] + 1) & 0xFF)) {
+                        error.set("Overwritten bytes have been returned");
+                    }
+                }
+                expectedNext = (data[data.length - 1] + 1) & 0xFF;
+                lostBytes = cursor.getLostBytes();
+                received[0] += data.length;
+            }
+        });
+        consumer.start();
+        Random random = new Random(20260318);
+        int written = 0;
+        while (written < totalBytes) {
+            int length = Math.min(1 + random.nextInt(300), totalBytes - written);
+            buffer.write(bytes(written, length));
+            written += length;
+        }
+        consumer.join(60000);
+        assertFalse(consumer.isAlive(), "The consumer did not get all the data");
+        assertNull(error.get(), error.get());
+        assertEquals(totalBytes, received[0] + cursor.getLostBytes(), "Received and lost bytes do not add up");
+        assertEquals(cursor.getLostBytes() > 0, cursor.getOverflows() > 0);
+    }
+
+    // bytes with the value of their position in the stream
+    private static byte[] bytes(int start, int length) {
+        byte[] ret = new byte[length];
+        for (int curByte = 0; curByte < length; curByte++) {
+            ret[curByte] = (byte) (start + curByte);
+        }
+        return ret;
+    }
+
+    private static class RecordingConsumer implements MessageConsumer {
+        private final StringBuilder myReceived = new StringBuilder();
+
+        @Override
+        public synchronized void message(byte[] s) {
+            myReceived.append(new String(s));
+        }
+
+        @Override
+        public synchronized void event(String event) {
+            myReceived.append('[').append(event).append(']');
+        }
+
+        @Override
+        public void dispose() {
+            // nothing to dispose
+        }
+
+        synchronized String getReceived() {
+            return myReceived.toString();
+        }
+    }
+}
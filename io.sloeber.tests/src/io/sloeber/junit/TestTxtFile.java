@@ -1,9 +1,20 @@
 package io.sloeber.junit;
 
 import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
 import org.junit.jupiter.api.Test;
 
 import io.sloeber.autoBuild.helpers.api.KeyValueTree;
+import io.sloeber.core.txt.TxtFile;
 
 @SuppressWarnings({ "nls", "static-method" })
 public class TestTxtFile {
@@ -93,6 +104,204 @@ public class TestTxtFile {
         assertEquals("Wrong getvalue", expectedResult, result);
     }
 
+    @Test
+    public void toKeyValuesWithParents() {
+        KeyValueTree root = getDataSet2();
+        KeyValueTree keyCan = root.getChild("he.I.Can");
+        Map<String, String> result = keyCan.toKeyValues(true);
+        Map<String, String> expectedResult = new LinkedHashMap<>();
+        expectedResult.put("he.I.Can.Do.This", "not once");
+        expectedResult.put("he.I.Can.Hit.This", "not twice");
+        expectedResult.put("he.I.Can.hit.This", "not three times");
+        assertEquals(expectedResult, result, "with parents");
+    }
+
+    @Test
+    public void toKeyValuesWithPrefix() {
+        KeyValueTree root = getDataSet1();
+        Map<String, String> result = root.getChild("key1").toKeyValues("pre.");
+        Map<String, String> expectedResult = new LinkedHashMap<>();
+        expectedResult.put("pre.key1_1", "value1_1");
+        expectedResult.put("pre.key1_2", "value1_2");
+        assertEquals(expectedResult, result, "with prefix");
+    }
+
+    @Test
+    public void removeKey() {
+        KeyValueTree root = getDataSet2();
+        root.removeKey("he.I.Can.Hit");
+        root.removeKey("key1");
+        root.removeKey("Not.existing.key");
+        String result = root.dump();
+        String expectedResult = "key2=value2\n" + "key2.key2_1=value2_1\n" + "he.I.Can.Do.This=not once\n"
+                + "he.I.Can.hit.This=not three times\n" + "Something.Completely.different=but always\n";
+        assertEquals(expectedResult, result, "remove key");
+    }
+
+    /**
+     * Build random trees with both KeyValueTree and a copy of the String.split
+     * and string concatenation based implementation it replaced and check they
+     * give the same results. Also check dumping and reading back a tree gives
+     * the same tree.
+     */
+    @Test
+    public void sameAsSplitImplementationOnRandomTrees() throws Exception {
+        Random random = new Random(20260318);
+        File file = File.createTempFile("keyValueTree", ".txt");
+        file.deleteOnExit();
+        for (int curTree = 0; curTree < 200; curTree++) {
+            KeyValueTree root = KeyValueTree.createRoot();
+            SplitKeyValueTree splitRoot = new SplitKeyValueTree(null, null, null);
+            List<String> keys = new ArrayList<>();
+            int numValues = 1 + random.nextInt(40);
+            for (int curValue = 0; curValue < numValues; curValue++) {
+                String key = getRandomKey(random);
+                String value = "value " + curValue + (random.nextBoolean() ? "=with.equal" : "");
+                keys.add(key);
+                root.addValue(key, value);
+                splitRoot.addValue(key, value);
+            }
+            String message = "tree " + curTree + " keys " + keys;
+            assertEquals(splitRoot.dump(splitRoot), root.dump(), message);
+            assertEquals(splitRoot.toKeyValues("", null), root.toKeyValues(true), message);
+            assertEquals(splitRoot.toKeyValues("", splitRoot), root.toKeyValues(false), message);
+            assertEquals(splitRoot.toKeyValues("pre.", splitRoot), root.toKeyValues("pre."), message);
+            for (String curKey : keys) {
+                assertEquals(splitRoot.getValue(curKey), root.getValue(curKey), message + " key " + curKey);
+                SplitKeyValueTree splitChild = splitRoot.getChild(curKey);
+                KeyValueTree child = root.getChild(curKey);
+                assertEquals(splitChild.toKeyValues("", null), child.toKeyValues(true), message + " key " + curKey);
+                assertEquals(splitChild.toKeyValues("", splitChild), child.toKeyValues(false),
+                        message + " key " + curKey);
+                assertEquals(splitChild.dump(splitChild), child.dump(), message + " key " + curKey);
+            }
+
+            Files.writeString(file.toPath(), root.dump(), StandardCharsets.UTF_8);
+            KeyValueTree readBack = KeyValueTree.createRoot();
+            readBack.mergeFile(file);
+            assertEquals(root.dump(), readBack.dump(), message + " read back");
+        }
+    }
+
+    /**
+     * A txt file changed right after it was read keeps its size and can keep
+     * its modification time. The cached content must not be used.
+     */
+    @Test
+    public void sameSizeChangeIsRead() throws Exception {
+        File file = File.createTempFile("txtFileCache", ".txt");
+        file.deleteOnExit();
+        Files.writeString(file.toPath(), "board.name=first\n", StandardCharsets.UTF_8);
+        long lastModified = file.lastModified();
+        assertEquals("first", new TxtFile(file).getData().getValue("board.name"));
+        Files.writeString(file.toPath(), "board.name=other\n", StandardCharsets.UTF_8);
+        assertTrue(file.setLastModified(lastModified));
+        assertEquals("other", new TxtFile(file).getData().getValue("board.name"),
+                "The cached content of a changed file has been used");
+    }
+
+    /*
+     * A key of 1 to 4 parts. Parts can be empty and keys can end with dots.
+     */
+    private static String getRandomKey(Random random) {
+        String[] parts = { "a", "b", "B", "key", "", "x_1" };
+        StringBuilder ret = new StringBuilder(parts[random.nextInt(parts.length)]);
+        int numParts = random.nextInt(4);
+        for (int curPart = 0; curPart < numParts; curPart++) {
+            ret.append('.').append(parts[random.nextInt(parts.length)]);
+        }
+        if (random.nextInt(10) == 0) {
+            ret.append(random.nextBoolean() ? "." : "..");
+        }
+        return ret.toString();
+    }
+
+    /**
+     * The String.split and string concatenation based implementation of
+     * KeyValueTree to compare with
+     */
+    private static class SplitKeyValueTree {
+        private final String myKey;
+        private String myValue;
+        private final SplitKeyValueTree myParent;
+        private final Map<String, SplitKeyValueTree> myChildren = new LinkedHashMap<>();
+
+        SplitKeyValueTree(String key, String value, SplitKeyValueTree parent) {
+            myKey = key;
+            myValue = value;
+            myParent = parent;
+        }
+
+        void addValue(String theKey, String theValue) {
+            SplitKeyValueTree curChild = this;
+            for (String curSubKey : theKey.split("\\.")) {
+                SplitKeyValueTree nextChild = curChild.myChildren.get(curSubKey);
+                if (null == nextChild) {
+                    nextChild = new SplitKeyValueTree(curSubKey, null, curChild);
+                    curChild.myChildren.put(curSubKey, nextChild);
+                }
+                curChild = nextChild;
+            }
+            curChild.myValue = theValue;
+        }
+
+        SplitKeyValueTree getChild(String childKey) {
+            SplitKeyValueTree curChild = this;
+            for (String curSubKey : childKey.split("\\.")) {
+                curChild = curChild.myChildren.get(curSubKey);
+                if (null == curChild) {
+                    return new SplitKeyValueTree(null, null, null);
+                }
+            }
+            return curChild;
+        }
+
+        String getValue(String childKey) {
+            SplitKeyValueTree curChild = this;
+            for (String curSubKey : childKey.split("\\.")) {
+                curChild = curChild.myChildren.get(curSubKey);
+                if (null == curChild) {
+                    return "";
+                }
+            }
+            return curChild.myValue;
+        }
+
+        private String getKeyPath(SplitKeyValueTree theRoot) {
+            String seperator = "";
+            String ret = "";
+            SplitKeyValueTree current = this;
+            while ((current.myParent != null) && (current != theRoot)) {
+                ret = current.myKey + seperator + ret;
+                current = current.myParent;
+                seperator = ".";
+            }
+            return ret;
+        }
+
+        String dump(SplitKeyValueTree theRoot) {
+            String ret = "";
+            if ((null != myValue) && (this != theRoot)) {
+                ret = getKeyPath(theRoot) + "=" + myValue + "\n";
+            }
+            for (SplitKeyValueTree node : myChildren.values()) {
+                ret += node.dump(theRoot);
+            }
+            return ret;
+        }
+
+        Map<String, String> toKeyValues(String prefix, SplitKeyValueTree theRoot) {
+            Map<String, String> ret = new LinkedHashMap<>();
+            if (this != theRoot && null != myKey && null != myValue) {
+                ret.put(prefix + getKeyPath(theRoot), myValue);
+            }
+            for (SplitKeyValueTree node : myChildren.values()) {
+                ret.putAll(node.toKeyValues(prefix, theRoot));
+            }
+            return ret;
+        }
+    }
+
     private KeyValueTree getDataSet1() {
         KeyValueTree root = KeyValueTree.createRoot();
 
@@ -103,6 +103,7 @@ public class Messages extends NLS {
     public static String serialMonitorConnectedTo;
     public static String serialMonitorDisconnectedFrom;
     public static String serialMonitorFilterPloter;
+    public static String serialMonitorLogToFile;
     public static String serialMonitorNoInput;
     public static String serialMonitorNoMoreSerialPortsSupported;
     public static String serialMonitorRemoveSerialPortFromMonitor;
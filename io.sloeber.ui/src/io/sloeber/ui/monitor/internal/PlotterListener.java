@@ -20,9 +20,7 @@ public class PlotterListener implements MessageConsumer {
 	MyPlotter myPlotter;
 	/**
 	 * myReceivedSerialData is a fixed size buffer holding the bytes that have been
-	 * received from the com port
-	 *
-	 * if we are more than this behind we will loose data
+	 * received from the com port and that have not yet been scanned
 	 */
 	private ByteBuffer myReceivedSerialData = ByteBuffer.allocate(2000);
 
@@ -32,31 +30,36 @@ public class PlotterListener implements MessageConsumer {
 	}
 
 	/**
-	 * Here the message comes in from the serial port. If there is not enough place
-	 * in If there is enough place in myReceivedSerialData the data is added to
-	 * myReceivedSerialData to hold all the data; all the data (that in
-	 * myReceivedSerialData and in s) is ignored and a warning is dumped If there is
-	 * enough place in myReceivedSerialData the data is added to
-	 * myReceivedSerialData and myReceivedSerialData is scanned for plotter data
+	 * Here the message comes in from the serial port. The message can be bigger
+	 * than myReceivedSerialData (the serial port delivers all the data received
+	 * since the previous message) so the data is added to myReceivedSerialData
+	 * in parts and each part is scanned for plotter data before the next part is
+	 * added. Only when myReceivedSerialData is full of data that can not be
+	 * scanned the data is ignored and a warning is dumped
 	 *
 	 */
 	@Override
 	public synchronized void message(byte[] newData) {
-		if (this.myPlotter.isDisposed())
+		if (this.myPlotter == null || this.myPlotter.isDisposed())
 			return;
-		if (this.myReceivedSerialData.remaining() < newData.length) {
-			this.myReceivedSerialData.clear();
-			log(new Status(IStatus.WARNING, PLUGIN_ID, Messages.serialListenerPlotterSkippingData));
-		} else {
-
-			this.myReceivedSerialData.put(newData);
-			this.myReceivedSerialData.flip();
-			if (internalExtractAndProcessSerialData()) {
-				addValuesToPlotter();
+		boolean addedDataToPlotter = false;
+		int offset = 0;
+		while (offset < newData.length) {
+			int length = Math.min(this.myReceivedSerialData.remaining(), newData.length - offset);
+			if (length == 0) {
+				this.myReceivedSerialData.clear();
+				log(new Status(IStatus.WARNING, PLUGIN_ID, Messages.serialListenerPlotterSkippingData));
+				continue;
 			}
+			this.myReceivedSerialData.put(newData, offset, length);
+			offset += length;
+			this.myReceivedSerialData.flip();
+			addedDataToPlotter = internalExtractAndProcessSerialData() || addedDataToPlotter;
 			this.myReceivedSerialData.compact();
 		}
-
+		if (addedDataToPlotter) {
+			addValuesToPlotter();
+		}
 	}
 
 	@Override
@@ -2,14 +2,12 @@ package io.sloeber.ui.monitor.internal;
 
 import static io.sloeber.ui.Activator.*;
 
-import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
-import org.eclipse.swt.widgets.Display;
 
 import io.sloeber.core.api.Const;
 import io.sloeber.core.api.MessageConsumer;
@@ -20,7 +18,7 @@ import io.sloeber.ui.monitor.views.SerialMonitor;
 public class SerialListener implements MessageConsumer {
 	private static boolean myPlotterFilterFlag = false;
 	SerialMonitor theMonitor;
-	boolean isDisposed = false;
+	volatile boolean isDisposed = false;
 	int theColorIndex;
 	private ByteBuffer myReceivedSerialData = ByteBuffer.allocate(2000);
 
@@ -39,19 +37,23 @@ public class SerialListener implements MessageConsumer {
 		String ret = new String();
 		if (myPlotterFilterFlag) {
 			// filter plotter data
-			try {
-				this.myReceivedSerialData.put(newData);
-			} catch (BufferOverflowException e) {
-				this.myReceivedSerialData.clear();
-				log(new Status(IStatus.WARNING, PLUGIN_ID, Messages.serialListenerPlotterSkippingData));
-				return ret;
-			}
-
-			if (this.myReceivedSerialData.remaining() > 4) {
+			// newData can be bigger than the buffer so it is filtered in parts
+			StringBuilder filtered = new StringBuilder();
+			int offset = 0;
+			while (offset < newData.length) {
+				int length = Math.min(this.myReceivedSerialData.remaining(), newData.length - offset);
+				if (length == 0) {
+					this.myReceivedSerialData.clear();
+					log(new Status(IStatus.WARNING, PLUGIN_ID, Messages.serialListenerPlotterSkippingData));
+					continue;
+				}
+				this.myReceivedSerialData.put(newData, offset, length);
+				offset += length;
 				this.myReceivedSerialData.flip();
-				ret = internalRemovePlotterData();
+				filtered.append(internalRemovePlotterData());
 				this.myReceivedSerialData.compact();
 			}
+			ret = filtered.toString();
 		} else {
 			// treat data just like a event
 			if (newData[newData.length - 1] == '\r') {
@@ -120,44 +122,11 @@ public class SerialListener implements MessageConsumer {
 		}
 	}
 
-	public class TxtUpdater implements Runnable {
-		private boolean running = false;
-		private String additionalSerialData = new String();
-
-		public synchronized void addData(String event) {
-			if (!event.isEmpty()) {
-				this.additionalSerialData = this.additionalSerialData + event;
-				if (!this.running || this.additionalSerialData.length() > 500) {
-					Display.getDefault().asyncExec(this);
-					this.running = true;
-				}
-			}
-		}
-
-		private synchronized void synchronizedrun() {
-			try {
-				if (!SerialListener.this.isDisposed) {
-					SerialListener.this.theMonitor.ReportSerialActivity(this.additionalSerialData,
-							SerialListener.this.theColorIndex);
-					this.additionalSerialData = new String();
-				}
-			} catch (Exception e) {// ignore as we get errors when closing
-				// down
-			}
-			this.running = false;
-		}
-
-		@Override
-		public void run() {
-			synchronizedrun();
-		}
-	}
-
-	TxtUpdater textUpdater = new TxtUpdater();
-
 	@Override
 	public void event(String event) {
-		this.textUpdater.addData(event);
+		if (!this.isDisposed) {
+			this.theMonitor.ReportSerialActivity(event, this.theColorIndex);
+		}
 	}
 
 	public static void setPlotterFilter(boolean selection) {
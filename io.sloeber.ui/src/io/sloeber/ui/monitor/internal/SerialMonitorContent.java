@@ -0,0 +1,331 @@
+package io.sloeber.ui.monitor.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.swt.custom.StyledTextContent;
+import org.eclipse.swt.custom.TextChangeListener;
+import org.eclipse.swt.custom.TextChangedEvent;
+import org.eclipse.swt.custom.TextChangingEvent;
+
+/**
+ * The text shown in the serial monitor.
+ * The serial monitor can run for days so the text is kept in a ring of lines
+ * of limited size. When the ring is full the oldest lines are dropped.
+ * Each line remembers which parts came from which serial port (the color
+ * index) so the StyledText only needs to ask for the styles of the lines it
+ * shows.
+ *
+ * All methods must be called on the GUI thread.
+ */
+public class SerialMonitorContent implements StyledTextContent {
+	public static final int NO_COLOR = -1;
+	private static final String LINE_DELIMITER = "\n"; //$NON-NLS-1$
+	private static final int[] NO_SEGMENTS = new int[0];
+
+	private final int myMaxLines;
+	private final int myMaxLineLength;
+	private final List<TextChangeListener> myListeners = new ArrayList<>();
+
+	// the ring of lines. The last line is the line new text is added to
+	private final String[] myLines;
+	// for each line pairs of (offset in the line, color index)
+	private final int[][] mySegments;
+	// for each line the offset of the start of the line since the last setText
+	private final long[] myStarts;
+	private int myFirst = 0;
+	private int myCount = 1;
+
+	/**
+	 * @param maxLines      the maximum number of lines to keep
+	 * @param maxLineLength the maximum length of a line. Longer lines are split.
+	 */
+	public SerialMonitorContent(int maxLines, int maxLineLength) {
+		myMaxLines = Math.max(maxLines, 2);
+		myMaxLineLength = Math.max(maxLineLength, 1);
+		myLines = new String[myMaxLines];
+		mySegments = new int[myMaxLines][];
+		myStarts = new long[myMaxLines];
+		clear();
+	}
+
+	private void clear() {
+		Arrays.fill(myLines, null);
+		Arrays.fill(mySegments, null);
+		myFirst = 0;
+		myCount = 1;
+		myLines[0] = new String();
+		mySegments[0] = NO_SEGMENTS;
+		myStarts[0] = 0;
+	}
+
+	private int index(int lineIndex) {
+		return (myFirst + lineIndex) % myMaxLines;
+	}
+
+	private int lastIndex() {
+		return index(myCount - 1);
+	}
+
+	/**
+	 * Add text at the end. Lines that are too long are split and the oldest lines
+	 * are dropped when there are too many lines.
+	 *
+	 * @param text       the text to add. Carriage returns are ignored.
+	 * @param colorIndex the color index of the text or NO_COLOR
+	 */
+	public void append(String text, int colorIndex) {
+		append(text, colorIndex, true);
+	}
+
+	private void append(String text, int colorIndex, boolean notify) {
+		List<String> newLines = new ArrayList<>();
+		StringBuilder curLine = new StringBuilder(myLines[lastIndex()]);
+		int firstLineLength = curLine.length();
+		StringBuilder inserted = new StringBuilder(text.length());
+		for (int curChar = 0; curChar < text.length(); curChar++) {
+			char c = text.charAt(curChar);
+			if (c == '\r') {
+				continue;
+			}
+			if (c != '\n' && curLine.length() >= myMaxLineLength) {
+				// split the line
+				newLines.add(curLine.toString());
+				curLine.setLength(0);
+				inserted.append(LINE_DELIMITER);
+			}
+			if (c == '\n') {
+				newLines.add(curLine.toString());
+				curLine.setLength(0);
+			} else {
+				curLine.append(c);
+			}
+			inserted.append(c);
+		}
+		if (inserted.length() == 0) {
+			return;
+		}
+		newLines.add(curLine.toString());
+
+		if (newLines.size() > myMaxLines) {
+			// only the last lines of the text fit
+			clear();
+			append(String.join(LINE_DELIMITER, newLines.subList(newLines.size() - myMaxLines, newLines.size())),
+					colorIndex, false);
+			if (notify) {
+				fireTextSet();
+			}
+			return;
+		}
+
+		// drop the oldest lines when needed (the last line is extended)
+		int numLinesToDrop = myCount - 1 + newLines.size() - myMaxLines;
+		if (numLinesToDrop > 0) {
+			dropFirstLines(numLinesToDrop, notify);
+		}
+
+		if (notify) {
+			TextChangingEvent changing = new TextChangingEvent(this);
+			changing.start = getCharCount();
+			changing.replaceCharCount = 0;
+			changing.replaceLineCount = 0;
+			changing.newText = inserted.toString();
+			changing.newCharCount = inserted.length();
+			changing.newLineCount = newLines.size() - 1;
+			for (TextChangeListener curListener : listeners()) {
+				curListener.textChanging(changing);
+			}
+		}
+
+		int last = lastIndex();
+		int[] lastSegments = mySegments[last];
+		String firstLine = newLines.get(0);
+		myLines[last] = firstLine;
+		mySegments[last] = addSegment(lastSegments, firstLineLength, firstLine.length(), colorIndex);
+		long start = myStarts[last];
+		for (int curNewLine = 1; curNewLine < newLines.size(); curNewLine++) {
+			start = start + newLines.get(curNewLine - 1).length() + LINE_DELIMITER.length();
+			String line = newLines.get(curNewLine);
+			myCount++;
+			int newIndex = lastIndex();
+			myLines[newIndex] = line;
+			mySegments[newIndex] = addSegment(NO_SEGMENTS, 0, line.length(), colorIndex);
+			myStarts[newIndex] = start;
+		}
+
+		if (notify) {
+			fireTextChanged();
+		}
+	}
+
+	private static int[] addSegment(int[] segments, int offset, int lineLength, int colorIndex) {
+		if (offset >= lineLength) {
+			return segments;
+		}
+		if (segments.length >= 2 && segments[segments.length - 1] == colorIndex) {
+			return segments;
+		}
+		int[] ret = Arrays.copyOf(segments, segments.length + 2);
+		ret[segments.length] = offset;
+		ret[segments.length + 1] = colorIndex;
+		return ret;
+	}
+
+	private void dropFirstLines(int numLines, boolean notify) {
+		if (numLines <= 0) {
+			return;
+		}
+		if (notify) {
+			TextChangingEvent changing = new TextChangingEvent(this);
+			changing.start = 0;
+			changing.replaceCharCount = getOffsetAtLine(numLines);
+			changing.replaceLineCount = numLines;
+			changing.newText = new String();
+			changing.newCharCount = 0;
+			changing.newLineCount = 0;
+			for (TextChangeListener curListener : listeners()) {
+				curListener.textChanging(changing);
+			}
+		}
+		for (int curLine = 0; curLine < numLines; curLine++) {
+			myLines[myFirst] = null;
+			mySegments[myFirst] = null;
+			myFirst = (myFirst + 1) % myMaxLines;
+		}
+		myCount -= numLines;
+		if (notify) {
+			fireTextChanged();
+		}
+	}
+
+	private void fireTextChanged() {
+		TextChangedEvent changed = new TextChangedEvent(this);
+		for (TextChangeListener curListener : listeners()) {
+			curListener.textChanged(changed);
+		}
+	}
+
+	private void fireTextSet() {
+		TextChangedEvent changed = new TextChangedEvent(this);
+		for (TextChangeListener curListener : listeners()) {
+			curListener.textSet(changed);
+		}
+	}
+
+	private TextChangeListener[] listeners() {
+		return myListeners.toArray(new TextChangeListener[myListeners.size()]);
+	}
+
+	/**
+	 * Get the parts of a line with their color
+	 *
+	 * @param lineIndex the line
+	 * @return pairs of (offset in the line, color index)
+	 */
+	public int[] getSegments(int lineIndex) {
+		return mySegments[index(lineIndex)];
+	}
+
+	@Override
+	public void addTextChangeListener(TextChangeListener listener) {
+		myListeners.add(listener);
+	}
+
+	@Override
+	public void removeTextChangeListener(TextChangeListener listener) {
+		myListeners.remove(listener);
+	}
+
+	@Override
+	public int getCharCount() {
+		int last = lastIndex();
+		return (int) (myStarts[last] - myStarts[myFirst]) + myLines[last].length();
+	}
+
+	@Override
+	public String getLine(int lineIndex) {
+		return myLines[index(lineIndex)];
+	}
+
+	@Override
+	public int getLineAtOffset(int offset) {
+		int low = 0;
+		int high = myCount - 1;
+		while (low < high) {
+			int mid = (low + high + 1) >>> 1;
+			if (getOffsetAtLine(mid) <= offset) {
+				low = mid;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return low;
+	}
+
+	@Override
+	public int getLineCount() {
+		return myCount;
+	}
+
+	@Override
+	public String getLineDelimiter() {
+		return LINE_DELIMITER;
+	}
+
+	@Override
+	public int getOffsetAtLine(int lineIndex) {
+		return (int) (myStarts[index(lineIndex)] - myStarts[myFirst]);
+	}
+
+	@Override
+	public String getTextRange(int start, int length) {
+		StringBuilder ret = new StringBuilder(length);
+		int end = start + length;
+		for (int curLine = getLineAtOffset(start); curLine < myCount && ret.length() < length; curLine++) {
+			int lineOffset = getOffsetAtLine(curLine);
+			String line = getLine(curLine);
+			int from = Math.max(start - lineOffset, 0);
+			int to = Math.min(end - lineOffset, line.length());
+			if (from < to) {
+				ret.append(line, from, to);
+			}
+			if (curLine < myCount - 1 && end > lineOffset + line.length()) {
+				ret.append(LINE_DELIMITER);
+			}
+		}
+		return ret.toString();
+	}
+
+	/**
+	 * The serial monitor is read only so this is only called when the StyledText
+	 * is asked to change the text. Appending and removing text at the start are
+	 * done without copying the text. Other changes rebuild the content with the
+	 * default color.
+	 */
+	@Override
+	public void replaceTextRange(int start, int replaceLength, String text) {
+		int charCount = getCharCount();
+		if (start == charCount && replaceLength == 0) {
+			append(text, NO_COLOR);
+			return;
+		}
+		if (start == 0 && text.isEmpty() && replaceLength < charCount) {
+			int line = getLineAtOffset(replaceLength);
+			if (getOffsetAtLine(line) == replaceLength) {
+				dropFirstLines(line, true);
+				return;
+			}
+		}
+		String newText = getTextRange(0, start) + text + getTextRange(start + replaceLength,
+				charCount - start - replaceLength);
+		setText(newText);
+	}
+
+	@Override
+	public void setText(String text) {
+		clear();
+		append(text, NO_COLOR, false);
+		fireTextSet();
+	}
+}
@@ -4,9 +4,13 @@ import static io.sloeber.core.api.Const.*;
 import static io.sloeber.ui.Activator.*;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
@@ -17,6 +21,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.cdt.core.model.CoreModel;
 import org.eclipse.cdt.core.settings.model.ICConfigurationDescription;
@@ -45,6 +50,7 @@ import org.eclipse.jface.viewers.SelectionChangedEvent;
 import org.eclipse.jface.viewers.Viewer;
 import org.eclipse.jface.window.Window;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.LineStyleEvent;
 import org.eclipse.swt.custom.StyleRange;
 import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.events.MouseEvent;
@@ -56,6 +62,7 @@ import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.IActionBars;
 import org.eclipse.ui.ISharedImages;
@@ -71,6 +78,7 @@ import io.sloeber.ui.Messages;
 import io.sloeber.ui.helpers.MyPreferences;
 import io.sloeber.ui.listeners.ProjectExplorerListener;
 import io.sloeber.ui.monitor.internal.SerialListener;
+import io.sloeber.ui.monitor.internal.SerialMonitorContent;
 
 /**
  * SerialMonitor implements the view that shows the serial monitor. Serial
@@ -95,12 +103,22 @@ public class SerialMonitor extends ViewPart implements ISerialUser {
 	// mode.
 	static private final StringBuilder[] lineBuffer = new StringBuilder[MY_MAX_SERIAL_PORTS];
 
+	// The serial monitor only keeps the last lines
+	static private final int MY_MAX_LINES = 10000;
+	static private final int MY_MAX_LINE_LENGTH = 4096;
+	// The serial data is added to the monitor at most once per frame
+	static private final int MY_FRAME_MILLIS = 1000 / 60;
+
+	// The serial data waiting to be shown in the order it arrived
+	static private final List<PendingText> pendingText = new ArrayList<>();
+
 	static private final DateTimeFormatter timeFormatter = DateTimeFormatter.ofPattern("HH:mm:ss"); //$NON-NLS-1$
 
 	static private final URL IMG_CLEAR;
 	static private final URL IMG_LOCK;
 	static private final URL IMG_FILTER;
 	static private final URL IMG_TIMESTAMP;
+	static private final URL IMG_LOG;
 	static private final String newLine = System.getProperty("line.separator"); //$NON-NLS-1$
 
 	static {
@@ -108,6 +126,16 @@ public class SerialMonitor extends ViewPart implements ISerialUser {
 		IMG_LOCK = getDefault().getBundle().getEntry("icons/lock_console.png"); //$NON-NLS-1$
 		IMG_FILTER = getDefault().getBundle().getEntry("icons/filter_console.png"); //$NON-NLS-1$
 		IMG_TIMESTAMP = getDefault().getBundle().getEntry("icons/timestamp_console.png"); //$NON-NLS-1$
+		IMG_LOG = getDefault().getBundle().getEntry("icons/save.png"); //$NON-NLS-1$
+	}
+
+	private static class PendingText {
+		final StringBuilder text = new StringBuilder();
+		final int style;
+
+		PendingText(int style) {
+			this.style = style;
+		}
 	}
 
 	// Connect to a serial port
@@ -123,11 +151,18 @@ public class SerialMonitor extends ViewPart implements ISerialUser {
 	private Action clear;
 	// Toggle timestamps on serial messages.
 	private Action showTimestamps;
+	// Write the serial messages to a file
+	private Action logToFile;
 
 	// The string to send to the serial port
 	protected Text sendString;
 	// control contains the output of the serial port
 	static protected StyledText monitorOutput;
+	// the text shown in monitorOutput
+	static private SerialMonitorContent monitorContent;
+	// the file the serial messages are written to or null
+	private FileChannel logChannel = null;
+	private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
 	// Port used when doing actions
 	protected ComboViewer serialPorts;
 	// Add CR? LF? CR+LF? Nothing?
@@ -222,6 +257,7 @@ public class SerialMonitor extends ViewPart implements ISerialUser {
 			entry.getKey().dispose();
 		}
 		serialConnections.clear();
+		closeLogFile();
 		instance = null;
 	}
 
@@ -325,6 +361,9 @@ public class SerialMonitor extends ViewPart implements ISerialUser {
 		monitorOutput = new StyledText(top, SWT.BORDER | SWT.H_SCROLL | SWT.V_SCROLL);
 		monitorOutput.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true, 5, 1));
 		monitorOutput.setEditable(false);
+		monitorContent = new SerialMonitorContent(MY_MAX_LINES, MY_MAX_LINE_LENGTH);
+		monitorOutput.setContent(monitorContent);
+		monitorOutput.addLineStyleListener(event -> setLineStyle(event));
 		IThemeManager themeManager = PlatformUI.getWorkbench().getThemeManager();
 		ITheme currentTheme = themeManager.getCurrentTheme();
 		FontRegistry fontRegistry = currentTheme.getFontRegistry();
@@ -411,6 +450,7 @@ public class SerialMonitor extends ViewPart implements ISerialUser {
 		manager.add(scrollLock);
 		manager.add(plotterFilter);
 		manager.add(showTimestamps);
+		manager.add(logToFile);
 		manager.add(connect);
 		manager.add(disconnect);
 	}
@@ -493,6 +533,98 @@ public class SerialMonitor extends ViewPart implements ISerialUser {
 		showTimestamps.setEnabled(true);
 		showTimestamps.setChecked(MyPreferences.getLastUsedShowTimestamps());
 		timestampMode = MyPreferences.getLastUsedShowTimestamps();
+
+		logToFile = new Action(Messages.serialMonitorLogToFile, IAction.AS_CHECK_BOX) {
+			@Override
+			public void run() {
+				if (isChecked()) {
+					setChecked(openLogFile());
+				} else {
+					closeLogFile();
+				}
+			}
+		};
+		logToFile.setImageDescriptor(ImageDescriptor.createFromURL(IMG_LOG));
+		logToFile.setEnabled(true);
+		logToFile.setChecked(false);
+	}
+
+	/**
+	 * Ask for a file and start writing the serial messages to it. Messages are
+	 * appended to the end of an existing file.
+	 *
+	 * @return true if the serial messages are written to a file
+	 */
+	private boolean openLogFile() {
+		FileDialog dialog = new FileDialog(parent.getShell(), SWT.SAVE);
+		dialog.setText(Messages.serialMonitorLogToFile);
+		dialog.setFileName("serialmonitor.log"); //$NON-NLS-1$
+		String fileName = dialog.open();
+		if (fileName == null) {
+			return false;
+		}
+		closeLogFile();
+		try {
+			logChannel = FileChannel.open(Path.of(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.APPEND);
+			return true;
+		} catch (IOException e) {
+			log(new Status(IStatus.ERROR, PLUGIN_ID, "Failed to open " + fileName, e)); //$NON-NLS-1$
+			return false;
+		}
+	}
+
+	private void closeLogFile() {
+		if (logChannel == null) {
+			return;
+		}
+		try {
+			logChannel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		logChannel = null;
+	}
+
+	private void writeToLogFile(String text) {
+		if (logChannel == null) {
+			return;
+		}
+		// The encoded text is written to the file as is
+		ByteBuffer bytes = StandardCharsets.UTF_8.encode(text);
+		try {
+			while (bytes.hasRemaining()) {
+				logChannel.write(bytes);
+			}
+		} catch (IOException e) {
+			log(new Status(IStatus.ERROR, PLUGIN_ID, "Failed to write the serial monitor log file", e)); //$NON-NLS-1$
+			closeLogFile();
+			logToFile.setChecked(false);
+		}
+	}
+
+	/**
+	 * Give the parts of a line the color of the serial port they came from.
+	 * The StyledText only asks this for the lines it shows.
+	 */
+	private void setLineStyle(LineStyleEvent event) {
+		int[] segments = monitorContent.getSegments(monitorContent.getLineAtOffset(event.lineOffset));
+		List<StyleRange> styles = new ArrayList<>(segments.length / 2);
+		for (int curSegment = 0; curSegment < segments.length; curSegment += 2) {
+			int style = segments[curSegment + 1];
+			if (style < 0 || style >= MY_MAX_SERIAL_PORTS) {
+				continue;
+			}
+			int start = segments[curSegment];
+			int end = curSegment + 2 < segments.length ? segments[curSegment + 2] : event.lineText.length();
+			StyleRange styleRange = new StyleRange();
+			styleRange.start = event.lineOffset + start;
+			styleRange.length = end - start;
+			styleRange.fontStyle = SWT.NORMAL;
+			styleRange.foreground = colorRegistry.get(serialColorID[style]);
+			styles.add(styleRange);
+		}
+		event.styles = styles.toArray(new StyleRange[styles.size()]);
 	}
 
 	/**
@@ -506,60 +638,90 @@ public class SerialMonitor extends ViewPart implements ISerialUser {
 
 	/**
 	 * The listener calls this method to report that serial data has arrived
+	 * This method can be called from any thread. The data is shown at the next
+	 * frame together with all other data that arrived in the mean time.
 	 *
 	 * @param stInfo The serial data that has arrived
 	 * @param style  The style that should be used to report the data; Actually this
 	 *               is the index number of the opened port
 	 */
 	public void ReportSerialActivity(String stInfo, int style) {
-		String text = stInfo;
-
-		if (timestampMode) {
-			StringBuilder sb = new StringBuilder();
-			String ts = LocalTime.now().format(timeFormatter) + ": "; //$NON-NLS-1$
-
-			// Normalize the line endings.
-			text = text.replaceAll("\r", ""); //$NON-NLS-1$ //$NON-NLS-2$
-			int begin = 0;
-			while (true) {
-				int idx = text.indexOf("\n", begin); //$NON-NLS-1$
-				if (idx >= 0) {
-					// Note the first time through this loop lineBuffer[style] may contain
-					// an incomplete line from the previously received chunk of data.
-					String substring = text.substring(begin, idx + 1);
-					lineBuffer[style].append(substring);
-					sb.append(ts);
-					sb.append(lineBuffer[style]);
-
-					lineBuffer[style].setLength(0);
-					begin = idx + 1;
-				} else {
-					// Save any remaining data for the next time through this method.
-					lineBuffer[style].append(text.substring(begin));
-					break;
-				}
+		if (stInfo.isEmpty()) {
+			return;
+		}
+		synchronized (pendingText) {
+			PendingText last = pendingText.isEmpty() ? null : pendingText.get(pendingText.size() - 1);
+			if (last == null || last.style != style) {
+				last = new PendingText(style);
+				pendingText.add(last);
 			}
+			last.text.append(stInfo);
+		}
+		if (flushScheduled.compareAndSet(false, true)) {
+			Display display = Display.getDefault();
+			display.asyncExec(() -> display.timerExec(MY_FRAME_MILLIS, () -> flushPendingText()));
+		}
+	}
 
-			if (sb.length() < 1) {
-				return;
+	/**
+	 * Show all the serial data that arrived since the previous frame
+	 */
+	private void flushPendingText() {
+		flushScheduled.set(false);
+		List<PendingText> toShow;
+		synchronized (pendingText) {
+			toShow = new ArrayList<>(pendingText);
+			pendingText.clear();
+		}
+		if (monitorOutput == null || monitorOutput.isDisposed()) {
+			return;
+		}
+		StringBuilder logText = new StringBuilder();
+		for (PendingText curText : toShow) {
+			String text = timestampMode ? addTimestamps(curText.text, curText.style) : curText.text.toString();
+			if (!text.isEmpty()) {
+				monitorContent.append(text, curText.style);
+				logText.append(text);
 			}
-
-			text = sb.toString();
 		}
-
-		int startPoint = monitorOutput.getCharCount();
-		monitorOutput.append(text);
-		StyleRange styleRange = new StyleRange();
-		styleRange.start = startPoint;
-		styleRange.length = text.length();
-		styleRange.fontStyle = SWT.NORMAL;
-		styleRange.foreground = colorRegistry.get(serialColorID[style]);
-		monitorOutput.setStyleRange(styleRange);
+		writeToLogFile(logText.toString());
 		if (!scrollLock.isChecked()) {
 			monitorOutput.setSelection(monitorOutput.getCharCount());
 		}
 	}
 
+	/**
+	 * Only complete lines are shown in timestamp mode. The rest of the data is
+	 * kept in the lineBuffer till the line is complete
+	 *
+	 * @return the complete lines prefixed with the time stamp
+	 */
+	private static String addTimestamps(CharSequence text, int style) {
+		StringBuilder ret = new StringBuilder();
+		StringBuilder line = lineBuffer[style];
+		String ts = null;
+		for (int curChar = 0; curChar < text.length(); curChar++) {
+			char c = text.charAt(curChar);
+			// Normalize the line endings.
+			if (c == '\r') {
+				continue;
+			}
+			line.append(c);
+			if (c == '\n' || line.length() >= MY_MAX_LINE_LENGTH) {
+				if (ts == null) {
+					ts = LocalTime.now().format(timeFormatter) + ": "; //$NON-NLS-1$
+				}
+				ret.append(ts);
+				ret.append(line);
+				if (c != '\n') {
+					ret.append(newLine);
+				}
+				line.setLength(0);
+			}
+		}
+		return ret.toString();
+	}
+
 	/**
 	 * method to make sure the visualization is correct
 	 */